@@ -16,7 +16,7 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
-import java.sql.*;
+import java.sql.SQLException;
 
 import javax.swing.JFrame;
 import javax.swing.table.AbstractTableModel;
@@ -236,19 +236,14 @@ public class AdminView extends JFrame {
 			to reflect the changes done. The database will then have the same
 			contents as the table the admin sees. 
 			*/
-			try {
-				dc.saveDefault();
-				String driver = "net.sourceforge.jtds.jdbc.Driver";
-				Class.forName(driver);
-				Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-				Statement stmt = conn.createStatement();
-				view.fillKeywords(stmt);
-				view.createErrorDictionary(stmt);
-				view.updateTreeView();
-				btnModifyHyperlink.setEnabled(true);
-			} catch (Exception e1) {
-				e1.printStackTrace();
-			}
+			btnSaveToDatabase.setEnabled(false);
+			dc.saveDefault(saved -> {
+				btnSaveToDatabase.setEnabled(true);
+				if (saved) {
+					view.refreshDictionary();
+					btnModifyHyperlink.setEnabled(true);
+				}
+			});
 		});
 		btnSaveToDatabase.setAlignmentX(Component.RIGHT_ALIGNMENT);
 		pnlTabOneButtons.add(btnSaveToDatabase);
@@ -266,7 +261,7 @@ public class AdminView extends JFrame {
 			}
 			dc.getHyperlinkList().clear();
 			for(int j = 0; j < dc.getDefaultHyperlinkList().size(); j++) {
-				dc.getHyperlinkList().add(dc.getDefaultHyperlinkList().get(j));
+				dc.getHyperlinkList().add(dc.getDefaultHyperlinkList().get(j).clone());
 			}
 			dc.transferData("DEFAULT");
 			resetErrorData();
@@ -360,15 +355,10 @@ public class AdminView extends JFrame {
 		
 		btnModifyHyperlink.addActionListener(e -> {
 			tblHyperlinkEntries.setValueAt(tfHyperlink.getText(), tblHyperlinkEntries.getSelectedRow(), 1);
-			for(int i = 0; i < dc.getDefaultHyperlinkList().size(); i++) {
-				dc.getDefaultHyperlinkList().get(i)[1] = (String)tblHyperlinkEntries.getValueAt(i, 1);
+			for(int i = 0; i < dc.getHyperlinkList().size(); i++) {
 				dc.getHyperlinkList().get(i)[1] = (String)tblHyperlinkEntries.getValueAt(i, 1);
 			}
-			try {
-				dc.writeURLsToDB();
-			} catch (Exception e1) {
-				e1.printStackTrace();
-			}
+			dc.writeURLsToDB();
 		});
 		
 		JPanel pnlHyperlink = new JPanel();
@@ -421,33 +411,24 @@ public class AdminView extends JFrame {
 	 * @throws ClassNotFoundException if getClass was unsuccessful
 	 */
 	void createDataTable() throws SQLException, ClassNotFoundException {		
-		String driver = "net.sourceforge.jtds.jdbc.Driver";
-		Class.forName(driver);
-		Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-
-		Statement stmt = conn.createStatement();
-		String query2 = "select Keyword, Log_Error_Description, "+
-						"Suggested_Solution, Folder, Hyperlink from logerrors";
-		ResultSet rs = stmt.executeQuery(query2);
-		while(rs.next())
+		for (String[] row : LogStorage.getInstance().loadLogErrors())
 		{
 			String[] entry = new String[4];
-			entry[0] = rs.getString("Folder");
-			entry[1] = rs.getString("Keyword");
-			entry[2] = rs.getString("Log_Error_Description");
-			entry[3] = rs.getString("Suggested_Solution");
-			keyWords.add(rs.getString("Keyword"));
-			savedWords.add(rs.getString("Keyword"));
+			entry[0] = row[LogStorage.FOLDER];
+			entry[1] = row[LogStorage.KEYWORD];
+			entry[2] = row[LogStorage.DESCRIPTION];
+			entry[3] = row[LogStorage.SOLUTION];
+			keyWords.add(row[LogStorage.KEYWORD]);
+			savedWords.add(row[LogStorage.KEYWORD]);
 			list.add(entry);
 			defaultList.add(entry);
 			
 			String[] hyperlinkEntry = new String[2];
-			hyperlinkEntry[0] = rs.getString("Keyword");
-			hyperlinkEntry[1] = rs.getString("Hyperlink");
+			hyperlinkEntry[0] = row[LogStorage.KEYWORD];
+			hyperlinkEntry[1] = row[LogStorage.HYPERLINK];
 			hyperlinkList.add(hyperlinkEntry);
-			defaultHyperlinkList.add(hyperlinkEntry);
+			defaultHyperlinkList.add(hyperlinkEntry.clone());
 		}
-		stmt.close();
 	}
 	
 	/**
@@ -517,14 +498,8 @@ public class AdminView extends JFrame {
 		Object group = tblGroupEntries.getValueAt(row, 1);
 		String groupToRemove = (String) group;
 		
-		String driver = "net.sourceforge.jtds.jdbc.Driver";
-		Class.forName(driver);
-		Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-
-		Statement stmt = conn.createStatement();
-		stmt.executeUpdate("delete from Groups where GroupKeywords = \'" + groupToRemove + "\'");
-		view.loadGroupInfo(stmt);
-		stmt.close();
+		LogStorage.getInstance().deleteGroup(groupToRemove);
+		view.loadGroupInfo();
 
 		System.out.println(groupToRemove);
 		StringBuilder query = new StringBuilder();
@@ -0,0 +1,191 @@
+/**
+ * @file AlertRules.java
+ * Rules checked against the lines of a logfile that is being followed, each
+ * of the form
+ *     keyword [over seconds] > count in seconds
+ * e.g. "DEADLOCK > 5 in 60s" or "===> over 10 >= 2 in 60s". A rule counts the
+ * lines with its keyword after the timestamp, only those whose duration (the
+ * last word, read like a Time critical arrow) is over the given seconds if
+ * there is an over part, and fires as soon as enough of them fall within the
+ * window. Rules are separated by ';' or new lines.
+ *
+ * Each rule keeps the times of its last count lines in a ring buffer, so a
+ * line costs a map lookup per word and an O(1) check per rule it matches,
+ * however wide the window. Once a rule fires its buffer is emptied, so it
+ * fires again only after count more lines. Times come from the timestamps of
+ * the lines, so a log that is caught up on fires the same way it would have
+ * live; lines without one use the last timestamp seen.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class AlertRules {
+	private static final Pattern RULE = Pattern.compile(
+			"(\\S+)(?:\\s+over\\s+(\\d+(?:\\.\\d+)?)s?)?\\s+(>=?)\\s*(\\d+)\\s+in\\s+(\\d+(?:\\.\\d+)?)s?");
+
+	private final List<Rule> rules;
+	/**Rules by their keyword*/
+	private final HashMap<String, Rule[]> byKeyword = new HashMap<String, Rule[]>();
+	/**Number of the line being checked, so a rule counts a line once*/
+	private long lineNumber;
+	/**Time of the last timestamp seen, Utility.NO_TIME before the first*/
+	private long lastMillis = Utility.NO_TIME;
+
+	/**
+	 * @param rules The rules to check
+	 */
+	AlertRules(List<Rule> rules) {
+		this.rules = rules;
+		for (Rule rule : rules) {
+			Rule[] same = byKeyword.get(rule.keyword);
+			Rule[] grown = new Rule[(same == null) ? 1 : same.length + 1];
+			if (same != null) System.arraycopy(same, 0, grown, 0, same.length);
+			grown[grown.length - 1] = rule;
+			byKeyword.put(rule.keyword, grown);
+		}
+	}
+
+	/**
+	 * Reads rules separated by ';' or new lines, ignoring blank ones
+	 * @param text The rules
+	 * @return The rules, ready to check lines
+	 * @throws IllegalArgumentException If a rule cannot be read, naming the rule
+	 */
+	static AlertRules parse(String text) {
+		int maxCount = AppConfig.getInt("alert.maxCount", 10000);
+		List<Rule> rules = new ArrayList<Rule>();
+		for (String part : text.split("[;\\r\\n]+")) {
+			String trimmed = part.trim();
+			if (trimmed.isEmpty()) continue;
+			Matcher matcher = RULE.matcher(trimmed);
+			if (!matcher.matches()) {
+				throw new IllegalArgumentException("Could not read the rule \"" + trimmed
+						+ "\", expected e.g. DEADLOCK > 5 in 60s or ===> over 10 >= 2 in 60s");
+			}
+			long count = Long.parseLong(matcher.group(4)) + (matcher.group(3).equals(">") ? 1 : 0);
+			if (count < 1 || count > maxCount) {
+				throw new IllegalArgumentException("The count of \"" + trimmed + "\" must be from 1 to " + maxCount);
+			}
+			double over = (matcher.group(2) == null) ? Double.NaN : Double.parseDouble(matcher.group(2));
+			long windowMillis = Math.round(Double.parseDouble(matcher.group(5)) * 1000);
+			rules.add(new Rule(trimmed, matcher.group(1), over, (int) count, windowMillis));
+		}
+		return new AlertRules(rules);
+	}
+
+	/**
+	 * Checks a line against the rules
+	 * @param line A line of the logfile
+	 * @param alerts Given an Alert for every rule the line makes fire
+	 */
+	void check(String line, Consumer<Alert> alerts) {
+		lineNumber++;
+		String[] words = line.split(" ");
+		int first = 0;
+		String timeStamp = null;
+		for (; first < words.length; first++) {
+			if (words[first].length() == 19) {
+				timeStamp = words[first];
+				first++;
+				break;
+			}
+		}
+		if (timeStamp == null) first = 0;
+		long millis = Utility.toEpochMillis(timeStamp);
+		if (millis != Utility.NO_TIME) lastMillis = Math.max(lastMillis, millis);
+		double duration = Double.NaN;
+		for (int i = first; i < words.length; i++) {
+			Rule[] matching = byKeyword.get(words[i]);
+			if (matching == null) continue;
+			for (Rule rule : matching) {
+				if (rule.lastLine == lineNumber) continue;
+				rule.lastLine = lineNumber;
+				if (!Double.isNaN(rule.over)) {
+					if (Double.isNaN(duration)) duration = LogParser.parseDuration(words[words.length - 1]);
+					if (!(duration > rule.over)) continue;
+				}
+				long time = (lastMillis != Utility.NO_TIME) ? lastMillis : System.currentTimeMillis();
+				if (rule.offer(time)) {
+					alerts.accept(new Alert(rule, (timeStamp == null) ? "" : timeStamp, line));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The rules, in the order they were given
+	 */
+	List<Rule> getRules() {
+		return rules;
+	}
+
+	/**
+	 * One rule with the ring buffer of its recent times
+	 */
+	static final class Rule {
+		final String text;
+		final String keyword;
+		/**Seconds a line's duration must be over to count, NaN to count every line*/
+		final double over;
+		final int count;
+		final long windowMillis;
+		/**Times of the last count lines, oldest at head once full*/
+		private final long[] times;
+		private int head;
+		private int size;
+		private long lastLine;
+		/**Number of times the rule has fired*/
+		private volatile int fired;
+
+		Rule(String text, String keyword, double over, int count, long windowMillis) {
+			this.text = text;
+			this.keyword = keyword;
+			this.over = over;
+			this.count = count;
+			this.windowMillis = windowMillis;
+			times = new long[count];
+		}
+
+		/**
+		 * Adds the time of a matching line
+		 * @return True if the rule fires: count lines fell within the window
+		 */
+		boolean offer(long time) {
+			//Lines a little out of order count as the latest time
+			if (size > 0) time = Math.max(time, times[(head + times.length - 1) % times.length]);
+			times[head] = time;
+			head = (head + 1) % times.length;
+			if (size < times.length) size++;
+			if (size < times.length || time - times[head] > windowMillis) return false;
+			size = 0;
+			fired++;
+			return true;
+		}
+
+		int getFired() {
+			return fired;
+		}
+	}
+
+	/**
+	 * A rule firing on a line
+	 */
+	static final class Alert {
+		final Rule rule;
+		final String timeStamp;
+		final String line;
+
+		Alert(Rule rule, String timeStamp, String line) {
+			this.rule = rule;
+			this.timeStamp = timeStamp;
+			this.line = line;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * @file AppConfig.java
+ * Holds the settings of the program, such as how to connect to the database.
+ * Settings are read from coeus.properties in the working directory, or from
+ * the .coeus folder in the user's home directory. A setting can also be given
+ * on the command line as a system property, e.g. -Dcoeus.db.url=...,
+ * which takes priority over the file.
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+public final class AppConfig {
+	/**Name of the settings file*/
+	private static final String FILE_NAME = "coeus.properties";
+	/**Prefix used for settings given as system properties*/
+	private static final String PREFIX = "coeus.";
+	/**Settings read from the file, loaded the first time a setting is needed*/
+	private static Properties properties;
+
+	private AppConfig(){
+		//Do nothing
+	}
+
+	/**
+	 * Looks up a setting
+	 * @param key Name of the setting, e.g. "db.url"
+	 * @param defaultValue Returned if the setting is not given anywhere
+	 * @return The value of the setting
+	 */
+	public static synchronized String getString(String key, String defaultValue){
+		String value = System.getProperty(PREFIX + key);
+		if (value != null) return value.trim();
+		if (properties == null) properties = load();
+		value = properties.getProperty(key);
+		return (value == null) ? defaultValue : value.trim();
+	}
+
+	/**
+	 * Looks up a numeric setting
+	 * @param key Name of the setting
+	 * @param defaultValue Returned if the setting is missing or not a number
+	 * @return The value of the setting
+	 */
+	public static int getInt(String key, int defaultValue){
+		return (int) getLong(key, defaultValue);
+	}
+
+	/**
+	 * Looks up a numeric setting
+	 * @param key Name of the setting
+	 * @param defaultValue Returned if the setting is missing or not a number
+	 * @return The value of the setting
+	 */
+	public static long getLong(String key, long defaultValue){
+		String value = getString(key, null);
+		if (value == null) return defaultValue;
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			System.out.println("Ignoring invalid value for " + key + ": " + value);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Looks up a setting that may have decimals
+	 * @param key Name of the setting
+	 * @param defaultValue Returned if the setting is missing or not a number
+	 * @return The value of the setting
+	 */
+	public static double getDouble(String key, double defaultValue){
+		String value = getString(key, null);
+		if (value == null) return defaultValue;
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			System.out.println("Ignoring invalid value for " + key + ": " + value);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Gives the folder where the program keeps its local files, creating it if needed
+	 * @return The data directory, by default .coeus in the user's home directory
+	 */
+	public static File getDataDirectory(){
+		File dir = new File(getString("data.dir",
+				System.getProperty("user.home") + File.separator + ".coeus"));
+		if (!dir.isDirectory() && !dir.mkdirs()){
+			System.out.println("Could not create data directory " + dir);
+		}
+		return dir;
+	}
+
+	/**
+	 * Reads the settings file from the working directory, or from the
+	 * home directory if there is none in the working directory
+	 * @return The settings, empty if no file was found
+	 */
+	private static Properties load(){
+		Properties props = new Properties();
+		File file = new File(FILE_NAME);
+		if (!file.isFile()){
+			file = new File(System.getProperty("user.home") + File.separator + ".coeus", FILE_NAME);
+		}
+		if (file.isFile()){
+			try (InputStream in = new FileInputStream(file)) {
+				props.load(in);
+			} catch (IOException e) {
+				System.out.println("Could not read " + file + ": " + e.getMessage());
+			}
+		}
+		return props;
+	}
+}
@@ -0,0 +1,307 @@
+/**
+ * @file ArrowLatency.java
+ * Collects the durations of the Time critical arrows read during a parse.
+ * Every arrow block is counted in a LatencyHistogram for the whole file, one
+ * for its U-code and one for its time of day bucket (setting
+ * latency.bucketMinutes, default 60), whether or not it fell inside the
+ * bounds the user chose, so the bounds can be picked from the numbers. The
+ * slowest blocks (setting latency.slowest, default 20) are kept with the line
+ * they start on, and the depth of each arrow chain is counted as well.
+ *
+ * At most latency.codes (default 200) U-codes have a histogram of their own,
+ * so a log with tens of thousands of codes stays within a few MB. When a new
+ * code comes up and there is no room, the code with the fewest arrows is
+ * merged into the histogram of the other codes. A code that comes back later
+ * starts a new histogram, so its row only counts the arrows since then.
+ */
+
+package interfaceTest;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+class ArrowLatency {
+	/**Quantiles shown for every histogram*/
+	static final double[] QUANTILES = {0.5, 0.95, 0.99};
+	static final String[] SUMMARY_HEADERS = {"Arrows", "p50", "p95", "p99", "Max", "Mean"};
+	static final String OTHER_CODES = "other codes";
+
+	private final LatencyHistogram all = new LatencyHistogram();
+	private final HashMap<String, LatencyHistogram> byCode = new HashMap<String, LatencyHistogram>();
+	/**Most U-codes with a histogram of their own*/
+	private final int maxCodes;
+	/**Arrows of the codes that were moved out of byCode*/
+	private final LatencyHistogram otherCodes = new LatencyHistogram();
+	/**Histograms by the start of their time bucket, in time order*/
+	private final TreeMap<String, LatencyHistogram> byTime = new TreeMap<String, LatencyHistogram>();
+	/**The slowest arrows so far, the fastest of them on top*/
+	private final PriorityQueue<Arrow> slowest;
+	private final int slowestCount;
+	private final int bucketMinutes;
+	/**Number of chains of each depth*/
+	private long[] depthCounts = new long[8];
+	private long chains;
+	private long depthTotal;
+	private int maxDepth;
+	private long deepestLine;
+
+	/**
+	 * Uses the settings latency.slowest, latency.bucketMinutes and latency.codes
+	 */
+	ArrowLatency() {
+		this(AppConfig.getInt("latency.slowest", 20), AppConfig.getInt("latency.bucketMinutes", 60),
+				AppConfig.getInt("latency.codes", 200));
+	}
+
+	/**
+	 * @param slowestCount Number of slowest arrows to keep
+	 * @param bucketMinutes Length of the time buckets in minutes
+	 * @param maxCodes Most U-codes with a histogram of their own
+	 */
+	ArrowLatency(int slowestCount, int bucketMinutes, int maxCodes) {
+		this.slowestCount = Math.max(slowestCount, 0);
+		this.maxCodes = Math.max(maxCodes, 1);
+		this.bucketMinutes = Math.max(1, Math.min(bucketMinutes, 24 * 60));
+		slowest = new PriorityQueue<Arrow>(this.slowestCount + 1, Comparator.comparingDouble(a -> a.duration));
+	}
+
+	/**
+	 * Counts the duration of one Time critical arrow
+	 * @param words The arrow's line, split by " "
+	 * @param timeStamp The timestamp of the line
+	 * @param duration The duration at the end of the line, NaN if there is none
+	 * @param line Line number of the arrow in the logfile
+	 */
+	void record(String[] words, String timeStamp, double duration, long line) {
+		if (Double.isNaN(duration)) return;
+		String uCode = uCodeOf(words);
+		all.record(duration);
+		codeHistogram(uCode).record(duration);
+		histogram(byTime, bucketOf(timeStamp)).record(duration);
+		if (slowestCount > 0 && (slowest.size() < slowestCount || duration > slowest.peek().duration)) {
+			slowest.add(new Arrow(duration, timeStamp, uCode, line));
+			if (slowest.size() > slowestCount) slowest.poll();
+		}
+	}
+
+	/**
+	 * Counts a chain of arrows once it has been read to its closing arrow
+	 * @param depth Number of Time critical arrows in the chain
+	 * @param line Line number the chain starts on
+	 */
+	void chainFinished(int depth, long line) {
+		if (depth <= 0) return;
+		if (depth >= depthCounts.length) {
+			long[] grown = new long[Math.max(depthCounts.length * 2, depth + 1)];
+			System.arraycopy(depthCounts, 0, grown, 0, depthCounts.length);
+			depthCounts = grown;
+		}
+		depthCounts[depth]++;
+		chains++;
+		depthTotal += depth;
+		if (depth > maxDepth) {
+			maxDepth = depth;
+			deepestLine = line;
+		}
+	}
+
+	/**
+	 * @return Number of arrows counted
+	 */
+	long getCount() {
+		return all.getCount();
+	}
+
+	/**
+	 * @return One line summary of the whole file, e.g. for the progress dialog
+	 */
+	String describe() {
+		return all.getCount() + " arrows, p50 " + format(all.quantile(0.5)) + ", p95 " + format(all.quantile(0.95))
+				+ ", p99 " + format(all.quantile(0.99)) + ", max " + format(all.getMax());
+	}
+
+	/**
+	 * @return Summary of the chains of arrows
+	 */
+	String describeChains() {
+		if (chains == 0) return "No arrow chains";
+		return chains + " chains, mean depth " + format((double) depthTotal / chains) + ", max depth " + maxDepth
+				+ " (line " + deepestLine + ")";
+	}
+
+	/**
+	 * @return The quantiles of the whole file, in the layout of SUMMARY_HEADERS
+	 */
+	Object[] overallRow() {
+		return summaryRow(all);
+	}
+
+	/**
+	 * @return A row for each U-code, in the layout of SUMMARY_HEADERS after the U-code,
+	 * the slowest p95 first, and one for the other codes last
+	 */
+	List<Object[]> codeRows() {
+		List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<Map.Entry<String, LatencyHistogram>>(byCode.entrySet());
+		entries.sort(Comparator.comparingDouble((Map.Entry<String, LatencyHistogram> e) -> e.getValue().quantile(0.95)).reversed());
+		if (otherCodes.getCount() > 0) entries.add(new AbstractMap.SimpleEntry<String, LatencyHistogram>(OTHER_CODES, otherCodes));
+		return labelledRows(entries);
+	}
+
+	/**
+	 * @return A row for each time bucket, in the layout of SUMMARY_HEADERS after the bucket, in time order
+	 */
+	List<Object[]> timeRows() {
+		return labelledRows(new ArrayList<Map.Entry<String, LatencyHistogram>>(byTime.entrySet()));
+	}
+
+	/**
+	 * @return The slowest arrows, slowest first: duration, timestamp, U-code and line number
+	 */
+	List<Object[]> slowestRows() {
+		List<Arrow> arrows = new ArrayList<Arrow>(slowest);
+		arrows.sort(Comparator.comparingDouble((Arrow a) -> a.duration).reversed());
+		List<Object[]> rows = new ArrayList<Object[]>(arrows.size());
+		for (Arrow arrow : arrows) {
+			rows.add(new Object[] {format(arrow.duration), arrow.timeStamp, arrow.uCode, arrow.line});
+		}
+		return rows;
+	}
+
+	/**
+	 * @return Number of chains of each depth that occurred, shallowest first
+	 */
+	List<Object[]> depthRows() {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int depth = 1; depth < depthCounts.length; depth++) {
+			if (depthCounts[depth] > 0) rows.add(new Object[] {depth, depthCounts[depth]});
+		}
+		return rows;
+	}
+
+	/**
+	 * @return The minutes of the duration bucket, e.g. to title the time table
+	 */
+	int getBucketMinutes() {
+		return bucketMinutes;
+	}
+
+	private List<Object[]> labelledRows(List<Map.Entry<String, LatencyHistogram>> entries) {
+		List<Object[]> rows = new ArrayList<Object[]>(entries.size());
+		for (Map.Entry<String, LatencyHistogram> entry : entries) {
+			Object[] summary = summaryRow(entry.getValue());
+			Object[] row = new Object[summary.length + 1];
+			row[0] = entry.getKey();
+			System.arraycopy(summary, 0, row, 1, summary.length);
+			rows.add(row);
+		}
+		return Collections.unmodifiableList(rows);
+	}
+
+	private static Object[] summaryRow(LatencyHistogram histogram) {
+		Object[] row = new Object[SUMMARY_HEADERS.length];
+		row[0] = histogram.getCount();
+		for (int i = 0; i < QUANTILES.length; i++) {
+			row[i + 1] = format(histogram.quantile(QUANTILES[i]));
+		}
+		row[QUANTILES.length + 1] = format(histogram.getMax());
+		row[QUANTILES.length + 2] = format(histogram.getMean());
+		return row;
+	}
+
+	private static LatencyHistogram histogram(Map<String, LatencyHistogram> map, String key) {
+		LatencyHistogram histogram = map.get(key);
+		if (histogram == null) {
+			histogram = new LatencyHistogram();
+			map.put(key, histogram);
+		}
+		return histogram;
+	}
+
+	/**
+	 * @return The histogram of a U-code, made room for by moving the code with
+	 * the fewest arrows to the other codes if there are maxCodes already
+	 */
+	private LatencyHistogram codeHistogram(String uCode) {
+		LatencyHistogram histogram = byCode.get(uCode);
+		if (histogram != null) return histogram;
+		if (byCode.size() >= maxCodes) {
+			Map.Entry<String, LatencyHistogram> fewest = null;
+			for (Map.Entry<String, LatencyHistogram> entry : byCode.entrySet()) {
+				if (fewest == null || entry.getValue().getCount() < fewest.getValue().getCount()) fewest = entry;
+			}
+			otherCodes.merge(fewest.getValue());
+			byCode.remove(fewest.getKey());
+		}
+		histogram = new LatencyHistogram();
+		byCode.put(uCode, histogram);
+		return histogram;
+	}
+
+	/**
+	 * @return The first U-code after the timestamp, as the parser finds them, or "none"
+	 */
+	static String uCodeOf(String[] words) {
+		boolean timeStampFound = false;
+		for (String word : words) {
+			if (!timeStampFound) {
+				timeStampFound = (word.length() == 19);
+			}
+			else if (word.length() > 2 && word.charAt(0) == 'U' && Character.isDigit(word.charAt(1))) {
+				return word;
+			}
+		}
+		return "none";
+	}
+
+	/**
+	 * @param timeStamp A timestamp such as 20160815/101010.100
+	 * @return The start of its time bucket, e.g. 20160815 10:00, or "unknown"
+	 */
+	String bucketOf(String timeStamp) {
+		if (timeStamp == null || timeStamp.length() < 13 || timeStamp.charAt(8) != '/') return "unknown";
+		for (int i = 9; i < 13; i++) {
+			if (!Character.isDigit(timeStamp.charAt(i))) return "unknown";
+		}
+		int minute = ((timeStamp.charAt(9) - '0') * 10 + (timeStamp.charAt(10) - '0')) * 60
+				+ (timeStamp.charAt(11) - '0') * 10 + (timeStamp.charAt(12) - '0');
+		minute -= minute % bucketMinutes;
+		return timeStamp.substring(0, 8) + " " + twoDigits(minute / 60) + ":" + twoDigits(minute % 60);
+	}
+
+	private static String twoDigits(int value) {
+		return (value < 10) ? "0" + value : Integer.toString(value);
+	}
+
+	/**
+	 * @return The duration with at most three decimals, "-" for NaN
+	 */
+	static String format(double value) {
+		if (Double.isNaN(value)) return "-";
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+		return String.format("%.3f", value);
+	}
+
+	/**
+	 * One of the slowest arrows
+	 */
+	private static final class Arrow {
+		final double duration;
+		final String timeStamp;
+		final String uCode;
+		final long line;
+
+		Arrow(double duration, String timeStamp, String uCode, long line) {
+			this.duration = duration;
+			this.timeStamp = timeStamp;
+			this.uCode = uCode;
+			this.line = line;
+		}
+	}
+}
@@ -4,6 +4,7 @@
  * @date 8/15/2016
  * Creates a Checkbox tree for the UserView interface. Every unique folder is shown 
  * in a tree format, and within each folder are the associated keywords. 
+ * UserView gives the tree a KeywordTreeModel, which holds the checks itself.
  * Tree automatically updates whenever an administrator makes a change to the data.
  */
 
@@ -160,6 +161,11 @@ public Component getTreeCellRendererComponent(JTree tree, Object value, boolean
                checkBoxRenderer.setSelected(node.isSelected());
             }
          }
+         //Nodes of a KeywordTreeModel keep their check in the model
+         if (value instanceof KeywordTreeModel.KeywordNode && tree.getModel() instanceof KeywordTreeModel) {
+            int id = ((KeywordTreeModel.KeywordNode) value).getId();
+            checkBoxRenderer.setSelected(((KeywordTreeModel) tree.getModel()).isSelected(id));
+         }
          component = checkBoxRenderer;
       } else {
          component = defaultRenderer.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
@@ -202,9 +208,8 @@ class CheckBoxTreeNodeEditor extends AbstractCellEditor implements TreeCellEdito
          TreePath path = tree.getPathForLocation(mouseEvent.getX(), mouseEvent.getY());
          if (path != null) {
             Object node = path.getLastPathComponent();
-            if ((node != null) && (node instanceof DefaultMutableTreeNode)) {
-               DefaultMutableTreeNode treeNode = (DefaultMutableTreeNode) node;
-               editable = treeNode.isLeaf();
+            if (node != null) {
+               editable = tree.getModel().isLeaf(node);
             }
          }
       }
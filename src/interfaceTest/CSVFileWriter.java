@@ -3,17 +3,32 @@
  * @authors Leah Talkov, Jerry Tsui
  * @date 8/15/2016
  * Takes the generated results from a search in LogParser
- * and writes the contents to a CSV file.
+ * and writes the contents to a CSV file. Fields are quoted and escaped
+ * as described in RFC 4180, and the file is gzipped if its name ends in ".gz".
  */
 
 package interfaceTest;
 
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.zip.GZIPOutputStream;
 
-public class CSVFileWriter {
+public class CSVFileWriter implements ResultExporter {
 	private static UserView view;
-	
+	/**Size of the output buffer, large enough that rows are written in big blocks*/
+	private static final int BUFFER_SIZE = 1 << 16;
+	/**Line terminator required by RFC 4180*/
+	private static final String CRLF = "\r\n";
+
 
 	/**
 	 * Has functionality that writes the parsing results to a CSV file
@@ -22,45 +37,123 @@ public class CSVFileWriter {
 	public CSVFileWriter(UserView view){
 		CSVFileWriter.view = view;
 	}
-	
+
 	/**
-	 * Takes the contents from LogParser and makes the content CSV ready by
-	 * adding commas and "\n" where necessary so that the data is formatted
-	 * the same as seen in the interface table. 
+	 * Takes the contents from LogParser and writes them to a CSV file
+	 * formatted the same as seen in the interface table.
 	 * @param fileName The file to write to, default name is Error_Log_DATE_TIME
 	 * @throws IOException If there is a problem writing to the file
 	 */
 	public void writeTo(String fileName) throws IOException{
-		FileWriter writer = new FileWriter(fileName);
-		for (int i = 0; i< view.headers.length; i++){
-			writer.append(view.headers[i]);
-			writer.append(',');
+		writeTo(new File(fileName), null);
+	}
+
+	/**
+	 * Streams the rows from LogParser to the given file one at a time through
+	 * a buffered writer, so no row is built up as a separate String. Meant to
+	 * be called off the EDT; progress is reported as a percent of rows written.
+	 * @param file The file to write to, gzipped if the name ends with ".gz"
+	 * @param progress Receives the percent of rows written, may be null
+	 * @return The number of rows written
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	@Override
+	public int writeTo(File file, IntConsumer progress) throws IOException{
+		ParseEvents.Export event = new ParseEvents.Export();
+		event.begin();
+		List<Object[]> rows = view.logParser.errorData;
+		int total = rows.size();
+		int oldPercent = -1;
+		try (Writer writer = openWriter(file)) {
+			for (int i = 0; i < view.headers.length; i++){
+				if (i > 0) writer.write(',');
+				writeField(writer, view.headers[i]);
+			}
+			writer.write(CRLF);
+			for (int i = 0; i < total; i++){
+				Object[] row = rows.get(i);
+				for (int j = 0; j < row.length; j++){
+					if (j > 0) writer.write(',');
+					writeField(writer, row[j]);
+				}
+				writer.write(CRLF);
+				if (progress != null){
+					int percent = (int) ((i + 1) * 100L / total);
+					if (percent > oldPercent){
+						progress.accept(percent);
+						oldPercent = percent;
+					}
+				}
+			}
+		}
+		if (event.shouldCommit()) {
+			event.path = file.getPath();
+			event.format = isGzip(file) ? "CSV (gzip)" : "CSV";
+			event.rows = total;
+			event.bytes = file.length();
+			event.commit();
+		}
+		return total;
+	}
+
+	@Override
+	public String getFormatName(){
+		return "CSV";
+	}
+
+	/**
+	 * Opens a buffered UTF-8 writer for the file, wrapping it in a
+	 * GZIPOutputStream if the file name ends with ".gz"
+	 * @param file The file to write to
+	 * @return A writer that must be closed by the caller
+	 * @throws IOException If the file cannot be created
+	 */
+	static Writer openWriter(File file) throws IOException{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+		if (isGzip(file)){
+			out = new GZIPOutputStream(out, BUFFER_SIZE);
+		}
+		return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	/**
+	 * @param file The file being written
+	 * @return True if the output should be gzipped
+	 */
+	static boolean isGzip(File file){
+		return file.getName().toLowerCase().endsWith(".gz");
+	}
+
+	/**
+	 * Writes a single field. A field is enclosed in double quotes if it contains
+	 * a comma, a double quote or a line break, and any double quote inside
+	 * of it is escaped by doubling it. Null fields are written as empty.
+	 * @param writer Writer for the CSV file
+	 * @param value The contents of the table cell
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	static void writeField(Writer writer, Object value) throws IOException{
+		if (value == null) return;
+		String field = value.toString();
+		boolean needsQuotes = false;
+		for (int i = 0; i < field.length() && !needsQuotes; i++){
+			char c = field.charAt(i);
+			needsQuotes = (c == ',' || c == '"' || c == '\n' || c == '\r');
+		}
+		if (!needsQuotes){
+			writer.write(field);
+			return;
 		}
-		writer.append('\n');
-		for (int i = 0; i < view.logParser.errorData.size(); i++){
-			String myLine = "";
-			int errorCount = (int)view.logParser.errorData.get(i)[0];
-			myLine += errorCount + ",";
-			String timeStamp = (String)view.logParser.errorData.get(i)[1] + ",";
-			myLine += timeStamp;
-			String keyWord = (String) view.logParser.errorData.get(i)[2];
-			//We put double quotes around commas so that the content of
-			//one cell doesn't improperly get split into two cells
-			if(keyWord.contains(","))
-				keyWord = "\"" + keyWord + "\"";
-			myLine += (keyWord + ",");
-			String errorMsg = (String) view.logParser.errorData.get(i)[3];
-			if(errorMsg.contains(","))
-				errorMsg = "\"" + errorMsg + "\"";
-			myLine += (errorMsg + ",");
-			String solutionMsg = (String) view.logParser.errorData.get(i)[4];
-			if(solutionMsg.contains(","))
-				solutionMsg = "\"" + solutionMsg + "\"";
-			myLine += solutionMsg + "\r\n";
-			writer.write(myLine);
+		writer.write('"');
+		int start = 0;
+		for (int i = 0; i < field.length(); i++){
+			if (field.charAt(i) == '"'){
+				writer.write(field, start, i + 1 - start);
+				writer.write('"');
+				start = i + 1;
+			}
 		}
-		
-		writer.flush();
-		writer.close();
+		writer.write(field, start, field.length() - start);
+		writer.write('"');
 	}
 }
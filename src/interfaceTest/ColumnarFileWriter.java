@@ -0,0 +1,282 @@
+/**
+ * @file ColumnarFileWriter.java
+ * Writes the results from a search in LogParser to a typed, column oriented
+ * binary file that scripts can load without parsing text. The keyword and
+ * solution columns are dictionary encoded and timestamps are stored as epoch
+ * milliseconds. Every section is 8 byte aligned and little-endian, so the
+ * file can be read with memory mapping, one section at a time.
+ *
+ * Layout: a 128 byte header (see the *_POS constants) holding the row count
+ * and the offset of every section, followed by the sections:
+ *   messages     UTF-8 bytes of every error message, back to back
+ *   error #      int32[rows]
+ *   timestamp    int64[rows], Long.MIN_VALUE if the timestamp was unreadable
+ *   keyword      int32[rows] index into the keyword dictionary, -1 if none
+ *   solution     int32[rows] index into the solution dictionary, -1 if none
+ *   message end  int64[rows + 1] offsets into the message bytes
+ *   dictionaries int32 count, int32[count + 1] offsets, then UTF-8 bytes
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+public class ColumnarFileWriter implements ResultExporter {
+	private static UserView view;
+	/**"LRCOL001" read as a little-endian long*/
+	static final long MAGIC = 0x3130304C4F43524CL;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 128;
+	//Positions of the fields within the header
+	static final int ROWS_POS = 12;
+	static final int ERROR_NUMBER_POS = 16;
+	static final int TIMESTAMP_POS = 24;
+	static final int KEYWORD_POS = 32;
+	static final int SOLUTION_POS = 40;
+	static final int MESSAGE_END_POS = 48;
+	static final int MESSAGE_DATA_POS = 56;
+	static final int MESSAGE_LENGTH_POS = 64;
+	static final int KEYWORD_DICT_POS = 72;
+	static final int SOLUTION_DICT_POS = 80;
+	static final int FILE_LENGTH_POS = 88;
+
+	/**Channel for the file being written*/
+	private FileChannel channel;
+	/**Staging buffer, flushed to the channel whenever it fills up*/
+	private ByteBuffer buffer;
+	/**Number of bytes that have been handed to the buffer so far*/
+	private long position;
+
+	/**
+	 * Has functionality that writes the parsing results to a columnar file
+	 * @param view UserView object associated with this class
+	 */
+	public ColumnarFileWriter(UserView view){
+		ColumnarFileWriter.view = view;
+	}
+
+	/**
+	 * Private constructor used by write() for a single file
+	 * @param channel Channel for the file being written
+	 */
+	private ColumnarFileWriter(FileChannel channel){
+		this.channel = channel;
+		buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public int writeTo(File file, IntConsumer progress) throws IOException{
+		ParseEvents.Export event = new ParseEvents.Export();
+		event.begin();
+		int rows = write(view.logParser.errorData, file, progress);
+		if (event.shouldCommit()) {
+			event.path = file.getPath();
+			event.format = getFormatName();
+			event.rows = rows;
+			event.bytes = file.length();
+			event.commit();
+		}
+		return rows;
+	}
+
+	@Override
+	public String getFormatName(){
+		return "columnar binary";
+	}
+
+	/**
+	 * Writes the rows to the file in a single pass. The message bytes are
+	 * streamed to the file as the rows are read while the fixed width columns
+	 * are collected in primitive arrays and appended at the end, after which
+	 * the header is filled in.
+	 * @param rows Entries in the same layout as LogParser.errorData
+	 * @param file The file to write to
+	 * @param progress Receives the percent of rows written, may be null
+	 * @return The number of rows written
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	static int write(List<Object[]> rows, File file, IntConsumer progress) throws IOException{
+		int total = rows.size();
+		int[] errorNumbers = new int[total];
+		long[] timeStamps = new long[total];
+		int[] keywordIds = new int[total];
+		int[] solutionIds = new int[total];
+		long[] messageEnds = new long[total + 1];
+		HashMap<String, Integer> keywordIndex = new HashMap<String, Integer>();
+		ArrayList<String> keywordDict = new ArrayList<String>();
+		HashMap<String, Integer> solutionIndex = new HashMap<String, Integer>();
+		ArrayList<String> solutionDict = new ArrayList<String>();
+		int oldPercent = -1;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ColumnarFileWriter out = new ColumnarFileWriter(channel);
+			out.skip(HEADER_SIZE);
+			long messageData = out.position;
+			for (int i = 0; i < total; i++){
+				Object[] row = rows.get(i);
+				errorNumbers[i] = (row[0] instanceof Number) ? ((Number) row[0]).intValue() : 0;
+				timeStamps[i] = Utility.toEpochMillis((String) row[1]);
+				keywordIds[i] = encode((String) row[2], keywordIndex, keywordDict);
+				solutionIds[i] = encode((String) row[4], solutionIndex, solutionDict);
+				if (row[3] != null){
+					out.putBytes(row[3].toString().getBytes(StandardCharsets.UTF_8));
+				}
+				messageEnds[i + 1] = out.position - messageData;
+				if (progress != null){
+					int percent = (int) ((i + 1) * 100L / total);
+					if (percent > oldPercent){
+						progress.accept(percent);
+						oldPercent = percent;
+					}
+				}
+			}
+			long messageLength = out.position - messageData;
+			out.align();
+			long errorNumberPos = out.position;
+			for (int v : errorNumbers) out.putInt(v);
+			out.align();
+			long timeStampPos = out.position;
+			for (long v : timeStamps) out.putLong(v);
+			long keywordPos = out.position;
+			for (int v : keywordIds) out.putInt(v);
+			out.align();
+			long solutionPos = out.position;
+			for (int v : solutionIds) out.putInt(v);
+			out.align();
+			long messageEndPos = out.position;
+			for (long v : messageEnds) out.putLong(v);
+			long keywordDictPos = out.position;
+			out.putDictionary(keywordDict);
+			out.align();
+			long solutionDictPos = out.position;
+			out.putDictionary(solutionDict);
+			out.align();
+			out.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putLong(0, MAGIC);
+			header.putInt(8, VERSION);
+			header.putInt(ROWS_POS, total);
+			header.putLong(ERROR_NUMBER_POS, errorNumberPos);
+			header.putLong(TIMESTAMP_POS, timeStampPos);
+			header.putLong(KEYWORD_POS, keywordPos);
+			header.putLong(SOLUTION_POS, solutionPos);
+			header.putLong(MESSAGE_END_POS, messageEndPos);
+			header.putLong(MESSAGE_DATA_POS, messageData);
+			header.putLong(MESSAGE_LENGTH_POS, messageLength);
+			header.putLong(KEYWORD_DICT_POS, keywordDictPos);
+			header.putLong(SOLUTION_DICT_POS, solutionDictPos);
+			header.putLong(FILE_LENGTH_POS, out.position);
+			while (header.hasRemaining()){
+				channel.write(header, header.position());
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Looks up the dictionary index of a value, adding it if it is new
+	 * @param value The keyword or solution, may be null
+	 * @param index Maps values to their position in dict
+	 * @param dict The values in the order they were first seen
+	 * @return The dictionary index of the value, -1 if it is null
+	 */
+	private static int encode(String value, HashMap<String, Integer> index, ArrayList<String> dict){
+		if (value == null) return -1;
+		Integer id = index.get(value);
+		if (id == null){
+			id = dict.size();
+			index.put(value, id);
+			dict.add(value);
+		}
+		return id;
+	}
+
+	/**
+	 * Writes a dictionary as its size, the end offset of every entry and
+	 * then the UTF-8 bytes of all entries
+	 * @param dict The entries to write
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	private void putDictionary(List<String> dict) throws IOException{
+		byte[][] encoded = new byte[dict.size()][];
+		putInt(dict.size());
+		putInt(0);
+		int end = 0;
+		for (int i = 0; i < encoded.length; i++){
+			encoded[i] = dict.get(i).getBytes(StandardCharsets.UTF_8);
+			end += encoded[i].length;
+			putInt(end);
+		}
+		for (byte[] bytes : encoded){
+			putBytes(bytes);
+		}
+	}
+
+	private void putInt(int v) throws IOException{
+		ensure(4);
+		buffer.putInt(v);
+		position += 4;
+	}
+
+	private void putLong(long v) throws IOException{
+		ensure(8);
+		buffer.putLong(v);
+		position += 8;
+	}
+
+	private void putBytes(byte[] bytes) throws IOException{
+		int offset = 0;
+		while (offset < bytes.length){
+			ensure(1);
+			int n = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, n);
+			offset += n;
+			position += n;
+		}
+	}
+
+	/**
+	 * Writes zeros up to the given number of bytes
+	 * @param count Number of bytes to skip over
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	private void skip(int count) throws IOException{
+		for (int i = 0; i < count; i++){
+			ensure(1);
+			buffer.put((byte) 0);
+			position++;
+		}
+	}
+
+	/**
+	 * Pads the file with zeros so that the next section starts on an 8 byte boundary
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	private void align() throws IOException{
+		skip((int) ((8 - (position & 7)) & 7));
+	}
+
+	private void ensure(int bytes) throws IOException{
+		if (buffer.remaining() < bytes) flush();
+	}
+
+	private void flush() throws IOException{
+		buffer.flip();
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * @file ComparisonDialog.java
+ * Brings up a Java Dialog with the differences LogComparison found between
+ * two logfiles: the error signatures that are new, gone or changed in rate,
+ * the most significant first.
+ */
+package interfaceTest;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.io.File;
+
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+
+@SuppressWarnings("serial")
+public class ComparisonDialog extends JDialog {
+	/** Main content panel */
+	private final JPanel pnlMain = new JPanel();
+
+	/**
+	 * Constructor
+	 * @param result The differences between the files
+	 * @param before The earlier logfile
+	 * @param after The later logfile
+	 */
+	public ComparisonDialog(LogComparison.Result result, File before, File after) {
+		prepareGUI(result, before, after);
+		Utility.addEscapeListener(this);
+	}
+
+	/**
+	 * This function prepares and displays the ComparisonDialog GUI.
+	 * @param result The differences between the files
+	 * @param before The earlier logfile
+	 * @param after The later logfile
+	 */
+	private void prepareGUI(LogComparison.Result result, File before, File after) {
+		setTitle("Compare " + before.getName() + " to " + after.getName());
+		setPreferredSize(new Dimension(900, 450));
+		getContentPane().add(pnlMain, BorderLayout.CENTER);
+		pnlMain.setBorder(new EmptyBorder(5,5,5,5));
+		pnlMain.setLayout(new BorderLayout());
+
+		JPanel pnlSummary = new JPanel();
+		pnlSummary.setLayout(new BoxLayout(pnlSummary, BoxLayout.Y_AXIS));
+		pnlSummary.setBorder(new EmptyBorder(5,5,10,5));
+		JLabel lblFiles = new JLabel("Before: " + before.getPath() + "    After: " + after.getPath());
+		lblFiles.setFont(new Font("Serif", Font.PLAIN, 14));
+		pnlSummary.add(lblFiles);
+		pnlSummary.add(new JLabel(result.describe()));
+		pnlMain.add(pnlSummary, BorderLayout.NORTH);
+
+		JTable table = new JTable(new ResultTableModel(result.rows(), LogComparison.HEADERS));
+		table.setCellSelectionEnabled(true);
+		table.getColumnModel().getColumn(1).setPreferredWidth(500);
+		pnlMain.add(new JScrollPane(table), BorderLayout.CENTER);
+
+		if (result.sketches != null) {
+			JButton btnSummary = new JButton("Summary");
+			btnSummary.setToolTipText("Approximate top keywords and messages of both files together");
+			btnSummary.addActionListener(e -> {
+				new SketchDialog(result.sketches, "Summary of " + before.getName() + " and " + after.getName());
+			});
+			JPanel pnlButtons = new JPanel();
+			pnlButtons.add(btnSummary);
+			pnlMain.add(pnlButtons, BorderLayout.SOUTH);
+		}
+
+		pack();
+		setLocationRelativeTo(null);
+		setVisible(true);
+	}
+}
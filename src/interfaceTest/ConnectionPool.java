@@ -0,0 +1,240 @@
+/**
+ * @file ConnectionPool.java
+ * A small pool of JDBC connections to the database. Connections are opened
+ * the first time they are needed and are handed back to the pool instead of
+ * being closed, so screens do not pay for a new TCP and TDS handshake every
+ * time they query the database. Each pooled connection keeps the prepared
+ * statements it has created so that they can be reused.
+ */
+
+package interfaceTest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+class ConnectionPool {
+	/**Connections that have not been validated for this long are checked before use*/
+	private static final long VALIDATE_AFTER_MS = 30000;
+
+	private final String url;
+	private final String user;
+	private final String password;
+	/**Maximum number of open connections*/
+	private final int maxSize;
+	/**How long borrow() waits for a free connection before failing*/
+	private final long borrowTimeout;
+	/**Connections that are open but not in use*/
+	private final ArrayDeque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+	/**Number of open connections, in use or idle*/
+	private int openCount;
+	private boolean closed;
+
+	/**
+	 * Creates a pool from the settings in AppConfig. No connection is
+	 * opened until one is borrowed.
+	 * @throws ClassNotFoundException If the JDBC driver is not on the classpath
+	 */
+	ConnectionPool() throws ClassNotFoundException {
+		Class.forName(AppConfig.getString("db.driver", "net.sourceforge.jtds.jdbc.Driver"));
+		url = AppConfig.getString("db.url", "jdbc:jtds:sqlserver://vwaswp02:1433/coeus");
+		user = AppConfig.getString("db.user", "coeus");
+		password = AppConfig.getString("db.password", "C0eus");
+		maxSize = Math.max(1, AppConfig.getInt("db.poolSize", 4));
+		borrowTimeout = AppConfig.getLong("db.borrowTimeoutMs", 30000);
+		DriverManager.setLoginTimeout(AppConfig.getInt("db.loginTimeoutSeconds", 15));
+	}
+
+	/**
+	 * Takes a connection from the pool, opening a new one if none is idle
+	 * and the pool is not full. The connection must be closed when done,
+	 * which returns it to the pool.
+	 * @return A connection that is ready to use
+	 * @throws SQLException If a connection could not be opened, or none became free in time
+	 */
+	PooledConnection borrow() throws SQLException {
+		long deadline = System.currentTimeMillis() + borrowTimeout;
+		while (true) {
+			PooledConnection conn = null;
+			synchronized (this) {
+				while (!closed && idle.isEmpty() && openCount >= maxSize) {
+					long wait = deadline - System.currentTimeMillis();
+					if (wait <= 0) {
+						throw new SQLException("Timed out waiting for a database connection");
+					}
+					try {
+						wait(wait);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted waiting for a database connection");
+					}
+				}
+				if (closed) throw new SQLException("Connection pool is closed");
+				if (!idle.isEmpty()) {
+					conn = idle.pop();
+				}
+				else {
+					openCount++;
+				}
+			}
+			if (conn == null) {
+				try {
+					return new PooledConnection(DriverManager.getConnection(url, user, password));
+				} catch (SQLException e) {
+					discarded();
+					throw e;
+				}
+			}
+			if (conn.isUsable()) return conn;
+			conn.closePhysical();
+			discarded();
+		}
+	}
+
+	/**
+	 * Puts a connection back into the pool, or closes it if it failed while in use
+	 * @param conn The connection being returned
+	 */
+	private void release(PooledConnection conn) {
+		boolean keep;
+		synchronized (this) {
+			keep = !closed && !conn.broken;
+			if (keep) {
+				idle.push(conn);
+				notifyAll();
+			}
+		}
+		if (!keep) {
+			conn.closePhysical();
+			discarded();
+		}
+	}
+
+	/**
+	 * Frees up the slot of a connection that has been closed
+	 */
+	private synchronized void discarded() {
+		openCount--;
+		notifyAll();
+	}
+
+	/**
+	 * Closes every idle connection. Connections that are in use are
+	 * closed when they are returned.
+	 */
+	void close() {
+		ArrayDeque<PooledConnection> toClose;
+		synchronized (this) {
+			closed = true;
+			toClose = new ArrayDeque<PooledConnection>(idle);
+			openCount -= idle.size();
+			idle.clear();
+			notifyAll();
+		}
+		for (PooledConnection conn : toClose) {
+			conn.closePhysical();
+		}
+	}
+
+	/**
+	 * A connection borrowed from the pool. Closing it returns it to the pool.
+	 */
+	class PooledConnection implements AutoCloseable {
+		private final Connection connection;
+		/**Prepared statements created on this connection, by their SQL*/
+		private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+		/**Last time the connection was known to work*/
+		private long lastUsed;
+		/**Set when a statement fails so the connection is not given out again*/
+		private boolean broken;
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+			lastUsed = System.currentTimeMillis();
+		}
+
+		/**
+		 * Gives the prepared statement for the query, creating it the first time
+		 * it is used on this connection. The statement must not be closed.
+		 * @param sql The query, with ? for each parameter
+		 * @return A prepared statement whose parameters have been cleared
+		 * @throws SQLException If the statement could not be prepared
+		 */
+		PreparedStatement prepare(String sql) throws SQLException {
+			PreparedStatement stmt = statements.get(sql);
+			if (stmt == null) {
+				stmt = connection.prepareStatement(sql);
+				statements.put(sql, stmt);
+			}
+			else {
+				stmt.clearParameters();
+			}
+			return stmt;
+		}
+
+		/**
+		 * @return The underlying connection, e.g. for transactions. It must not be closed.
+		 */
+		Connection getConnection() {
+			return connection;
+		}
+
+		/**
+		 * Marks the connection as unusable, called when a query on it failed
+		 */
+		void markBroken() {
+			broken = true;
+		}
+
+		/**
+		 * Checks that a connection which has been idle for a while still works
+		 * @return True if the connection can be used
+		 */
+		private boolean isUsable() {
+			return System.currentTimeMillis() - lastUsed < VALIDATE_AFTER_MS || isValid();
+		}
+
+		/**
+		 * Runs a trivial query to check that the connection still works, e.g.
+		 * to tell a failed query apart from a lost connection. A connection
+		 * that fails the check is marked as broken.
+		 * @return True if the connection works
+		 */
+		boolean isValid() {
+			try (Statement stmt = connection.createStatement()) {
+				stmt.execute("select 1");
+				return true;
+			} catch (SQLException e) {
+				broken = true;
+				return false;
+			}
+		}
+
+		private void closePhysical() {
+			for (PreparedStatement stmt : statements.values()) {
+				try {
+					stmt.close();
+				} catch (SQLException e) {
+					//Closing anyway
+				}
+			}
+			statements.clear();
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				//Closing anyway
+			}
+		}
+
+		@Override
+		public void close() {
+			lastUsed = System.currentTimeMillis();
+			release(this);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * @file CooccurrenceDialog.java
+ * Brings up a Java Dialog with the pairs of keywords that fired within a few
+ * seconds of each other in the last parse, the most strongly associated
+ * first, as a starting point for finding the error behind another.
+ */
+package interfaceTest;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+
+@SuppressWarnings("serial")
+public class CooccurrenceDialog extends JDialog {
+	/** Main content panel */
+	private final JPanel pnlMain = new JPanel();
+
+	/**
+	 * Constructor
+	 * @param cooccurrence The pairs collected by the last parse
+	 */
+	public CooccurrenceDialog(KeywordCooccurrence cooccurrence) {
+		prepareGUI(cooccurrence);
+		Utility.addEscapeListener(this);
+	}
+
+	/**
+	 * This function prepares and displays the CooccurrenceDialog GUI.
+	 * @param cooccurrence The pairs collected by the last parse
+	 */
+	private void prepareGUI(KeywordCooccurrence cooccurrence) {
+		setTitle("Keywords That Fire Together");
+		setPreferredSize(new Dimension(700, 400));
+		getContentPane().add(pnlMain, BorderLayout.CENTER);
+		pnlMain.setBorder(new EmptyBorder(5,5,5,5));
+		pnlMain.setLayout(new BorderLayout());
+
+		JLabel lblSummary = new JLabel(cooccurrence.describe());
+		lblSummary.setFont(new Font("Serif", Font.PLAIN, 14));
+		lblSummary.setBorder(new EmptyBorder(5,5,10,5));
+		pnlMain.add(lblSummary, BorderLayout.NORTH);
+
+		JTable table = new JTable(new ResultTableModel(
+				cooccurrence.topPairs(AppConfig.getInt("cooccur.topPairs", 50)), KeywordCooccurrence.HEADERS));
+		table.setCellSelectionEnabled(true);
+		pnlMain.add(new JScrollPane(table), BorderLayout.CENTER);
+
+		pack();
+		setLocationRelativeTo(null);
+		setVisible(true);
+	}
+}
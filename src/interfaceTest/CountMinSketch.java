@@ -0,0 +1,98 @@
+/**
+ * @file CountMinSketch.java
+ * Counts how often items occur in a fixed amount of memory, however many
+ * different items there are. Each item adds to one counter in each of depth
+ * rows; its estimate is the smallest of those counters. An estimate is never
+ * below the true count, and is above it by more than epsilon times the
+ * total only with probability delta: width is e / epsilon and depth is
+ * ln(1 / delta), with width rounded up to a power of two. Sketches of the
+ * same size can be merged, which gives the same counters as adding both
+ * sets of items to one.
+ */
+
+package interfaceTest;
+
+class CountMinSketch {
+	private final int width;
+	private final int depth;
+	/**depth rows of width counters, one after another*/
+	private final long[] counts;
+	private long total;
+
+	/**
+	 * @param epsilon Largest overestimate, as a share of the total, e.g. 0.0002
+	 * @param delta Probability of an estimate being further off than that, e.g. 0.001
+	 */
+	CountMinSketch(double epsilon, double delta) {
+		int wanted = (int) Math.min(1 << 24, Math.ceil(Math.E / Math.max(epsilon, 1e-7)));
+		width = Integer.highestOneBit(Math.max(wanted - 1, 1)) << 1;
+		depth = (int) Math.max(1, Math.min(16, Math.ceil(Math.log(1 / Math.min(Math.max(delta, 1e-7), 0.5)))));
+		counts = new long[width * depth];
+	}
+
+	/**
+	 * Adds to the count of an item
+	 * @param hash 64 bit hash of the item, see ScanSketches.hashOf
+	 * @param count Number of occurrences to add
+	 */
+	void add(long hash, long count) {
+		int h1 = (int) hash;
+		//Odd, so the rows step through different counters
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int row = 0; row < depth; row++) {
+			counts[row * width + ((h1 + row * h2) & (width - 1))] += count;
+		}
+		total += count;
+	}
+
+	/**
+	 * @param hash 64 bit hash of the item
+	 * @return At least the number of times the item was added, at most errorBound more
+	 */
+	long estimate(long hash) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		long min = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			min = Math.min(min, counts[row * width + ((h1 + row * h2) & (width - 1))]);
+		}
+		return min;
+	}
+
+	/**
+	 * Adds every count of another sketch of the same size
+	 * @param other The sketch to add
+	 * @throws IllegalArgumentException If the sketches are not the same size
+	 */
+	void merge(CountMinSketch other) {
+		if (other.width != width || other.depth != depth) {
+			throw new IllegalArgumentException("Cannot merge a " + other.depth + "x" + other.width
+					+ " sketch into a " + depth + "x" + width + " one");
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+	}
+
+	/**
+	 * @return Sum of all the counts added
+	 */
+	long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return The most an estimate is over the true count, except with probability 1 - getConfidence
+	 */
+	long errorBound() {
+		return (long) Math.ceil(Math.E / width * total);
+	}
+
+	/**
+	 * @return Probability that an estimate is within errorBound
+	 */
+	double getConfidence() {
+		return 1 - Math.exp(-depth);
+	}
+}
@@ -18,10 +18,7 @@ import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
@@ -181,15 +178,8 @@ public class CreateGroup extends JDialog{
 			return;
 		}
 		else {
-			String driver = "net.sourceforge.jtds.jdbc.Driver";
-			Class.forName(driver);
-			Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-	
-			Statement stmt = conn.createStatement();
-			stmt.executeUpdate("insert into Groups values (\'" + tfGroupName.getText() + 
-								"\',\'" + query.toString() + "\')");
-			view.loadGroupInfo(stmt);
-			stmt.close();
+			LogStorage.getInstance().insertGroup(tfGroupName.getText(), query.toString());
+			view.loadGroupInfo();
 			view.createGroupView();
 			admin.updateGroupData(view);
 		}
@@ -11,12 +11,17 @@
 
 package interfaceTest;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
 
 public class DataController {
 
@@ -32,8 +37,6 @@ public class DataController {
 	private List<String[]> curHyperlinkList = new ArrayList<String[]>();
 	/**Serves as a helper when transferring contents between the hyperlink lists*/
 	private List<String[]> tempHyperlinkList = new ArrayList<String[]>();
-	/**Queries to be made to the database*/
-	private List <String> errorQueries = new ArrayList<String>();
 	/**Entries used for JTable parameter in AdminView*/
 	private Object [][] errorData;
 	/**Entries used for JTable parameter in AdminView*/
@@ -57,6 +60,7 @@ public class DataController {
 	 */
 	DataController(AdminView admin, UserView view){
 		this.admin = admin;
+		this.view = view;
 		keywordChanged = false;
 		errorMessageChanged = false;
 		suggestedSolutionChanged = false;
@@ -198,9 +202,9 @@ public class DataController {
 	
 	/**
 	 * Modfies the data by depending on the value of "choice". If the value
-	 * is "MODIFY" then the function modifies an entry by modifying list, and by adding a query
-	 * to the queries data structure. If the value is "ADD", then the function adds an entry to
-	 * list and adds a query that makes an entry reflecting the values given by the user. 
+	 * is "MODIFY" then the function modifies an entry by modifying list. If the value is "ADD",
+	 * then the function adds an entry to list reflecting the values given by the user.
+	 * Nothing is sent to the database until saveDefault is called. 
 	 * @param folder The folder name given by the user
 	 * @param keyWord The keyWord given by the user - cannot be an existing keyword
 	 * @param message The error message given by the user
@@ -214,32 +218,17 @@ public class DataController {
 		tempArray[1] = keyWord;
 		tempArray[2] = message;
 		tempArray[3] = solution;
-		//If we are modifying, we check the booleans to see which parts of the entry have been 
-		//modifed to see which queries we need to add
+		//The changes are only recorded in the lists, saveDefault works out the
+		//statements by comparing them against the database contents
 		if(choice.equals("MODIFY")) {
-			if(folderChanged)
-				errorQueries.add("update logerrors set Folder = \'" + 
-						Utility.addSingleQuote(folder) + "\' where Keyword = \'" + Utility.addSingleQuote(curErrorlist.get(row)[1]) + "\'");
-			if(errorMessageChanged)
-				errorQueries.add("update logerrors set Log_Error_Description = \'" +
-						Utility.addSingleQuote(message) + "\' where Keyword = \'" + Utility.addSingleQuote(curErrorlist.get(row)[1]) + "\'");
-			if(suggestedSolutionChanged)
-				errorQueries.add("update logerrors set Suggested_Solution = \'" +
-						Utility.addSingleQuote(solution) + "\' where Keyword = \'" + Utility.addSingleQuote(curErrorlist.get(row)[1]) + "\'");
-			if(keywordChanged)
-				errorQueries.add("update logerrors set Keyword = \'" +
-						Utility.addSingleQuote(keyWord) + "\' where Keyword = \'" + Utility.addSingleQuote(curErrorlist.get(row)[1]) + "\'");
 			admin.savedWords.remove(curErrorlist.get(row)[1]);
 			admin.savedWords.add(keyWord);
 			curErrorlist.set(row, tempArray);
 			String[] newArray = {keyWord, curHyperlinkList.get(row)[1]};
 			curHyperlinkList.set(row, newArray);
 		}
-		//Otherwise we are adding an entry and simply add to the list and queries
+		//Otherwise we are adding an entry and simply add to the list
 		else {
-			errorQueries.add("insert into logerrors values (\'" + Utility.addSingleQuote(keyWord) + "\',\'"
-					+ Utility.addSingleQuote(message) + "\',\'" + Utility.addSingleQuote(solution) + "\',\'" +
-					Utility.addSingleQuote(folder) + "\',\'" + "www.google.com" + "\')");
 			curErrorlist.add(tempArray);
 			String[] someArray = new String[2];
 			someArray[0] = keyWord;
@@ -261,11 +250,10 @@ public class DataController {
 	/**
 	 * When the user highlights a piece of data and clicks the delete button, 
 	 * this function will add a query to the data structure queries which 
-	 * will delete the row, and also deletes the corresponding row within list. 
+	 * deletes the corresponding row within list. 
 	 * @param row - the row in which the data will be deleted
 	 */
 	protected void deleteData(int row) {
-		errorQueries.add("delete from logerrors where Keyword = \'" + Utility.addSingleQuote(curErrorlist.get(row)[1]) + "\'");
 		admin.savedWords.remove(curErrorlist.get(row)[1]);
 		curErrorlist.remove(row);
 		curHyperlinkList.remove(row);
@@ -288,7 +276,6 @@ public class DataController {
 		if(choice.equals("DEFAULT")) {
 			tempErrorList = defaultErrorList;
 			tempHyperlinkList = defaultHyperlinkList;
-			errorQueries.clear();
 			admin.savedWords.clear();
 			for(int i = 0; i < admin.keyWords.size(); i++) {
 				admin.savedWords.add(admin.keyWords.get(i));
@@ -312,55 +299,132 @@ public class DataController {
 	}
 
 	/**
-	 * Goes through all the strings in queries and sends them to the database
-	 * to save the changes that the user has made, so that the database now reflects what is
-	 * seen in the interface table. The contents of defaultList are set to be the same
-	 * as the contents in list. 
-	 * @throws ClassNotFoundException If getClass fails
-	 * @throws SQLException If connection to SQL server fails
+	 * Saves the changes that the user has made, so that the database now reflects what is
+	 * seen in the interface table. The entries are compared against defaultErrorList by
+	 * keyword, and only the rows that were added, changed or deleted are sent as one
+	 * batch in a single transaction, on a background thread. If the save fails the
+	 * database is left unchanged and the local changes are kept so they can be saved again.
+	 * Once saved, the contents of defaultList are set to be the same as the contents in list. 
+	 * @param onDone Called on the event dispatch thread with true if the changes were saved
 	 */
-	protected void saveDefault() throws ClassNotFoundException, SQLException {
-		defaultErrorList.clear();
-		admin.keyWords.clear();
-		for(int x = 0; x < admin.savedWords.size(); x++) {
-			admin.keyWords.add(admin.savedWords.get(x));
+	protected void saveDefault(Consumer<Boolean> onDone) {
+		LinkedHashMap<String, String[]> saved = new LinkedHashMap<String, String[]>();
+		for (String[] entry : defaultErrorList) {
+			saved.put(entry[1], entry);
 		}
-		for(int i = 0; i < curErrorlist.size(); i++){
-			defaultErrorList.add(curErrorlist.get(i));
+		List<String> deleted = new ArrayList<String>();
+		List<String[]> updated = new ArrayList<String[]>();
+		List<String[]> inserted = new ArrayList<String[]>();
+		HashSet<String> current = new HashSet<String>();
+		for (int i = 0; i < curErrorlist.size(); i++) {
+			String[] entry = curErrorlist.get(i);
+			current.add(entry[1]);
+			String[] old = saved.get(entry[1]);
+			if (old == null) {
+				inserted.add(toDatabaseRow(entry, curHyperlinkList.get(i)[1]));
+			}
+			else if (!Objects.equals(old[0], entry[0]) || !Objects.equals(old[2], entry[2])
+					|| !Objects.equals(old[3], entry[3])) {
+				updated.add(toDatabaseRow(entry, null));
+			}
 		}
-		String driver = "net.sourceforge.jtds.jdbc.Driver";
-		Class.forName(driver);
-		Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-
-		Statement stmt = conn.createStatement();
-		for(int j = 0; j < errorQueries.size(); j++) {
-			stmt.executeUpdate(errorQueries.get(j));
+		for (String keyword : saved.keySet()) {
+			if (!current.contains(keyword)) {
+				deleted.add(keyword);
+			}
 		}
-		stmt.close();
-		errorQueries.clear();
+		//Copies of what is being saved, so later edits do not change them
+		List<String[]> savedErrors = new ArrayList<String[]>(curErrorlist);
+		List<String[]> savedLinks = new ArrayList<String[]>();
+		for (String[] link : curHyperlinkList) {
+			savedLinks.add(link.clone());
+		}
+		List<String> savedWords = new ArrayList<String>(admin.savedWords);
+		
+		new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() throws ClassNotFoundException, SQLException {
+				if (!deleted.isEmpty() || !updated.isEmpty() || !inserted.isEmpty()) {
+					LogStorage.getInstance().saveLogErrors(deleted, updated, inserted);
+				}
+				return null;
+			}
+			
+			@Override
+			protected void done() {
+				try {
+					get();
+				} catch (InterruptedException | ExecutionException e) {
+					JOptionPane.showMessageDialog(admin, "The changes could not be saved, the database was not changed:\n"
+							+ e.getCause().getMessage());
+					onDone.accept(false);
+					return;
+				}
+				defaultErrorList.clear();
+				defaultErrorList.addAll(savedErrors);
+				defaultHyperlinkList.clear();
+				defaultHyperlinkList.addAll(savedLinks);
+				admin.keyWords.clear();
+				admin.keyWords.addAll(savedWords);
+				onDone.accept(true);
+			}
+		}.execute();
 	}
 
 	/**
-	 * Takes in the contents of the defaultHyperlinkList and queries the matching
-	 * hyperlinks to the keywords to the database
-	 * @throws ClassNotFoundException If getClass fails
-	 * @throws SQLException If connection to SQL server fails
+	 * Sends the hyperlinks that differ from defaultHyperlinkList to the database as
+	 * one batch in a single transaction, on a background thread
 	 */
-	void writeURLsToDB() throws ClassNotFoundException, SQLException {
-		String driver = "net.sourceforge.jtds.jdbc.Driver";
-		Class.forName(driver);
-		Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-		Statement stmt = conn.createStatement();
+	void writeURLsToDB() {
+		List<String[]> changed = new ArrayList<String[]>();
+		List<Integer> changedRows = new ArrayList<Integer>();
 		for(int i = 0; i < curHyperlinkList.size(); i++) {
-			stmt.executeUpdate("update logerrors set Hyperlink = \'" + 
-					Utility.addSingleQuote(curHyperlinkList.get(i)[1]) + 
-					"\' where Keyword = \'" + Utility.addSingleQuote(curHyperlinkList.get(i)[0]) + "\'");
-			view.urlMap.put(curHyperlinkList.get(i)[0], curHyperlinkList.get(i)[1]);
+			String[] link = curHyperlinkList.get(i);
+			if (!Objects.equals(link[1], defaultHyperlinkList.get(i)[1])) {
+				changed.add(link.clone());
+				changedRows.add(i);
+			}
 		}
-		stmt.close();
+		if (changed.isEmpty()) return;
+		
+		new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() throws ClassNotFoundException, SQLException {
+				LogStorage.getInstance().updateHyperlinks(changed);
+				return null;
+			}
+			
+			@Override
+			protected void done() {
+				try {
+					get();
+				} catch (InterruptedException | ExecutionException e) {
+					JOptionPane.showMessageDialog(admin, "The hyperlinks could not be saved, the database was not changed:\n"
+							+ e.getCause().getMessage());
+					return;
+				}
+				for(int i = 0; i < changed.size(); i++) {
+					defaultHyperlinkList.set(changedRows.get(i), changed.get(i).clone());
+					UserView.urlMap.put(changed.get(i)[0], changed.get(i)[1]);
+				}
+			}
+		}.execute();
+	}
+	
+	/**
+	 * Converts an entry of the error table to the layout used by LogStorage
+	 * @param entry Folder, keyword, error message and solution
+	 * @param hyperlink The hyperlink of the entry, null if it is not being saved
+	 * @return The entry indexed by LogStorage.KEYWORD, DESCRIPTION, SOLUTION, FOLDER and HYPERLINK
+	 */
+	private static String[] toDatabaseRow(String[] entry, String hyperlink) {
+		String[] row = new String[5];
+		row[LogStorage.FOLDER] = entry[0];
+		row[LogStorage.KEYWORD] = entry[1];
+		row[LogStorage.DESCRIPTION] = entry[2];
+		row[LogStorage.SOLUTION] = entry[3];
+		row[LogStorage.HYPERLINK] = hyperlink;
+		return row;
 	}
 	
 }
-
-
-
@@ -0,0 +1,69 @@
+/**
+ * @file DeadlockDialog.java
+ * Brings up a Java Dialog with the DEADLOCK blocks found by the last parse:
+ * the pairs of U-codes that deadlocked together most often, how many blocks
+ * each U-code took part in, and every block with its lines and timestamps.
+ */
+package interfaceTest;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.util.List;
+
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+
+@SuppressWarnings("serial")
+public class DeadlockDialog extends JDialog {
+	/** Main content panel */
+	private final JPanel pnlMain = new JPanel();
+
+	/**
+	 * Constructor
+	 * @param deadlocks The DEADLOCK blocks collected by the last parse
+	 */
+	public DeadlockDialog(DeadlockGraph deadlocks) {
+		prepareGUI(deadlocks);
+		Utility.addEscapeListener(this);
+	}
+
+	/**
+	 * This function prepares and displays the DeadlockDialog GUI.
+	 * @param deadlocks The DEADLOCK blocks collected by the last parse
+	 */
+	private void prepareGUI(DeadlockGraph deadlocks) {
+		setTitle("Deadlocks");
+		setPreferredSize(new Dimension(700, 400));
+		getContentPane().add(pnlMain, BorderLayout.CENTER);
+		pnlMain.setBorder(new EmptyBorder(5,5,5,5));
+		pnlMain.setLayout(new BorderLayout());
+
+		JLabel lblSummary = new JLabel(deadlocks.describe());
+		lblSummary.setFont(new Font("Serif", Font.PLAIN, 14));
+		lblSummary.setBorder(new EmptyBorder(5,5,10,5));
+		pnlMain.add(lblSummary, BorderLayout.NORTH);
+
+		JTabbedPane tabbedPane = new JTabbedPane();
+		tabbedPane.addTab("Top Pairs", table(DeadlockGraph.PAIR_HEADERS,
+				deadlocks.topPairs(AppConfig.getInt("deadlock.topPairs", 50))));
+		tabbedPane.addTab("By U-code", table(DeadlockGraph.CODE_HEADERS, deadlocks.codeRows()));
+		tabbedPane.addTab("Blocks", table(DeadlockGraph.BLOCK_HEADERS, deadlocks.blockRows()));
+		pnlMain.add(tabbedPane, BorderLayout.CENTER);
+
+		pack();
+		setLocationRelativeTo(null);
+		setVisible(true);
+	}
+
+	private static JScrollPane table(String[] headers, List<Object[]> rows) {
+		JTable table = new JTable(new ResultTableModel(rows, headers));
+		table.setCellSelectionEnabled(true);
+		return new JScrollPane(table);
+	}
+}
@@ -0,0 +1,289 @@
+/**
+ * @file DeadlockGraph.java
+ * Keeps every DEADLOCK block read during a parse as a record: the lines and
+ * timestamps it starts and ends on, and the U-codes taking part in it. The
+ * U-codes are numbered as they are first seen and the records are stored in
+ * primitive arrays, the participants of all blocks one after another, so a
+ * record costs a few dozen bytes however long the block was.
+ *
+ * Each closed block also adds one to every pair of its U-codes in a graph of
+ * which U-codes deadlock with each other, kept in a sparse PairCounts. The
+ * top pairs are therefore known as soon as the file has been read, without
+ * going over the records again. Blocks with more than
+ * deadlock.maxParticipants U-codes (default 64) only add pairs among the
+ * first ones, so a runaway block cannot fill the table.
+ */
+
+package interfaceTest;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+class DeadlockGraph {
+	static final String[] PAIR_HEADERS = {"U-code", "U-code", "Deadlocks"};
+	static final String[] CODE_HEADERS = {"U-code", "Deadlocks"};
+	static final String[] BLOCK_HEADERS = {"#", "Start Line", "End Line", "Start", "End", "U-codes"};
+
+	private final int maxParticipants;
+
+	//U-codes by number
+	private final HashMap<String, Integer> codeIds = new HashMap<String, Integer>();
+	private final ArrayList<String> codes = new ArrayList<String>();
+	/**Number of closed blocks each U-code took part in*/
+	private int[] blocksPerCode = new int[64];
+
+	//The records, one slot per closed block
+	private int count;
+	private long[] startLines = new long[256];
+	private long[] endLines = new long[256];
+	/**Timestamps packed by packTimeStamp*/
+	private long[] startTimes = new long[256];
+	private long[] endTimes = new long[256];
+	/**Start of each block's U-codes in participants, count + 1 slots*/
+	private int[] participantStart = new int[257];
+	private int[] participants = new int[1024];
+	private int participantCount;
+	/**DEADLOCKs whose block never closed, e.g. a single occurrence*/
+	private long unmatched;
+
+	/**Pair graph: how many closed blocks each pair of U-code numbers took part in together*/
+	private final PairCounts pairs = new PairCounts();
+
+	//The block being read
+	private boolean open;
+	private long openLine;
+	private long openTime;
+	private long closeLine;
+	private long closeTime;
+	private boolean closed;
+	private final BitSet inBlock = new BitSet();
+
+	/**
+	 * Uses the setting deadlock.maxParticipants
+	 */
+	DeadlockGraph() {
+		this(AppConfig.getInt("deadlock.maxParticipants", 64));
+	}
+
+	/**
+	 * @param maxParticipants Number of U-codes of a block that are paired with each other
+	 */
+	DeadlockGraph(int maxParticipants) {
+		this.maxParticipants = Math.max(maxParticipants, 2);
+	}
+
+	/**
+	 * Starts a block at the line where DEADLOCK was found
+	 * @param line Line number of the DEADLOCK
+	 * @param timeStamp Timestamp of the line
+	 * @param words The line, split by " ", whose U-code takes part in the block
+	 */
+	void begin(long line, String timeStamp, String[] words) {
+		if (open) finish();
+		open = true;
+		closed = false;
+		openLine = line;
+		openTime = packTimeStamp(timeStamp);
+		participantCount = participantStart[count];
+		String uCode = ArrowLatency.uCodeOf(words);
+		if (!uCode.equals("none")) addParticipant(uCode);
+	}
+
+	/**
+	 * Adds a U-code found on a line of the block being read
+	 * @param uCode The U-code
+	 */
+	void addParticipant(String uCode) {
+		if (!open) return;
+		int id = idOf(uCode);
+		if (inBlock.get(id)) return;
+		inBlock.set(id);
+		if (participantCount == participants.length) {
+			participants = Arrays.copyOf(participants, participantCount * 2);
+		}
+		participants[participantCount++] = id;
+	}
+
+	/**
+	 * Records that the matching DEADLOCK was found
+	 * @param line Line number of the matching DEADLOCK
+	 * @param timeStamp Timestamp of that line
+	 */
+	void close(long line, String timeStamp) {
+		if (!open) return;
+		closed = true;
+		closeLine = line;
+		closeTime = packTimeStamp(timeStamp);
+	}
+
+	/**
+	 * Ends the block being read. A closed block becomes a record and adds its
+	 * pairs to the graph; one that never closed is only counted.
+	 */
+	void finish() {
+		if (!open) return;
+		open = false;
+		int first = participantStart[count];
+		for (int i = first; i < participantCount; i++) {
+			inBlock.clear(participants[i]);
+		}
+		if (!closed) {
+			unmatched++;
+			participantCount = first;
+			return;
+		}
+		if (count + 1 == startLines.length) {
+			int size = startLines.length * 2;
+			startLines = Arrays.copyOf(startLines, size);
+			endLines = Arrays.copyOf(endLines, size);
+			startTimes = Arrays.copyOf(startTimes, size);
+			endTimes = Arrays.copyOf(endTimes, size);
+			participantStart = Arrays.copyOf(participantStart, size + 1);
+		}
+		startLines[count] = openLine;
+		endLines[count] = closeLine;
+		startTimes[count] = openTime;
+		endTimes[count] = closeTime;
+		participantStart[count + 1] = participantCount;
+		count++;
+		int last = Math.min(participantCount, first + maxParticipants);
+		for (int i = first; i < participantCount; i++) {
+			blocksPerCode[participants[i]]++;
+		}
+		for (int i = first; i < last; i++) {
+			for (int j = i + 1; j < last; j++) {
+				pairs.add(participants[i], participants[j]);
+			}
+		}
+	}
+
+	/**
+	 * @return Number of closed DEADLOCK blocks recorded
+	 */
+	int getBlockCount() {
+		return count;
+	}
+
+	/**
+	 * @return Number of DEADLOCKs whose block never closed
+	 */
+	long getUnmatchedCount() {
+		return unmatched;
+	}
+
+	/**
+	 * @return Number of different pairs of U-codes that deadlocked together
+	 */
+	int getPairCount() {
+		return pairs.size();
+	}
+
+	/**
+	 * @return One line summary, e.g. for the progress dialog
+	 */
+	String describe() {
+		return count + " DEADLOCK blocks, " + codes.size() + " U-codes, " + pairs.size() + " pairs"
+				+ ((unmatched > 0) ? ", " + unmatched + " single" : "");
+	}
+
+	/**
+	 * @param n Number of pairs wanted
+	 * @return The pairs that deadlocked together most often, most first, in the layout of PAIR_HEADERS
+	 */
+	List<Object[]> topPairs(int n) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int[] pair : pairs.top(n, (a, b, together) -> together)) {
+			rows.add(new Object[] {codes.get(pair[0]), codes.get(pair[1]), pair[2]});
+		}
+		return rows;
+	}
+
+	/**
+	 * @return Every U-code with the number of closed blocks it took part in, most first,
+	 * in the layout of CODE_HEADERS
+	 */
+	List<Object[]> codeRows() {
+		List<Object[]> rows = new ArrayList<Object[]>(codes.size());
+		for (int id = 0; id < codes.size(); id++) {
+			if (blocksPerCode[id] > 0) rows.add(new Object[] {codes.get(id), blocksPerCode[id]});
+		}
+		rows.sort(Comparator.comparingInt((Object[] row) -> (Integer) row[1]).reversed());
+		return rows;
+	}
+
+	/**
+	 * @return The records, in the layout of BLOCK_HEADERS, made as they are asked for
+	 */
+	List<Object[]> blockRows() {
+		return new AbstractList<Object[]>() {
+			@Override
+			public Object[] get(int index) {
+				return new Object[] {index + 1, startLines[index], endLines[index],
+						unpackTimeStamp(startTimes[index]), unpackTimeStamp(endTimes[index]),
+						String.join(" ", participantsOf(index))};
+			}
+
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+	}
+
+	/**
+	 * @param block Number of the record, from 0
+	 * @return The U-codes that took part in the block, in the order they were found
+	 */
+	List<String> participantsOf(int block) {
+		List<String> result = new ArrayList<String>();
+		for (int i = participantStart[block]; i < participantStart[block + 1]; i++) {
+			result.add(codes.get(participants[i]));
+		}
+		return result;
+	}
+
+	private int idOf(String uCode) {
+		Integer id = codeIds.get(uCode);
+		if (id != null) return id;
+		id = codes.size();
+		codeIds.put(uCode, id);
+		codes.add(uCode);
+		if (id == blocksPerCode.length) {
+			blocksPerCode = Arrays.copyOf(blocksPerCode, id * 2);
+		}
+		return id;
+	}
+
+	/**
+	 * @param timeStamp A timestamp such as 20160815/101010.100
+	 * @return Its digits as one number, e.g. 20160815101010100, or -1 if it is not one
+	 */
+	static long packTimeStamp(String timeStamp) {
+		if (timeStamp == null) return -1;
+		long packed = 0;
+		int digits = 0;
+		for (int i = 0; i < timeStamp.length(); i++) {
+			char c = timeStamp.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (++digits > 18) return -1;
+				packed = packed * 10 + (c - '0');
+			}
+		}
+		return (digits == 17) ? packed : -1;
+	}
+
+	/**
+	 * @return The timestamp packed by packTimeStamp, in the logfile's layout
+	 */
+	static String unpackTimeStamp(long packed) {
+		if (packed < 0) return "";
+		String digits = Long.toString(packed);
+		while (digits.length() < 17) digits = "0" + digits;
+		return digits.substring(0, 8) + "/" + digits.substring(8, 14) + "." + digits.substring(14);
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * @file DictionaryChange.java
+ * One entry of the changelog kept by LogStorage. Every save through
+ * AdminView or the group dialogs records which rows it touched, so other
+ * clients can fetch just those rows instead of the whole dictionary.
+ */
+
+package interfaceTest;
+
+public class DictionaryChange {
+	/**Table name used for changes to the logerrors entries*/
+	static final String LOG_ERRORS = "logerrors";
+	/**Table name used for changes to the groups*/
+	static final String GROUPS = "Groups";
+
+	private final long revision;
+	private final String table;
+	private final String key;
+	private final String[] row;
+
+	/**
+	 * @param revision Position of the change in the changelog
+	 * @param table LOG_ERRORS or GROUPS
+	 * @param key The keyword or group name that changed
+	 * @param row For LOG_ERRORS, the entry as it is now in the LogStorage layout,
+	 * or null if it was deleted
+	 */
+	DictionaryChange(long revision, String table, String key, String[] row) {
+		this.revision = revision;
+		this.table = table;
+		this.key = key;
+		this.row = row;
+	}
+
+	long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * @return LOG_ERRORS or GROUPS
+	 */
+	String getTable() {
+		return table;
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return The current entry, null if it was deleted or the change is not to logerrors
+	 */
+	String[] getRow() {
+		return row;
+	}
+
+	boolean isGroupChange() {
+		return GROUPS.equals(table);
+	}
+}
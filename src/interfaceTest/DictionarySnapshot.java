@@ -0,0 +1,222 @@
+/**
+ * @file DictionarySnapshot.java
+ * A copy of the keyword dictionary (keywords, folders, solutions, hyperlinks
+ * and groups) that is kept in a file in the data directory. UserView starts
+ * from the snapshot so it does not have to wait for the database, and the
+ * program still works while the database cannot be reached. Each snapshot
+ * records the version of the database it was taken from, so it only has to
+ * be fetched again when the version check shows that something changed, and
+ * the changelog revision it is up to date with, so that only the entries
+ * that changed since then have to be fetched.
+ */
+
+package interfaceTest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DictionarySnapshot {
+	/**"LRDICT" followed by the format number of the file*/
+	private static final long MAGIC = 0x4C52444943540002L;
+	/**Name of the snapshot file within the data directory*/
+	private static final String FILE_NAME = "dictionary.snapshot";
+
+	/**Version of the database the snapshot was taken from*/
+	private final String version;
+	/**Changelog revision the snapshot is up to date with, -1 if the storage has no changelog*/
+	private final long revision;
+	/**Entries of logerrors, in the layout returned by LogStorage.loadLogErrors*/
+	private final List<String[]> logErrors;
+	/**Maps group names to their space separated keywords*/
+	private final HashMap<String, String> groups;
+
+	/**
+	 * @param version Version of the database the contents were read from
+	 * @param revision Changelog revision the contents are up to date with
+	 * @param logErrors Entries of logerrors
+	 * @param groups Maps group names to their keywords
+	 */
+	DictionarySnapshot(String version, long revision, List<String[]> logErrors, HashMap<String, String> groups) {
+		this.version = version;
+		this.revision = revision;
+		this.logErrors = logErrors;
+		this.groups = groups;
+	}
+
+	/**
+	 * Reads the whole dictionary from the database
+	 * @param database The database to read from
+	 * @return A snapshot of the current contents
+	 * @throws SQLException If the database could not be read
+	 */
+	static DictionarySnapshot fromDatabase(LogStorage database) throws SQLException {
+		//The revision is read first, so changes made while reading are fetched again later
+		long revision = database.loadRevision();
+		String version = database.loadDictionaryVersion();
+		return new DictionarySnapshot(version, revision, database.loadLogErrors(), database.loadGroups());
+	}
+
+	/**
+	 * Gives a copy of this snapshot with changes from the changelog applied
+	 * @param changes The changes, in order
+	 * @param newGroups The current groups if any group changed, otherwise null
+	 * @return The new snapshot, up to date with the last change
+	 */
+	DictionarySnapshot withChanges(List<DictionaryChange> changes, HashMap<String, String> newGroups) {
+		LinkedHashMap<String, String[]> rows = new LinkedHashMap<String, String[]>();
+		for (String[] row : logErrors) {
+			rows.put(row[LogStorage.KEYWORD], row);
+		}
+		long latest = revision;
+		for (DictionaryChange change : changes) {
+			if (!change.isGroupChange()) {
+				if (change.getRow() == null) {
+					rows.remove(change.getKey());
+				}
+				else {
+					rows.put(change.getKey(), change.getRow());
+				}
+			}
+			latest = Math.max(latest, change.getRevision());
+		}
+		//The version no longer matches any fingerprint, so a check by version fetches everything
+		return new DictionarySnapshot(null, latest, new ArrayList<String[]>(rows.values()),
+				(newGroups == null) ? groups : newGroups);
+	}
+
+	/**
+	 * Gives a copy of this snapshot with different groups, used after the
+	 * groups have been changed in the database
+	 * @param newGroups The new contents of the Groups table
+	 * @return The new snapshot
+	 */
+	DictionarySnapshot withGroups(HashMap<String, String> newGroups) {
+		return new DictionarySnapshot(version, revision, logErrors, newGroups);
+	}
+
+	String getVersion() {
+		return version;
+	}
+
+	long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * @return Entries of logerrors, indexed by LogStorage.KEYWORD, DESCRIPTION, SOLUTION, FOLDER and HYPERLINK
+	 */
+	List<String[]> getLogErrors() {
+		return Collections.unmodifiableList(logErrors);
+	}
+
+	Map<String, String> getGroups() {
+		return Collections.unmodifiableMap(groups);
+	}
+
+	/**
+	 * @return The file the snapshot is kept in
+	 */
+	static File getFile() {
+		return new File(AppConfig.getDataDirectory(), FILE_NAME);
+	}
+
+	/**
+	 * Reads the snapshot that was last saved
+	 * @return The snapshot, or null if there is none or it could not be read
+	 */
+	static DictionarySnapshot load() {
+		File file = getFile();
+		if (!file.isFile()) return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readLong() != MAGIC) return null;
+			String version = readString(in);
+			long revision = in.readLong();
+			int rowCount = in.readInt();
+			List<String[]> logErrors = new ArrayList<String[]>(rowCount);
+			for (int i = 0; i < rowCount; i++) {
+				String[] row = new String[5];
+				for (int j = 0; j < row.length; j++) {
+					row[j] = readString(in);
+				}
+				logErrors.add(row);
+			}
+			int groupCount = in.readInt();
+			HashMap<String, String> groups = new HashMap<String, String>();
+			for (int i = 0; i < groupCount; i++) {
+				groups.put(readString(in), readString(in));
+			}
+			return new DictionarySnapshot(version, revision, logErrors, groups);
+		} catch (IOException e) {
+			System.out.println("Ignoring unreadable dictionary snapshot: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the snapshot to the data directory. It is written to a temporary
+	 * file first, so a crash while saving cannot leave a partial snapshot.
+	 */
+	void save() {
+		File file = getFile();
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeLong(MAGIC);
+				writeString(out, version);
+				out.writeLong(revision);
+				out.writeInt(logErrors.size());
+				for (String[] row : logErrors) {
+					for (String value : row) {
+						writeString(out, value);
+					}
+				}
+				out.writeInt(groups.size());
+				for (Map.Entry<String, String> entry : groups.entrySet()) {
+					writeString(out, entry.getKey());
+					writeString(out, entry.getValue());
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.out.println("Could not save dictionary snapshot: " + e.getMessage());
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by its bytes, -1 for null
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -14,10 +14,7 @@ import java.awt.Dimension;
 import java.awt.Insets;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -187,15 +184,8 @@ public class EditGroup extends JDialog {
 			return;
 		}
 		
-		String driver = "net.sourceforge.jtds.jdbc.Driver";
-		Class.forName(driver);
-		Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-
-		Statement stmt = conn.createStatement();
-		stmt.executeUpdate("update Groups set GroupKeywords = \'" + 
-				Utility.addSingleQuote(groupKeywords) + "\' where GroupName = \'" + Utility.addSingleQuote(groupName) + "\'");
-		view.loadGroupInfo(stmt);
-		stmt.close();
+		LogStorage.getInstance().updateGroup(groupName, groupKeywords);
+		view.loadGroupInfo();
 		view.createGroupView();
 		admin.updateGroupData(view);
 	}
@@ -0,0 +1,241 @@
+/**
+ * @file FollowDialog.java
+ * Brings up a Java Dialog that follows a logfile as it is written and checks
+ * the new lines against alert rules such as "DEADLOCK > 5 in 60s". The rules
+ * start from the setting alert.rules and can be edited before following
+ * starts. Every alert is added to the table, sounds a beep and is appended to
+ * the alert log, alerts.log in the data directory unless alert.log names
+ * another file. Following stops when the dialog is closed.
+ */
+package interfaceTest;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Toolkit;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.border.EmptyBorder;
+
+@SuppressWarnings("serial")
+public class FollowDialog extends JDialog {
+	static final String[] HEADERS = {"Time", "Rule", "Line"};
+
+	/** Main content panel */
+	private final JPanel pnlMain = new JPanel();
+	private final File file;
+	private final String charsetChoice;
+	private JTextArea taRules;
+	private JCheckBox cbFromStart;
+	private JButton btnStart;
+	private JLabel lblStatus;
+	/** Alerts shown in the table, the oldest dropped after alert.maxRows */
+	private final List<Object[]> alertRows = new ArrayList<Object[]>();
+	private ResultTableModel alertModel;
+	private final int maxRows = AppConfig.getInt("alert.maxRows", 1000);
+	private Timer statusTimer;
+
+	private AlertRules rules;
+	private LogFollower follower;
+	private BufferedWriter alertLog;
+	private File alertLogFile;
+	private int alertCount;
+
+	/**
+	 * Constructor
+	 * @param file The logfile to follow
+	 * @param charsetChoice Encoding chosen in the interface, LogCharset.AUTO to detect it
+	 */
+	public FollowDialog(File file, String charsetChoice) {
+		this.file = file;
+		this.charsetChoice = charsetChoice;
+		prepareGUI();
+		Utility.addEscapeListener(this);
+	}
+
+	/**
+	 * This function prepares and displays the FollowDialog GUI.
+	 */
+	private void prepareGUI() {
+		setTitle("Follow " + file.getName());
+		setPreferredSize(new Dimension(900, 450));
+		getContentPane().add(pnlMain, BorderLayout.CENTER);
+		pnlMain.setBorder(new EmptyBorder(5,5,5,5));
+		pnlMain.setLayout(new BorderLayout());
+
+		JPanel pnlRules = new JPanel();
+		pnlRules.setLayout(new BoxLayout(pnlRules, BoxLayout.Y_AXIS));
+		pnlRules.setBorder(new EmptyBorder(5,5,10,5));
+		JLabel lblFile = new JLabel("Following: " + file.getPath());
+		lblFile.setFont(new Font("Serif", Font.PLAIN, 14));
+		lblFile.setAlignmentX(LEFT_ALIGNMENT);
+		pnlRules.add(lblFile);
+		JLabel lblRules = new JLabel("Rules, one per line, e.g. DEADLOCK > 5 in 60s or ===> over 10 >= 2 in 60s:");
+		lblRules.setAlignmentX(LEFT_ALIGNMENT);
+		pnlRules.add(lblRules);
+		taRules = new JTextArea(AppConfig.getString("alert.rules", "DEADLOCK > 5 in 60s; ===> over 10 >= 2 in 60s")
+				.replaceAll("\\s*;\\s*", "\n"), 3, 60);
+		JScrollPane rulesScrollPane = new JScrollPane(taRules);
+		rulesScrollPane.setAlignmentX(LEFT_ALIGNMENT);
+		pnlRules.add(rulesScrollPane);
+		JPanel pnlControls = new JPanel();
+		pnlControls.setLayout(new BoxLayout(pnlControls, BoxLayout.X_AXIS));
+		pnlControls.setAlignmentX(LEFT_ALIGNMENT);
+		cbFromStart = new JCheckBox("Check the lines already in the file");
+		pnlControls.add(cbFromStart);
+		btnStart = new JButton("Start");
+		btnStart.addActionListener(e -> {
+			if (follower == null) startFollowing();
+			else stopFollowing();
+		});
+		pnlControls.add(btnStart);
+		pnlRules.add(pnlControls);
+		pnlMain.add(pnlRules, BorderLayout.NORTH);
+
+		alertModel = new ResultTableModel(alertRows, HEADERS);
+		JTable table = new JTable(alertModel);
+		table.setCellSelectionEnabled(true);
+		table.getColumnModel().getColumn(0).setPreferredWidth(150);
+		table.getColumnModel().getColumn(1).setPreferredWidth(200);
+		table.getColumnModel().getColumn(2).setPreferredWidth(550);
+		pnlMain.add(new JScrollPane(table), BorderLayout.CENTER);
+
+		lblStatus = new JLabel("Not following");
+		lblStatus.setBorder(new EmptyBorder(5,5,0,5));
+		pnlMain.add(lblStatus, BorderLayout.SOUTH);
+		statusTimer = new Timer(1000, e -> updateStatus());
+
+		addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentHidden(ComponentEvent e) {
+				stopFollowing();
+			}
+		});
+
+		pack();
+		setLocationRelativeTo(null);
+		setVisible(true);
+	}
+
+	/**
+	 * Reads the rules and starts following the file on its own thread
+	 */
+	private void startFollowing() {
+		try {
+			rules = AlertRules.parse(taRules.getText());
+		} catch (IllegalArgumentException e) {
+			JOptionPane.showMessageDialog(this, e.getMessage());
+			return;
+		}
+		if (rules.getRules().isEmpty()) {
+			JOptionPane.showMessageDialog(this, "Please enter at least one rule");
+			return;
+		}
+		alertLogFile = new File(AppConfig.getString("alert.log",
+				new File(AppConfig.getDataDirectory(), "alerts.log").getPath()));
+		try {
+			alertLog = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(alertLogFile, true),
+					StandardCharsets.UTF_8));
+			follower = new LogFollower(file, LogCharset.forFile(file, charsetChoice), rules, this::alert,
+					cbFromStart.isSelected());
+		} catch (IOException e) {
+			e.printStackTrace();
+			JOptionPane.showMessageDialog(this, "Could not follow the file: " + e.getMessage());
+			closeAlertLog();
+			return;
+		}
+		Thread thread = new Thread(follower, "Follow " + file.getName());
+		thread.setDaemon(true);
+		thread.start();
+		taRules.setEditable(false);
+		cbFromStart.setEnabled(false);
+		btnStart.setText("Stop");
+		statusTimer.start();
+		updateStatus();
+	}
+
+	private void stopFollowing() {
+		if (follower == null) return;
+		follower.stop();
+		follower = null;
+		statusTimer.stop();
+		taRules.setEditable(true);
+		cbFromStart.setEnabled(true);
+		btnStart.setText("Start");
+		lblStatus.setText("Stopped. " + alertCount + " alerts, logged to " + alertLogFile);
+		closeAlertLog();
+	}
+
+	/**
+	 * Logs an alert and shows it. Called on the follower's thread, so the
+	 * lines after it are not held up by the table.
+	 */
+	private void alert(AlertRules.Alert alert) {
+		String now = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+		synchronized (this) {
+			if (alertLog != null) {
+				try {
+					alertLog.write(now + "\t" + file.getName() + "\t" + alert.rule.text + "\t" + alert.line);
+					alertLog.newLine();
+					alertLog.flush();
+				} catch (IOException e) {
+					System.out.println("Could not write to the alert log: " + e.getMessage());
+				}
+			}
+		}
+		SwingUtilities.invokeLater(() -> {
+			alertCount++;
+			alertRows.add(new Object[] {alert.timeStamp.isEmpty() ? now : alert.timeStamp, alert.rule.text, alert.line});
+			alertModel.fireTableRowsInserted(alertRows.size() - 1, alertRows.size() - 1);
+			if (alertRows.size() > maxRows) {
+				alertRows.remove(0);
+				alertModel.fireTableRowsDeleted(0, 0);
+			}
+			Toolkit.getDefaultToolkit().beep();
+			updateStatus();
+		});
+	}
+
+	private synchronized void closeAlertLog() {
+		if (alertLog == null) return;
+		try {
+			alertLog.close();
+		} catch (IOException e) {
+			System.out.println("Could not close the alert log: " + e.getMessage());
+		}
+		alertLog = null;
+	}
+
+	private void updateStatus() {
+		if (follower == null) return;
+		StringBuilder status = new StringBuilder();
+		status.append(follower.getLines()).append(" lines checked, ").append(alertCount).append(" alerts");
+		for (AlertRules.Rule rule : rules.getRules()) {
+			status.append(". ").append(rule.text).append(": ").append(rule.getFired());
+		}
+		lblStatus.setText(status.toString());
+	}
+}
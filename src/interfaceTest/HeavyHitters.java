@@ -0,0 +1,171 @@
+/**
+ * @file HeavyHitters.java
+ * Finds the k most frequent items without counting every item exactly.
+ * Every item is counted in a CountMinSketch, and the k items with the
+ * largest estimates are kept as candidates. An item only becomes a String
+ * when it enters the candidates, so items that are looked up straight from
+ * a StringBuilder cost nothing while they are rare. Merging adds the
+ * sketches and keeps the top k of both sets of candidates.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+class HeavyHitters {
+	private final int k;
+	private final CountMinSketch sketch;
+
+	//The candidates, one slot each
+	private final String[] keys;
+	private final long[] hashes;
+	private final long[] estimates;
+	private int size;
+	/**No candidate's estimate is below this, so most items are turned away without a search*/
+	private long minEstimate;
+	/**Open addressing index from hash to candidate slot, -1 when empty*/
+	private final int[] index;
+
+	/**
+	 * @param k Number of items to keep
+	 * @param epsilon See CountMinSketch
+	 * @param delta See CountMinSketch
+	 */
+	HeavyHitters(int k, double epsilon, double delta) {
+		this.k = Math.max(k, 1);
+		sketch = new CountMinSketch(epsilon, delta);
+		keys = new String[this.k];
+		hashes = new long[this.k];
+		estimates = new long[this.k];
+		index = new int[Integer.highestOneBit(this.k * 4 - 1) << 1];
+		Arrays.fill(index, -1);
+	}
+
+	/**
+	 * Counts one occurrence of an item
+	 * @param item The item, copied only if it becomes a candidate
+	 * @param hash ScanSketches.hashOf the item
+	 */
+	void add(CharSequence item, long hash) {
+		sketch.add(hash, 1);
+		int slot = index[indexOf(hash)];
+		if (slot >= 0) {
+			estimates[slot]++;
+			return;
+		}
+		long estimate = sketch.estimate(hash);
+		if (size < k) {
+			put(size, item.toString(), hash, estimate);
+			index[indexOf(hash)] = size++;
+			return;
+		}
+		if (estimate <= minEstimate) return;
+		int minSlot = 0;
+		for (int i = 1; i < size; i++) {
+			if (estimates[i] < estimates[minSlot]) minSlot = i;
+		}
+		minEstimate = estimates[minSlot];
+		if (estimate <= minEstimate) return;
+		put(minSlot, item.toString(), hash, estimate);
+		rebuildIndex();
+	}
+
+	/**
+	 * Adds the counts and candidates of another HeavyHitters with a sketch of the same size
+	 * @param other The HeavyHitters to add
+	 */
+	void merge(HeavyHitters other) {
+		sketch.merge(other.sketch);
+		List<String> allKeys = new ArrayList<String>(Arrays.asList(keys).subList(0, size));
+		List<Long> allHashes = new ArrayList<Long>();
+		for (int i = 0; i < size; i++) {
+			allHashes.add(hashes[i]);
+		}
+		for (int i = 0; i < other.size; i++) {
+			if (index[indexOf(other.hashes[i])] >= 0) continue;
+			allKeys.add(other.keys[i]);
+			allHashes.add(other.hashes[i]);
+		}
+		Integer[] order = new Integer[allKeys.size()];
+		long[] merged = new long[order.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+			merged[i] = sketch.estimate(allHashes.get(i));
+		}
+		Arrays.sort(order, Comparator.comparingLong((Integer i) -> merged[i]).reversed());
+		size = Math.min(k, order.length);
+		for (int i = 0; i < size; i++) {
+			keys[i] = allKeys.get(order[i]);
+			hashes[i] = allHashes.get(order[i]);
+			estimates[i] = merged[order[i]];
+		}
+		minEstimate = (size == k) ? estimates[size - 1] : 0;
+		rebuildIndex();
+	}
+
+	/**
+	 * @return The candidates, most frequent first, as rows of item, estimate and the least it can be
+	 */
+	List<Object[]> top() {
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingLong((Integer i) -> estimates[i]).reversed());
+		long bound = sketch.errorBound();
+		List<Object[]> rows = new ArrayList<Object[]>(size);
+		for (int i : order) {
+			rows.add(new Object[] {keys[i], estimates[i], Math.max(0, estimates[i] - bound)});
+		}
+		return rows;
+	}
+
+	/**
+	 * @return Number of items counted
+	 */
+	long getTotal() {
+		return sketch.getTotal();
+	}
+
+	/**
+	 * @return See CountMinSketch.errorBound
+	 */
+	long errorBound() {
+		return sketch.errorBound();
+	}
+
+	/**
+	 * @return See CountMinSketch.getConfidence
+	 */
+	double getConfidence() {
+		return sketch.getConfidence();
+	}
+
+	private void put(int slot, String key, long hash, long estimate) {
+		keys[slot] = key;
+		hashes[slot] = hash;
+		estimates[slot] = estimate;
+	}
+
+	/**
+	 * @return Where the hash is in index, or the empty place where it would go
+	 */
+	private int indexOf(long hash) {
+		int mask = index.length - 1;
+		int place = (int) ((hash * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+		while (index[place] >= 0 && hashes[index[place]] != hash) {
+			place = (place + 1) & mask;
+		}
+		return place;
+	}
+
+	private void rebuildIndex() {
+		Arrays.fill(index, -1);
+		for (int i = 0; i < size; i++) {
+			index[indexOf(hashes[i])] = i;
+		}
+	}
+}
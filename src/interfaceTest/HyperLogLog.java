@@ -0,0 +1,75 @@
+/**
+ * @file HyperLogLog.java
+ * Estimates how many different items were added in 2^precision bytes, e.g.
+ * 16 KB for precision 14, however many there are. The top precision bits of
+ * an item's hash pick a register, which keeps the longest run of leading
+ * zeros seen in the rest. The estimate has a standard error of about
+ * 1.04 / sqrt(2^precision), 0.8% for precision 14. Merging keeps the larger
+ * of each pair of registers, which is the same as adding both sets of items.
+ */
+
+package interfaceTest;
+
+class HyperLogLog {
+	private final int precision;
+	private final byte[] registers;
+
+	/**
+	 * @param precision Bits of the hash that pick a register, from 4 to 18
+	 */
+	HyperLogLog(int precision) {
+		this.precision = Math.max(4, Math.min(18, precision));
+		registers = new byte[1 << this.precision];
+	}
+
+	/**
+	 * Adds an item
+	 * @param hash 64 bit hash of the item, see ScanSketches.hashOf
+	 */
+	void add(long hash) {
+		int register = (int) (hash >>> (64 - precision));
+		//The marker bit caps the run at 64 - precision zeros
+		long rest = (hash << precision) | (1L << (precision - 1));
+		byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+		if (rank > registers[register]) registers[register] = rank;
+	}
+
+	/**
+	 * Keeps the larger of each pair of registers
+	 * @param other A HyperLogLog of the same precision
+	 * @throws IllegalArgumentException If the precisions differ
+	 */
+	void merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Cannot merge precision " + other.precision + " into " + precision);
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+		}
+	}
+
+	/**
+	 * @return Estimated number of different items added
+	 */
+	long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) zeros++;
+		}
+		double alpha = (m == 16) ? 0.673 : (m == 32) ? 0.697 : (m == 64) ? 0.709 : 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		//Few items leave registers empty, and counting them is more accurate
+		if (estimate <= 2.5 * m && zeros > 0) estimate = m * Math.log((double) m / zeros);
+		return Math.round(estimate);
+	}
+
+	/**
+	 * @return Standard error of estimate, as a share of it
+	 */
+	double standardError() {
+		return 1.04 / Math.sqrt(registers.length);
+	}
+}
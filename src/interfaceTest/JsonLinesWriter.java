@@ -0,0 +1,130 @@
+/**
+ * @file JsonLinesWriter.java
+ * Writes the results from a search in LogParser as JSON Lines, one JSON
+ * object per error, so that the results can be streamed into other tools.
+ * The file is gzipped if its name ends in ".gz".
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+public class JsonLinesWriter implements ResultExporter {
+	private static UserView view;
+	/**Names of the JSON fields, in the same order as the table columns*/
+	private static final String[] FIELD_NAMES = {"error", "timestamp",
+			"keyword", "message", "solution"};
+	/**Hex digits used for escaping control characters*/
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Has functionality that writes the parsing results to a JSON Lines file
+	 * @param view UserView object associated with this class
+	 */
+	public JsonLinesWriter(UserView view){
+		JsonLinesWriter.view = view;
+	}
+
+	/**
+	 * Streams every row from LogParser to the file as one JSON object per line.
+	 * Besides the table columns, each object has an "epochMillis" field holding
+	 * the timestamp as a number, or null if the timestamp could not be read.
+	 * @param file The file to write to, gzipped if the name ends with ".gz"
+	 * @param progress Receives the percent of rows written, may be null
+	 * @return The number of rows written
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	@Override
+	public int writeTo(File file, IntConsumer progress) throws IOException{
+		ParseEvents.Export event = new ParseEvents.Export();
+		event.begin();
+		List<Object[]> rows = view.logParser.errorData;
+		int total = rows.size();
+		int oldPercent = -1;
+		try (Writer writer = CSVFileWriter.openWriter(file)) {
+			for (int i = 0; i < total; i++){
+				Object[] row = rows.get(i);
+				writer.write('{');
+				for (int j = 0; j < FIELD_NAMES.length; j++){
+					if (j > 0) writer.write(',');
+					writer.write('"');
+					writer.write(FIELD_NAMES[j]);
+					writer.write("\":");
+					Object value = (j < row.length) ? row[j] : null;
+					if (value instanceof Number){
+						writer.write(value.toString());
+					}
+					else {
+						writeString(writer, value);
+					}
+					if (j == 1){
+						long millis = Utility.toEpochMillis((String) value);
+						writer.write(",\"epochMillis\":");
+						writer.write(millis == Utility.NO_TIME ? "null" : Long.toString(millis));
+					}
+				}
+				writer.write("}\n");
+				if (progress != null){
+					int percent = (int) ((i + 1) * 100L / total);
+					if (percent > oldPercent){
+						progress.accept(percent);
+						oldPercent = percent;
+					}
+				}
+			}
+		}
+		if (event.shouldCommit()) {
+			event.path = file.getPath();
+			event.format = getFormatName();
+			event.rows = total;
+			event.bytes = file.length();
+			event.commit();
+		}
+		return total;
+	}
+
+	@Override
+	public String getFormatName(){
+		return "JSON Lines";
+	}
+
+	/**
+	 * Writes a value as a JSON string, escaping quotes, backslashes and
+	 * control characters. Null values are written as null.
+	 * @param writer Writer for the JSON Lines file
+	 * @param value The contents of the table cell
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	static void writeString(Writer writer, Object value) throws IOException{
+		if (value == null){
+			writer.write("null");
+			return;
+		}
+		String s = value.toString();
+		writer.write('"');
+		int start = 0;
+		for (int i = 0; i < s.length(); i++){
+			char c = s.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\') continue;
+			writer.write(s, start, i - start);
+			start = i + 1;
+			switch (c){
+			case '"':  writer.write("\\\""); break;
+			case '\\': writer.write("\\\\"); break;
+			case '\n': writer.write("\\n"); break;
+			case '\r': writer.write("\\r"); break;
+			case '\t': writer.write("\\t"); break;
+			default:
+				writer.write("\\u00");
+				writer.write(HEX[c >> 4]);
+				writer.write(HEX[c & 0xF]);
+			}
+		}
+		writer.write(s, start, s.length() - start);
+		writer.write('"');
+	}
+}
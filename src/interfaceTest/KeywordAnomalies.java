@@ -0,0 +1,227 @@
+/**
+ * @file KeywordAnomalies.java
+ * Finds bursts of a keyword while the file is parsed, such as a U-code that
+ * usually fires a few times an hour firing hundreds of times in a few
+ * minutes. Entries are counted per keyword in time buckets of
+ * anomaly.bucketMinutes (default 5). When a bucket ends, each keyword's count
+ * is compared to a rolling baseline, an exponentially weighted mean and
+ * variance of its earlier buckets (weight anomaly.alpha, default 0.1), and
+ * then added to it. A count is flagged when it is at least anomaly.minCount
+ * (default 10) and more than anomaly.threshold (default 4) deviations above
+ * the mean, once the keyword has anomaly.warmup buckets (default 12) behind
+ * it. Poisson noise is added to the variance, so a keyword that is usually
+ * silent is not flagged for a couple of hits.
+ *
+ * Only a few numbers are kept for each keyword, so memory grows with the
+ * dictionary, not with the file. The flagged buckets are kept (up to
+ * anomaly.max, default 1000) so the result table can highlight their rows.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+class KeywordAnomalies {
+	private final KeywordIndex keywordIndex;
+	private final int bucketMinutes;
+	private final double alpha;
+	private final double threshold;
+	private final int minCount;
+	private final int warmup;
+	private final int maxAnomalies;
+
+	//Per keyword id
+	private double[] means;
+	private double[] variances;
+	private int[] counts;
+	private int[] bucketsSeen;
+	/**Keywords that have had an entry, the only ones with a baseline to keep*/
+	private final BitSet active = new BitSet();
+
+	/**The bucket being counted, Utility.NO_TIME before the first entry*/
+	private long bucket = Utility.NO_TIME;
+
+	private final ArrayList<Anomaly> anomalies = new ArrayList<Anomaly>();
+	/**Flagged buckets by bucket and keyword id, see keyOf*/
+	private final HashMap<Long, Anomaly> flagged = new HashMap<Long, Anomaly>();
+
+	/**
+	 * Uses the anomaly.* settings
+	 * @param keywordIndex The dictionary keywords
+	 */
+	KeywordAnomalies(KeywordIndex keywordIndex) {
+		this(keywordIndex, AppConfig.getInt("anomaly.bucketMinutes", 5), AppConfig.getDouble("anomaly.alpha", 0.1),
+				AppConfig.getDouble("anomaly.threshold", 4.0), AppConfig.getInt("anomaly.minCount", 10),
+				AppConfig.getInt("anomaly.warmup", 12), AppConfig.getInt("anomaly.max", 1000));
+	}
+
+	KeywordAnomalies(KeywordIndex keywordIndex, int bucketMinutes, double alpha, double threshold, int minCount,
+			int warmup, int maxAnomalies) {
+		this.keywordIndex = keywordIndex;
+		this.bucketMinutes = Math.max(bucketMinutes, 1);
+		this.alpha = Math.min(Math.max(alpha, 0.001), 1.0);
+		this.threshold = threshold;
+		this.minCount = minCount;
+		this.warmup = warmup;
+		this.maxAnomalies = maxAnomalies;
+		int size = Math.max(keywordIndex.size(), 16);
+		means = new double[size];
+		variances = new double[size];
+		counts = new int[size];
+		bucketsSeen = new int[size];
+	}
+
+	/**
+	 * Counts an entry
+	 * @param id Id of the keyword that made the entry
+	 * @param timeStamp Timestamp of the entry
+	 */
+	void record(int id, String timeStamp) {
+		if (id < 0) return;
+		long entryBucket = bucketOf(timeStamp);
+		if (entryBucket == Utility.NO_TIME) return;
+		if (bucket == Utility.NO_TIME) bucket = entryBucket;
+		//Lines a little out of order are counted in the bucket being counted
+		if (entryBucket > bucket) {
+			closeBucket(entryBucket);
+		}
+		if (id >= counts.length) grow(id + 1);
+		counts[id]++;
+		active.set(id);
+	}
+
+	/**
+	 * Checks the last bucket once the file has been read
+	 */
+	void finish() {
+		if (bucket != Utility.NO_TIME) closeBucket(bucket + 1);
+	}
+
+	/**
+	 * Compares each keyword's count in the bucket to its baseline, then moves on.
+	 * Empty buckets up to the next entry are added to the baselines as zeros.
+	 * @param next The bucket of the next entry
+	 */
+	private void closeBucket(long next) {
+		for (int id = active.nextSetBit(0); id >= 0; id = active.nextSetBit(id + 1)) {
+			int count = counts[id];
+			double mean = means[id];
+			double deviation = Math.sqrt(variances[id] + mean);
+			if (bucketsSeen[id] >= warmup && count >= minCount && count > mean + threshold * deviation) {
+				flag(id, count, mean, (count - mean) / Math.max(deviation, 1e-9));
+			}
+			update(id, count);
+			counts[id] = 0;
+		}
+		//Long gaps only need enough empty buckets for the baselines to fade out
+		long empty = Math.min(next - bucket - 1, (long) Math.ceil(10 / alpha));
+		for (long i = 0; i < empty; i++) {
+			for (int id = active.nextSetBit(0); id >= 0; id = active.nextSetBit(id + 1)) {
+				update(id, 0);
+			}
+		}
+		bucket = next;
+	}
+
+	private void update(int id, int count) {
+		double difference = count - means[id];
+		means[id] += alpha * difference;
+		variances[id] = (1 - alpha) * (variances[id] + alpha * difference * difference);
+		bucketsSeen[id]++;
+	}
+
+	private void flag(int id, int count, double mean, double score) {
+		if (anomalies.size() >= maxAnomalies) return;
+		Anomaly anomaly = new Anomaly(keywordIndex.keywordOf(id), bucket, count, mean, score);
+		anomalies.add(anomaly);
+		flagged.put(keyOf(bucket, id), anomaly);
+	}
+
+	private void grow(int size) {
+		size = Math.max(size, counts.length * 2);
+		means = Arrays.copyOf(means, size);
+		variances = Arrays.copyOf(variances, size);
+		counts = Arrays.copyOf(counts, size);
+		bucketsSeen = Arrays.copyOf(bucketsSeen, size);
+	}
+
+	/**
+	 * @param keyword Keyword of an entry
+	 * @param timeStamp Timestamp of the entry
+	 * @return The burst the entry is part of, null if it is not part of one
+	 */
+	Anomaly anomalyOf(Object keyword, Object timeStamp) {
+		if (flagged.isEmpty() || keyword == null || timeStamp == null) return null;
+		int id = keywordIndex.idOf(keyword.toString());
+		long entryBucket = bucketOf(timeStamp.toString());
+		if (id < 0 || entryBucket == Utility.NO_TIME) return null;
+		return flagged.get(keyOf(entryBucket, id));
+	}
+
+	/**
+	 * @return The bursts found, in the order they occurred
+	 */
+	List<Anomaly> getAnomalies() {
+		return anomalies;
+	}
+
+	private static long keyOf(long bucket, int id) {
+		return (bucket << 24) | id;
+	}
+
+	/**
+	 * @param timeStamp A timestamp such as 20160815/101010.100
+	 * @return Number of its bucket counted from 1970, Utility.NO_TIME if it is not a timestamp
+	 */
+	long bucketOf(String timeStamp) {
+		long millis = Utility.toEpochMillis(timeStamp);
+		return (millis == Utility.NO_TIME) ? Utility.NO_TIME : Math.floorDiv(millis, bucketMinutes * 60000L);
+	}
+
+	/**
+	 * @return The start of a bucket as a timestamp prefix, e.g. 20160815/1005
+	 */
+	String startOf(long bucket) {
+		return LogClock.format(bucket * bucketMinutes * 60000L).substring(0, 13);
+	}
+
+	/**
+	 * @return Length of the buckets in minutes
+	 */
+	int getBucketMinutes() {
+		return bucketMinutes;
+	}
+
+	/**
+	 * A bucket in which a keyword fired far more often than usual
+	 */
+	final class Anomaly {
+		final String keyword;
+		final long bucket;
+		final int count;
+		/**Mean count per bucket before this one*/
+		final double baseline;
+		/**Deviations above the baseline*/
+		final double score;
+
+		Anomaly(String keyword, long bucket, int count, double baseline, double score) {
+			this.keyword = keyword;
+			this.bucket = bucket;
+			this.count = count;
+			this.baseline = baseline;
+			this.score = score;
+		}
+
+		/**
+		 * @return A description for the table's tool tip
+		 */
+		String describe() {
+			return String.format("%s fired %d times in %d minutes from %s, usually %.1f", keyword, count,
+					bucketMinutes, startOf(bucket), baseline);
+		}
+	}
+}
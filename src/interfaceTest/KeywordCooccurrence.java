@@ -0,0 +1,172 @@
+/**
+ * @file KeywordCooccurrence.java
+ * Finds which keywords tend to fire close together, to help find the error
+ * behind another. The hits of the parse are kept in a sliding window of the
+ * last cooccur.windowSeconds (default 10), as keyword ids and times in ring
+ * buffers. Each new hit adds one to its pair with every other keyword in the
+ * window, once however often that keyword fired there, in a sparse
+ * PairCounts. A hit therefore costs the number of different keywords in the
+ * window, and the file is read once.
+ *
+ * Pairs are ranked by lift: how many times more often they fired together
+ * than two keywords with their numbers of hits would by chance over the
+ * length of the log. Only pairs seen together cooccur.minCount times
+ * (default 5) are ranked, so two rare keywords meeting once do not lead.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class KeywordCooccurrence {
+	static final String[] HEADERS = {"Keyword", "Keyword", "Together", "Hits", "Hits", "Lift"};
+
+	private final KeywordIndex keywordIndex;
+	private final long windowMillis;
+	private final int minCount;
+
+	//The window, oldest hit at head
+	private int[] windowIds = new int[1024];
+	private long[] windowTimes = new long[1024];
+	private int head;
+	private int size;
+	/**Hits of each keyword in the window*/
+	private int[] inWindow;
+	/**The keywords with hits in the window, and where each is in that list*/
+	private int[] present;
+	private int presentCount;
+	private int[] presentAt;
+
+	/**Hits of each keyword in the whole log*/
+	private long[] hits;
+	private final PairCounts pairs = new PairCounts();
+	private long firstMillis = Utility.NO_TIME;
+	private long lastMillis = Utility.NO_TIME;
+
+	/**
+	 * Uses the cooccur.* settings
+	 * @param keywordIndex The dictionary keywords
+	 */
+	KeywordCooccurrence(KeywordIndex keywordIndex) {
+		this(keywordIndex, AppConfig.getDouble("cooccur.windowSeconds", 10), AppConfig.getInt("cooccur.minCount", 5));
+	}
+
+	KeywordCooccurrence(KeywordIndex keywordIndex, double windowSeconds, int minCount) {
+		this.keywordIndex = keywordIndex;
+		windowMillis = Math.max(1, Math.round(windowSeconds * 1000));
+		this.minCount = Math.max(minCount, 1);
+		int keywords = Math.max(keywordIndex.size(), 16);
+		inWindow = new int[keywords];
+		present = new int[keywords];
+		presentAt = new int[keywords];
+		hits = new long[keywords];
+	}
+
+	/**
+	 * Counts a hit and pairs it with the keywords that fired within the window before it
+	 * @param id Id of the keyword
+	 * @param timeStamp Timestamp of the hit, hits without one are skipped
+	 */
+	void record(int id, String timeStamp) {
+		long millis = Utility.toEpochMillis(timeStamp);
+		if (id < 0 || millis == Utility.NO_TIME) return;
+		//Lines a little out of order count as the latest time
+		if (millis < lastMillis) millis = lastMillis;
+		if (firstMillis == Utility.NO_TIME) firstMillis = millis;
+		lastMillis = millis;
+		if (id >= hits.length) grow(id + 1);
+		while (size > 0 && windowTimes[head] < millis - windowMillis) {
+			removeOldest();
+		}
+		for (int i = 0; i < presentCount; i++) {
+			if (present[i] != id) pairs.add(present[i], id);
+		}
+		add(id, millis);
+		hits[id]++;
+	}
+
+	private void add(int id, long millis) {
+		if (size == windowIds.length) {
+			int[] ids = new int[size * 2];
+			long[] times = new long[size * 2];
+			for (int i = 0; i < size; i++) {
+				ids[i] = windowIds[(head + i) % size];
+				times[i] = windowTimes[(head + i) % size];
+			}
+			windowIds = ids;
+			windowTimes = times;
+			head = 0;
+		}
+		int tail = (head + size) % windowIds.length;
+		windowIds[tail] = id;
+		windowTimes[tail] = millis;
+		size++;
+		if (inWindow[id]++ == 0) {
+			presentAt[id] = presentCount;
+			present[presentCount++] = id;
+		}
+	}
+
+	private void removeOldest() {
+		int id = windowIds[head];
+		head = (head + 1) % windowIds.length;
+		size--;
+		if (--inWindow[id] == 0) {
+			//The last keyword in the list takes its place
+			int last = present[--presentCount];
+			present[presentAt[id]] = last;
+			presentAt[last] = presentAt[id];
+		}
+	}
+
+	private void grow(int keywords) {
+		keywords = Math.max(keywords, hits.length * 2);
+		inWindow = Arrays.copyOf(inWindow, keywords);
+		present = Arrays.copyOf(present, keywords);
+		presentAt = Arrays.copyOf(presentAt, keywords);
+		hits = Arrays.copyOf(hits, keywords);
+	}
+
+	/**
+	 * @return Number of different pairs of keywords that fired within the window of each other
+	 */
+	int getPairCount() {
+		return pairs.size();
+	}
+
+	/**
+	 * @return One line summary, e.g. for the dialog
+	 */
+	String describe() {
+		return pairs.size() + " pairs of keywords fired within " + windowMillis / 1000.0
+				+ " s of each other, ranked by how much more often than by chance (seen together at least "
+				+ minCount + " times)";
+	}
+
+	/**
+	 * @param n Number of pairs wanted
+	 * @return The most strongly associated pairs, in the layout of HEADERS
+	 */
+	List<Object[]> topPairs(int n) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int[] pair : pairs.top(n, this::liftOf)) {
+			if (pair[2] < minCount) continue;
+			rows.add(new Object[] {keywordIndex.keywordOf(pair[0]), keywordIndex.keywordOf(pair[1]), pair[2],
+					hits[pair[0]], hits[pair[1]], String.format("%.1f", liftOf(pair[0], pair[1], pair[2]))});
+		}
+		return rows;
+	}
+
+	/**
+	 * @return How many times more often the pair fired together than by chance, -1 below minCount
+	 */
+	private double liftOf(int a, int b, int together) {
+		if (together < minCount) return -1;
+		//A hit of either keyword meets the other by chance if one of its hits is in the window before it
+		double span = lastMillis - firstMillis + windowMillis;
+		double expected = 2.0 * hits[a] * hits[b] * windowMillis / span;
+		return together / Math.max(expected, 1e-9);
+	}
+}
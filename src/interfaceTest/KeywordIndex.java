@@ -0,0 +1,184 @@
+/**
+ * @file KeywordIndex.java
+ * Gives every keyword of the dictionary a small, dense int id when the
+ * dictionary is loaded. Sets of keywords, such as groups and the keywords
+ * selected for a search, are then kept as BitSets over the ids, so combining
+ * them is a few word-wide ORs. The parser looks each word of a line up once
+ * and from then on only works with the id: checking whether it was selected
+ * and finding its solution are array lookups instead of more hashing.
+ * Ids are never reused, so a removed keyword that comes back gets its old id.
+ * A search keeps the index it was started with, so UserView does not change
+ * an index while a search is running; it changes a copy, which has the same
+ * ids, or waits until the search is done.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+public class KeywordIndex {
+	/**Keywords by id*/
+	private String[] keywords = new String[64];
+	/**Suggested solutions by id*/
+	private String[] solutions = new String[64];
+	/**Ids of keywords that were removed from the dictionary*/
+	private final BitSet removed = new BitSet();
+	/**Open addressing hash table holding id + 1, 0 for an empty slot*/
+	private int[] table = new int[128];
+	/**Number of ids given out*/
+	private int size;
+
+	/**
+	 * @return An index with the same keywords, ids and solutions that can be changed on its own
+	 */
+	KeywordIndex copy() {
+		KeywordIndex copy = new KeywordIndex();
+		copy.keywords = keywords.clone();
+		copy.solutions = solutions.clone();
+		copy.removed.or(removed);
+		copy.table = table.clone();
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	 * Gives the id of a keyword, adding it if it is new
+	 * @param keyword The keyword
+	 * @return The id of the keyword
+	 */
+	int intern(String keyword) {
+		int slot = find(keyword);
+		if (table[slot] != 0) {
+			int id = table[slot] - 1;
+			removed.clear(id);
+			return id;
+		}
+		int id = size++;
+		if (id == keywords.length) {
+			keywords = Arrays.copyOf(keywords, id * 2);
+			solutions = Arrays.copyOf(solutions, id * 2);
+		}
+		keywords[id] = keyword;
+		table[slot] = id + 1;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	/**
+	 * Looks a word up in the index
+	 * @param word A word from a log line
+	 * @return The id of the keyword, -1 if the word is not a keyword
+	 */
+	int idOf(String word) {
+		int id = table[find(word)] - 1;
+		return (id < 0 || removed.get(id)) ? -1 : id;
+	}
+
+	/**
+	 * @param id Id of a keyword
+	 * @return The keyword, the same String instance every time
+	 */
+	String keywordOf(int id) {
+		return keywords[id];
+	}
+
+	String getSolution(int id) {
+		return solutions[id];
+	}
+
+	void setSolution(int id, String solution) {
+		solutions[id] = solution;
+	}
+
+	/**
+	 * Takes a keyword out of the dictionary. Its id is kept for if it is added again.
+	 * @param keyword The keyword to remove
+	 */
+	void remove(String keyword) {
+		int id = idOf(keyword);
+		if (id >= 0) {
+			removed.set(id);
+			solutions[id] = null;
+		}
+	}
+
+	/**
+	 * @return One more than the highest id, the length needed for a BitSet over the ids
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return Length of the longest keyword in the dictionary, 0 if it is empty
+	 */
+	int maxLength() {
+		int max = 0;
+		for (int id = 0; id < size; id++) {
+			if (!removed.get(id)) {
+				max = Math.max(max, keywords[id].length());
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Turns a space separated list of keywords, as stored for groups, into a
+	 * set of ids. Keywords that are not in the dictionary are added to the
+	 * index so they can still be searched for.
+	 * @param keywordString The keywords separated by spaces
+	 * @return The ids of the keywords
+	 */
+	BitSet toBitSet(String keywordString) {
+		BitSet ids = new BitSet(size);
+		if (keywordString == null) return ids;
+		for (String keyword : keywordString.split(" ")) {
+			if (!keyword.isEmpty()) {
+				ids.set(intern(keyword));
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * @param ids A set of keyword ids
+	 * @return The keywords, in the order of their ids
+	 */
+	List<String> toKeywords(BitSet ids) {
+		List<String> list = new ArrayList<String>(ids.cardinality());
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			list.add(keywords[id]);
+		}
+		return list;
+	}
+
+	/**
+	 * Finds the slot of a keyword in the hash table
+	 * @param keyword The keyword to look for
+	 * @return The slot holding the keyword, or the empty slot where it would go
+	 */
+	private int find(String keyword) {
+		int mask = table.length - 1;
+		int h = keyword.hashCode();
+		int slot = (h ^ (h >>> 16)) & mask;
+		while (table[slot] != 0 && !keywords[table[slot] - 1].equals(keyword)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Doubles the hash table and puts every keyword back into it
+	 */
+	private void rehash() {
+		table = new int[table.length * 2];
+		for (int id = 0; id < size; id++) {
+			table[find(keywords[id])] = id + 1;
+		}
+	}
+}
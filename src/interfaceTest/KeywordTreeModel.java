@@ -0,0 +1,398 @@
+/**
+ * @file KeywordTreeModel.java
+ * Model of the checkbox tree in UserView, built for dictionaries with tens
+ * of thousands of keywords. Nothing is created per keyword up front: a folder
+ * only holds the ids of its keywords, and the node for a keyword is made the
+ * first time the tree asks for it, which only happens once its folder is
+ * expanded. Which keywords are checked is kept in a BitSet over the ids of
+ * the KeywordIndex, so finding the selection never walks the tree. The tree
+ * can be filtered by typing the start of a keyword, using a sorted prefix
+ * index; typing more letters narrows the previous match instead of searching
+ * again.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.swing.JCheckBox;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+public class KeywordTreeModel implements TreeModel {
+	/**The hidden root of the tree*/
+	private final Object root = "Root";
+	private final EventListenerList listeners = new EventListenerList();
+	/**Gives the keyword of each id*/
+	private KeywordIndex keywordIndex = new KeywordIndex();
+	/**Every keyword in upper case, sorted, for the type to filter search*/
+	private String[] sortedKeys = new String[0];
+	/**Ids of the keywords in sortedKeys, in the same order*/
+	private int[] sortedIds = new int[0];
+	/**For each position in sortedKeys, the position of the keyword's folder in folderNames*/
+	private int[] folderOfKey = new int[0];
+	/**Names of the folders, sorted*/
+	private String[] folderNames = new String[0];
+	/**Ids of every keyword in the tree*/
+	private BitSet allIds = new BitSet();
+	/**Ids of the checked keywords*/
+	private final BitSet selectedIds = new BitSet();
+	/**The current filter in upper case, empty for none*/
+	private String filter = "";
+	/**Range of sortedKeys starting with the filter*/
+	private int filterFrom, filterTo;
+	/**Folders shown under the current filter*/
+	private FolderNode[] folders = new FolderNode[0];
+	/**Ids of the keywords shown under the current filter*/
+	private BitSet shownIds = new BitSet();
+
+	/**
+	 * Replaces the keywords in the tree. Checked keywords that are still in
+	 * the dictionary stay checked and the filter is applied again. The index
+	 * may be a new one that gives the keywords other ids, so the checks are
+	 * carried over by keyword.
+	 * @param treeMap Maps each folder to its keywords
+	 * @param index Gives the ids of the keywords
+	 */
+	void setKeywords(Map<String, ? extends List<String>> treeMap, KeywordIndex index) {
+		KeywordIndex oldIndex = keywordIndex;
+		keywordIndex = index;
+		List<String> names = new ArrayList<String>(treeMap.keySet());
+		names.removeIf(name -> treeMap.get(name).isEmpty());
+		Collections.sort(names, (a, b) -> (a == null) ? ((b == null) ? 0 : -1) : (b == null) ? 1 : a.compareTo(b));
+		HashMap<String, Integer> folderPositions = new HashMap<String, Integer>();
+		for (int i = 0; i < names.size(); i++) {
+			folderPositions.put(names.get(i), i);
+		}
+
+		List<Object[]> keys = new ArrayList<Object[]>();
+		BitSet ids = new BitSet(index.size());
+		for (String name : names) {
+			for (String keyword : treeMap.get(name)) {
+				int id = index.idOf(keyword);
+				if (id >= 0 && !ids.get(id)) {
+					ids.set(id);
+					keys.add(new Object[] {keyword.toUpperCase(Locale.ROOT), keyword, id, folderPositions.get(name)});
+				}
+			}
+		}
+		//Sorted by the upper case key first, so the prefix search is not case sensitive
+		keys.sort((a, b) -> {
+			int c = ((String) a[0]).compareTo((String) b[0]);
+			return (c != 0) ? c : ((String) a[1]).compareTo((String) b[1]);
+		});
+		String[] newKeys = new String[keys.size()];
+		int[] newIds = new int[keys.size()];
+		int[] newFolders = new int[keys.size()];
+		for (int i = 0; i < newKeys.length; i++) {
+			Object[] key = keys.get(i);
+			newKeys[i] = (String) key[0];
+			newIds[i] = (Integer) key[2];
+			newFolders[i] = (Integer) key[3];
+		}
+
+		synchronized (this) {
+			sortedKeys = newKeys;
+			sortedIds = newIds;
+			folderOfKey = newFolders;
+			folderNames = names.toArray(new String[names.size()]);
+			allIds = ids;
+			BitSet oldSelection = (BitSet) selectedIds.clone();
+			selectedIds.clear();
+			for (int id = oldSelection.nextSetBit(0); id >= 0; id = oldSelection.nextSetBit(id + 1)) {
+				int newId = index.idOf(oldIndex.keywordOf(id));
+				if (newId >= 0 && ids.get(newId)) selectedIds.set(newId);
+			}
+		}
+		String current = filter;
+		filter = null;
+		setFilter(current);
+	}
+
+	/**
+	 * Shows only the keywords starting with the given text, ignoring case
+	 * @param text The start of the keywords to show, empty to show all
+	 */
+	void setFilter(String text) {
+		String newFilter = text.trim().toUpperCase(Locale.ROOT);
+		if (newFilter.equals(filter)) return;
+		int from = 0;
+		int to = sortedKeys.length;
+		//Typing another letter can only narrow the last match
+		if (filter != null && !filter.isEmpty() && newFilter.startsWith(filter)) {
+			from = filterFrom;
+			to = filterTo;
+		}
+		if (!newFilter.isEmpty()) {
+			int end = lowerBound(newFilter + '\uffff', from, to);
+			from = lowerBound(newFilter, from, end);
+			to = end;
+		}
+		filter = newFilter;
+		filterFrom = from;
+		filterTo = to;
+
+		//Sorts the matches into their folders, keeping them in keyword order
+		int[] counts = new int[folderNames.length];
+		BitSet shown = new BitSet(allIds.length());
+		for (int i = from; i < to; i++) {
+			counts[folderOfKey[i]]++;
+			shown.set(sortedIds[i]);
+		}
+		int[][] folderIds = new int[folderNames.length][];
+		int folderCount = 0;
+		for (int f = 0; f < counts.length; f++) {
+			folderIds[f] = new int[counts[f]];
+			if (counts[f] > 0) folderCount++;
+			counts[f] = 0;
+		}
+		for (int i = from; i < to; i++) {
+			int f = folderOfKey[i];
+			folderIds[f][counts[f]++] = sortedIds[i];
+		}
+		FolderNode[] newFolders = new FolderNode[folderCount];
+		int next = 0;
+		for (int f = 0; f < folderNames.length; f++) {
+			if (folderIds[f].length > 0) {
+				newFolders[next++] = new FolderNode(folderNames[f], folderIds[f]);
+			}
+		}
+		folders = newFolders;
+		shownIds = shown;
+		fireStructureChanged();
+	}
+
+	/**
+	 * @return The number of keywords shown under the current filter
+	 */
+	int getShownCount() {
+		return filterTo - filterFrom;
+	}
+
+	/**
+	 * @return The folders shown under the current filter
+	 */
+	List<FolderNode> getFolders() {
+		return Collections.unmodifiableList(Arrays.asList(folders));
+	}
+
+	synchronized boolean isSelected(int id) {
+		return selectedIds.get(id);
+	}
+
+	synchronized void setSelected(int id, boolean selected) {
+		selectedIds.set(id, selected);
+	}
+
+	/**
+	 * Checks or unchecks every keyword of a folder that is shown under the current filter
+	 * @param folder The folder
+	 * @param selected True to check the keywords, false to uncheck them
+	 */
+	synchronized void setFolderSelected(FolderNode folder, boolean selected) {
+		for (int id : folder.ids) {
+			selectedIds.set(id, selected);
+		}
+	}
+
+	/**
+	 * Flips the check of every keyword shown under the current filter
+	 */
+	synchronized void toggleShown() {
+		selectedIds.xor(shownIds);
+	}
+
+	/**
+	 * @return A copy of the ids of the checked keywords
+	 */
+	synchronized BitSet getSelectedIds() {
+		return (BitSet) selectedIds.clone();
+	}
+
+	synchronized boolean hasSelection() {
+		return !selectedIds.isEmpty();
+	}
+
+	@Override
+	public Object getRoot() {
+		return root;
+	}
+
+	@Override
+	public Object getChild(Object parent, int index) {
+		if (parent == root) {
+			return folders[index];
+		}
+		return ((FolderNode) parent).getChild(index, keywordIndex);
+	}
+
+	@Override
+	public int getChildCount(Object parent) {
+		if (parent == root) {
+			return folders.length;
+		}
+		if (parent instanceof FolderNode) {
+			return ((FolderNode) parent).ids.length;
+		}
+		return 0;
+	}
+
+	@Override
+	public boolean isLeaf(Object node) {
+		return node instanceof KeywordNode;
+	}
+
+	/**
+	 * Called by the tree's cell editor when a checkbox is clicked
+	 */
+	@Override
+	public void valueForPathChanged(TreePath path, Object newValue) {
+		Object node = path.getLastPathComponent();
+		if (node instanceof KeywordNode && newValue instanceof JCheckBox) {
+			setSelected(((KeywordNode) node).id, ((JCheckBox) newValue).isSelected());
+			TreePath parentPath = path.getParentPath();
+			int index = getIndexOfChild(parentPath.getLastPathComponent(), node);
+			TreeModelEvent event = new TreeModelEvent(this, parentPath, new int[] {index}, new Object[] {node});
+			for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+				listener.treeNodesChanged(event);
+			}
+		}
+	}
+
+	@Override
+	public int getIndexOfChild(Object parent, Object child) {
+		if (parent == root) {
+			return Arrays.asList(folders).indexOf(child);
+		}
+		if (parent instanceof FolderNode && child instanceof KeywordNode) {
+			int[] ids = ((FolderNode) parent).ids;
+			int id = ((KeywordNode) child).id;
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] == id) return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public void addTreeModelListener(TreeModelListener listener) {
+		listeners.add(TreeModelListener.class, listener);
+	}
+
+	@Override
+	public void removeTreeModelListener(TreeModelListener listener) {
+		listeners.remove(TreeModelListener.class, listener);
+	}
+
+	private void fireStructureChanged() {
+		TreeModelEvent event = new TreeModelEvent(this, new Object[] {root});
+		for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+			listener.treeStructureChanged(event);
+		}
+	}
+
+	/**
+	 * @return The first position in sortedKeys within [from, to) whose key is not less than the given key
+	 */
+	private int lowerBound(String key, int from, int to) {
+		while (from < to) {
+			int middle = (from + to) >>> 1;
+			if (sortedKeys[middle].compareTo(key) < 0) {
+				from = middle + 1;
+			}
+			else {
+				to = middle;
+			}
+		}
+		return from;
+	}
+
+	/**
+	 * A folder of the tree. It only holds the ids of the keywords shown in it;
+	 * their nodes are made when the tree first asks for them.
+	 */
+	static final class FolderNode {
+		private final String name;
+		private final int[] ids;
+		private KeywordNode[] children;
+
+		FolderNode(String name, int[] ids) {
+			this.name = name;
+			this.ids = ids;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		private KeywordNode getChild(int index, KeywordIndex keywordIndex) {
+			if (children == null) {
+				children = new KeywordNode[ids.length];
+			}
+			if (children[index] == null) {
+				children[index] = new KeywordNode(ids[index], keywordIndex.keywordOf(ids[index]));
+			}
+			return children[index];
+		}
+
+		/**
+		 * Folders are equal by name, so the tree keeps them expanded when the filter changes
+		 */
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof FolderNode && String.valueOf(name).equals(String.valueOf(((FolderNode) other).name));
+		}
+
+		@Override
+		public int hashCode() {
+			return String.valueOf(name).hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * A keyword of the tree, shown as a checkbox
+	 */
+	static final class KeywordNode {
+		private final int id;
+		private final String keyword;
+
+		KeywordNode(int id, String keyword) {
+			this.id = id;
+			this.keyword = keyword;
+		}
+
+		int getId() {
+			return id;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof KeywordNode && ((KeywordNode) other).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+
+		@Override
+		public String toString() {
+			return keyword;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * @file LatencyDialog.java
+ * Brings up a Java Dialog with the durations of the Time critical arrows found
+ * by the last parse: p50/p95/p99/max for the whole file, the same by U-code
+ * and by time of day, the slowest arrows with the line they start on, and how
+ * deep the arrow chains went.
+ */
+package interfaceTest;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.BoxLayout;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+
+@SuppressWarnings("serial")
+public class LatencyDialog extends JDialog {
+	/** Main content panel */
+	private final JPanel pnlMain = new JPanel();
+
+	/**
+	 * Constructor
+	 * @param latency The arrow durations collected by the last parse
+	 */
+	public LatencyDialog(ArrowLatency latency) {
+		prepareGUI(latency);
+		Utility.addEscapeListener(this);
+	}
+
+	/**
+	 * This function prepares and displays the LatencyDialog GUI.
+	 * @param latency The arrow durations collected by the last parse
+	 */
+	private void prepareGUI(ArrowLatency latency) {
+		setTitle("Time Critical Arrow Latency");
+		setPreferredSize(new Dimension(700, 400));
+		getContentPane().add(pnlMain, BorderLayout.CENTER);
+		pnlMain.setBorder(new EmptyBorder(5,5,5,5));
+		pnlMain.setLayout(new BorderLayout());
+
+		JPanel pnlSummary = new JPanel();
+		pnlSummary.setLayout(new BoxLayout(pnlSummary, BoxLayout.Y_AXIS));
+		pnlSummary.setBorder(new EmptyBorder(5,5,10,5));
+		JLabel lblSummary = new JLabel(latency.describe());
+		lblSummary.setFont(new Font("Serif", Font.PLAIN, 14));
+		pnlSummary.add(lblSummary);
+		pnlSummary.add(new JLabel(latency.describeChains()));
+		pnlMain.add(pnlSummary, BorderLayout.NORTH);
+
+		JTabbedPane tabbedPane = new JTabbedPane();
+		tabbedPane.addTab("By U-code", table(withLabel("U-code"), latency.codeRows()));
+		tabbedPane.addTab("By Time (" + latency.getBucketMinutes() + " min)", table(withLabel("From"), latency.timeRows()));
+		tabbedPane.addTab("Slowest", table(new String[] {"Duration", "Timestamp", "U-code", "Line"}, latency.slowestRows()));
+		tabbedPane.addTab("Chain Depth", table(new String[] {"Depth", "Chains"}, latency.depthRows()));
+		pnlMain.add(tabbedPane, BorderLayout.CENTER);
+
+		pack();
+		setLocationRelativeTo(null);
+		setVisible(true);
+	}
+
+	private static String[] withLabel(String label) {
+		String[] headers = new String[ArrowLatency.SUMMARY_HEADERS.length + 1];
+		headers[0] = label;
+		System.arraycopy(ArrowLatency.SUMMARY_HEADERS, 0, headers, 1, ArrowLatency.SUMMARY_HEADERS.length);
+		return headers;
+	}
+
+	private static JScrollPane table(String[] headers, List<Object[]> rows) {
+		JTable table = new JTable(new ResultTableModel(new ArrayList<Object[]>(rows), headers));
+		table.setCellSelectionEnabled(true);
+		return new JScrollPane(table);
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * @file LatencyHistogram.java
+ * Counts durations in a fixed number of bins so quantiles can be taken over
+ * any number of Time critical arrows in the same memory. Each power of two
+ * is split into SUB_BUCKETS equal bins, so a quantile is off by at most
+ * 1/SUB_BUCKETS of its value (about 3%). The smallest, largest and total of
+ * the recorded durations are kept exactly. Histograms can be merged, which
+ * gives the same result as recording both sets of durations into one.
+ */
+
+package interfaceTest;
+
+class LatencyHistogram {
+	private static final int SUB_BITS = 5;
+	/**Bins in each power of two*/
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	/**Smallest power of two with its own bins, smaller durations share the first bin*/
+	private static final int MIN_EXPONENT = -16;
+	/**Largest power of two with its own bins, larger durations share the last bin*/
+	private static final int MAX_EXPONENT = 47;
+
+	private final int[] counts = new int[2 + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS];
+	private long count;
+	private double total;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Adds a duration, ignoring NaN
+	 * @param duration The duration of an arrow block
+	 */
+	void record(double duration) {
+		if (Double.isNaN(duration)) return;
+		counts[binOf(duration)]++;
+		count++;
+		total += duration;
+		if (duration < min) min = duration;
+		if (duration > max) max = duration;
+	}
+
+	/**
+	 * Adds every duration recorded in another histogram
+	 * @param other The histogram to add
+	 */
+	void merge(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		total += other.total;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * @param quantile Between 0 and 1, e.g. 0.95 for p95
+	 * @return The duration below which that share of the durations fall, NaN if there are none
+	 */
+	double quantile(double quantile) {
+		if (count == 0) return Double.NaN;
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		if (rank >= count) return max;
+		long seen = 0;
+		for (int bin = 0; bin < counts.length; bin++) {
+			seen += counts[bin];
+			if (seen >= rank) {
+				double value = (bin == 0) ? min : (bin == counts.length - 1) ? max : middleOf(bin);
+				return Math.max(min, Math.min(max, value));
+			}
+		}
+		return max;
+	}
+
+	long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return Mean of the durations, NaN if there are none
+	 */
+	double getMean() {
+		return (count == 0) ? Double.NaN : total / count;
+	}
+
+	/**
+	 * @return Largest duration, NaN if there are none
+	 */
+	double getMax() {
+		return (count == 0) ? Double.NaN : max;
+	}
+
+	/**
+	 * @return The bin a duration is counted in: the power of two it falls in and
+	 * the top SUB_BITS bits of its mantissa
+	 */
+	private static int binOf(double duration) {
+		if (!(duration >= Math.scalb(1.0, MIN_EXPONENT))) return 0;
+		int exponent = Math.getExponent(duration);
+		if (exponent > MAX_EXPONENT) return (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS + 1;
+		int sub = (int) (Double.doubleToRawLongBits(duration) >>> (52 - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return The duration in the middle of a bin
+	 */
+	private static double middleOf(int bin) {
+		int exponent = (bin - 1) / SUB_BUCKETS + MIN_EXPONENT;
+		int sub = (bin - 1) % SUB_BUCKETS;
+		return Math.scalb(1.0 + (sub + 0.5) / SUB_BUCKETS, exponent);
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * @file LineLimitReader.java
+ * Keeps the lines of a logfile to a bounded length before BufferedReader
+ * turns them into Strings. Some logs contain single lines of several
+ * megabytes (serialized payloads) or sections of binary data, and building
+ * those into one String and splitting it on spaces can run out of memory.
+ *
+ * Characters past the maximum line length (setting log.maxLineLength) are
+ * not passed on, but they are still read word by word: every dictionary
+ * keyword found among them is added to the end of the shortened line,
+ * after a note of how much was cut, so the line is matched the same as if
+ * it had been read whole. Once a line has a run of control characters
+ * (setting log.binaryRun) the rest of it is treated as binary data and
+ * skipped up to the next line break without looking at the words.
+ */
+
+package interfaceTest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.BitSet;
+
+class LineLimitReader extends Reader {
+	private final Reader in;
+	/**Most characters of a line passed on*/
+	private final int maxLength;
+	/**Number of control characters in a row that mark binary data*/
+	private final int binaryRun;
+	/**Dictionary used to find keywords in the part of a line that is cut*/
+	private final KeywordIndex keywordIndex;
+	private final char[] buffer = new char[8192];
+	private int position;
+	private int limit;
+	private boolean endOfInput;
+
+	/**Characters of the current line passed on so far*/
+	private int column;
+	/**Control characters in a row at the end of what has been read*/
+	private int controlCount;
+	/**True once the current line is longer than maxLength*/
+	private boolean truncating;
+	/**True once binary data was found in the current line*/
+	private boolean skippingBinary;
+	/**Characters of the current line cut or skipped*/
+	private long lineDropped;
+	/**The word being read, kept while it is short enough to be a keyword*/
+	private final char[] word;
+	/**Length of the word being read, -1 if it is too long to be a keyword*/
+	private int wordLength;
+	/**True if part of the word being read was cut from the line*/
+	private boolean wordCut;
+	/**Keywords found in the cut part of the current line*/
+	private final BitSet cutKeywords = new BitSet();
+	/**Note added to the end of a shortened line, still to be passed on*/
+	private String pending;
+	private int pendingPosition;
+
+	/**Characters cut or skipped since takeDropped was last called*/
+	private long dropped;
+	private long truncatedLines;
+	private long binaryLines;
+
+	/**
+	 * Limits the lines read, with the limits given by the settings
+	 * log.maxLineLength (default 10000) and log.binaryRun (default 32)
+	 * @param in The logfile
+	 * @param keywordIndex The dictionary
+	 */
+	LineLimitReader(Reader in, KeywordIndex keywordIndex) {
+		this(in, keywordIndex, AppConfig.getInt("log.maxLineLength", 10000), AppConfig.getInt("log.binaryRun", 32));
+	}
+
+	/**
+	 * @param in The logfile
+	 * @param keywordIndex The dictionary
+	 * @param maxLength Most characters of a line passed on
+	 * @param binaryRun Number of control characters in a row that mark binary data
+	 */
+	LineLimitReader(Reader in, KeywordIndex keywordIndex, int maxLength, int binaryRun) {
+		this.in = in;
+		this.keywordIndex = keywordIndex;
+		this.maxLength = Math.max(maxLength, 80);
+		this.binaryRun = Math.max(binaryRun, 2);
+		word = new char[Math.max(keywordIndex.maxLength(), 1)];
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		int count = 0;
+		while (count < len) {
+			if (pending != null) {
+				int n = Math.min(len - count, pending.length() - pendingPosition);
+				pending.getChars(pendingPosition, pendingPosition + n, cbuf, off + count);
+				count += n;
+				pendingPosition += n;
+				if (pendingPosition == pending.length()) pending = null;
+				continue;
+			}
+			if (position == limit) {
+				//Give back what there is rather than wait for more
+				if (count > 0 || endOfInput) break;
+				limit = in.read(buffer, 0, buffer.length);
+				position = 0;
+				if (limit < 0) {
+					limit = 0;
+					endOfInput = true;
+					endLine("");
+				}
+				continue;
+			}
+			char c = buffer[position++];
+			if (c == '\n' || c == '\r') {
+				if (truncating || skippingBinary) {
+					endLine(String.valueOf(c));
+				}
+				else {
+					cbuf[off + count++] = c;
+				}
+				column = 0;
+				controlCount = 0;
+				wordLength = 0;
+				wordCut = false;
+				continue;
+			}
+			if (skippingBinary) {
+				lineDropped++;
+				continue;
+			}
+			if ((c < ' ' && c != '\t') || c == '\u007f' || c == '\ufffd') {
+				if (++controlCount >= binaryRun) {
+					skippingBinary = true;
+					binaryLines++;
+				}
+			}
+			else {
+				controlCount = 0;
+			}
+			if (column < maxLength) {
+				cbuf[off + count++] = c;
+				column++;
+				addToWord(c, false);
+			}
+			else {
+				if (!truncating) {
+					truncating = true;
+					truncatedLines++;
+				}
+				lineDropped++;
+				addToWord(c, true);
+			}
+		}
+		return (count == 0 && endOfInput) ? -1 : count;
+	}
+
+	/**
+	 * Follows the words of the line so the keywords in the cut part can be found
+	 * @param c The next character of the line
+	 * @param cut True if the character is not passed on
+	 */
+	private void addToWord(char c, boolean cut) {
+		if (c == ' ') {
+			if (wordCut && wordLength > 0) {
+				int id = keywordIndex.idOf(new String(word, 0, wordLength));
+				if (id >= 0) cutKeywords.set(id);
+			}
+			wordLength = 0;
+			wordCut = false;
+			return;
+		}
+		wordCut |= cut;
+		if (wordLength < 0) return;
+		if (wordLength == word.length) {
+			wordLength = -1;
+			return;
+		}
+		word[wordLength++] = c;
+	}
+
+	/**
+	 * Finishes a line that was shortened or had binary data, setting up the
+	 * note that goes at its end
+	 * @param lineBreak The line break that ended the line, empty at the end of the file
+	 */
+	private void endLine(String lineBreak) {
+		if (!truncating && !skippingBinary) return;
+		addToWord(' ', true);
+		StringBuilder note = new StringBuilder();
+		if (skippingBinary) {
+			note.append(" [binary data skipped]");
+		}
+		if (truncating) {
+			note.append(" [line cut, ").append(lineDropped).append(" more characters]");
+			for (int id = cutKeywords.nextSetBit(0); id >= 0; id = cutKeywords.nextSetBit(id + 1)) {
+				note.append(' ').append(keywordIndex.keywordOf(id));
+			}
+		}
+		note.append(lineBreak);
+		pending = note.toString();
+		pendingPosition = 0;
+		dropped += lineDropped;
+		lineDropped = 0;
+		cutKeywords.clear();
+		truncating = false;
+		skippingBinary = false;
+	}
+
+	/**
+	 * Used by the progress bar, which counts the characters of the lines it is given
+	 * @return Characters cut or skipped since the last call
+	 */
+	long takeDropped() {
+		long count = dropped;
+		dropped = 0;
+		return count;
+	}
+
+	long getTruncatedLines() {
+		return truncatedLines;
+	}
+
+	long getBinaryLines() {
+		return binaryLines;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * @file LinesAfterMap.java
+ * Holds the lines after each entry by entry number, like the HashMap it
+ * replaces in UserView, but keeps the lines in a SpillList so they stay
+ * within the memory budget of the search. The lists are stored in the
+ * order they are put, and an int array maps each entry number to its
+ * position.
+ */
+
+package interfaceTest;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+class LinesAfterMap extends AbstractMap<Integer, ArrayList<String>> {
+	private final SpillList<ArrayList<String>> lists;
+	/**Position in lists plus one for each entry number, 0 if there is none*/
+	private int[] positions = new int[256];
+	private int count;
+
+	/**
+	 * @param spill The spill file and memory budget shared by the results of a search
+	 */
+	LinesAfterMap(SpillFile spill) {
+		lists = new SpillList<ArrayList<String>>(spill, SpillList.LINE_LISTS);
+	}
+
+	@Override
+	public synchronized ArrayList<String> put(Integer key, ArrayList<String> value) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Entry numbers start at 0");
+		}
+		if (key >= positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(positions.length * 2, key + 1));
+		}
+		ArrayList<String> old = (positions[key] == 0) ? null : lists.get(positions[key] - 1);
+		if (old == null) count++;
+		//A replaced list stays in lists, only the position moves
+		lists.add(value);
+		positions[key] = lists.size();
+		return old;
+	}
+
+	@Override
+	public synchronized ArrayList<String> get(Object key) {
+		int position = positionOf(key);
+		return (position == 0) ? null : lists.get(position - 1);
+	}
+
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		return positionOf(key) != 0;
+	}
+
+	@Override
+	public synchronized int size() {
+		return count;
+	}
+
+	@Override
+	public synchronized void clear() {
+		lists.clear();
+		Arrays.fill(positions, 0);
+		count = 0;
+	}
+
+	private int positionOf(Object key) {
+		if (!(key instanceof Integer)) return 0;
+		int number = (Integer) key;
+		return (number < 0 || number >= positions.length) ? 0 : positions[number];
+	}
+
+	@Override
+	public Set<Map.Entry<Integer, ArrayList<String>>> entrySet() {
+		return new AbstractSet<Map.Entry<Integer, ArrayList<String>>>() {
+			@Override
+			public int size() {
+				return LinesAfterMap.this.size();
+			}
+
+			@Override
+			public Iterator<Map.Entry<Integer, ArrayList<String>>> iterator() {
+				return new Iterator<Map.Entry<Integer, ArrayList<String>>>() {
+					private int next = advance(0);
+
+					private int advance(int from) {
+						while (from < positions.length && positions[from] == 0) from++;
+						return from;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next < positions.length;
+					}
+
+					@Override
+					public Map.Entry<Integer, ArrayList<String>> next() {
+						if (!hasNext()) throw new NoSuchElementException();
+						int key = next;
+						next = advance(next + 1);
+						return new AbstractMap.SimpleImmutableEntry<Integer, ArrayList<String>>(key, get(key));
+					}
+				};
+			}
+		};
+	}
+}
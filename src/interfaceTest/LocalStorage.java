@@ -0,0 +1,447 @@
+/**
+ * @file LocalStorage.java
+ * LogStorage kept in tab separated files on this machine, so the program can
+ * run without SQL Server. The folder holds one file per table:
+ *   logerrors.tsv  Keyword, Log_Error_Description, Suggested_Solution, Folder, Hyperlink
+ *   groups.tsv     GroupName, GroupKeywords
+ *   logins.tsv     Username, Password
+ *   changes.tsv    Revision, TableName, RowKey (the changelog)
+ * Tabs, line breaks and backslashes within values are escaped with a
+ * backslash, and \N stands for a missing value. When there is no
+ * logerrors.tsv yet, the entries and groups are copied from the saved
+ * DictionarySnapshot if there is one. The tables are kept in memory and a
+ * file is rewritten in full whenever its table changes. Several programs can
+ * share the folder: each one reads the tables again when it sees that
+ * another one has added to the changelog.
+ */
+
+package interfaceTest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class LocalStorage implements LogStorage {
+	private static final String LOG_ERRORS_FILE = "logerrors.tsv";
+	private static final String GROUPS_FILE = "groups.tsv";
+	private static final String LOGINS_FILE = "logins.tsv";
+	private static final String CHANGES_FILE = "changes.tsv";
+
+	/**Folder holding the files*/
+	private final File dir;
+	/**Entries of logerrors by keyword, in the layout returned by loadLogErrors*/
+	private LinkedHashMap<String, String[]> logErrors = new LinkedHashMap<String, String[]>();
+	/**Maps group names to their keywords*/
+	private LinkedHashMap<String, String> groups = new LinkedHashMap<String, String>();
+	/**Maps usernames to passwords*/
+	private LinkedHashMap<String, String> logins = new LinkedHashMap<String, String>();
+	/**The changelog, without the rows*/
+	private List<DictionaryChange> changes = new ArrayList<DictionaryChange>();
+	/**Length of the changelog file when it was last read or written*/
+	private long changesLength;
+
+	/**
+	 * Opens the storage in the given folder, creating the folder if needed
+	 * @param dir Folder holding the files
+	 */
+	LocalStorage(File dir) {
+		this.dir = dir;
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			System.out.println("Could not create local storage folder " + dir);
+		}
+		try {
+			if (new File(dir, LOG_ERRORS_FILE).isFile()) {
+				readDictionary();
+			}
+			else {
+				seedFromSnapshot();
+			}
+			for (String[] row : readTable(LOGINS_FILE, 2)) {
+				logins.put(row[0], row[1]);
+			}
+		} catch (IOException e) {
+			System.out.println("Could not read local storage: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the entries, groups and changelog from their files
+	 * @throws IOException If a file could not be read
+	 */
+	private void readDictionary() throws IOException {
+		LinkedHashMap<String, String[]> readErrors = new LinkedHashMap<String, String[]>();
+		for (String[] row : readTable(LOG_ERRORS_FILE, 5)) {
+			readErrors.put(row[KEYWORD], row);
+		}
+		LinkedHashMap<String, String> readGroups = new LinkedHashMap<String, String>();
+		for (String[] row : readTable(GROUPS_FILE, 2)) {
+			readGroups.put(row[0], row[1]);
+		}
+		List<DictionaryChange> readChanges = new ArrayList<DictionaryChange>();
+		long length = new File(dir, CHANGES_FILE).length();
+		for (String[] row : readTable(CHANGES_FILE, 3)) {
+			readChanges.add(new DictionaryChange(Long.parseLong(row[0]), row[1], row[2], null));
+		}
+		logErrors = readErrors;
+		groups = readGroups;
+		changes = readChanges;
+		changesLength = length;
+	}
+
+	/**
+	 * Reads the files again if another program has changed them since they
+	 * were last read, which it will have recorded in the changelog
+	 */
+	private void syncWithFiles() {
+		if (new File(dir, CHANGES_FILE).length() == changesLength) return;
+		try {
+			readDictionary();
+		} catch (IOException | NumberFormatException e) {
+			System.out.println("Could not read local storage: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public synchronized List<String[]> loadLogErrors() {
+		syncWithFiles();
+		List<String[]> rows = new ArrayList<String[]>(logErrors.size());
+		for (String[] row : logErrors.values()) {
+			rows.add(row.clone());
+		}
+		return rows;
+	}
+
+	/**
+	 * The version is made from the number of entries and groups and the sum
+	 * of their hash codes, so it is the same every time the files are read
+	 */
+	@Override
+	public synchronized String loadDictionaryVersion() {
+		syncWithFiles();
+		long errorSum = 0;
+		for (String[] row : logErrors.values()) {
+			errorSum += Arrays.hashCode(row);
+		}
+		long groupSum = 0;
+		for (Map.Entry<String, String> entry : groups.entrySet()) {
+			groupSum += entry.hashCode();
+		}
+		return "local:" + logErrors.size() + ":" + errorSum + ";" + groups.size() + ":" + groupSum;
+	}
+
+	@Override
+	public synchronized long loadRevision() {
+		syncWithFiles();
+		return changes.isEmpty() ? 0 : changes.get(changes.size() - 1).getRevision();
+	}
+
+	@Override
+	public synchronized List<DictionaryChange> loadChangesSince(long revision) {
+		syncWithFiles();
+		List<DictionaryChange> since = new ArrayList<DictionaryChange>();
+		for (DictionaryChange change : changes) {
+			if (change.getRevision() <= revision) continue;
+			String[] row = null;
+			if (!change.isGroupChange() && logErrors.containsKey(change.getKey())) {
+				row = logErrors.get(change.getKey()).clone();
+			}
+			since.add(new DictionaryChange(change.getRevision(), change.getTable(), change.getKey(), row));
+		}
+		return since;
+	}
+
+	@Override
+	public synchronized HashMap<String, String> loadGroups() {
+		syncWithFiles();
+		return new HashMap<String, String>(groups);
+	}
+
+	@Override
+	public synchronized HashMap<String, String> loadLogins() {
+		return new HashMap<String, String>(logins);
+	}
+
+	@Override
+	public synchronized void insertGroup(String name, String keywords) throws SQLException {
+		syncWithFiles();
+		LinkedHashMap<String, String> changed = new LinkedHashMap<String, String>(groups);
+		changed.put(name, keywords);
+		saveGroups(changed);
+		logChanges(DictionaryChange.GROUPS, Collections.singletonList(name));
+	}
+
+	@Override
+	public synchronized void updateGroup(String name, String keywords) throws SQLException {
+		syncWithFiles();
+		if (!groups.containsKey(name)) return;
+		LinkedHashMap<String, String> changed = new LinkedHashMap<String, String>(groups);
+		changed.put(name, keywords);
+		saveGroups(changed);
+		logChanges(DictionaryChange.GROUPS, Collections.singletonList(name));
+	}
+
+	@Override
+	public synchronized void deleteGroup(String keywords) throws SQLException {
+		syncWithFiles();
+		LinkedHashMap<String, String> changed = new LinkedHashMap<String, String>(groups);
+		List<String> names = new ArrayList<String>();
+		Iterator<Map.Entry<String, String>> it = changed.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, String> entry = it.next();
+			if (entry.getValue().equals(keywords)) {
+				names.add(entry.getKey());
+				it.remove();
+			}
+		}
+		saveGroups(changed);
+		logChanges(DictionaryChange.GROUPS, names);
+	}
+
+	@Override
+	public synchronized void updateHyperlinks(List<String[]> hyperlinks) throws SQLException {
+		syncWithFiles();
+		LinkedHashMap<String, String[]> changed = copyLogErrors();
+		List<String> keywords = new ArrayList<String>();
+		for (String[] link : hyperlinks) {
+			String[] row = changed.get(link[0]);
+			if (row != null) {
+				row[HYPERLINK] = link[1];
+				keywords.add(link[0]);
+			}
+		}
+		saveLogErrors(changed);
+		logChanges(DictionaryChange.LOG_ERRORS, keywords);
+	}
+
+	@Override
+	public synchronized void saveLogErrors(List<String> deleted, List<String[]> updated, List<String[]> inserted)
+			throws SQLException {
+		syncWithFiles();
+		LinkedHashMap<String, String[]> changed = copyLogErrors();
+		List<String> keywords = new ArrayList<String>(deleted);
+		for (String keyword : deleted) {
+			changed.remove(keyword);
+		}
+		for (String[] update : updated) {
+			String[] row = changed.get(update[KEYWORD]);
+			if (row != null) {
+				row[DESCRIPTION] = update[DESCRIPTION];
+				row[SOLUTION] = update[SOLUTION];
+				row[FOLDER] = update[FOLDER];
+			}
+		}
+		for (String[] row : inserted) {
+			if (changed.containsKey(row[KEYWORD])) {
+				throw new SQLException("Keyword " + row[KEYWORD] + " already exists");
+			}
+			changed.put(row[KEYWORD], row.clone());
+		}
+		for (String[] row : updated) {
+			keywords.add(row[KEYWORD]);
+		}
+		for (String[] row : inserted) {
+			keywords.add(row[KEYWORD]);
+		}
+		saveLogErrors(changed);
+		logChanges(DictionaryChange.LOG_ERRORS, keywords);
+	}
+
+	@Override
+	public void close() {
+		//Every change is written when it is made
+	}
+
+	/**
+	 * Copies the entries so changes can be made without touching the current ones
+	 * @return A deep copy of logErrors
+	 */
+	private LinkedHashMap<String, String[]> copyLogErrors() {
+		LinkedHashMap<String, String[]> copy = new LinkedHashMap<String, String[]>();
+		for (Map.Entry<String, String[]> entry : logErrors.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue().clone());
+		}
+		return copy;
+	}
+
+	/**
+	 * Writes the entries to their file, and only then makes them current,
+	 * so a failed write leaves the storage unchanged
+	 * @param changed The new contents of logerrors
+	 * @throws SQLException If the file could not be written
+	 */
+	private void saveLogErrors(LinkedHashMap<String, String[]> changed) throws SQLException {
+		writeTable(LOG_ERRORS_FILE, changed.values());
+		logErrors = changed;
+	}
+
+	/**
+	 * Writes the groups to their file, and only then makes them current
+	 * @param changed The new contents of Groups
+	 * @throws SQLException If the file could not be written
+	 */
+	private void saveGroups(LinkedHashMap<String, String> changed) throws SQLException {
+		List<String[]> rows = new ArrayList<String[]>();
+		for (Map.Entry<String, String> entry : changed.entrySet()) {
+			rows.add(new String[] {entry.getKey(), entry.getValue()});
+		}
+		writeTable(GROUPS_FILE, rows);
+		groups = changed;
+	}
+
+	/**
+	 * Appends to the changelog, after the table files have been written
+	 * @param table DictionaryChange.LOG_ERRORS or GROUPS
+	 * @param keys The keywords or group names that changed
+	 * @throws SQLException If the changelog could not be written
+	 */
+	private void logChanges(String table, List<String> keys) throws SQLException {
+		if (keys.isEmpty()) return;
+		long revision = changes.isEmpty() ? 0 : changes.get(changes.size() - 1).getRevision();
+		List<DictionaryChange> added = new ArrayList<DictionaryChange>();
+		File file = new File(dir, CHANGES_FILE);
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			for (String key : keys) {
+				revision++;
+				out.write(Long.toString(revision));
+				out.write('\t');
+				escape(out, table);
+				out.write('\t');
+				escape(out, key);
+				out.write('\n');
+				added.add(new DictionaryChange(revision, table, key, null));
+			}
+		} catch (IOException e) {
+			throw new SQLException("Could not write " + file + ": " + e.getMessage(), e);
+		}
+		changes.addAll(added);
+		changesLength = file.length();
+	}
+
+	/**
+	 * Fills a new local storage from the dictionary snapshot that was last
+	 * saved from the database, if there is one
+	 * @throws IOException If the files could not be written
+	 */
+	private void seedFromSnapshot() throws IOException {
+		DictionarySnapshot snapshot = DictionarySnapshot.load();
+		if (snapshot == null) return;
+		LinkedHashMap<String, String[]> seededErrors = new LinkedHashMap<String, String[]>();
+		for (String[] row : snapshot.getLogErrors()) {
+			seededErrors.put(row[KEYWORD], row.clone());
+		}
+		try {
+			saveLogErrors(seededErrors);
+			saveGroups(new LinkedHashMap<String, String>(snapshot.getGroups()));
+		} catch (SQLException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads a table from its file
+	 * @param name Name of the file
+	 * @param columns Number of columns in the table
+	 * @return The rows, empty if the file does not exist
+	 * @throws IOException If the file could not be read
+	 */
+	private List<String[]> readTable(String name, int columns) throws IOException {
+		List<String[]> rows = new ArrayList<String[]>();
+		File file = new File(dir, name);
+		if (!file.isFile()) return rows;
+		try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.isEmpty()) continue;
+				String[] fields = line.split("\t", -1);
+				String[] row = new String[columns];
+				for (int i = 0; i < columns && i < fields.length; i++) {
+					row[i] = unescape(fields[i]);
+				}
+				rows.add(row);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Writes a table to a temporary file and then moves it over the old
+	 * one, so a crash while writing cannot leave a partial table
+	 * @param name Name of the file
+	 * @param rows The rows to write
+	 * @throws SQLException If the file could not be written
+	 */
+	private void writeTable(String name, Iterable<String[]> rows) throws SQLException {
+		File file = new File(dir, name);
+		File temp = new File(dir, name + ".tmp");
+		try {
+			try (Writer out = new BufferedWriter(Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8))) {
+				for (String[] row : rows) {
+					for (int i = 0; i < row.length; i++) {
+						if (i > 0) out.write('\t');
+						escape(out, row[i]);
+					}
+					out.write('\n');
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			temp.delete();
+			throw new SQLException("Could not write " + file + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static void escape(Writer out, String value) throws IOException {
+		if (value == null) {
+			out.write("\\N");
+			return;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\': out.write("\\\\"); break;
+			case '\t': out.write("\\t"); break;
+			case '\n': out.write("\\n"); break;
+			case '\r': out.write("\\r"); break;
+			default: out.write(c);
+			}
+		}
+	}
+
+	private static String unescape(String field) {
+		if (field.equals("\\N")) return null;
+		if (field.indexOf('\\') < 0) return field;
+		StringBuilder value = new StringBuilder(field.length());
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c == '\\' && i + 1 < field.length()) {
+				char next = field.charAt(++i);
+				switch (next) {
+				case 't': value.append('\t'); break;
+				case 'n': value.append('\n'); break;
+				case 'r': value.append('\r'); break;
+				default: value.append(next);
+				}
+			}
+			else {
+				value.append(c);
+			}
+		}
+		return value.toString();
+	}
+}
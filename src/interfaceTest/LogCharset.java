@@ -0,0 +1,125 @@
+/**
+ * @file LogCharset.java
+ * Decides which encoding a logfile is read with, so the same file gives the
+ * same results on every machine instead of depending on the platform default.
+ * The encoding can be chosen in the interface, set for one file with the
+ * setting log.charset.<file name>, or set for every file with log.charset.
+ * Otherwise it is detected from the start of the file: a byte order mark
+ * decides it, a file of plain ASCII is read as ISO-8859-1 (one byte per
+ * character, no decoding needed), valid UTF-8 as UTF-8 and anything else
+ * as ISO-8859-1, which accepts every byte.
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+final class LogCharset {
+	/**Choice in the interface that leaves the encoding to the settings or detection*/
+	static final String AUTO = "Auto";
+	/**Encodings offered in the interface*/
+	static final String[] CHOICES = {AUTO, "UTF-8", "ISO-8859-1", "windows-1252", "UTF-16"};
+
+	private LogCharset(){
+		//Do nothing
+	}
+
+	/**
+	 * Decides the encoding of a logfile
+	 * @param file The logfile
+	 * @param choice Encoding chosen in the interface, or AUTO
+	 * @return The encoding to read the file with
+	 * @throws IOException If the file cannot be read for detection
+	 */
+	static Charset forFile(File file, String choice) throws IOException {
+		String name = (choice == null || AUTO.equals(choice)) ? null : choice;
+		if (name == null) name = AppConfig.getString("log.charset." + file.getName(), null);
+		if (name == null) name = AppConfig.getString("log.charset", null);
+		if (name != null && !name.equalsIgnoreCase(AUTO)) {
+			try {
+				return Charset.forName(name);
+			} catch (IllegalArgumentException e) {
+				System.out.println("Unknown encoding " + name + ", detecting the encoding of " + file.getName());
+			}
+		}
+		return detect(file);
+	}
+
+	/**
+	 * Guesses the encoding from the first bytes of the file, by default 64 KB
+	 * (setting charset.sampleKB)
+	 * @param file The logfile
+	 * @return The encoding found
+	 * @throws IOException If the file cannot be read
+	 */
+	static Charset detect(File file) throws IOException {
+		byte[] sample = new byte[Math.max(AppConfig.getInt("charset.sampleKB", 64), 1) * 1024];
+		int length = 0;
+		try (InputStream in = new FileInputStream(file)) {
+			int n;
+			while (length < sample.length && (n = in.read(sample, length, sample.length - length)) > 0) {
+				length += n;
+			}
+		}
+		return detect(sample, length, length < sample.length);
+	}
+
+	/**
+	 * Guesses the encoding of a sample of bytes
+	 * @param bytes The sample
+	 * @param length Number of bytes in the sample
+	 * @param complete True if the sample is the whole file, false if it may end inside a character
+	 * @return The encoding found
+	 */
+	static Charset detect(byte[] bytes, int length, boolean complete) {
+		if (length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) {
+			return StandardCharsets.UTF_8;
+		}
+		if (length >= 2 && (bytes[0] & 0xFF) == 0xFE && (bytes[1] & 0xFF) == 0xFF) {
+			return StandardCharsets.UTF_16BE;
+		}
+		if (length >= 2 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xFE) {
+			return StandardCharsets.UTF_16LE;
+		}
+		int i = 0;
+		while (i < length && bytes[i] >= 0) {
+			i++;
+		}
+		if (i == length) {
+			//Pure ASCII, which ISO-8859-1 reads the same without a decoder
+			return StandardCharsets.ISO_8859_1;
+		}
+		while (i < length) {
+			int b = bytes[i] & 0xFF;
+			int extra;
+			if (b < 0x80) extra = 0;
+			else if (b >= 0xC2 && b <= 0xDF) extra = 1;
+			else if (b >= 0xE0 && b <= 0xEF) extra = 2;
+			else if (b >= 0xF0 && b <= 0xF4) extra = 3;
+			else return StandardCharsets.ISO_8859_1;
+			if (i + extra >= length) {
+				//A character cut off by the end of the sample still counts as UTF-8,
+				//but not one cut off by the end of the file
+				return complete ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+			}
+			for (int k = 1; k <= extra; k++) {
+				if ((bytes[i + k] & 0xC0) != 0x80) return StandardCharsets.ISO_8859_1;
+			}
+			i += extra + 1;
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * @param charset An encoding
+	 * @return True if every byte is one character, so bytes can be widened to chars directly
+	 */
+	static boolean isSingleByte(Charset charset) {
+		return charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII);
+	}
+}
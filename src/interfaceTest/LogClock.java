@@ -0,0 +1,25 @@
+/**
+ * @file LogClock.java
+ * Turns milliseconds back into the timestamps of a logfile, e.g.
+ * 20160815/101010.100, the reverse of Utility.toEpochMillis. The times are
+ * taken as UTC, as toEpochMillis does, so every day is 24 hours long.
+ */
+
+package interfaceTest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+class LogClock {
+	private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd/HHmmss.SSS");
+
+	/**
+	 * @param millis Milliseconds from 1970
+	 * @return The timestamp in the logfile's layout, e.g. 20160815/101010.100
+	 */
+	static String format(long millis) {
+		return FORMAT.format(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+				(int) Math.floorMod(millis, 1000L) * 1000000, ZoneOffset.UTC));
+	}
+}
@@ -0,0 +1,333 @@
+/**
+ * @file LogComparison.java
+ * Compares the errors of two logfiles, e.g. the logs from before and after
+ * a deployment. Both files are read at the same time on their own threads.
+ * Every line with a selected keyword is reduced to a signature: the first
+ * keyword after the timestamp and the rest of the line with numbers and ids
+ * masked, so "U1001 took 532 ms for job 0x7f3a" and "U1001 took 87 ms for
+ * job 0x1b02" count as the same error. The signatures are counted in a
+ * SignatureCounts for each file.
+ *
+ * The counts are then compared after scaling the earlier file to the size of
+ * the later one. Each signature is New, Gone, Changed (its rate moved by
+ * compare.changeRatio, default 2, with at least compare.minCount hits,
+ * default 5) or the same. The differences are ranked by how unlikely they
+ * are to be chance, so a jump from 500 to 1000 ranks above one from 2 to 4.
+ * DEADLOCK and arrow blocks count as the line they start on.
+ */
+
+package interfaceTest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+class LogComparison {
+	static final String NEW = "New";
+	static final String GONE = "Gone";
+	static final String CHANGED = "Changed";
+	static final String[] HEADERS = {"Change", "Signature", "Before", "After", "Rate"};
+
+	private final KeywordIndex keywordIndex;
+	private final BitSet keywordIds;
+	private final String charsetChoice;
+	private final int maxSignatures;
+	private final int signatureLength;
+	private final double changeRatio;
+	private final int minCount;
+
+	/**
+	 * @param keywordIndex The dictionary keywords
+	 * @param keywordIds Keywords whose lines are compared
+	 * @param charsetChoice Encoding chosen in the interface, LogCharset.AUTO to detect it
+	 */
+	LogComparison(KeywordIndex keywordIndex, BitSet keywordIds, String charsetChoice) {
+		this.keywordIndex = keywordIndex;
+		this.keywordIds = (BitSet) keywordIds.clone();
+		this.charsetChoice = charsetChoice;
+		maxSignatures = AppConfig.getInt("compare.maxSignatures", 200000);
+		signatureLength = AppConfig.getInt("compare.signatureLength", 120);
+		changeRatio = Math.max(1.0, AppConfig.getDouble("compare.changeRatio", 2.0));
+		minCount = AppConfig.getInt("compare.minCount", 5);
+	}
+
+	/**
+	 * Reads both files at once and compares their signatures
+	 * @param before The earlier logfile
+	 * @param after The later logfile
+	 * @param progress Told the percent of both files read so far
+	 * @return The ranked differences
+	 * @throws IOException If either file cannot be read
+	 */
+	Result compare(File before, File after, IntConsumer progress) throws IOException {
+		AtomicIntegerArray percents = new AtomicIntegerArray(2);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			ScanSketches beforeSketches = new ScanSketches();
+			ScanSketches afterSketches = new ScanSketches();
+			Future<SignatureCounts> beforeScan = pool.submit(() -> scan(before, percents, 0, progress, beforeSketches));
+			Future<SignatureCounts> afterScan = pool.submit(() -> scan(after, percents, 1, progress, afterSketches));
+			Result result = diff(beforeScan.get(), afterScan.get());
+			beforeSketches.merge(afterSketches);
+			result.sketches = beforeSketches;
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("The comparison was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Counts the signatures of one logfile
+	 * @param file The logfile
+	 * @param percents Percent read of each file, shared by both scans
+	 * @param side Which slot of percents this file uses
+	 * @param progress Told the average percent whenever it moves
+	 * @param sketches Also given every signature, for the approximate summary
+	 * @return The signature counts
+	 * @throws IOException If the file cannot be read
+	 */
+	SignatureCounts scan(File file, AtomicIntegerArray percents, int side, IntConsumer progress,
+			ScanSketches sketches) throws IOException {
+		SignatureCounts counts = new SignatureCounts(maxSignatures);
+		StringBuilder signature = new StringBuilder();
+		long size = Math.max(file.length(), 1);
+		long read = 0;
+		Charset charset = LogCharset.forFile(file, charsetChoice);
+		try (FileInputStream in = new FileInputStream(file);
+				PipelinedReader pipeline = new PipelinedReader(in, charset);
+				BufferedReader logbr = new BufferedReader(new LineLimitReader(pipeline, keywordIndex))) {
+			String line;
+			while ((line = logbr.readLine()) != null) {
+				read += line.length() + 1;
+				if (signatureOf(line, signature, sketches) && !counts.add(signature, false)) {
+					//Too many different signatures, the rest are only counted by keyword
+					int space = signature.indexOf(" ");
+					if (space >= 0) {
+						signature.setLength(space + 1);
+						signature.append('*');
+					}
+					counts.add(signature, true);
+				}
+				int percent = (int) Math.min(100, read * 100 / size);
+				if (percent != percents.get(side)) {
+					percents.set(side, percent);
+					progress.accept((percents.get(0) + percents.get(1)) / 2);
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Builds the signature of a line: its first selected keyword after the
+	 * timestamp, then the words after it with numbers and ids masked
+	 * @param line A line of the logfile
+	 * @param signature Cleared and filled with the signature
+	 * @param sketches Given the signature if there is one, may be null
+	 * @return False if the line has no selected keyword
+	 */
+	boolean signatureOf(String line, StringBuilder signature, ScanSketches sketches) {
+		signature.setLength(0);
+		String[] words = line.split(" ");
+		boolean timeStampFound = false;
+		for (int i = 0; i < words.length; i++) {
+			if (!timeStampFound) {
+				timeStampFound = (words[i].length() == 19);
+				continue;
+			}
+			int id = keywordIndex.idOf(words[i]);
+			if (id < 0 || !keywordIds.get(id)) continue;
+			signature.append(words[i]);
+			for (int j = i + 1; j < words.length && signature.length() < signatureLength; j++) {
+				if (words[j].isEmpty()) continue;
+				signature.append(' ');
+				mask(words[j], signature);
+			}
+			if (signature.length() > signatureLength) signature.setLength(signatureLength);
+			if (sketches != null) sketches.record(words[i], signature, ArrowLatency.uCodeOf(words));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Appends a word with anything that changes from one occurrence to the
+	 * next replaced by #: hex ids become one #, and each run of digits in
+	 * other words becomes one #
+	 */
+	static void mask(String word, StringBuilder out) {
+		if (isId(word)) {
+			out.append('#');
+			return;
+		}
+		boolean inNumber = false;
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (Character.isDigit(c)) {
+				if (!inNumber) out.append('#');
+				inNumber = true;
+			}
+			else {
+				out.append(c);
+				inNumber = false;
+			}
+		}
+	}
+
+	/**
+	 * @return True for 0x numbers and hex strings of 8 or more characters with a digit
+	 */
+	private static boolean isId(String word) {
+		if (word.length() > 2 && word.charAt(0) == '0' && (word.charAt(1) == 'x' || word.charAt(1) == 'X')) return true;
+		if (word.length() < 8) return false;
+		boolean digit = false;
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (c >= '0' && c <= '9') digit = true;
+			else if (!((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == '-')) return false;
+		}
+		return digit;
+	}
+
+	/**
+	 * Compares the counts of two files
+	 * @param before Signatures of the earlier file
+	 * @param after Signatures of the later file
+	 * @return The signatures that are new, gone or changed, most significant first
+	 */
+	Result diff(SignatureCounts before, SignatureCounts after) {
+		//Rates are compared, so a longer log does not make every signature look changed
+		double scale = (before.getTotal() == 0 || after.getTotal() == 0) ? 1.0
+				: (double) after.getTotal() / before.getTotal();
+		List<Difference> differences = new ArrayList<Difference>();
+		int[] same = new int[1];
+		before.forEach((signature, count) -> {
+			Difference difference = differenceOf(signature, count, after.get(signature), scale);
+			if (difference != null) differences.add(difference);
+			else same[0]++;
+		});
+		after.forEach((signature, count) -> {
+			if (before.get(signature) == 0) differences.add(differenceOf(signature, 0, count, scale));
+		});
+		differences.sort(Comparator.comparingDouble((Difference d) -> d.score).reversed());
+		return new Result(differences, before, after, same[0]);
+	}
+
+	/**
+	 * @return The difference for a signature, null if its rate stayed about the same
+	 */
+	private Difference differenceOf(String signature, long before, long after, double scale) {
+		double expected = before * scale;
+		String change;
+		if (before == 0) change = NEW;
+		else if (after == 0) change = GONE;
+		else {
+			double ratio = after / expected;
+			if (Math.max(before, after) < minCount || (ratio < changeRatio && ratio > 1 / changeRatio)) return null;
+			change = CHANGED;
+		}
+		//Distance in standard deviations if both counts were Poisson
+		double score = Math.abs(after - expected) / Math.sqrt(after + expected * scale + 1);
+		return new Difference(change, signature, before, after, expected, score);
+	}
+
+	/**
+	 * A signature whose rate changed between the two files
+	 */
+	static final class Difference {
+		final String change;
+		final String signature;
+		final long before;
+		final long after;
+		/**Hits the later file would have at the rate of the earlier one*/
+		final double expected;
+		final double score;
+
+		Difference(String change, String signature, long before, long after, double expected, double score) {
+			this.change = change;
+			this.signature = signature;
+			this.before = before;
+			this.after = after;
+			this.expected = expected;
+			this.score = score;
+		}
+
+		/**
+		 * @return The row for the comparison table, in the layout of HEADERS
+		 */
+		Object[] toRow() {
+			String rate = (before == 0) ? "new" : (after == 0) ? "gone"
+					: String.format("%+.0f%%", (after / expected - 1) * 100);
+			return new Object[] {change, signature, before, after, rate};
+		}
+	}
+
+	/**
+	 * The differences between two files
+	 */
+	static final class Result {
+		final List<Difference> differences;
+		final long beforeHits;
+		final long afterHits;
+		final int beforeSignatures;
+		final int afterSignatures;
+		final int unchanged;
+		/**Approximate summary of both files together*/
+		ScanSketches sketches;
+
+		Result(List<Difference> differences, SignatureCounts before, SignatureCounts after, int unchanged) {
+			this.differences = differences;
+			beforeHits = before.getTotal();
+			afterHits = after.getTotal();
+			beforeSignatures = before.size();
+			afterSignatures = after.size();
+			this.unchanged = unchanged;
+		}
+
+		/**
+		 * @return The differences as rows for the comparison table
+		 */
+		List<Object[]> rows() {
+			List<Object[]> rows = new ArrayList<Object[]>(differences.size());
+			for (Difference difference : differences) {
+				rows.add(difference.toRow());
+			}
+			return rows;
+		}
+
+		/**
+		 * @return Number of differences of one kind
+		 */
+		int count(String change) {
+			int count = 0;
+			for (Difference difference : differences) {
+				if (difference.change.equals(change)) count++;
+			}
+			return count;
+		}
+
+		String describe() {
+			return "Before: " + beforeHits + " hits, " + beforeSignatures + " signatures. After: " + afterHits
+					+ " hits, " + afterSignatures + " signatures. " + count(NEW) + " new, " + count(GONE) + " gone, "
+					+ count(CHANGED) + " changed, " + unchanged + " about the same.";
+		}
+	}
+}
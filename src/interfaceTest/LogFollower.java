@@ -0,0 +1,158 @@
+/**
+ * @file LogFollower.java
+ * Follows a logfile that is still being written, like tail -f: every
+ * follow.pollMillis (default 500) the file is checked for new bytes, which
+ * are decoded and split into lines and checked against the AlertRules. The
+ * file is opened only while there is something to read, so it can still be
+ * rotated or deleted by the program writing it; a file that shrank is read
+ * again from the start. A line still being written is held until its end
+ * arrives. Like LineLimitReader, only the first log.maxLineLength (default
+ * 10000) characters of a line are kept, so a very long line or binary data
+ * without line breaks cannot fill the memory; the rest is skipped up to the
+ * next line break and a note of how much was cut is added to the line.
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.Consumer;
+
+class LogFollower implements Runnable {
+	private final File file;
+	private final Charset charset;
+	private final AlertRules rules;
+	private final Consumer<AlertRules.Alert> alerts;
+	private final long pollMillis;
+	/**Most characters of a line kept*/
+	private final int maxLength;
+	private volatile boolean stopped;
+	/**Where the next read starts*/
+	private long position;
+	private volatile long lines;
+
+	private CharsetDecoder decoder;
+	private final ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+	private final CharBuffer chars = CharBuffer.allocate(64 * 1024);
+	/**The part of a line read so far*/
+	private final StringBuilder line = new StringBuilder();
+	/**Characters of the current line skipped past maxLength*/
+	private long lineDropped;
+	/**True if the last character skipped was a carriage return*/
+	private boolean droppedReturn;
+
+	/**
+	 * @param file The logfile
+	 * @param charset Encoding of the logfile
+	 * @param rules Rules the new lines are checked against
+	 * @param alerts Given every alert, on the follower's thread
+	 * @param fromStart True to check the lines already in the file, false to start at its end
+	 */
+	LogFollower(File file, Charset charset, AlertRules rules, Consumer<AlertRules.Alert> alerts, boolean fromStart) {
+		this.file = file;
+		this.charset = charset;
+		this.rules = rules;
+		this.alerts = alerts;
+		pollMillis = Math.max(AppConfig.getLong("follow.pollMillis", 500), 10);
+		maxLength = Math.max(AppConfig.getInt("log.maxLineLength", 10000), 1);
+		position = fromStart ? 0 : file.length();
+		decoder = newDecoder();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!stopped) {
+				if (!poll()) Thread.sleep(pollMillis);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			System.out.println("Stopped following " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads whatever was added to the file since the last poll
+	 * @return True if anything was read
+	 * @throws IOException If the file exists but cannot be read
+	 */
+	boolean poll() throws IOException {
+		long length = file.length();
+		if (length < position) {
+			//Truncated or replaced by a new file
+			position = 0;
+			line.setLength(0);
+			lineDropped = 0;
+			droppedReturn = false;
+			bytes.clear();
+			decoder = newDecoder();
+		}
+		if (length == position) return false;
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			in.seek(position);
+			while (position < length && !stopped) {
+				int read = in.read(bytes.array(), bytes.position(), bytes.remaining());
+				if (read < 0) break;
+				position += read;
+				bytes.position(bytes.position() + read);
+				bytes.flip();
+				decoder.decode(bytes, chars, false);
+				bytes.compact();
+				chars.flip();
+				splitLines();
+				chars.clear();
+			}
+		}
+		return true;
+	}
+
+	private void splitLines() {
+		while (chars.hasRemaining()) {
+			char c = chars.get();
+			if (c == '\n') {
+				int end = line.length();
+				if (lineDropped == 0 && end > 0 && line.charAt(end - 1) == '\r') line.setLength(end - 1);
+				if (droppedReturn) lineDropped--;
+				if (lineDropped > 0) line.append(" [line cut, ").append(lineDropped).append(" more characters]");
+				rules.check(line.toString(), alerts);
+				line.setLength(0);
+				lineDropped = 0;
+				droppedReturn = false;
+				lines++;
+			}
+			else if (line.length() < maxLength) {
+				line.append(c);
+			}
+			else {
+				lineDropped++;
+				droppedReturn = c == '\r';
+			}
+		}
+	}
+
+	private CharsetDecoder newDecoder() {
+		return charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Makes run return after its current poll
+	 */
+	void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * @return Number of complete lines checked so far
+	 */
+	long getLines() {
+		return lines;
+	}
+}
@@ -9,32 +9,42 @@
  */
 package interfaceTest;
 
+import java.awt.Color;
 import java.awt.Component;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.swing.JComponent;
 import javax.swing.JTable;
 import javax.swing.JTextField;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
 
 
 public class LogParser {
+	/**Tab value used when several queries are run at once by MultiQueryScanner*/
+	static final int MULTI_QUERY = 3;
+	/**Background of result rows that are part of a burst of their keyword*/
+	private static final Color ANOMALY_COLOR = new Color(255, 214, 153);
+	/**Powers of ten that are exact doubles, used to place the decimals of a duration*/
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
 	/**Headers for the JTable*/
 	protected final String [] headers = {"Error #", "Timestamp",
 			"Keywords", "Error Message", "Suggested Solution"};
 	/**Contains the entries that are generated by the errors found*/
-	protected List<Object[]> errorData = new ArrayList<Object[]>();
-	/**Contains headers and errorData, used to generate contents for the JTable*/
-	private Object [][] data;
+	protected List<Object[]> errorData;
+	/**Memory budget and spill file for the results of this search*/
+	private final SpillFile spill;
 	/**Keeps track of how many errors have been found*/
 	private int errorCount;
 	/**The amount of bytes we have parsed through*/
@@ -43,6 +53,39 @@ public class LogParser {
 	private int percent;
 	/**The current percent that we are on*/
 	private int oldPercent;
+	/**The number of lines we have read so far*/
+	private long lineCount;
+	/**Flight recorder event for the chunk of the file currently being scanned*/
+	private ParseEvents.ChunkScanned chunkEvent;
+	/**Reads the logfile ahead on another thread, null when no file is open*/
+	private PipelinedReader pipeline;
+	/**Shortens overly long lines of the logfile, null when no file is open*/
+	private LineLimitReader lineLimit;
+	/**Encoding of the logfile being parsed*/
+	private Charset charset;
+	/**Index of this search for narrower searches, null for logic statements*/
+	private MatchIndex matchIndex;
+	/**Id of the ===> keyword, for the rows made inside arrow chains*/
+	private int arrowKeywordId;
+	/**Duration of the last arrow of the chain read by readArrowChain*/
+	private double chainDuration;
+	/**Lowest and highest duration of the Time critical arrows inside the DEADLOCK block read by readDeadlockBlock, NaN if it had none*/
+	private double deadlockLowest;
+	private double deadlockHighest;
+	/**Number of arrows chained into the arrow block currently being assembled*/
+	private int arrowDepth;
+	/**Durations of the Time critical arrows read by this parse, null for several searches at once*/
+	private ArrowLatency arrowLatency;
+	/**DEADLOCK blocks read by this parse and the U-codes in them, null for several searches at once*/
+	private DeadlockGraph deadlocks;
+	/**Bursts of keywords found by this parse, null for logic statements and several searches at once*/
+	private KeywordAnomalies keywordAnomalies;
+	/**Approximate top keywords and distinct counts of this parse, null for logic statements*/
+	private ScanSketches scanSketches;
+	/**Keywords that fired close together in this parse, null for logic statements*/
+	private KeywordCooccurrence cooccurrence;
+	/**Entries per second, minute, hour and day of this parse, null for logic statements*/
+	private TimelinePyramid timeline;
 	/**The tab index that the user has open on the interface*/
 	private int selectedTab;
 	/**A String to hold a line from the given logFile*/
@@ -66,15 +109,20 @@ public class LogParser {
 	/**UserView object that contains Swing objects that
 	   will be changed by functions in this class*/
 	protected static UserView view;
+	/**The keyword index of UserView when the search was started; UserView does not change it during the search*/
+	private final KeywordIndex keywordIndex;
 	
 	/**
 	 * Parses through the logfile three different ways, depending on the tab the user is on
 	 * @param view Contains swing elements that affect the useage of this class
-	 * @param tab Tab that the user is on, 0 = Checkbox, 1 = Logic, 2 = Groups
+	 * @param tab Tab that the user is on, 0 = Checkbox, 1 = Logic, 2 = Groups, MULTI_QUERY = several at once
 	 */
 	public LogParser(UserView view, int tab) {
 		selectedTab = tab;
 		LogParser.view = view;
+		keywordIndex = view.keywordIndex;
+		spill = new SpillFile();
+		errorData = new SpillList<Object[]>(spill, SpillList.ROWS);
 		logicEvaluator = new LogicEvaluator(this);
 		linesBefore = new FixedStack<String>(view.numLinesBefore + 1);
 		linesAfter = new ConcurrentHashMap<Integer, FixedStack<String>>();
@@ -100,9 +148,10 @@ public class LogParser {
 	 */
 	void parseErrors(File file, ProgressDialog pd) throws IOException {
 		view.updateKeyWords(selectedTab);
-		view.linesBeforeArrayList.clear();
-		view.errorLinesArrayList.clear();
-		view.linesAfterHashMap.clear();
+		//The results of the last search stay on screen until the table is replaced
+		view.linesBeforeArrayList = new SpillList<ArrayList<String>>(spill, SpillList.LINE_LISTS);
+		view.errorLinesArrayList = new SpillList<String>(spill, SpillList.LINES);
+		view.linesAfterHashMap = new LinesAfterMap(spill);
 		considerLinesAfter = true;
 		considerLinesBefore = true;
 		
@@ -113,15 +162,37 @@ public class LogParser {
 		errorData.clear();
 		errorCount = 0;
 		progress = 0;
+		lineCount = 0;
 		String timeStamp = null;
 		StringBuilder errorMessage = new StringBuilder();
 		boolean keywordFound = false;
 		boolean timeStampFound = false;
 		boolean specialCase = false;
+		//The keywords are matched by id, so the special keywords are looked up once here
+		BitSet selectedIds = view.selectedKeywordIds;
+		int deadlockId = keywordIndex.idOf("DEADLOCK");
+		int arrowId = keywordIndex.idOf("===>");
+		arrowKeywordId = arrowId;
+		int entryId = -1;
+		//Keyword and group searches keep an index so a narrower search can skip the file
+		matchIndex = (selectedTab == 1) ? null : new MatchIndex(file, view, keywordIndex);
+		arrowLatency = new ArrowLatency();
+		deadlocks = new DeadlockGraph();
+		keywordAnomalies = (selectedTab == 1) ? null : new KeywordAnomalies(keywordIndex);
+		scanSketches = (selectedTab == 1) ? null : new ScanSketches();
+		cooccurrence = (selectedTab == 1) ? null : new KeywordCooccurrence(keywordIndex);
+		timeline = (selectedTab == 1) ? null : new TimelinePyramid();
 		
-		FileReader logInput = new FileReader(view.logFile);
-		BufferedReader logbr = new BufferedReader(logInput);
+		ParseEvents.FileOpen openEvent = new ParseEvents.FileOpen();
+		openEvent.begin();
+		BufferedReader logbr = openLog(file);
+		openEvent.path = view.logFile;
+		openEvent.fileSize = file.length();
+		openEvent.tab = selectedTab;
+		openEvent.charset = charset.name();
+		openEvent.commit();
 
+		beginChunk();
 		logLine = logbr.readLine();
 		//Timer for performance testing
 		long startTime = System.nanoTime();
@@ -156,12 +227,15 @@ public class LogParser {
 					}
 					if(timeStampFound && !keywordFound) {
 						//Testing the UCode from the file against the error UCodes
-						if (view.keyWords.contains(testWord)) {
+						int id = keywordIndex.idOf(testWord);
+						if (id >= 0 && selectedIds.get(id)) {
 							keywordFound = true;
 							errorCount++;
+							entryId = id;
 							addLinesBefore();
 							//If we have a deadlock error, this is a special case
-							if (testWord.equals("DEADLOCK")) {
+							if (id == deadlockId) {
+								if (matchIndex != null) matchIndex.blockStarted(id);
 								entry = parseDeadlockError(logbr, timeStamp);
 								if(entry == null) {
 									view.linesBeforeArrayList.remove(view.linesBeforeArrayList.size() - 1);
@@ -174,7 +248,8 @@ public class LogParser {
 								break;
 							}
 							//If we have an arrow error, this is a special case
-							else if (testWord.equals("===>") && logLine.contains("Time critical")) {
+							else if (id == arrowId && logLine.contains("Time critical")) {
+								if (matchIndex != null) matchIndex.blockStarted(id);
 								entry = parseArrowError(logbr, timeStamp, logWords);
 								if(entry == null) {
 									view.linesBeforeArrayList.remove(view.linesBeforeArrayList.size() - 1);
@@ -189,15 +264,14 @@ public class LogParser {
 							}
 							//Otherwise we make an entry like normal
 							else {
+								if (matchIndex != null) matchIndex.beginRow(id);
 								addLinesAfter(errorCount);
 								entry = new Object[5];
 								entry[0] = errorCount;
 								entry[1] = timeStamp;
-								entry[2] = testWord;
+								entry[2] = keywordIndex.keywordOf(id);
 								//We get a suggested solution for the corresponding keyword
-								if (view.solutions.get(entry[2]) != null) {
-									entry[4] = view.solutions.get(entry[2]);
-								}
+								entry[4] = keywordIndex.getSolution(id);
 							}
 						}
 					}
@@ -205,6 +279,14 @@ public class LogParser {
 					//generating an error message until the line is done
 					else if(timeStampFound && keywordFound) {
 						errorMessage.append(testWord + " ");
+						//Other selected keywords on the line are kept in case the first is unchecked later
+						if (matchIndex != null) {
+							int other = keywordIndex.idOf(testWord);
+							if (other >= 0 && selectedIds.get(other)) {
+								boolean block = other == deadlockId || (other == arrowId && logLine.contains("Time critical"));
+								matchIndex.addCandidate(other, errorMessage.length(), block);
+							}
+						}
 					}
 				}
 				//Make sure an entry was actually created for the line
@@ -217,10 +299,40 @@ public class LogParser {
 						entry[3] = " ";
 					}
 					errorData.add(entry);
+					if (matchIndex != null) {
+						if (specialCase && entryId == arrowId) {
+							matchIndex.addRow(entryId, true, chainDuration, chainDuration);
+						}
+						else if (specialCase) {
+							matchIndex.addRow(entryId, true, deadlockLowest, deadlockHighest);
+						}
+						else {
+							matchIndex.addRow(entryId, false, Double.NaN, Double.NaN);
+						}
+					}
+					if (keywordAnomalies != null) {
+						keywordAnomalies.record(entryId, timeStamp);
+					}
+					if (scanSketches != null) {
+						scanSketches.record(keywordIndex.keywordOf(entryId), (String) entry[3], ArrowLatency.uCodeOf(logWords));
+					}
+					if (cooccurrence != null) {
+						cooccurrence.record(entryId, timeStamp);
+					}
+					if (timeline != null) {
+						timeline.record(entryId, timeStamp);
+					}
 				}
 			}
 			logLine = logbr.readLine();
 		}
+		commitChunk();
+		if (keywordAnomalies != null) {
+			keywordAnomalies.finish();
+		}
+		if (matchIndex != null) {
+			matchIndex.finish(errorData, view.linesBeforeArrayList, view.errorLinesArrayList, view.linesAfterHashMap, spill);
+		}
 		System.out.println("Size of Arraylist:" + view.linesBeforeArrayList.size());
 		//We make entries out of the errors that we've found in logic eval
 		//logicEvaluator.makeEntries();
@@ -233,13 +345,15 @@ public class LogParser {
 		if(selectedTab == 1) {
 			errorCount = logicEvaluator.getErrorCount();
 		}
+		closeLog(logbr);
+		view.arrowLatency = arrowLatency;
+		view.deadlockGraph = deadlocks;
+		view.keywordAnomalies = keywordAnomalies;
+		view.scanSketches = scanSketches;
+		view.cooccurrence = cooccurrence;
+		view.timeline = timeline;
+		if (timeline != null) recordTrend(file);
 		view.dialog.doneParse(errorCount);
-		logbr.close();
-		//We fill the data object with our entries for the resulting table
-		data = new Object[errorData.size()][];
-		for(int i = 0; i < errorData.size(); i++) {
-			data[i] = errorData.get(i);
-		}
 		//Sets the menu items as visible after the parsing is done
 		view.menuItemLines.setEnabled(true);
 		view.menuItemUrl.setEnabled(true);
@@ -257,6 +371,35 @@ public class LogParser {
 	 * @throws IOException If there is a problem accessing the file
 	 */
 	Object[] parseArrowError(BufferedReader logbr, String timeStamp, String[] currArray) throws IOException {
+		ParseEvents.ArrowChain event = new ParseEvents.ArrowChain();
+		event.begin();
+		long startPosition = progress;
+		long startLine = lineCount;
+		arrowDepth = 0;
+		Object[] result = readArrowChain(logbr, timeStamp, currArray);
+		arrowChainFinished(arrowDepth, startLine);
+		if (event.shouldCommit()) {
+			event.startPosition = startPosition;
+			event.endPosition = progress;
+			event.lines = lineCount - startLine;
+			event.depth = arrowDepth;
+			event.entryCreated = (result != null);
+			event.commit();
+		}
+		return result;
+	}
+
+	/**
+	 * Reads an arrow error up to its closing arrow, calling itself again
+	 * when another Time critical arrow starts before the block is closed
+	 * @param logbr The buffered reader reading through the logfile
+	 * @param timeStamp The timestamp of the line where the first arrow was encountered
+	 * @param currArray An array containing the elements of the above line, split by " "
+	 * @return Returns an entry that can be added to errorData, null if outside the time bounds
+	 * @throws IOException If there is a problem accessing the file
+	 */
+	private Object[] readArrowChain(BufferedReader logbr, String timeStamp, String[] currArray) throws IOException {
+		arrowDepth++;
 		Object[] tempEntry = new Object[5];
 		String[] words;
 		tempEntry[0] = errorCount;
@@ -266,9 +409,11 @@ public class LogParser {
         boolean closingArrowTagFound = false;
         boolean outsideTimeStampBounds = false;
         StringBuilder errorMsg = new StringBuilder();
+        double duration = parseDuration(currArray);
+        recordArrow(currArray, timeStamp, duration);
         //If the time of this arrow error is outside the bounds
         //specified by the user, this is an invalid entry
-        if (!compareTimeStamp(currArray)) {
+        if (!withinBounds(duration)) {
 			outsideTimeStampBounds = true;
 		}
         //We fill the entry with the solution
@@ -310,9 +455,14 @@ public class LogParser {
 						addLinesBefore();
 						addLinesAfter(errorCount);
 						errorData.add(tempEntry);
+						if (matchIndex != null) matchIndex.addRow(arrowKeywordId, true, duration, duration);
+						if (keywordAnomalies != null) keywordAnomalies.record(arrowKeywordId, timeStamp);
+						if (scanSketches != null) scanSketches.record("===>", firstLineOfError, ArrowLatency.uCodeOf(currArray));
+						if (cooccurrence != null) cooccurrence.record(arrowKeywordId, timeStamp);
+						if (timeline != null) timeline.record(arrowKeywordId, timeStamp);
 						errorCount++;
 					}
-					return parseArrowError(logbr, tempTimeStamp, tempArray); 
+					return readArrowChain(logbr, tempTimeStamp, tempArray); 
 				}
 				//This is where we append the error message of the current line
 				if (arrowindex < words.length) {
@@ -340,6 +490,7 @@ public class LogParser {
 			}
 		}
 		tempEntry[3] = errorMsg.toString();
+		chainDuration = duration;
 		if (outsideTimeStampBounds) {
 			return null;
 		}
@@ -356,6 +507,32 @@ public class LogParser {
 	 * @throws IOException If there is a problem accessing the file
 	 */
 	Object[] parseDeadlockError(BufferedReader logbr, String timeStamp) throws IOException {
+		ParseEvents.DeadlockBlock event = new ParseEvents.DeadlockBlock();
+		event.begin();
+		long startPosition = progress;
+		long startLine = lineCount;
+		deadlockStarted(timeStamp, logWords);
+		Object[] result = readDeadlockBlock(logbr, timeStamp);
+		deadlockFinished();
+		if (event.shouldCommit()) {
+			event.startPosition = startPosition;
+			event.endPosition = progress;
+			event.lines = lineCount - startLine;
+			event.entryCreated = (result != null);
+			event.commit();
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the lines of a DEADLOCK block until the matching DEADLOCK, or until
+	 * the timestamps show that the first DEADLOCK was a single occurrence
+	 * @param logbr The Buffered Reader reading through the logfile
+	 * @param timeStamp Timestamp of the line where DEADLOCK first occurred
+	 * @return Return an entry that can be added to errorData, null if outside the time bounds
+	 * @throws IOException If there is a problem accessing the file
+	 */
+	private Object[] readDeadlockBlock(BufferedReader logbr, String timeStamp) throws IOException {
 	   int limit = 2500;
 	   int curRead = 0;
        Object[] entry = new Object[5];
@@ -368,6 +545,8 @@ public class LogParser {
        entry[0] = errorCount;
        entry[1] = timeStamp;
        entry[2] = "DEADLOCK";
+       deadlockLowest = Double.NaN;
+       deadlockHighest = Double.NaN;
        String tempLine = logbr.readLine();
        //We mark in case the DEADLOCK error is a single DEADLOCK
        logbr.mark(limit);
@@ -377,15 +556,20 @@ public class LogParser {
     	  updateLinesAfter(tempLine);
           boolean timeStampFound = false;
           boolean uCodeFound = false;              
+          String lineTimeStamp = null;
           testLine.setLength(0);
           updateProgress(tempLine);
           words = tempLine.split(" ");
           for(String testWord : words) {
         	  if(!timeStampFound && testWord.length() == 19) {
         		  timeStampFound = true;
+        		  lineTimeStamp = testWord;
                   //If our timestamps are not equal, we 
                   //don't have a matching deadlock
                   if(timeStampDifference(testWord, timeStamp)) {
+                	  //A single DEADLOCK does not depend on the arrows read after it
+                	  deadlockLowest = Double.NaN;
+                	  deadlockHighest = Double.NaN;
                 	  entry[3] = " ";
                       if (view.solutions.get(entry[2]) != null) {
                     	  entry[4] = view.solutions.get(entry[2]);
@@ -401,6 +585,7 @@ public class LogParser {
             	  if(testWord.length() > 2) {
             		  if(testWord.charAt(0) == 'U' && Character.isDigit(testWord.charAt(1))){
             			  uCodeFound = true;
+            			  deadlockParticipant(testWord);
                       }
                   }
               }
@@ -409,12 +594,18 @@ public class LogParser {
             	  if(testWord.equals("===>") && tempLine.contains("Time critical")) {
             		  //If we're outside of the timebounds, then we don't make an entry
             		  //and reverse adding things to linesBefore and linesAfter
-            		  if (!compareTimeStamp(words)) {
+            		  double duration = parseDuration(words);
+            		  if (!withinBounds(duration)) {
           				outsideTimeBounds = true;
             		  }
+            		  else {
+            			  deadlockLowest = Double.isNaN(deadlockLowest) ? duration : Math.min(deadlockLowest, duration);
+            			  deadlockHighest = Double.isNaN(deadlockHighest) ? duration : Math.max(deadlockHighest, duration);
+            		  }
           		  }
             	  if(testWord.equals("DEADLOCK")) {
             		  matchingDeadlock = true;
+            		  deadlockClosed(lineTimeStamp);
             		  if(outsideTimeBounds)
             			  return null;
                       for(int i = 0; i < errorLines.size(); i++) {
@@ -433,6 +624,9 @@ public class LogParser {
               errorLines.add("\n");
               tempLine = logbr.readLine();
        }
+       //A block cut off by the end of the file is kept whatever its arrows were
+       deadlockLowest = Double.NaN;
+       deadlockHighest = Double.NaN;
        return entry;
     }
 
@@ -441,19 +635,41 @@ public class LogParser {
 	 * has been completed. 
 	 */
 	void makeTable() {
-		DefaultTableModel tableModel = new DefaultTableModel(data, headers) {
-		    @Override
-		    public boolean isCellEditable(int row, int column) {
-		       //all cells false
-		       return false;
-		    }
-		};
+		ParseEvents.TableBuild event = new ParseEvents.TableBuild();
+		event.begin();
+		view.errorTable = createResultTable(errorData);
+		view.errorScrollPane.setViewportView(view.errorTable);
+		view.useResults(spill);
+		view.matchIndex = matchIndex;
+		event.rows = errorData.size();
+		event.commit();
+	}
+	
+	/**
+	 * Creates a JTable showing entries, with the popup menu of UserView
+	 * @param rows The entries, in the layout of errorData, read by the table as it is scrolled
+	 * @return The table
+	 */
+	JTable createResultTable(List<Object[]> rows) {
+		ResultTableModel tableModel = new ResultTableModel(rows, headers);
 		
-		view.errorTable = new JTable(tableModel) {
+		JTable table = new JTable(tableModel) {
 			//Renders each columnn to fit the data
 			public Component prepareRenderer(TableCellRenderer renderer, int row, int column) 
 			{
 				Component component = super.prepareRenderer(renderer, row, column);
+				//Rows in a burst of their keyword are highlighted. The renderer is shared
+				//by all cells, so the others have their background set back.
+				if (keywordAnomalies != null && component instanceof JComponent) {
+					KeywordAnomalies.Anomaly anomaly = keywordAnomalies.anomalyOf(getValueAt(row, 2), getValueAt(row, 1));
+					if (isCellSelected(row, column)) {
+						component.setBackground(getSelectionBackground());
+					}
+					else {
+						component.setBackground((anomaly == null) ? getBackground() : ANOMALY_COLOR);
+					}
+					((JComponent) component).setToolTipText((anomaly == null) ? null : anomaly.describe());
+				}
 				int rendererWidth = component.getPreferredSize().width;
 	           TableColumn tableColumn = getColumnModel().getColumn(column);
 	           tableColumn.setPreferredWidth(Math.max(rendererWidth + getIntercellSpacing().width, tableColumn.getPreferredWidth()));
@@ -461,11 +677,11 @@ public class LogParser {
 			}
 		};
 
-		view.errorTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
-		view.errorScrollPane.setViewportView(view.errorTable);
-		view.errorTable.setCellSelectionEnabled(true);
-		view.errorTable.addMouseListener(new TableMouseListener(view.errorTable));
-		view.errorTable.setComponentPopupMenu(view.popupMenu);
+		table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+		table.setCellSelectionEnabled(true);
+		table.addMouseListener(new TableMouseListener(table));
+		table.setComponentPopupMenu(view.popupMenu);
+		return table;
 	}
 	
 	/**
@@ -502,26 +718,283 @@ public class LogParser {
 	 * @param addLine A line from the logfile whose length is added to the progress
 	 */
 	void updateProgress(String addLine){
-		progress += addLine.length();
+		progress += addLine.length() + 1;
+		if (lineLimit != null) {
+			progress += lineLimit.takeDropped();
+		}
+		lineCount++;
 		percent = (int) (progress / view.fileSizeDivHundred);
 		if (percent > oldPercent){
 			view.dialog.updateProgress(percent);
+			if (pipeline != null) {
+				view.dialog.updatePipeline(pipeline.describe());
+			}
 			oldPercent = percent;
+			commitChunk();
+			beginChunk();
 		}
 	}
 	
+	/**
+	 * @return Memory budget and spill file for the results of this search
+	 */
+	SpillFile getSpill(){
+		return spill;
+	}
+
+	/**
+	 * Opens the logfile through a PipelinedReader, so the file is read from
+	 * disk on another thread while this one parses. The encoding is the one
+	 * chosen in the interface, or else the one LogCharset finds for the file.
+	 * Lines are kept to a bounded length by a LineLimitReader.
+	 * @param file The logfile
+	 * @return A reader over the lines of the logfile
+	 * @throws IOException If the file cannot be opened
+	 */
+	BufferedReader openLog(File file) throws IOException {
+		charset = LogCharset.forFile(file, view.logCharset);
+		pipeline = new PipelinedReader(new FileInputStream(file), charset);
+		lineLimit = new LineLimitReader(pipeline, keywordIndex);
+		return new BufferedReader(lineLimit);
+	}
+
+	/**
+	 * Forgets the bursts found while reading the file, so the result table
+	 * does not highlight rows by them once the results are narrowed
+	 */
+	void clearAnalyses(){
+		keywordAnomalies = null;
+	}
+
+	/**
+	 * @return The keyword index the search was started with
+	 */
+	KeywordIndex getKeywordIndex(){
+		return keywordIndex;
+	}
+
+	/**
+	 * @return The encoding the last logfile was read with, null before the first parse
+	 */
+	Charset getCharset(){
+		return charset;
+	}
+
+	/**
+	 * Adds the hourly counts of the parse to the TrendStore, so they can be
+	 * compared with those of the same log on other days
+	 * @param file The logfile that was parsed
+	 */
+	private void recordTrend(File file) {
+		try {
+			TrendStore.getDefault().append(file.getPath(), timeline, keywordIndex);
+		} catch (IOException e) {
+			System.out.println("Could not add the parse to the trend store: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Closes the logfile opened by openLog and records how the two stages of
+	 * the pipeline kept up with each other
+	 * @param logbr The reader returned by openLog
+	 * @throws IOException If the file cannot be closed
+	 */
+	void closeLog(BufferedReader logbr) throws IOException {
+		logbr.close();
+		if (pipeline == null) return;
+		ParseEvents.PipelineSummary summary = new ParseEvents.PipelineSummary();
+		summary.bytesRead = pipeline.getBytesRead();
+		summary.buffers = pipeline.getBufferCount();
+		summary.averageFilled = pipeline.getAverageFilled();
+		summary.readMillis = pipeline.getReadNanos() / 1000000;
+		summary.parserWaitMillis = pipeline.getParserWaitNanos() / 1000000;
+		summary.readerWaitMillis = pipeline.getReaderWaitNanos() / 1000000;
+		summary.bottleneck = pipeline.getBottleneck();
+		summary.truncatedLines = lineLimit.getTruncatedLines();
+		summary.binaryLines = lineLimit.getBinaryLines();
+		summary.commit();
+		pipeline = null;
+		lineLimit = null;
+	}
+
+	/**
+	 * Called in LogicEvaluator to record where in the file a block started
+	 * @return The number of characters (including line breaks) read so far
+	 */
+	long getProgress(){
+		return progress;
+	}
+	
+	/**
+	 * Called in LogicEvaluator to record how many lines a block spanned
+	 * @return The number of lines read so far
+	 */
+	long getLineCount(){
+		return lineCount;
+	}
+	
+	/**
+	 * Starts timing the next chunk of the file for the flight recorder
+	 */
+	private void beginChunk(){
+		chunkEvent = new ParseEvents.ChunkScanned();
+		chunkEvent.startPosition = progress;
+		chunkEvent.lines = lineCount;
+		chunkEvent.hits = errorCount;
+		chunkEvent.begin();
+	}
+	
+	/**
+	 * Ends the chunk started by beginChunk and records how many lines
+	 * and errors were found inside of it
+	 */
+	private void commitChunk(){
+		if (chunkEvent == null) return;
+		if (chunkEvent.shouldCommit()) {
+			chunkEvent.endPosition = progress;
+			chunkEvent.lines = lineCount - chunkEvent.lines;
+			chunkEvent.hits = errorCount - chunkEvent.hits;
+			chunkEvent.commit();
+		}
+		chunkEvent = null;
+	}
+	
 	/**
 	 * Compares the time of a Time Critical arrow error to see if
 	 * it is within the bounds the user designated in the interface.
 	 * @param line The line where Time Critical occurred
-	 * @return True if the time is within the bounds, false otherwise
+	 * @return True if the time is within the bounds, false otherwise or if
+	 * the line does not end with a time (e.g. it was truncated)
 	 */
 	boolean compareTimeStamp(String[] line){
-		String time = line[(line.length-1)].replaceAll("[.]", "");
+		return withinBounds(parseDuration(line));
+	}
+	
+	/**
+	 * @param duration The duration of a Time Critical arrow
+	 * @return True if the duration is within the bounds the user designated, false otherwise or if NaN
+	 */
+	boolean withinBounds(double duration){
+		return ((duration >= view.lowerBound) && (duration <= view.upperBound));
+	}
+	
+	/**
+	 * Reads the duration at the end of a Time Critical arrow line
+	 * @param line The line, split by " "
+	 * @return The duration, NaN if the line does not end with one
+	 */
+	double parseDuration(String[] line){
+		return (line.length == 0) ? Double.NaN : parseDuration(line[line.length - 1]);
+	}
+	
+	/**
+	 * Reads a duration written with '.' between thousands, ':' before the
+	 * decimals and an optional quote, e.g. 1.234:5' is 1234.5. Plain digits
+	 * are read in place without making any Strings; anything else goes
+	 * through Double.parseDouble the way it always has.
+	 * @param time The last word of a Time Critical arrow line
+	 * @return The duration, NaN if the word is not one
+	 */
+	static double parseDuration(String time){
+		long mantissa = 0;
+		//Significant digits, the ones that count toward the exact range of a double
+		int digits = 0;
+		boolean anyDigit = false;
+		int decimals = -1;
+		for (int i = 0; i < time.length(); i++) {
+			char c = time.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (mantissa != 0 || c != '0') digits++;
+				anyDigit = true;
+				mantissa = mantissa * 10 + (c - '0');
+				if (decimals >= 0) decimals++;
+			}
+			else if (c == ':' && decimals < 0) {
+				decimals = 0;
+			}
+			else if (c != '.' && c != '\'') {
+				return parseDurationSlow(time);
+			}
+		}
+		if (!anyDigit) return Double.NaN;
+		if (decimals < 0) decimals = 0;
+		//Both are exact doubles, so the division rounds the same way parseDouble does
+		if (digits > 15 || decimals >= POWERS_OF_TEN.length) return parseDurationSlow(time);
+		return mantissa / POWERS_OF_TEN[decimals];
+	}
+	
+	private static double parseDurationSlow(String time){
+		time = time.replaceAll("[.]", "");
 		time = time.replaceAll("\'", "");
 		time = time.replace(":", ".");
-		double t = Double.parseDouble(time);
-		return ((t >= view.lowerBound) && (t <= view.upperBound));
+		try {
+			return Double.parseDouble(time);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+	
+	/**
+	 * Starts a record of a DEADLOCK block in the deadlock graph of this parse
+	 * @param timeStamp Timestamp of the line with the first DEADLOCK
+	 * @param words That line, split by " "
+	 */
+	void deadlockStarted(String timeStamp, String[] words){
+		if (deadlocks != null) {
+			deadlocks.begin(lineCount, timeStamp, words);
+		}
+	}
+	
+	/**
+	 * Adds a U-code found inside the DEADLOCK block being read
+	 * @param uCode The U-code
+	 */
+	void deadlockParticipant(String uCode){
+		if (deadlocks != null) {
+			deadlocks.addParticipant(uCode);
+		}
+	}
+	
+	/**
+	 * Records that the DEADLOCK block being read found its matching DEADLOCK
+	 * @param timeStamp Timestamp of the line with the matching DEADLOCK
+	 */
+	void deadlockClosed(String timeStamp){
+		if (deadlocks != null) {
+			deadlocks.close(lineCount, timeStamp);
+		}
+	}
+	
+	/**
+	 * Ends the DEADLOCK block being read, adding it to the graph if it was closed
+	 */
+	void deadlockFinished(){
+		if (deadlocks != null) {
+			deadlocks.finish();
+		}
+	}
+	
+	/**
+	 * Counts a Time Critical arrow in the latency statistics of this parse
+	 * @param words The arrow's line, split by " "
+	 * @param timeStamp Timestamp of the line
+	 * @param duration Duration given by parseDuration
+	 */
+	void recordArrow(String[] words, String timeStamp, double duration){
+		if (arrowLatency != null) {
+			arrowLatency.record(words, timeStamp, duration, lineCount);
+		}
+	}
+	
+	/**
+	 * Counts a chain of arrows in the latency statistics of this parse
+	 * @param depth Number of Time Critical arrows in the chain
+	 * @param startLine Line number the chain starts on
+	 */
+	void arrowChainFinished(int depth, long startLine){
+		if (arrowLatency != null) {
+			arrowLatency.chainFinished(depth, startLine);
+		}
 	}
 	
 	/**
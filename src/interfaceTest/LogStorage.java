@@ -0,0 +1,150 @@
+/**
+ * @file LogStorage.java
+ * Storage for the keyword dictionary (logerrors), the groups and the admin
+ * logins. Every screen goes through this interface, so the program can run
+ * against SQL Server (SqlServerStorage) or against files on this machine
+ * (LocalStorage) with no network, e.g. for an offline setup or for
+ * performance tests. The setting "storage" picks the implementation:
+ * "sqlserver" (the default) or "local". Every change is recorded in a
+ * changelog (see DictionaryChange) that other clients poll.
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+
+public interface LogStorage extends AutoCloseable {
+	/**Index of each column in the rows returned by loadLogErrors*/
+	int KEYWORD = 0, DESCRIPTION = 1, SOLUTION = 2, FOLDER = 3, HYPERLINK = 4;
+
+	/**
+	 * Gives the storage shared by every screen, creating it the first time it is needed
+	 * @return The storage chosen by the "storage" setting
+	 * @throws ClassNotFoundException If the JDBC driver is not on the classpath
+	 */
+	static LogStorage getInstance() throws ClassNotFoundException {
+		synchronized (StorageHolder.class) {
+			if (StorageHolder.instance == null) {
+				String type = AppConfig.getString("storage", "sqlserver");
+				LogStorage storage;
+				if (type.equalsIgnoreCase("local")) {
+					storage = new LocalStorage(new File(AppConfig.getDataDirectory(), "local-storage"));
+				}
+				else {
+					storage = new SqlServerStorage(new ConnectionPool());
+				}
+				Runtime.getRuntime().addShutdownHook(new Thread(storage::close));
+				StorageHolder.instance = storage;
+			}
+			return StorageHolder.instance;
+		}
+	}
+
+	/**
+	 * Reads every entry of the logerrors table
+	 * @return One array per entry, indexed by KEYWORD, DESCRIPTION, SOLUTION, FOLDER and HYPERLINK
+	 * @throws SQLException If the entries could not be read
+	 */
+	List<String[]> loadLogErrors() throws SQLException;
+
+	/**
+	 * Computes a cheap fingerprint of the entries and groups, used to tell
+	 * whether a saved DictionarySnapshot is still current
+	 * @return A string that changes whenever the entries or groups change,
+	 * or null if the storage cannot compute one
+	 * @throws SQLException If the storage cannot be reached
+	 */
+	String loadDictionaryVersion() throws SQLException;
+
+	/**
+	 * Gives the position of the latest change in the changelog. This is
+	 * cheap, so clients can poll it to find out whether anything changed.
+	 * @return The latest revision, -1 if the storage keeps no changelog
+	 * @throws SQLException If the storage cannot be reached
+	 */
+	long loadRevision() throws SQLException;
+
+	/**
+	 * Reads the changes made after the given revision, in order. For each
+	 * changed entry the entry is given as it is now, so applying the changes
+	 * more than once gives the same result.
+	 * @param revision The revision the client is up to date with
+	 * @return The changes, empty if there are none
+	 * @throws SQLException If the changes could not be read
+	 */
+	List<DictionaryChange> loadChangesSince(long revision) throws SQLException;
+
+	/**
+	 * Reads the groups
+	 * @return Maps the name of each group to its space separated keywords
+	 * @throws SQLException If the groups could not be read
+	 */
+	HashMap<String, String> loadGroups() throws SQLException;
+
+	/**
+	 * Reads the admin logins
+	 * @return Maps each username to its password
+	 * @throws SQLException If the logins could not be read
+	 */
+	HashMap<String, String> loadLogins() throws SQLException;
+
+	/**
+	 * Adds a new group
+	 * @param name The name of the group
+	 * @param keywords The space separated keywords of the group
+	 * @throws SQLException If the group could not be added
+	 */
+	void insertGroup(String name, String keywords) throws SQLException;
+
+	/**
+	 * Changes the keywords of an existing group
+	 * @param name The name of the group
+	 * @param keywords The new space separated keywords of the group
+	 * @throws SQLException If the group could not be changed
+	 */
+	void updateGroup(String name, String keywords) throws SQLException;
+
+	/**
+	 * Deletes the group with the given keywords
+	 * @param keywords The space separated keywords of the group
+	 * @throws SQLException If the group could not be deleted
+	 */
+	void deleteGroup(String keywords) throws SQLException;
+
+	/**
+	 * Changes the hyperlink of each keyword, either all of them or none
+	 * @param hyperlinks Arrays holding a keyword followed by its hyperlink
+	 * @throws SQLException If the hyperlinks could not be saved, in which case none are changed
+	 */
+	void updateHyperlinks(List<String[]> hyperlinks) throws SQLException;
+
+	/**
+	 * Applies the changes made to the dictionary in AdminView, so either all
+	 * of them are saved or none are
+	 * @param deleted Keywords of the entries to delete
+	 * @param updated Entries whose description, solution or folder changed
+	 * @param inserted New entries, including their hyperlink
+	 * @throws SQLException If the changes could not be saved, in which case nothing is changed
+	 */
+	void saveLogErrors(List<String> deleted, List<String[]> updated, List<String[]> inserted) throws SQLException;
+
+	/**
+	 * Releases the connections or files held by the storage
+	 */
+	@Override
+	void close();
+}
+
+/**
+ * Holds the LogStorage shared by every screen
+ */
+final class StorageHolder {
+	static LogStorage instance;
+
+	private StorageHolder() {
+		//Do nothing
+	}
+}
@@ -16,6 +16,7 @@ package interfaceTest;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 public class LogicEvaluator {
 
@@ -30,7 +31,7 @@ public class LogicEvaluator {
 	/**Contains the operands that the user has chosen*/
 	private ArrayList<String> operands = new ArrayList<String>();
 	/**Contains the UCodes from a DEADLOCK or arrow error*/
-	private ArrayList<String> tempUCodes = new ArrayList<String>();
+	private HashSet<String> tempUCodes = new HashSet<String>();
 	/**The total number of errors/entries from the given logic statement*/
 	private int errorCount;
 	/**The word that the user has chosen to use the operand OR with*/
@@ -49,6 +50,8 @@ public class LogicEvaluator {
 	private boolean OR_ARROW;
 	/**True if curSaveLines needed to be called (for DEADLOCK or arrow), false otherwise */
 	private boolean encapsulatingError;
+	/**Number of arrows chained into the arrow block currently being assembled*/
+	private int arrowDepth;
 	
 	/**
 	 * Contains functions that implements the logic parsing
@@ -479,6 +482,32 @@ public class LogicEvaluator {
 	 * @throws IOException If there is a problem accessing the file
 	 */
 	String makeDeadlockLine(BufferedReader logbr, String line) throws IOException {
+		ParseEvents.DeadlockBlock event = new ParseEvents.DeadlockBlock();
+		event.begin();
+		long startPosition = logParse.getProgress();
+		long startLine = logParse.getLineCount();
+		String[] firstWords = line.split(" ");
+		logParse.deadlockStarted(timeStampOf(firstWords), firstWords);
+		String result = readDeadlockLine(logbr, line);
+		logParse.deadlockFinished();
+		if (event.shouldCommit()) {
+			event.startPosition = startPosition;
+			event.endPosition = logParse.getProgress();
+			event.lines = logParse.getLineCount() - startLine;
+			event.entryCreated = (result != null);
+			event.commit();
+		}
+		return result;
+	}
+	
+	/**
+	 * Reads the lines of a DEADLOCK block for makeDeadlockLine
+	 * @param logbr Buffered Reader to read through file, same br from LogParser
+	 * @param line File line where DEADLOCK first occurred
+	 * @return Returns a string with the full DEADLOCK error, null if it should not be used
+	 * @throws IOException If there is a problem accessing the file
+	 */
+	private String readDeadlockLine(BufferedReader logbr, String line) throws IOException {
 		tempUCodes.clear();
 		//Bytes to read until mark is invalid
 		int limit = 2500;
@@ -526,11 +555,13 @@ public class LogicEvaluator {
         	}
            boolean timeStampFound = false;
            boolean uCodeFound = false;              
+           String lineTimeStamp = null;
            testLine.setLength(0);
            words = logLine.split(" ");
            for(String testWord : words) {
         	   if(!timeStampFound && testWord.length() == 19) {
         		   timeStampFound = true;
+        		   lineTimeStamp = testWord;
                     //If our timestamps are not equal, we 
                     //don't have a matching deadlock and just return first line
                     if(logParse.timeStampDifference(testWord, timeStamp)) {
@@ -549,6 +580,7 @@ public class LogicEvaluator {
                       uCodeFound = true;
                       //We add this UCode to test against
                       tempUCodes.add(testWord);
+                      logParse.deadlockParticipant(testWord);
                    }
                 }
              }
@@ -561,6 +593,7 @@ public class LogicEvaluator {
         	 	}
                 if(testWord.equals("DEADLOCK")) {
                    matchingDeadlock = true;
+                   logParse.deadlockClosed(lineTimeStamp);
                    if(outsideTimeBounds || madeAnError) {
                 	   return null;
                    }
@@ -582,6 +615,19 @@ public class LogicEvaluator {
        return fullMsg.toString();
 	}
 	
+	/**
+	 * @param words A line of the logfile, split by " "
+	 * @return The first word shaped like a timestamp, null if there is none
+	 */
+	private static String timeStampOf(String[] words) {
+		for (String word : words) {
+			if (word.length() == 19) {
+				return word;
+			}
+		}
+		return null;
+	}
+	
 	/**
 	 * Generates the entire line of an arrow error, and includes all the lines
 	 * between the first arrow and then the matching arrow error. The string returned
@@ -595,6 +641,34 @@ public class LogicEvaluator {
 	 * @throws IOException If there is a problem accessing the file
 	 */
 	String makeArrowLine(BufferedReader logbr, String logLine) throws IOException {
+		ParseEvents.ArrowChain event = new ParseEvents.ArrowChain();
+		event.begin();
+		long startPosition = logParse.getProgress();
+		long startLine = logParse.getLineCount();
+		arrowDepth = 0;
+		String result = readArrowLine(logbr, logLine);
+		logParse.arrowChainFinished(arrowDepth, startLine);
+		if (event.shouldCommit()) {
+			event.startPosition = startPosition;
+			event.endPosition = logParse.getProgress();
+			event.lines = logParse.getLineCount() - startLine;
+			event.depth = arrowDepth;
+			event.entryCreated = (result != null);
+			event.commit();
+		}
+		return result;
+	}
+	
+	/**
+	 * Reads the lines of an arrow error for makeArrowLine, calling itself
+	 * again when another Time critical arrow starts inside the block
+	 * @param logbr Buffered Reader to read through file, same br from LogParser
+	 * @param logLine File line where an arrow was first found
+	 * @return Returns a string with the full arrow error, null if outside the time bounds
+	 * @throws IOException If there is a problem accessing the file
+	 */
+	private String readArrowLine(BufferedReader logbr, String logLine) throws IOException {
+		arrowDepth++;
 		tempUCodes.clear();
 		String[] words;
 		int arrowindex = 0; 
@@ -604,8 +678,10 @@ public class LogicEvaluator {
         StringBuilder errorMsg = new StringBuilder();
         String[] currArray = logLine.split(" ");
         if (logLine.contains("Time critical")){
+        	double duration = logParse.parseDuration(currArray);
+        	logParse.recordArrow(currArray, timeStampOf(currArray), duration);
         	//Line is outside requested time bounds
-        	if (!logParse.compareTimeStamp(currArray)) {
+        	if (!logParse.withinBounds(duration)) {
         		outsideTimeStampBounds = true;
         	}
         }
@@ -634,7 +710,7 @@ public class LogicEvaluator {
 			if (logLine.contains("===>")) {
 				//A single arrow error, we make a recursive call
 				if (logLine.contains("Time critical")) {
-					return (makeArrowLine(logbr, logLine));
+					return (readArrowLine(logbr, logLine));
 				}
 				if (arrowindex < words.length){
 					for (int i = arrowindex; i < words.length; i++) {
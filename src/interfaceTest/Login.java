@@ -17,7 +17,7 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
@@ -194,16 +194,7 @@ public class Login extends JFrame {
 	 * @throws SQLException if error with the JDBC connection
 	 */
 	void fillHashMap() throws ClassNotFoundException, SQLException {
-		String driver = "net.sourceforge.jtds.jdbc.Driver";
-		Class.forName(driver);
-		Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-
-		Statement stmt = conn.createStatement();
-		String query = "select Username, Password from Usernames_Passwords";
-		ResultSet rs = stmt.executeQuery(query);
-		while(rs.next()){
-			loginHashMap.put(rs.getString("Username"), rs.getString("Password"));
-		}
+		loginHashMap.putAll(LogStorage.getInstance().loadLogins());
 	}
 	
 }
@@ -0,0 +1,361 @@
+/**
+ * @file MatchIndex.java
+ * Remembers enough about the last keyword or group search to answer a
+ * narrower one without reading the file again. For every entry it keeps the
+ * selected keywords found on its line after the keyword that made the entry,
+ * with where the message would start for each, and the duration of Time
+ * critical arrows. Unchecking keywords then only means picking the first
+ * keyword still checked on each line, and tightening the Time critical
+ * bounds only means dropping arrows whose duration falls outside them.
+ *
+ * The lists are kept in primitive arrays, one slot per keyword found, and
+ * the filtered results are views over the rows of the last search, so a
+ * narrower search costs a few int arrays. A search the index cannot answer
+ * exactly (a different file, a reloaded dictionary, a keyword that was not
+ * searched for, wider bounds, other context settings, or a DEADLOCK or arrow
+ * block that would be read differently) still reads the file. The
+ * statistics taken while reading the file, such as the arrow latencies and
+ * the timeline, are not offered for the narrower results.
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+class MatchIndex {
+	private final String path;
+	private final long fileLength;
+	private final long lastModified;
+	/**Keywords the search was run with*/
+	private final BitSet searchedIds;
+	private final double lowerBound;
+	private final double upperBound;
+	private final int numLinesBefore;
+	private final int numLinesAfter;
+	private final String charsetChoice;
+	/**Gives the ids the rows and candidates are kept as*/
+	private final KeywordIndex keywordIndex;
+	/**Keywords that started a DEADLOCK or arrow block, which changes how the following lines are read*/
+	private final BitSet blockIds = new BitSet();
+
+	/**Start of each row's keywords in candidateIds, rowCount + 1 slots*/
+	private int[] rowStart = new int[1024];
+	/**Keywords found on each row's line, the row's own keyword first*/
+	private int[] candidateIds = new int[1024];
+	/**Where the message starts within the row's message when the matching candidate is the keyword*/
+	private int[] messageOffsets = new int[1024];
+	/**Candidates that would start a DEADLOCK or arrow block instead of a plain entry*/
+	private final BitSet blockCandidates = new BitSet();
+	/**Rows made by DEADLOCK or arrow blocks*/
+	private final BitSet blockRows = new BitSet();
+	/**Lowest and highest Time critical duration each block row depends on, NaN for rows that depend on none*/
+	private double[] lowestDurations = new double[1024];
+	private double[] highestDurations = new double[1024];
+	private int rowCount;
+	private int candidateCount;
+	/**Candidates of the line being read, added to the next row*/
+	private int pendingStart;
+
+	//Results of the search, the rows the filtered views are built on
+	private List<Object[]> rows;
+	private List<ArrayList<String>> linesBefore;
+	private List<String> errorLines;
+	private Map<Integer, ArrayList<String>> linesAfter;
+	private SpillFile spill;
+
+	/**
+	 * Starts an index for a search about to be run
+	 * @param file The logfile
+	 * @param view The UserView holding the selected keywords, bounds and context settings
+	 * @param keywordIndex The keyword index the search was started with
+	 */
+	MatchIndex(File file, UserView view, KeywordIndex keywordIndex) {
+		this.keywordIndex = keywordIndex;
+		path = file.getAbsolutePath();
+		fileLength = file.length();
+		lastModified = file.lastModified();
+		searchedIds = (BitSet) view.selectedKeywordIds.clone();
+		lowerBound = view.lowerBound;
+		upperBound = view.upperBound;
+		numLinesBefore = view.numLinesBefore;
+		numLinesAfter = view.numLinesAfter;
+		charsetChoice = view.logCharset;
+	}
+
+	/**
+	 * Records that a keyword started a DEADLOCK or arrow block, whether or not it made an entry
+	 * @param id Id of the keyword
+	 */
+	void blockStarted(int id) {
+		blockIds.set(id);
+	}
+
+	/**
+	 * Starts the row for an entry found on the current line, forgetting the
+	 * candidates of a line that made no row
+	 * @param id Id of the keyword that made the entry
+	 */
+	void beginRow(int id) {
+		candidateCount = pendingStart;
+		addCandidate(id, 0, false);
+	}
+
+	/**
+	 * Records another selected keyword on the line of the entry begun by beginRow
+	 * @param id Id of the keyword
+	 * @param messageOffset Length of the message up to and including the keyword
+	 * @param block True if the keyword would start a DEADLOCK or arrow block
+	 */
+	void addCandidate(int id, int messageOffset, boolean block) {
+		if (candidateCount == candidateIds.length) {
+			candidateIds = Arrays.copyOf(candidateIds, candidateCount * 2);
+			messageOffsets = Arrays.copyOf(messageOffsets, candidateCount * 2);
+		}
+		candidateIds[candidateCount] = id;
+		messageOffsets[candidateCount] = messageOffset;
+		blockCandidates.set(candidateCount, block);
+		candidateCount++;
+	}
+
+	/**
+	 * Records the row just added to the results, with the candidates collected
+	 * since beginRow. Called once for every row, in the same order.
+	 * @param id Id of the keyword that made the row
+	 * @param block True if the row was made by a DEADLOCK or arrow block
+	 * @param lowest Duration of a Time critical arrow, or the lowest of the arrows
+	 * inside a DEADLOCK block, NaN for rows that do not depend on the bounds
+	 * @param highest The same as lowest for an arrow, the highest for a DEADLOCK block
+	 */
+	void addRow(int id, boolean block, double lowest, double highest) {
+		if (candidateCount == pendingStart) {
+			addCandidate(id, 0, false);
+		}
+		if (rowCount + 2 > rowStart.length) {
+			rowStart = Arrays.copyOf(rowStart, rowStart.length * 2);
+			lowestDurations = Arrays.copyOf(lowestDurations, rowStart.length);
+			highestDurations = Arrays.copyOf(highestDurations, rowStart.length);
+		}
+		rowStart[rowCount] = pendingStart;
+		lowestDurations[rowCount] = lowest;
+		highestDurations[rowCount] = highest;
+		if (block) blockRows.set(rowCount);
+		rowCount++;
+		rowStart[rowCount] = candidateCount;
+		pendingStart = candidateCount;
+	}
+
+	/**
+	 * Called when the search is done, with the results the index refers to
+	 */
+	void finish(List<Object[]> rows, List<ArrayList<String>> linesBefore, List<String> errorLines,
+			Map<Integer, ArrayList<String>> linesAfter, SpillFile spill) {
+		candidateCount = pendingStart;
+		this.rows = rows;
+		this.linesBefore = linesBefore;
+		this.errorLines = errorLines;
+		this.linesAfter = linesAfter;
+		this.spill = spill;
+	}
+
+	/**
+	 * @return Spill file holding the rows the index refers to
+	 */
+	SpillFile getSpill() {
+		return spill;
+	}
+
+	/**
+	 * Answers a search from the index if it can be answered exactly
+	 * @param file The logfile
+	 * @param view The UserView holding the selected keywords, bounds and context settings
+	 * @return The results, or null if the file has to be read again
+	 */
+	Filtered filter(File file, UserView view) {
+		if (rows == null || !covers(file, view)) return null;
+		BitSet selected = view.selectedKeywordIds;
+		int[] kept = new int[rowCount];
+		int count = 0;
+		HashMap<Integer, Object[]> changed = new HashMap<Integer, Object[]>();
+		for (int row = 0; row < rowCount; row++) {
+			if (blockRows.get(row)) {
+				//A block is dropped when any arrow it was read with falls outside the bounds
+				double lowest = lowestDurations[row];
+				if (!Double.isNaN(lowest) && (lowest < view.lowerBound || highestDurations[row] > view.upperBound)) continue;
+				kept[count++] = row;
+				continue;
+			}
+			int first = -1;
+			for (int c = rowStart[row]; c < rowStart[row + 1]; c++) {
+				if (selected.get(candidateIds[c])) {
+					first = c;
+					break;
+				}
+			}
+			if (first < 0) continue;
+			if (first != rowStart[row]) {
+				//The line would now start a block, which reads the lines after it differently
+				if (blockCandidates.get(first)) return null;
+				Object[] entry = rows.get(row).clone();
+				int id = candidateIds[first];
+				entry[2] = keywordIndex.keywordOf(id);
+				String message = (entry[3] == null) ? "" : entry[3].toString();
+				entry[3] = message.substring(Math.min(messageOffsets[first], message.length()));
+				entry[4] = keywordIndex.getSolution(id);
+				changed.put(count, entry);
+			}
+			kept[count++] = row;
+		}
+		return new Filtered(Arrays.copyOf(kept, count), changed);
+	}
+
+	/**
+	 * @return True if the search is narrower than the one the index was made from
+	 */
+	private boolean covers(File file, UserView view) {
+		//A reloaded dictionary may give the keywords other ids
+		if (view.keywordIndex != keywordIndex) return false;
+		if (!path.equals(file.getAbsolutePath()) || fileLength != file.length() || lastModified != file.lastModified()) {
+			return false;
+		}
+		if (view.numLinesBefore != numLinesBefore || view.numLinesAfter != numLinesAfter) return false;
+		if (!charsetChoice.equals(view.logCharset)) return false;
+		if (view.lowerBound < lowerBound || view.upperBound > upperBound) return false;
+		BitSet extra = (BitSet) view.selectedKeywordIds.clone();
+		extra.andNot(searchedIds);
+		if (!extra.isEmpty()) return false;
+		//Unchecking a keyword that started blocks would let the lines inside them make entries
+		BitSet droppedBlocks = (BitSet) blockIds.clone();
+		droppedBlocks.andNot(view.selectedKeywordIds);
+		return droppedBlocks.isEmpty();
+	}
+
+	/**
+	 * @return Number of rows of the search the index was made from
+	 */
+	int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Results of a narrower search, as views over the results of the indexed one
+	 */
+	final class Filtered {
+		/**Rows of the indexed search that are kept, in order*/
+		private final int[] kept;
+		/**Rows whose keyword changed, by their new position*/
+		private final HashMap<Integer, Object[]> changed;
+		final List<Object[]> rows;
+		final List<ArrayList<String>> linesBefore;
+		final List<String> errorLines;
+		final Map<Integer, ArrayList<String>> linesAfter;
+
+		private Filtered(int[] kept, HashMap<Integer, Object[]> changed) {
+			this.kept = kept;
+			this.changed = changed;
+			rows = new AbstractList<Object[]>() {
+				@Override
+				public Object[] get(int index) {
+					Object[] entry = changed.get(index);
+					if (entry == null) entry = MatchIndex.this.rows.get(kept[index]).clone();
+					entry[0] = index + 1;
+					return entry;
+				}
+
+				@Override
+				public int size() {
+					return kept.length;
+				}
+			};
+			linesBefore = view(MatchIndex.this.linesBefore);
+			errorLines = view(MatchIndex.this.errorLines);
+			linesAfter = new AbstractMap<Integer, ArrayList<String>>() {
+				@Override
+				public ArrayList<String> get(Object key) {
+					if (!(key instanceof Integer)) return null;
+					int number = (Integer) key;
+					if (number < 1 || number > kept.length) return null;
+					return MatchIndex.this.linesAfter.get(kept[number - 1] + 1);
+				}
+
+				@Override
+				public boolean isEmpty() {
+					return MatchIndex.this.linesAfter.isEmpty();
+				}
+
+				@Override
+				public Set<Map.Entry<Integer, ArrayList<String>>> entrySet() {
+					return new AbstractSet<Map.Entry<Integer, ArrayList<String>>>() {
+						@Override
+						public Iterator<Map.Entry<Integer, ArrayList<String>>> iterator() {
+							return new Iterator<Map.Entry<Integer, ArrayList<String>>>() {
+								private int next = advance(1);
+
+								private int advance(int from) {
+									while (from <= kept.length && get(from) == null) from++;
+									return from;
+								}
+
+								@Override
+								public boolean hasNext() {
+									return next <= kept.length;
+								}
+
+								@Override
+								public Map.Entry<Integer, ArrayList<String>> next() {
+									if (!hasNext()) throw new NoSuchElementException();
+									int key = next;
+									next = advance(next + 1);
+									return new AbstractMap.SimpleImmutableEntry<Integer, ArrayList<String>>(key, get(key));
+								}
+							};
+						}
+
+						@Override
+						public int size() {
+							int size = 0;
+							for (Iterator<?> it = iterator(); it.hasNext(); it.next()) size++;
+							return size;
+						}
+					};
+				}
+			};
+		}
+
+		/**
+		 * @return The kept positions of a list that has one item per row, empty if the list is
+		 */
+		private <T> List<T> view(List<T> base) {
+			return new AbstractList<T>() {
+				@Override
+				public T get(int index) {
+					int row = kept[index];
+					return (row < base.size()) ? base.get(row) : null;
+				}
+
+				@Override
+				public int size() {
+					return base.isEmpty() ? 0 : kept.length;
+				}
+			};
+		}
+
+		/**
+		 * @return Number of rows whose keyword changed
+		 */
+		int getChangedCount() {
+			return changed.size();
+		}
+	}
+}
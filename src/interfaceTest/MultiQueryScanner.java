@@ -0,0 +1,555 @@
+/**
+ * @file MultiQueryScanner.java
+ * Runs several searches over a logfile in one pass. The keyword searches
+ * (checkbox selection and groups) are combined into one table from keyword id
+ * to the queries containing it, so each word of a line is looked up once for
+ * all of them; the words of the logic statements are combined into one
+ * TermMatcher, so each line is searched once for all of them. Every hit is
+ * then added to the results of each query it satisfies.
+ *
+ * DEADLOCK and Time critical arrow blocks span several lines. LogParser reads
+ * them by pulling more lines from the reader, which would hide those lines
+ * from the other queries, so here a block is assembled as the lines go past
+ * instead, shared by every query that started it on the same line. Lines
+ * inside a block are not matched again for the queries that own the block,
+ * the same as in a single search.
+ */
+
+package interfaceTest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+class MultiQueryScanner {
+	/**Ways a query can take part in a block*/
+	private static final int ENTRY = 0, AND = 1, SKIP = 2;
+	/**Results of feeding a line to a block*/
+	private static final int OPEN = 0, CLOSED = 1, CLOSED_BEFORE = 2, CHAINED = 3;
+
+	/**Gives the progress, time stamp helpers and result tables of a single search*/
+	private final LogParser parser;
+	private final UserView view;
+	private final List<SearchQuery> queries;
+	private final KeywordIndex keywordIndex;
+	/**Finds the words of every logic statement in a line*/
+	private final TermMatcher termMatcher = new TermMatcher();
+	/**For each keyword id, the indexes of the keyword queries that contain it*/
+	private int[][] queriesOfKeyword;
+	private int deadlockId, arrowId;
+	private int deadlockTerm = -1, arrowTerm = -1;
+	/**Block each query is currently inside of, null if none*/
+	private Block[] blockOf;
+	private final List<Block> blocks = new ArrayList<Block>();
+	/**Line number each query last had a hit on, so a line gives at most one entry per query*/
+	private long[] hitOnLine;
+	/**Queries whose block took the current line*/
+	private final BitSet busy = new BitSet();
+	/**Terms of the logic statements found in the current line*/
+	private final BitSet lineTerms = new BitSet();
+	private long lineNumber;
+	private final boolean considerLinesBefore, considerLinesAfter;
+	private final FixedStack<String> recentLines;
+	/**Lines before the current line, made once the first query needs them*/
+	private ArrayList<String> currentBefore;
+	/**Collects lines after the current line for the entries made on it*/
+	private PendingLines currentAfter;
+	private final List<PendingLines> pendingAfter = new ArrayList<PendingLines>();
+	private int totalHits;
+
+	/**
+	 * @param parser The LogParser of this search, used for progress and time stamps
+	 * @param view The UserView holding the keyword index and the preferences
+	 * @param queries The queries to run
+	 */
+	MultiQueryScanner(LogParser parser, UserView view, List<SearchQuery> queries) {
+		this.parser = parser;
+		this.view = view;
+		this.queries = queries;
+		for (SearchQuery query : queries) {
+			query.spillTo(parser.getSpill());
+		}
+		this.keywordIndex = parser.getKeywordIndex();
+		considerLinesBefore = view.numLinesBefore > 0;
+		considerLinesAfter = view.numLinesAfter > 0;
+		recentLines = new FixedStack<String>(view.numLinesBefore + 1);
+	}
+
+	/**
+	 * Reads the file once and fills the results of every query
+	 * @param file The logfile
+	 * @return The number of entries found over all queries
+	 * @throws IOException If there is a problem reading the file
+	 */
+	int scan(File file) throws IOException {
+		compile();
+		ParseEvents.FileOpen openEvent = new ParseEvents.FileOpen();
+		openEvent.begin();
+		BufferedReader logbr = parser.openLog(file);
+		try {
+			openEvent.path = file.getPath();
+			openEvent.fileSize = file.length();
+			openEvent.tab = LogParser.MULTI_QUERY;
+			openEvent.charset = parser.getCharset().name();
+			openEvent.commit();
+			String line;
+			while ((line = logbr.readLine()) != null) {
+				scanLine(line);
+			}
+			for (Block block : blocks) {
+				emit(block, block.message.toString());
+			}
+			blocks.clear();
+			for (PendingLines pending : pendingAfter) {
+				pending.store();
+			}
+			pendingAfter.clear();
+		} finally {
+			parser.closeLog(logbr);
+		}
+		return totalHits;
+	}
+
+	/**
+	 * Builds the combined keyword table and term matcher from the queries
+	 */
+	private void compile() {
+		int queryCount = queries.size();
+		blockOf = new Block[queryCount];
+		hitOnLine = new long[queryCount];
+		deadlockId = keywordIndex.idOf("DEADLOCK");
+		arrowId = keywordIndex.idOf("===>");
+
+		int[] counts = new int[keywordIndex.size()];
+		for (SearchQuery query : queries) {
+			if (query.isLogic()) {
+				query.compile(termMatcher);
+				continue;
+			}
+			BitSet ids = query.getKeywordIds();
+			for (int id = ids.nextSetBit(0); id >= 0 && id < counts.length; id = ids.nextSetBit(id + 1)) {
+				counts[id]++;
+			}
+		}
+		queriesOfKeyword = new int[counts.length][];
+		for (int q = 0; q < queryCount; q++) {
+			SearchQuery query = queries.get(q);
+			if (query.isLogic()) continue;
+			BitSet ids = query.getKeywordIds();
+			for (int id = ids.nextSetBit(0); id >= 0 && id < counts.length; id = ids.nextSetBit(id + 1)) {
+				if (queriesOfKeyword[id] == null) {
+					queriesOfKeyword[id] = new int[counts[id]];
+					counts[id] = 0;
+				}
+				queriesOfKeyword[id][counts[id]++] = q;
+			}
+		}
+		for (int term = 0; term < termMatcher.size(); term++) {
+			if (termMatcher.getTerm(term).equals("DEADLOCK")) deadlockTerm = term;
+			if (termMatcher.getTerm(term).equals("===>")) arrowTerm = term;
+		}
+	}
+
+	/**
+	 * Passes one line through the open blocks and then through every query
+	 * @param line A line of the logfile
+	 */
+	private void scanLine(String line) {
+		lineNumber++;
+		parser.updateProgress(line);
+		recentLines.push(line);
+		currentBefore = null;
+		currentAfter = null;
+		for (int i = pendingAfter.size() - 1; i >= 0; i--) {
+			if (pendingAfter.get(i).add(line)) {
+				pendingAfter.remove(i);
+			}
+		}
+		String[] words = line.split(" ");
+		if (termMatcher.size() > 0) {
+			termMatcher.match(line, lineTerms);
+		}
+
+		busy.clear();
+		for (int i = 0; i < blocks.size(); i++) {
+			Block block = blocks.get(i);
+			int status = block.feed(line, words);
+			if (status == OPEN) {
+				busy.or(block.members);
+				continue;
+			}
+			if (status == CHAINED) {
+				//Another Time critical arrow: the block so far becomes an entry and a new one starts here
+				emit(block, block.firstLineOfError);
+				Block chained = new Block(false, line, words, timeStampOf(words));
+				chained.members.or(block.members);
+				System.arraycopy(block.modes, 0, chained.modes, 0, block.modes.length);
+				for (int q = chained.members.nextSetBit(0); q >= 0; q = chained.members.nextSetBit(q + 1)) {
+					blockOf[q] = chained;
+				}
+				blocks.set(i, chained);
+				busy.or(chained.members);
+				continue;
+			}
+			emit(block, block.message.toString());
+			for (int q = block.members.nextSetBit(0); q >= 0; q = block.members.nextSetBit(q + 1)) {
+				blockOf[q] = null;
+			}
+			if (status == CLOSED) {
+				busy.or(block.members);
+			}
+			blocks.remove(i--);
+		}
+
+		String timeStamp = timeStampOf(words);
+		if (timeStamp != null && queriesOfKeyword.length > 0) {
+			matchKeywords(line, words, timeStamp);
+		}
+		if (termMatcher.size() > 0) {
+			matchLogic(line, words, timeStamp);
+		}
+	}
+
+	/**
+	 * Looks each word after the time stamp up once and hands it to every
+	 * keyword query that contains it and has no hit on this line yet
+	 */
+	private void matchKeywords(String line, String[] words, String timeStamp) {
+		boolean timeStampFound = false;
+		for (int i = 0; i < words.length; i++) {
+			String word = words[i];
+			if (!timeStampFound) {
+				if (word.length() != 19) continue;
+				timeStampFound = true;
+			}
+			int id = keywordIndex.idOf(word);
+			if (id < 0 || id >= queriesOfKeyword.length || queriesOfKeyword[id] == null) continue;
+			for (int q : queriesOfKeyword[id]) {
+				if (hitOnLine[q] == lineNumber || busy.get(q) || blockOf[q] != null) continue;
+				hitOnLine[q] = lineNumber;
+				if (id == deadlockId) {
+					join(q, true, line, words, timeStamp, ENTRY);
+				}
+				else if (id == arrowId && line.contains("Time critical")) {
+					join(q, false, line, words, timeStamp, ENTRY);
+				}
+				else {
+					StringBuilder message = new StringBuilder();
+					for (int j = i + 1; j < words.length; j++) {
+						message.append(words[j]).append(' ');
+					}
+					addEntry(queries.get(q), timeStamp, keywordIndex.keywordOf(id), message.toString(),
+							keywordIndex.getSolution(id), before(), line, after());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks every logic statement against the terms found in the line,
+	 * following the order of the cases in LogicEvaluator.addLines
+	 */
+	private void matchLogic(String line, String[] words, String timeStamp) {
+		boolean hasDeadlock = deadlockTerm >= 0 && lineTerms.get(deadlockTerm);
+		boolean hasArrow = arrowTerm >= 0 && lineTerms.get(arrowTerm);
+		for (int q = 0; q < queries.size(); q++) {
+			SearchQuery query = queries.get(q);
+			if (!query.isLogic() || busy.get(q) || blockOf[q] != null) continue;
+			//Blocks need a time stamp to find where they end
+			boolean canBlock = timeStamp != null;
+			if (canBlock && hasDeadlock && query.isAndNot("DEADLOCK")) {
+				join(q, true, line, words, timeStamp, SKIP);
+			}
+			else if (canBlock && hasArrow && query.isAndNot("===>")) {
+				join(q, false, line, words, timeStamp, SKIP);
+			}
+			else if (query.getOrTerm() >= 0 && lineTerms.get(query.getOrTerm())) {
+				if (canBlock && query.isOr("DEADLOCK")) {
+					join(q, true, line, words, timeStamp, ENTRY);
+				}
+				else if (canBlock && query.isOr("===>")) {
+					join(q, false, line, words, timeStamp, ENTRY);
+				}
+				else {
+					addLogicEntry(query, line, words);
+				}
+			}
+			else if (canBlock && hasDeadlock && query.isAnd("DEADLOCK")) {
+				join(q, true, line, words, timeStamp, AND);
+			}
+			else if (canBlock && hasArrow && query.isAnd("===>")) {
+				join(q, false, line, words, timeStamp, AND);
+			}
+			else if (query.matches(lineTerms)) {
+				addLogicEntry(query, line, words);
+			}
+		}
+	}
+
+	/**
+	 * Adds a query to the block of the given kind starting on this line,
+	 * starting the block if no other query has yet
+	 */
+	private void join(int q, boolean deadlock, String line, String[] words, String timeStamp, int mode) {
+		Block block = null;
+		for (Block open : blocks) {
+			if (open.startLine == lineNumber && open.deadlock == deadlock) {
+				block = open;
+				break;
+			}
+		}
+		if (block == null) {
+			block = new Block(deadlock, line, words, timeStamp);
+			blocks.add(block);
+		}
+		block.members.set(q);
+		block.modes[q] = mode;
+		blockOf[q] = block;
+	}
+
+	/**
+	 * Makes the entries of a finished block for the queries that want it
+	 * @param block The block
+	 * @param message The error message of the entries
+	 */
+	private void emit(Block block, String message) {
+		if (block.outsideTimeBounds) return;
+		PendingLines after = considerLinesAfter ? new PendingLines() : null;
+		String blockKeyword = block.deadlock ? "DEADLOCK" : "===>";
+		for (int q = block.members.nextSetBit(0); q >= 0; q = block.members.nextSetBit(q + 1)) {
+			SearchQuery query = queries.get(q);
+			int mode = block.modes[q];
+			if (mode == SKIP || (mode == AND && !query.matches(block.terms))) continue;
+			String keyword = query.isLogic() ? query.getFirstKeyword() : blockKeyword;
+			int id = keywordIndex.idOf(keyword);
+			addEntry(query, block.timeStamp, keyword, message, (id >= 0) ? keywordIndex.getSolution(id) : null,
+					block.before, block.firstLine, after);
+		}
+		if (after != null && !after.targets.isEmpty()) {
+			pendingAfter.add(after);
+		}
+	}
+
+	/**
+	 * Makes an entry for a logic statement from one line, as LogicEvaluator.makeEntry does:
+	 * the message starts after the U-code, or after DEADLOCK or ===> if the line has one
+	 */
+	private void addLogicEntry(SearchQuery query, String line, String[] words) {
+		String timeStamp = null;
+		boolean uCodeFound = false;
+		boolean deadlockLine = line.contains("DEADLOCK");
+		boolean arrowLine = !deadlockLine && line.contains("===>");
+		boolean started = !deadlockLine && !arrowLine;
+		StringBuilder message = new StringBuilder();
+		for (String word : words) {
+			if (timeStamp == null) {
+				if (word.length() == 19) timeStamp = word;
+			}
+			else if (!uCodeFound) {
+				uCodeFound = isUCode(word);
+			}
+			else if (!started) {
+				started = word.equals(deadlockLine ? "DEADLOCK" : "===>");
+			}
+			else {
+				message.append(word).append(' ');
+			}
+		}
+		int id = keywordIndex.idOf(query.getFirstKeyword());
+		addEntry(query, timeStamp, query.getFirstKeyword(), message.toString(),
+				(id >= 0) ? keywordIndex.getSolution(id) : null, before(), line, after());
+	}
+
+	/**
+	 * Adds an entry to the results of a query, with its lines before and after
+	 */
+	private void addEntry(SearchQuery query, String timeStamp, String keyword, String message, String solution,
+			ArrayList<String> linesBefore, String errorLine, PendingLines after) {
+		int number = query.rows.size() + 1;
+		query.rows.add(new Object[] {number, timeStamp, keyword, message.isEmpty() ? " " : message, solution});
+		totalHits++;
+		if (considerLinesBefore) {
+			query.linesBefore.add(linesBefore);
+			query.errorLines.add(errorLine);
+		}
+		if (after != null) {
+			after.targets.add(query);
+			after.numbers.add(number);
+		}
+	}
+
+	/**
+	 * @return The lines before the current line, shared by every entry made on it
+	 */
+	private ArrayList<String> before() {
+		if (currentBefore == null && considerLinesBefore) {
+			currentBefore = new ArrayList<String>(recentLines);
+			currentBefore.remove(currentBefore.size() - 1);
+		}
+		return currentBefore;
+	}
+
+	/**
+	 * @return The collector of lines after the current line, shared by every entry made on it
+	 */
+	private PendingLines after() {
+		if (!considerLinesAfter) return null;
+		if (currentAfter == null) {
+			currentAfter = new PendingLines();
+			pendingAfter.add(currentAfter);
+		}
+		return currentAfter;
+	}
+
+	private static String timeStampOf(String[] words) {
+		for (String word : words) {
+			if (word.length() == 19) return word;
+		}
+		return null;
+	}
+
+	private static boolean isUCode(String word) {
+		return word.length() > 2 && word.charAt(0) == 'U' && Character.isDigit(word.charAt(1));
+	}
+
+	/**
+	 * A DEADLOCK or Time critical arrow block being assembled. It is fed every
+	 * line after the one it started on, and follows the same rules as
+	 * LogParser.readDeadlockBlock and readArrowChain to find where it ends.
+	 */
+	private final class Block {
+		final boolean deadlock;
+		final long startLine;
+		final String timeStamp;
+		final String firstLine;
+		final ArrayList<String> before;
+		/**Queries taking part in the block, with how each one takes part*/
+		final BitSet members = new BitSet();
+		final int[] modes = new int[queries.size()];
+		/**Terms of the logic statements found anywhere in the block*/
+		final BitSet terms = new BitSet();
+		final StringBuilder message = new StringBuilder();
+		/**For arrows, the message of the first line alone, used when another arrow starts*/
+		String firstLineOfError = "";
+		/**Index in each line that arrow messages start at*/
+		int arrowIndex;
+		boolean outsideTimeBounds;
+
+		Block(boolean deadlock, String line, String[] words, String timeStamp) {
+			this.deadlock = deadlock;
+			this.startLine = lineNumber;
+			this.timeStamp = timeStamp;
+			this.firstLine = line;
+			this.before = before();
+			terms.or(lineTerms);
+			if (!deadlock) {
+				if (line.contains("Time critical") && !parser.compareTimeStamp(words)) {
+					outsideTimeBounds = true;
+				}
+				for (int i = 0; i < words.length; i++) {
+					if (words[i].equals("===>")) {
+						arrowIndex = i - 1;
+						for (int j = i + 1; j < words.length; j++) {
+							message.append(words[j]).append(' ');
+						}
+						break;
+					}
+				}
+				firstLineOfError = message.toString();
+			}
+		}
+
+		/**
+		 * @param line The next line of the logfile
+		 * @param words The line split by " "
+		 * @return OPEN if the block goes on, CLOSED if this line ended it, CLOSED_BEFORE
+		 * if it ended before this line, CHAINED if another Time critical arrow starts here
+		 */
+		int feed(String line, String[] words) {
+			return deadlock ? feedDeadlock(line, words) : feedArrow(line, words);
+		}
+
+		private int feedDeadlock(String line, String[] words) {
+			boolean timeStampFound = false;
+			boolean uCodeFound = false;
+			StringBuilder part = new StringBuilder();
+			for (String word : words) {
+				if (!timeStampFound && word.length() == 19) {
+					timeStampFound = true;
+					//A different time stamp means the first DEADLOCK was a single occurrence
+					if (parser.timeStampDifference(word, timeStamp)) {
+						message.setLength(0);
+						return CLOSED_BEFORE;
+					}
+				}
+				else if (timeStampFound && !uCodeFound) {
+					uCodeFound = isUCode(word);
+				}
+				else if (uCodeFound) {
+					if (word.equals("===>") && line.contains("Time critical") && !parser.compareTimeStamp(words)) {
+						outsideTimeBounds = true;
+					}
+					if (word.equals("DEADLOCK")) {
+						terms.or(lineTerms);
+						return CLOSED;
+					}
+					part.append(word).append(' ');
+				}
+			}
+			message.append(part).append('\n');
+			terms.or(lineTerms);
+			return OPEN;
+		}
+
+		private int feedArrow(String line, String[] words) {
+			if (line.contains("===>") && line.contains("Time critical")) {
+				return CHAINED;
+			}
+			terms.or(lineTerms);
+			if (arrowIndex < words.length) {
+				for (int i = Math.max(arrowIndex, 0); i < words.length; i++) {
+					message.append(words[i]).append(' ');
+				}
+			}
+			else {
+				message.append(line).append(' ');
+			}
+			if (line.contains("===>")) {
+				return CLOSED;
+			}
+			if (arrowIndex >= words.length) {
+				message.append('\n');
+			}
+			return OPEN;
+		}
+	}
+
+	/**
+	 * Collects the lines after a line with entries, then gives them to each of those entries
+	 */
+	private final class PendingLines {
+		final ArrayList<String> lines = new ArrayList<String>();
+		final List<SearchQuery> targets = new ArrayList<SearchQuery>();
+		final List<Integer> numbers = new ArrayList<Integer>();
+
+		/**
+		 * @param line The next line of the logfile
+		 * @return True once enough lines have been collected
+		 */
+		boolean add(String line) {
+			lines.add(line);
+			if (lines.size() < view.numLinesAfter) return false;
+			store();
+			return true;
+		}
+
+		void store() {
+			for (int i = 0; i < targets.size(); i++) {
+				targets.get(i).linesAfter.put(numbers.get(i), lines);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * @file PairCounts.java
+ * A sparse symmetric matrix of counts between pairs of small ints, such as
+ * U-code or keyword numbers. Only pairs that occurred take space: each is a
+ * long key, the two numbers packed smaller first, in an open addressing
+ * table kept at most half full so probes stay short.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+class PairCounts {
+	/**
+	 * Ranks a pair for top
+	 */
+	interface PairScore {
+		double score(int a, int b, int count);
+	}
+
+	private long[] keys = new long[1024];
+	private int[] counts = new int[1024];
+	private int size;
+
+	PairCounts() {
+		Arrays.fill(keys, -1);
+	}
+
+	/**
+	 * Adds one to the count of a pair, the same pair in either order
+	 */
+	void add(int a, int b) {
+		long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+		int slot = slotOf(key, keys);
+		if (keys[slot] == key) {
+			counts[slot]++;
+			return;
+		}
+		keys[slot] = key;
+		counts[slot] = 1;
+		size++;
+		if (size * 2 > keys.length) grow();
+	}
+
+	/**
+	 * @return Number of different pairs counted
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param n Number of pairs wanted
+	 * @param score How the pairs are ranked, higher first
+	 * @return The n highest ranked pairs as {smaller, larger, count}, highest first
+	 */
+	List<int[]> top(int n, PairScore score) {
+		PriorityQueue<int[]> top = new PriorityQueue<int[]>(Math.max(n, 1) + 1,
+				Comparator.comparingDouble((int[] pair) -> score.score(pair[0], pair[1], pair[2])));
+		for (int slot = 0; slot < keys.length && n > 0; slot++) {
+			if (keys[slot] < 0) continue;
+			int[] pair = {(int) (keys[slot] >>> 32), (int) keys[slot], counts[slot]};
+			if (top.size() < n) top.add(pair);
+			else if (score.score(pair[0], pair[1], pair[2]) > score.score(top.peek()[0], top.peek()[1], top.peek()[2])) {
+				top.poll();
+				top.add(pair);
+			}
+		}
+		List<int[]> pairs = new ArrayList<int[]>(top.size());
+		while (!top.isEmpty()) {
+			pairs.add(top.poll());
+		}
+		Collections.reverse(pairs);
+		return pairs;
+	}
+
+	/**
+	 * @return The slot holding the key, or the empty slot where it would go
+	 */
+	private static int slotOf(long key, long[] keys) {
+		int mask = keys.length - 1;
+		int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+		while (keys[slot] >= 0 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new long[oldKeys.length * 2];
+		counts = new int[oldKeys.length * 2];
+		Arrays.fill(keys, -1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] < 0) continue;
+			int slot = slotOf(oldKeys[i], keys);
+			keys[slot] = oldKeys[i];
+			counts[slot] = oldCounts[i];
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * @file ParseEvents.java
+ * Java Flight Recorder events for the phases of a parse. When a recording
+ * is running, each event shows up under the "LogReader" category so slow
+ * parses can be lined up against GC pauses and I/O stalls. Positions are
+ * counted the same way as the progress bar: the characters of the lines
+ * read plus one for each line break. They are not byte offsets, and drift
+ * from them in files with CRLF line breaks or characters of several bytes.
+ * Requires a JVM with the jdk.jfr module (8u262 or later).
+ */
+
+package interfaceTest;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+final class ParseEvents {
+
+	private ParseEvents(){
+		//Do nothing
+	}
+
+	/**Emitted when the logfile is opened for parsing*/
+	@Name("interfaceTest.FileOpen")
+	@Label("Log File Open")
+	@Category({"LogReader", "Parse"})
+	@Description("Opening the logfile before the first line is read")
+	@StackTrace(false)
+	static class FileOpen extends Event {
+		@Label("Path")
+		String path;
+		@Label("File Size")
+		@DataAmount
+		long fileSize;
+		@Label("Selected Tab")
+		int tab;
+		@Label("Encoding")
+		String charset;
+	}
+
+	/**Emitted every time the progress bar advances by one percent*/
+	@Name("interfaceTest.ChunkScanned")
+	@Label("Chunk Scanned")
+	@Category({"LogReader", "Parse"})
+	@Description("A one percent slice of the logfile was scanned")
+	@StackTrace(false)
+	static class ChunkScanned extends Event {
+		@Label("Start Position")
+		@Description("Approximate character position in the logfile, not a byte offset")
+		long startPosition;
+		@Label("End Position")
+		@Description("Approximate character position in the logfile, not a byte offset")
+		long endPosition;
+		@Label("Lines")
+		long lines;
+		@Label("Errors Found")
+		int hits;
+	}
+
+	/**Emitted when a DEADLOCK block has been read to its end*/
+	@Name("interfaceTest.DeadlockBlock")
+	@Label("DEADLOCK Block Assembled")
+	@Category({"LogReader", "Parse"})
+	@Description("Lines between a DEADLOCK and its matching DEADLOCK were assembled")
+	@StackTrace(false)
+	static class DeadlockBlock extends Event {
+		@Label("Start Position")
+		@Description("Approximate character position in the logfile, not a byte offset")
+		long startPosition;
+		@Label("End Position")
+		@Description("Approximate character position in the logfile, not a byte offset")
+		long endPosition;
+		@Label("Lines")
+		long lines;
+		@Label("Entry Created")
+		boolean entryCreated;
+	}
+
+	/**Emitted when an arrow chain (===>) has been read to its closing arrow*/
+	@Name("interfaceTest.ArrowChain")
+	@Label("Arrow Chain Assembled")
+	@Category({"LogReader", "Parse"})
+	@Description("A Time critical arrow error and any nested arrows were assembled")
+	@StackTrace(false)
+	static class ArrowChain extends Event {
+		@Label("Start Position")
+		@Description("Approximate character position in the logfile, not a byte offset")
+		long startPosition;
+		@Label("End Position")
+		@Description("Approximate character position in the logfile, not a byte offset")
+		long endPosition;
+		@Label("Lines")
+		long lines;
+		@Label("Depth")
+		@Description("Number of Time critical arrows chained into this block")
+		int depth;
+		@Label("Entry Created")
+		boolean entryCreated;
+	}
+
+	/**Emitted when the result JTable is built after a parse*/
+	@Name("interfaceTest.TableBuild")
+	@Label("Result Table Build")
+	@Category({"LogReader", "UI"})
+	@StackTrace(false)
+	static class TableBuild extends Event {
+		@Label("Rows")
+		int rows;
+	}
+
+	/**Emitted when the results are exported to a file*/
+	@Name("interfaceTest.Export")
+	@Label("Result Export")
+	@Category({"LogReader", "Export"})
+	@StackTrace(false)
+	static class Export extends Event {
+		@Label("Path")
+		String path;
+		@Label("Format")
+		String format;
+		@Label("Rows")
+		int rows;
+		@Label("Bytes Written")
+		@DataAmount
+		long bytes;
+	}
+
+	/**Emitted when a page of results is moved to disk to stay within the memory budget*/
+	@Name("interfaceTest.ResultSpill")
+	@Label("Result Page Spilled")
+	@Category({"LogReader", "Parse"})
+	@StackTrace(false)
+	static class ResultSpill extends Event {
+		@Label("Rows")
+		int rows;
+		@Label("Bytes Written")
+		@DataAmount
+		long bytes;
+	}
+
+	/**Emitted when a narrower keyword search is answered from the index of the last one*/
+	@Name("interfaceTest.Refilter")
+	@Label("Results Re-filtered")
+	@Category({"LogReader", "UI"})
+	@StackTrace(false)
+	static class Refilter extends Event {
+		@Label("Indexed Rows")
+		int indexedRows;
+		@Label("Rows Kept")
+		int keptRows;
+		@Label("Rows With A New Keyword")
+		int changedRows;
+	}
+
+	/**Emitted when the logfile is closed, with how well reading and parsing kept up with each other*/
+	@Name("interfaceTest.PipelineSummary")
+	@Label("Parse Pipeline Summary")
+	@Category({"LogReader", "Parse"})
+	@Description("Occupancy of the read-ahead buffers between the reader thread and the parser")
+	@StackTrace(false)
+	static class PipelineSummary extends Event {
+		@Label("Bytes Read")
+		@DataAmount
+		long bytesRead;
+		@Label("Buffers")
+		int buffers;
+		@Label("Average Filled Buffers")
+		double averageFilled;
+		@Label("Disk Read Time (ms)")
+		long readMillis;
+		@Label("Parser Wait (ms)")
+		long parserWaitMillis;
+		@Label("Reader Wait (ms)")
+		long readerWaitMillis;
+		@Label("Bottleneck")
+		String bottleneck;
+		@Label("Lines Cut")
+		long truncatedLines;
+		@Label("Lines With Binary Data")
+		long binaryLines;
+	}
+}
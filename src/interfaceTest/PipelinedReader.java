@@ -0,0 +1,305 @@
+/**
+ * @file PipelinedReader.java
+ * Reads the logfile on its own thread so reading from disk overlaps with
+ * parsing. The reader thread fills byte buffers taken from a fixed pool and
+ * hands them to the parser through a RingBuffer; the parser decodes them and
+ * gives each buffer back to the pool once it is used up. When the parser
+ * falls behind, every buffer ends up full and the reader thread waits for
+ * one to come back, so memory never grows past the pool.
+ *
+ * Files in ISO-8859-1 (which includes plain ASCII) skip the decoder: each
+ * byte is widened to a char directly, so the lines built from them are
+ * stored as compact Latin-1 Strings. Other encodings go through a
+ * CharsetDecoder, which keeps the bytes of a character split across two
+ * buffers until the next buffer completes it.
+ *
+ * Comparing how long each side waited shows what limits a run: if the parser
+ * mostly waits for data the run is I/O-bound, if the reader thread mostly
+ * waits for a free buffer the run is CPU-bound.
+ */
+
+package interfaceTest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+class PipelinedReader extends Reader {
+	/**Room left at the start of each buffer for bytes of a character split across two buffers*/
+	private static final int HEADROOM = 16;
+
+	/**Buffers filled by the reader thread, waiting to be parsed*/
+	private final RingBuffer<Chunk> filled;
+	/**Buffers ready to be filled again*/
+	private final RingBuffer<Chunk> free;
+	private final InputStream in;
+	private final Thread readerThread;
+	/**Decodes the bytes, null for single byte encodings which are widened directly*/
+	private final CharsetDecoder decoder;
+	/**True until the first character is read, to drop a byte order mark*/
+	private boolean atStart = true;
+	/**The buffer being decoded, null before the first one*/
+	private Chunk current;
+	private ByteBuffer bytes;
+	private boolean endOfInput;
+	private boolean flushed;
+	/**Time the reader thread spent inside InputStream.read*/
+	private volatile long readNanos;
+	private volatile long bytesRead;
+	private final long startTime = System.nanoTime();
+
+	/**
+	 * Starts reading the stream, with the pool size given by the settings
+	 * pipeline.buffers and pipeline.bufferKB
+	 * @param in The logfile
+	 * @param charset The encoding of the logfile
+	 */
+	PipelinedReader(InputStream in, Charset charset) {
+		this(in, charset, AppConfig.getInt("pipeline.buffers", 8), AppConfig.getInt("pipeline.bufferKB", 64) * 1024);
+	}
+
+	/**
+	 * Starts reading the stream
+	 * @param in The logfile
+	 * @param charset The encoding of the logfile
+	 * @param bufferCount Number of buffers in the pool
+	 * @param bufferSize Size of each buffer in bytes
+	 */
+	PipelinedReader(InputStream in, Charset charset, int bufferCount, int bufferSize) {
+		this.in = in;
+		bufferCount = Math.max(bufferCount, 2);
+		filled = new RingBuffer<Chunk>(bufferCount + 1);
+		free = new RingBuffer<Chunk>(bufferCount);
+		for (int i = 0; i < bufferCount; i++) {
+			try {
+				free.put(new Chunk(new byte[HEADROOM + Math.max(bufferSize, 1024)]));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		decoder = LogCharset.isSingleByte(charset) ? null : charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		readerThread = new Thread(this::fill, "Logfile reader");
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+	/**
+	 * Body of the reader thread: fills free buffers until the end of the stream
+	 */
+	private void fill() {
+		try {
+			while (true) {
+				Chunk chunk = free.take();
+				long start = System.nanoTime();
+				int length;
+				try {
+					length = in.read(chunk.data, HEADROOM, chunk.data.length - HEADROOM);
+				} catch (IOException e) {
+					filled.put(new Chunk(e));
+					return;
+				}
+				readNanos += System.nanoTime() - start;
+				if (length < 0) {
+					filled.put(new Chunk((byte[]) null));
+					return;
+				}
+				bytesRead += length;
+				chunk.length = length;
+				filled.put(chunk);
+			}
+		} catch (InterruptedException e) {
+			//Closed while waiting, nothing more to read
+		}
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0) return 0;
+		int count = (decoder == null) ? widen(cbuf, off, len) : decode(cbuf, off, len);
+		if (atStart && count > 0) {
+			atStart = false;
+			if (cbuf[off] == '\uFEFF') {
+				//Byte order mark, not part of the first line
+				System.arraycopy(cbuf, off + 1, cbuf, off, count - 1);
+				return (count == 1) ? read(cbuf, off, len) : count - 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Copies bytes of a single byte encoding straight into chars
+	 */
+	private int widen(char[] cbuf, int off, int len) throws IOException {
+		while (bytes == null || !bytes.hasRemaining()) {
+			if (endOfInput) return -1;
+			nextChunk();
+		}
+		byte[] data = bytes.array();
+		int start = bytes.position();
+		int count = Math.min(len, bytes.remaining());
+		for (int i = 0; i < count; i++) {
+			cbuf[off + i] = (char) (data[start + i] & 0xFF);
+		}
+		bytes.position(start + count);
+		return count;
+	}
+
+	/**
+	 * Decodes bytes of a multibyte encoding into chars
+	 */
+	private int decode(char[] cbuf, int off, int len) throws IOException {
+		CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		while (out.position() == off) {
+			if (bytes == null || !bytes.hasRemaining() || endOfInput) {
+				if (endOfInput) {
+					if (!flushed) {
+						decoder.decode((bytes == null) ? ByteBuffer.allocate(0) : bytes, out, true);
+						decoder.flush(out);
+						flushed = true;
+					}
+					return (out.position() == off) ? -1 : out.position() - off;
+				}
+				nextChunk();
+				continue;
+			}
+			CoderResult result = decoder.decode(bytes, out, false);
+			if (result.isUnderflow() && bytes.hasRemaining() && out.position() == off) {
+				//Only part of a character is left, it is finished by the next buffer
+				nextChunk();
+			}
+		}
+		return out.position() - off;
+	}
+
+	/**
+	 * Gives the used buffer back to the pool and takes the next filled one,
+	 * moving any unfinished character to the front of it
+	 */
+	private void nextChunk() throws IOException {
+		Chunk next;
+		try {
+			next = filled.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading the logfile", e);
+		}
+		if (next.error != null) {
+			throw next.error;
+		}
+		int leftover = (bytes == null) ? 0 : bytes.remaining();
+		if (next.data == null) {
+			endOfInput = true;
+			return;
+		}
+		int start = HEADROOM - leftover;
+		if (leftover > 0) {
+			bytes.get(next.data, start, leftover);
+		}
+		if (current != null) {
+			try {
+				free.put(current);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		current = next;
+		bytes = ByteBuffer.wrap(next.data, start, leftover + next.length);
+	}
+
+	@Override
+	public void close() throws IOException {
+		readerThread.interrupt();
+		in.close();
+	}
+
+	/**
+	 * @return Number of buffers holding data the parser has not reached yet
+	 */
+	int getFilledBuffers() {
+		return filled.size();
+	}
+
+	/**
+	 * @return Number of buffers in the pool
+	 */
+	int getBufferCount() {
+		return free.capacity();
+	}
+
+	/**
+	 * @return Average number of filled buffers waiting for the parser
+	 */
+	double getAverageFilled() {
+		return filled.getAverageOccupancy();
+	}
+
+	/**
+	 * @return Time the parser spent waiting for the disk, in nanoseconds
+	 */
+	long getParserWaitNanos() {
+		return filled.getTakeWaitNanos();
+	}
+
+	/**
+	 * @return Time the reader thread spent waiting for the parser to give back a buffer, in nanoseconds
+	 */
+	long getReaderWaitNanos() {
+		return free.getTakeWaitNanos();
+	}
+
+	/**
+	 * @return Time the reader thread spent reading from the disk, in nanoseconds
+	 */
+	long getReadNanos() {
+		return readNanos;
+	}
+
+	long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * @return What is limiting the run so far, judged by which side waited longer
+	 */
+	String getBottleneck() {
+		return (getParserWaitNanos() > getReaderWaitNanos()) ? "I/O-bound" : "CPU-bound";
+	}
+
+	/**
+	 * @return A one line summary of the stage occupancy for the progress dialog
+	 */
+	String describe() {
+		long elapsed = Math.max(System.nanoTime() - startTime, 1);
+		return String.format("Read-ahead %d/%d buffers, parser waited %d%%, reader waited %d%% (%s)",
+				getFilledBuffers(), getBufferCount(), getParserWaitNanos() * 100 / elapsed,
+				getReaderWaitNanos() * 100 / elapsed, getBottleneck());
+	}
+
+	/**
+	 * A buffer of the pool, or the end of the stream when data is null
+	 */
+	private static final class Chunk {
+		final byte[] data;
+		final IOException error;
+		int length;
+
+		Chunk(byte[] data) {
+			this.data = data;
+			this.error = null;
+		}
+
+		Chunk(IOException error) {
+			this.data = null;
+			this.error = error;
+		}
+	}
+}
@@ -16,6 +16,8 @@ import java.awt.event.WindowEvent;
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -27,6 +29,7 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.BoxLayout;
 import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
 import java.awt.Component;
 import java.awt.Dimension;
 
@@ -44,6 +47,18 @@ public class ProgressDialog extends JDialog {
 	/**A button that allows the user to export the results to a csv file*/
 	private JButton btnExport;
 	private JLabel lblBottom;
+	/**Opens the durations of the Time critical arrows found, shown when there were any*/
+	private JButton btnLatency;
+	/**Opens the DEADLOCK blocks found and the U-codes that deadlock together, shown when there were any*/
+	private JButton btnDeadlocks;
+	/**Opens the approximate top keywords and distinct counts, shown when there were any entries*/
+	private JButton btnSummary;
+	/**Opens the pairs of keywords that fired close together, shown when there were any*/
+	private JButton btnCooccurrence;
+	/**Opens the chart of entries over time, shown when any entries had a timestamp*/
+	private JButton btnTimeline;
+	/**The UserView that is associated with this object*/
+	private UserView view;
 	
 	/**
 	 * Contains a progress bar that allows the user to follow the parsing progress
@@ -51,6 +66,7 @@ public class ProgressDialog extends JDialog {
 	 * @param view The UserView that is associated with this object
 	 */
 	public ProgressDialog(File file, UserView view) {
+		this.view = view;
 		prepareGUI(file, view);
 	}
 
@@ -64,20 +80,106 @@ public class ProgressDialog extends JDialog {
 		lblTop.setText("Parsing through file..." + i + "% complete");
 	}
 	
+	/**
+	 * Shows how full the read-ahead buffers are while the file is parsed,
+	 * which tells whether the disk or the parser is the slower side
+	 * @param status Summary given by PipelinedReader.describe
+	 */
+	void updatePipeline(String status){
+		lblBottom.setText(status);
+	}
+	
 	/**
 	 * Called when the parsing process has been completed. The progress 
 	 * bar value is set to 100, the JDialog displays that the parsing 
 	 * process has finished, and also displays the number of errors that
 	 * were found. The export button also becomes visible so that
-	 * the user can export the results to a CSV file. 
+	 * the user can export the results to a CSV file. If Time critical arrows
+	 * or DEADLOCK blocks were found, their statistics can be opened as well.
 	 * @param numErrors The number of errors found during the parsing process
 	 */
 	void doneParse(int numErrors){
 		progressBar.setValue(100);
 		lblTop.setText("Parsing through file... done!");
 		lblBottom.setText("Number of errors found: " + numErrors); 
+		KeywordAnomalies anomalies = view.keywordAnomalies;
+		if (anomalies != null && !anomalies.getAnomalies().isEmpty()) {
+			lblBottom.setText(lblBottom.getText() + ", " + anomalies.getAnomalies().size() + " bursts highlighted");
+		}
 		btnExport.setVisible(true);
 		btnExit.setVisible(true);
+		ArrowLatency latency = view.arrowLatency;
+		if (latency != null && latency.getCount() > 0) {
+			btnLatency.setToolTipText(latency.describe());
+			btnLatency.setVisible(true);
+		}
+		DeadlockGraph deadlocks = view.deadlockGraph;
+		if (deadlocks != null && deadlocks.getBlockCount() > 0) {
+			btnDeadlocks.setToolTipText(deadlocks.describe());
+			btnDeadlocks.setVisible(true);
+		}
+		ScanSketches sketches = view.scanSketches;
+		if (sketches != null && sketches.getTotal() > 0) {
+			btnSummary.setVisible(true);
+		}
+		KeywordCooccurrence cooccurrence = view.cooccurrence;
+		if (cooccurrence != null && cooccurrence.getPairCount() > 0) {
+			btnCooccurrence.setVisible(true);
+		}
+		TimelinePyramid timeline = view.timeline;
+		if (timeline != null && timeline.getCount() > 0) {
+			btnTimeline.setVisible(true);
+		}
+	}
+	
+	/**
+	 * Writes the results to the given file on a background thread so the 
+	 * interface stays responsive, reusing the progress bar to show how many
+	 * of the rows have been written. 
+	 * @param exporter Writes the results in the format the user chose
+	 * @param exportFile The file chosen by the user
+	 */
+	void exportResults(ResultExporter exporter, File exportFile){
+		btnExport.setEnabled(false);
+		btnExit.setEnabled(false);
+		updateExportProgress(0);
+		SwingWorker<Integer, Integer> worker = new SwingWorker<Integer, Integer>() {
+			@Override
+			protected Integer doInBackground() throws Exception {
+				return exporter.writeTo(exportFile, percent -> publish(percent));
+			}
+			
+			@Override
+			protected void process(List<Integer> chunks) {
+				updateExportProgress(chunks.get(chunks.size() - 1));
+			}
+			
+			@Override
+			protected void done() {
+				btnExport.setEnabled(true);
+				btnExit.setEnabled(true);
+				try {
+					int rows = get();
+					progressBar.setValue(100);
+					lblTop.setText("Exported " + rows + " rows as " + exporter.getFormatName());
+				} catch (InterruptedException | ExecutionException e) {
+					e.printStackTrace();
+					lblTop.setText("Export failed");
+					JOptionPane.showMessageDialog(ProgressDialog.this, 
+							"Could not export to " + exportFile.getName() + ": " + e.getCause());
+				}
+			}
+		};
+		worker.execute();
+	}
+	
+	/**
+	 * Shows the export progress on the progress bar
+	 * @param i The percent of rows that have been written
+	 */
+	private void updateExportProgress(int i){
+		progressBar.setValue(i);
+		lblTop.setText("Exporting results..." + i + "% complete");
 	}
 	
 	/**
@@ -87,7 +189,7 @@ public class ProgressDialog extends JDialog {
 	 */
 	void prepareGUI(File file, UserView view){
 		//this.setModal(true);
-		setBounds(200, 200, 300, 200);
+		setBounds(200, 200, 300, 360);
 		setLocationRelativeTo(null);
 	
 		getContentPane().add(pnlMain, BorderLayout.CENTER);
@@ -150,23 +252,91 @@ public class ProgressDialog extends JDialog {
 			chooser.setSelectedFile(new File("Error_Log_" + timeStamp + ".csv"));
 		    FileNameExtensionFilter filter = new FileNameExtensionFilter(
                     "CSV files (*csv)", "csv");
+		    FileNameExtensionFilter gzipFilter = new FileNameExtensionFilter(
+		    		"Compressed CSV files (*csv.gz)", "gz");
+		    FileNameExtensionFilter jsonFilter = new FileNameExtensionFilter(
+		    		"JSON Lines files (*jsonl)", "jsonl");
+		    FileNameExtensionFilter columnarFilter = new FileNameExtensionFilter(
+		    		"Columnar binary files (*lrc)", "lrc");
+		    chooser.addChoosableFileFilter(gzipFilter);
+		    chooser.addChoosableFileFilter(jsonFilter);
+		    chooser.addChoosableFileFilter(columnarFilter);
 		    chooser.setFileFilter(filter);
 		    chooser.setAcceptAllFileFilterUsed(false);
+		    //Keeps the suggested file name's extension in line with the chosen format
+		    chooser.addPropertyChangeListener(JFileChooser.FILE_FILTER_CHANGED_PROPERTY, event -> {
+		    	Object newFilter = event.getNewValue();
+		    	if (newFilter instanceof FileNameExtensionFilter) {
+		    		String extension = (newFilter == gzipFilter) ? "csv.gz" 
+		    				: ((FileNameExtensionFilter) newFilter).getExtensions()[0];
+		    		chooser.setSelectedFile(new File("Error_Log_" + timeStamp + "." + extension));
+		    	}
+		    });
 		    int returnVal = chooser.showSaveDialog(getParent());
 		    if(returnVal == JFileChooser.APPROVE_OPTION) {
-		    	try {
-		    		CSVFileWriter CSVWriter = new CSVFileWriter(view);
-		    		CSVWriter.writeTo(chooser.getSelectedFile().getName());
-		    		
-				} catch (Exception e1) {
-					e1.printStackTrace();
-				}
+		    	File exportFile = chooser.getSelectedFile();
+		    	ResultExporter exporter;
+		    	if (chooser.getFileFilter() == jsonFilter) {
+		    		exporter = new JsonLinesWriter(view);
+		    	}
+		    	else if (chooser.getFileFilter() == columnarFilter) {
+		    		exporter = new ColumnarFileWriter(view);
+		    	}
+		    	else {
+		    		if (chooser.getFileFilter() == gzipFilter && !CSVFileWriter.isGzip(exportFile)) {
+		    			exportFile = new File(exportFile.getPath() + ".gz");
+		    		}
+		    		exporter = new CSVFileWriter(view);
+		    	}
+		    	exportResults(exporter, exportFile);
 		    }
 		});
 		btnExport.setAlignmentX(Component.CENTER_ALIGNMENT);
 		btnExport.setVisible(false);
 		pnlMain.add(btnExport);
 		
+		pnlMain.add(Box.createRigidArea(new Dimension(0, 10)));
+		
+		btnLatency = new JButton("Arrow Latency");
+		btnLatency.addActionListener(e -> {
+			new LatencyDialog(view.arrowLatency);
+		});
+		btnLatency.setAlignmentX(Component.CENTER_ALIGNMENT);
+		btnLatency.setVisible(false);
+		pnlMain.add(btnLatency);
+		
+		btnDeadlocks = new JButton("Deadlocks");
+		btnDeadlocks.addActionListener(e -> {
+			new DeadlockDialog(view.deadlockGraph);
+		});
+		btnDeadlocks.setAlignmentX(Component.CENTER_ALIGNMENT);
+		btnDeadlocks.setVisible(false);
+		pnlMain.add(btnDeadlocks);
+		
+		btnSummary = new JButton("Summary");
+		btnSummary.addActionListener(e -> {
+			new SketchDialog(view.scanSketches, "Summary of " + file.getName());
+		});
+		btnSummary.setAlignmentX(Component.CENTER_ALIGNMENT);
+		btnSummary.setVisible(false);
+		pnlMain.add(btnSummary);
+		
+		btnCooccurrence = new JButton("Fired Together");
+		btnCooccurrence.addActionListener(e -> {
+			new CooccurrenceDialog(view.cooccurrence);
+		});
+		btnCooccurrence.setAlignmentX(Component.CENTER_ALIGNMENT);
+		btnCooccurrence.setVisible(false);
+		pnlMain.add(btnCooccurrence);
+		
+		btnTimeline = new JButton("Timeline");
+		btnTimeline.addActionListener(e -> {
+			new TimelineDialog(view.timeline, view);
+		});
+		btnTimeline.setAlignmentX(Component.CENTER_ALIGNMENT);
+		btnTimeline.setVisible(false);
+		pnlMain.add(btnTimeline);
+		
 		this.addWindowListener(new WindowAdapter(){
 			public void windowClosing(WindowEvent e){
 				view.btnSubmit.setEnabled(true);
@@ -0,0 +1,29 @@
+/**
+ * @file ResultExporter.java
+ * Common interface for the classes that export the results of a parse
+ * to a file, so that ProgressDialog can offer every format in the same way.
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.IntConsumer;
+
+interface ResultExporter {
+
+	/**
+	 * Writes every result row to the file in a single pass. Meant to be
+	 * called off the EDT.
+	 * @param file The file to write to
+	 * @param progress Receives the percent of rows written, may be null
+	 * @return The number of rows written
+	 * @throws IOException If there is a problem writing to the file
+	 */
+	int writeTo(File file, IntConsumer progress) throws IOException;
+
+	/**
+	 * @return The name of the format, shown when the export is finished
+	 */
+	String getFormatName();
+}
@@ -0,0 +1,55 @@
+/**
+ * @file ResultTableModel.java
+ * Table model that reads the results straight from the list LogParser
+ * filled, instead of copying every row into the table as DefaultTableModel
+ * does. The table only asks for the rows on screen, so results that have
+ * been spilled to disk are read back a page at a time as the user scrolls.
+ */
+
+package interfaceTest;
+
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+@SuppressWarnings("serial")
+public class ResultTableModel extends AbstractTableModel {
+	private final List<Object[]> rows;
+	private final String[] headers;
+
+	/**
+	 * @param rows The entries, in the layout of LogParser.errorData
+	 * @param headers Names of the columns
+	 */
+	ResultTableModel(List<Object[]> rows, String[] headers) {
+		this.rows = rows;
+		this.headers = headers;
+	}
+
+	@Override
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return headers.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return headers[column];
+	}
+
+	@Override
+	public Object getValueAt(int row, int column) {
+		Object[] entry = rows.get(row);
+		return (column < entry.length) ? entry[column] : null;
+	}
+
+	@Override
+	public boolean isCellEditable(int row, int column) {
+		//all cells false
+		return false;
+	}
+}
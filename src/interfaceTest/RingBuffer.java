@@ -0,0 +1,132 @@
+/**
+ * @file RingBuffer.java
+ * A bounded queue over a fixed array, connecting two stages of the parse
+ * pipeline. put blocks while the buffer is full and take blocks while it is
+ * empty, so a fast stage cannot run ahead of a slow one and memory stays
+ * bounded. The buffer records how long each side spent waiting and how full
+ * it was on average, which shows which stage is holding the other back.
+ */
+
+package interfaceTest;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+class RingBuffer<T> {
+	private final Object[] items;
+	/**Index of the oldest item*/
+	private int head;
+	private int count;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	/**Time put spent waiting for space*/
+	private long putWaitNanos;
+	/**Time take spent waiting for an item*/
+	private long takeWaitNanos;
+	private long puts;
+	/**Sum of the number of items held right after each put, for the average occupancy*/
+	private long occupancySum;
+
+	/**
+	 * @param capacity The most items the buffer holds
+	 */
+	RingBuffer(int capacity) {
+		items = new Object[capacity];
+	}
+
+	/**
+	 * Adds an item, waiting while the buffer is full
+	 * @param item The item
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	void put(T item) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			if (count == items.length) {
+				long start = System.nanoTime();
+				while (count == items.length) {
+					notFull.await();
+				}
+				putWaitNanos += System.nanoTime() - start;
+			}
+			items[(head + count) % items.length] = item;
+			count++;
+			puts++;
+			occupancySum += count;
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the oldest item, waiting while the buffer is empty
+	 * @return The item
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	@SuppressWarnings("unchecked")
+	T take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			if (count == 0) {
+				long start = System.nanoTime();
+				while (count == 0) {
+					notEmpty.await();
+				}
+				takeWaitNanos += System.nanoTime() - start;
+			}
+			T item = (T) items[head];
+			items[head] = null;
+			head = (head + 1) % items.length;
+			count--;
+			notFull.signal();
+			return item;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int capacity() {
+		return items.length;
+	}
+
+	long getPutWaitNanos() {
+		lock.lock();
+		try {
+			return putWaitNanos;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	long getTakeWaitNanos() {
+		lock.lock();
+		try {
+			return takeWaitNanos;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The average number of items held, sampled at each put
+	 */
+	double getAverageOccupancy() {
+		lock.lock();
+		try {
+			return (puts == 0) ? 0 : (double) occupancySum / puts;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * @file ScanSketches.java
+ * Approximate summaries kept while a logfile is scanned, in the same memory
+ * however large the file: the most frequent keywords and message signatures
+ * (HeavyHitters, the top sketch.topK, default 50), and the number of
+ * different U-codes and signatures (HyperLogLog). A signature is the
+ * keyword followed by the message with numbers and ids masked, as in
+ * LogComparison. The counts are at most sketch.epsilon of the total over
+ * (default 0.0002) except with probability sketch.delta (default 0.001),
+ * and the distinct counts have a standard error of 1.04 / sqrt(2^
+ * sketch.precision) (default 14, 0.8%).
+ *
+ * Summaries made with the same settings can be merged, e.g. those of files
+ * read on different threads, and give the same answers as one summary of
+ * everything.
+ */
+
+package interfaceTest;
+
+import java.util.List;
+
+class ScanSketches {
+	static final String[] HEADERS = {"Item", "Estimated Hits", "At Least"};
+
+	private final HeavyHitters keywords;
+	private final HeavyHitters signatures;
+	private final HyperLogLog uCodes;
+	private final HyperLogLog distinctSignatures;
+	private final int signatureLength;
+	/**Reused to build the signature of each entry*/
+	private final StringBuilder signature = new StringBuilder();
+
+	/**
+	 * Uses the sketch.* settings
+	 */
+	ScanSketches() {
+		int topK = AppConfig.getInt("sketch.topK", 50);
+		double epsilon = AppConfig.getDouble("sketch.epsilon", 0.0002);
+		double delta = AppConfig.getDouble("sketch.delta", 0.001);
+		int precision = AppConfig.getInt("sketch.precision", 14);
+		keywords = new HeavyHitters(topK, epsilon, delta);
+		signatures = new HeavyHitters(topK, epsilon, delta);
+		uCodes = new HyperLogLog(precision);
+		distinctSignatures = new HyperLogLog(precision);
+		signatureLength = AppConfig.getInt("compare.signatureLength", 120);
+	}
+
+	/**
+	 * Counts an entry, building its signature from the message
+	 * @param keyword The keyword of the entry
+	 * @param message The rest of the line after the keyword
+	 * @param uCode The U-code of the line, null or "none" if it has none
+	 */
+	void record(String keyword, String message, String uCode) {
+		signature.setLength(0);
+		signature.append(keyword);
+		int start = 0;
+		while (start < message.length() && signature.length() < signatureLength) {
+			int end = message.indexOf(' ', start);
+			if (end < 0) end = message.length();
+			if (end > start) {
+				signature.append(' ');
+				LogComparison.mask(message.substring(start, end), signature);
+			}
+			start = end + 1;
+		}
+		if (signature.length() > signatureLength) signature.setLength(signatureLength);
+		record(keyword, signature, uCode);
+	}
+
+	/**
+	 * Counts an entry whose signature is already built
+	 * @param keyword The keyword of the entry
+	 * @param signature Its signature
+	 * @param uCode The U-code of the line, null or "none" if it has none
+	 */
+	void record(String keyword, CharSequence signature, String uCode) {
+		keywords.add(keyword, hashOf(keyword));
+		long hash = hashOf(signature);
+		signatures.add(signature, hash);
+		distinctSignatures.add(hash);
+		if (uCode != null && !uCode.equals("none")) uCodes.add(hashOf(uCode));
+	}
+
+	/**
+	 * Adds everything counted by another ScanSketches made with the same settings
+	 */
+	void merge(ScanSketches other) {
+		keywords.merge(other.keywords);
+		signatures.merge(other.signatures);
+		uCodes.merge(other.uCodes);
+		distinctSignatures.merge(other.distinctSignatures);
+	}
+
+	/**
+	 * @return Number of entries counted
+	 */
+	long getTotal() {
+		return keywords.getTotal();
+	}
+
+	/**
+	 * @return The most frequent keywords, in the layout of HEADERS
+	 */
+	List<Object[]> topKeywords() {
+		return keywords.top();
+	}
+
+	/**
+	 * @return The most frequent signatures, in the layout of HEADERS
+	 */
+	List<Object[]> topSignatures() {
+		return signatures.top();
+	}
+
+	/**
+	 * @return The approximate answers and their error bounds, one per line
+	 */
+	String describe() {
+		return String.format("%d entries. About %d different U-codes and %d different messages (+/-%.1f%%, 95%% of the time).%n"
+				+ "Hit counts are at most %d over (%.1f%% of the time).", getTotal(), uCodes.estimate(),
+				distinctSignatures.estimate(), 2 * uCodes.standardError() * 100, keywords.errorBound(),
+				keywords.getConfidence() * 100);
+	}
+
+	/**
+	 * @return A 64 bit hash of the characters, the same for a String and a StringBuilder holding the same text
+	 */
+	static long hashOf(CharSequence text) {
+		//FNV-1a, then mixed so every bit of the result depends on every character
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * @file SearchQuery.java
+ * One of the searches run together by MultiQueryScanner: either a set of
+ * keywords (the checkbox tree selection or a group) or a logic statement from
+ * the AND/OR/NOT tab. The query also collects its own results, in the same
+ * layout UserView uses for a single search, so each one can be shown in its
+ * own tab.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SearchQuery {
+	/**Name shown on the tab of the results*/
+	private final String name;
+	/**Ids of the keywords searched for, null for a logic statement*/
+	private final BitSet keywordIds;
+
+	/**The first keyword of the logic statement, shown in the Keyword column*/
+	private String firstKeyword;
+	/**Words that must be in the line, or must not be if the matching andNot is true*/
+	private List<String> andWords;
+	private List<Boolean> andNot;
+	/**Word that is enough on its own, empty if the statement has no OR*/
+	private String orWord = "";
+	/**Ids of andWords and orWord in the TermMatcher, set by compile*/
+	private int[] andTerms;
+	private int orTerm = -1;
+
+	/**Entries found for this query, in the layout of LogParser.errorData*/
+	List<Object[]> rows = new ArrayList<Object[]>();
+	/**Lines before each entry, in the layout of UserView.linesBeforeArrayList*/
+	List<ArrayList<String>> linesBefore = new ArrayList<ArrayList<String>>();
+	/**Line of each entry, in the layout of UserView.errorLinesArrayList*/
+	List<String> errorLines = new ArrayList<String>();
+	/**Lines after each entry by entry number, in the layout of UserView.linesAfterHashMap*/
+	Map<Integer, ArrayList<String>> linesAfter = new HashMap<Integer, ArrayList<String>>();
+
+	private SearchQuery(String name, BitSet keywordIds) {
+		this.name = name;
+		this.keywordIds = keywordIds;
+	}
+
+	/**
+	 * @param name Name shown on the tab of the results
+	 * @param keywordIds Ids of the keywords to search for
+	 * @return A query that finds lines containing one of the keywords
+	 */
+	static SearchQuery forKeywords(String name, BitSet keywordIds) {
+		return new SearchQuery(name, keywordIds);
+	}
+
+	/**
+	 * Builds a query from a logic statement, in the layout UserView.saveAndOrNot
+	 * gives to LogicEvaluator
+	 * @param name Name shown on the tab of the results
+	 * @param words The keywords of the statement
+	 * @param operands "AND" or "OR" for each operator
+	 * @param hasNot Whether each keyword is NOT-ed
+	 * @return A query that finds lines satisfying the statement
+	 */
+	static SearchQuery forLogic(String name, List<String> words, List<String> operands, List<Boolean> hasNot) {
+		SearchQuery query = new SearchQuery(name, null);
+		query.firstKeyword = words.get(0);
+		query.andWords = new ArrayList<String>(words);
+		query.andNot = new ArrayList<Boolean>(hasNot);
+		//As in LogicEvaluator.addORs, the OR operand always joins the third keyword
+		if (operands.contains("OR") && words.size() > 2) {
+			query.orWord = query.andWords.remove(2);
+			query.andNot.remove(2);
+		}
+		return query;
+	}
+
+	/**
+	 * Keeps the results of the query within the memory budget of a search
+	 * @param spill The spill file shared by every query of the search
+	 */
+	void spillTo(SpillFile spill) {
+		rows = new SpillList<Object[]>(spill, SpillList.ROWS);
+		linesBefore = new SpillList<ArrayList<String>>(spill, SpillList.LINE_LISTS);
+		errorLines = new SpillList<String>(spill, SpillList.LINES);
+		linesAfter = new LinesAfterMap(spill);
+	}
+
+	String getName() {
+		return name;
+	}
+
+	boolean isLogic() {
+		return keywordIds == null;
+	}
+
+	/**
+	 * @return Ids of the keywords, null for a logic statement
+	 */
+	BitSet getKeywordIds() {
+		return keywordIds;
+	}
+
+	String getFirstKeyword() {
+		return firstKeyword;
+	}
+
+	/**
+	 * Adds the words of the logic statement to the matcher
+	 * @param matcher The matcher shared by every query of the scan
+	 */
+	void compile(TermMatcher matcher) {
+		if (!isLogic()) return;
+		andTerms = new int[andWords.size()];
+		for (int i = 0; i < andTerms.length; i++) {
+			andTerms[i] = matcher.addTerm(andWords.get(i));
+		}
+		if (!orWord.isEmpty()) {
+			orTerm = matcher.addTerm(orWord);
+		}
+	}
+
+	/**
+	 * @return Id of the OR word in the matcher, -1 if there is none
+	 */
+	int getOrTerm() {
+		return orTerm;
+	}
+
+	boolean isOr(String word) {
+		return orWord.equals(word);
+	}
+
+	/**
+	 * @param word A keyword that starts a block, DEADLOCK or ===>
+	 * @return True if the statement wants the word (AND, not AND NOT)
+	 */
+	boolean isAnd(String word) {
+		int index = andWords.indexOf(word);
+		return index >= 0 && !andNot.get(index) && !isOr(word);
+	}
+
+	/**
+	 * @param word A keyword that starts a block, DEADLOCK or ===>
+	 * @return True if the statement excludes the word with AND NOT
+	 */
+	boolean isAndNot(String word) {
+		int index = andWords.indexOf(word);
+		return index >= 0 && andNot.get(index) && !isOr(word);
+	}
+
+	/**
+	 * Checks the AND and AND NOT words, as LogicEvaluator.parseLine does
+	 * @param terms The terms found in the line or block
+	 * @return True if every AND word was found and no AND NOT word was
+	 */
+	boolean matches(BitSet terms) {
+		for (int i = 0; i < andTerms.length; i++) {
+			if (terms.get(andTerms[i]) == andNot.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
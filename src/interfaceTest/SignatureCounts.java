@@ -0,0 +1,125 @@
+/**
+ * @file SignatureCounts.java
+ * Counts how often each error signature occurs in a logfile. Signatures are
+ * looked up straight from the StringBuilder they were built in, in an open
+ * addressing table of their hashes, so a String is only made the first time
+ * a signature is seen and memory grows with the number of different
+ * signatures, not the number of lines. Once maxSignatures are held, new ones
+ * are turned away and the caller can count them under a coarser signature.
+ */
+
+package interfaceTest;
+
+import java.util.function.ObjLongConsumer;
+
+class SignatureCounts {
+	private final int maxSignatures;
+	private String[] keys = new String[1024];
+	private int[] hashes = new int[1024];
+	private long[] counts = new long[1024];
+	private int size;
+	private long total;
+
+	/**
+	 * @param maxSignatures Number of different signatures to hold before new ones are turned away
+	 */
+	SignatureCounts(int maxSignatures) {
+		this.maxSignatures = Math.max(maxSignatures, 1);
+	}
+
+	/**
+	 * Counts one occurrence of a signature
+	 * @param signature The signature, copied only if it is new
+	 * @param force True to add a new signature even when the table holds maxSignatures
+	 * @return False if the signature is new and the table is full
+	 */
+	boolean add(CharSequence signature, boolean force) {
+		int hash = hashOf(signature);
+		int slot = slotOf(signature, hash);
+		if (keys[slot] != null) {
+			counts[slot]++;
+			total++;
+			return true;
+		}
+		if (size >= maxSignatures && !force) return false;
+		keys[slot] = signature.toString();
+		hashes[slot] = hash;
+		counts[slot] = 1;
+		size++;
+		total++;
+		//Kept at most half full so probes stay short
+		if (size * 2 > keys.length) grow();
+		return true;
+	}
+
+	/**
+	 * @return Number of times the signature was counted, 0 if never
+	 */
+	long get(String signature) {
+		int slot = slotOf(signature, hashOf(signature));
+		return (keys[slot] == null) ? 0 : counts[slot];
+	}
+
+	/**
+	 * @return Number of different signatures
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return Number of occurrences counted
+	 */
+	long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Calls the action with every signature and its count, in no particular order
+	 */
+	void forEach(ObjLongConsumer<String> action) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != null) action.accept(keys[slot], counts[slot]);
+		}
+	}
+
+	/**
+	 * @return The slot holding the signature, or the empty slot where it would go
+	 */
+	private int slotOf(CharSequence signature, int hash) {
+		int mask = keys.length - 1;
+		int mixed = hash * 0x9E3779B9;
+		int slot = (mixed ^ (mixed >>> 16)) & mask;
+		while (keys[slot] != null && (hashes[slot] != hash || !keys[slot].contentEquals(signature))) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		String[] oldKeys = keys;
+		int[] oldHashes = hashes;
+		long[] oldCounts = counts;
+		keys = new String[oldKeys.length * 2];
+		hashes = new int[oldKeys.length * 2];
+		counts = new long[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == null) continue;
+			int slot = slotOf(oldKeys[i], oldHashes[i]);
+			keys[slot] = oldKeys[i];
+			hashes[slot] = oldHashes[i];
+			counts[slot] = oldCounts[i];
+		}
+	}
+
+	/**
+	 * @return The same hash String.hashCode gives, without making a String
+	 */
+	private static int hashOf(CharSequence text) {
+		int hash = 0;
+		for (int i = 0; i < text.length(); i++) {
+			hash = 31 * hash + text.charAt(i);
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * @file SketchDialog.java
+ * Brings up a Java Dialog with the approximate summary kept while scanning:
+ * about how many different U-codes and messages there were, and the most
+ * frequent keywords and message signatures with the least their counts can
+ * be, given the error bounds of the sketches.
+ */
+package interfaceTest;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.util.List;
+
+import javax.swing.JDialog;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.border.EmptyBorder;
+
+@SuppressWarnings("serial")
+public class SketchDialog extends JDialog {
+	/** Main content panel */
+	private final JPanel pnlMain = new JPanel();
+
+	/**
+	 * Constructor
+	 * @param sketches The summary to show
+	 * @param title Title of the dialog, e.g. the files that were scanned
+	 */
+	public SketchDialog(ScanSketches sketches, String title) {
+		prepareGUI(sketches, title);
+		Utility.addEscapeListener(this);
+	}
+
+	/**
+	 * This function prepares and displays the SketchDialog GUI.
+	 * @param sketches The summary to show
+	 * @param title Title of the dialog
+	 */
+	private void prepareGUI(ScanSketches sketches, String title) {
+		setTitle(title);
+		setPreferredSize(new Dimension(800, 450));
+		getContentPane().add(pnlMain, BorderLayout.CENTER);
+		pnlMain.setBorder(new EmptyBorder(5,5,5,5));
+		pnlMain.setLayout(new BorderLayout());
+
+		JTextArea taSummary = new JTextArea(sketches.describe());
+		taSummary.setEditable(false);
+		taSummary.setOpaque(false);
+		taSummary.setFont(new Font("Serif", Font.PLAIN, 14));
+		taSummary.setBorder(new EmptyBorder(5,5,10,5));
+		pnlMain.add(taSummary, BorderLayout.NORTH);
+
+		JTabbedPane tabbedPane = new JTabbedPane();
+		tabbedPane.addTab("Top Keywords", table(sketches.topKeywords()));
+		tabbedPane.addTab("Top Messages", table(sketches.topSignatures()));
+		pnlMain.add(tabbedPane, BorderLayout.CENTER);
+
+		pack();
+		setLocationRelativeTo(null);
+		setVisible(true);
+	}
+
+	private static JScrollPane table(List<Object[]> rows) {
+		JTable table = new JTable(new ResultTableModel(rows, ScanSketches.HEADERS));
+		table.setCellSelectionEnabled(true);
+		table.getColumnModel().getColumn(0).setPreferredWidth(500);
+		return new JScrollPane(table);
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * @file SpillFile.java
+ * Keeps the results of a search within a memory budget (setting
+ * results.memoryMB, default 256). Every SpillList of the search charges the
+ * rows it holds against the same budget; once it is used up, the lists move
+ * their oldest pages into a temporary file and read them back when they are
+ * needed again. The file is created on the first spill, in the folder given
+ * by results.spillDir (the system temporary folder by default), and deleted
+ * when the results are replaced or the program exits.
+ */
+
+package interfaceTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+class SpillFile {
+	/**Bytes of results allowed in memory*/
+	private final long budget;
+	/**Estimated bytes of results held in memory by all the lists*/
+	private long used;
+	private File file;
+	private FileChannel channel;
+	/**Length of the file, where the next page is written*/
+	private long end;
+	private boolean closed;
+
+	/**
+	 * Creates a spill file with the budget given by the setting results.memoryMB
+	 */
+	SpillFile() {
+		this(AppConfig.getLong("results.memoryMB", 256) * 1024 * 1024);
+	}
+
+	/**
+	 * @param budget Bytes of results allowed in memory
+	 */
+	SpillFile(long budget) {
+		this.budget = Math.max(budget, 0);
+	}
+
+	/**
+	 * Records memory taken or given back by a list
+	 * @param bytes Estimated bytes, negative when rows are released
+	 */
+	synchronized void charge(long bytes) {
+		used += bytes;
+	}
+
+	/**
+	 * @return True if the lists hold more than the budget in memory
+	 */
+	synchronized boolean isOverBudget() {
+		return used > budget;
+	}
+
+	/**
+	 * Appends an encoded page to the file
+	 * @param data The encoded page
+	 * @param length Number of bytes of data to write
+	 * @return Offset of the page in the file
+	 * @throws IOException If the file cannot be written
+	 */
+	synchronized long write(byte[] data, int length) throws IOException {
+		if (closed) {
+			throw new IOException("The results have been closed");
+		}
+		if (channel == null) {
+			File dir = new File(AppConfig.getString("results.spillDir", System.getProperty("java.io.tmpdir")));
+			file = File.createTempFile("results", ".spill", dir);
+			file.deleteOnExit();
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+		long offset = end;
+		ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+		while (buffer.hasRemaining()) {
+			end += channel.write(buffer, end);
+		}
+		return offset;
+	}
+
+	/**
+	 * Reads back a page written by write
+	 * @param offset Offset of the page in the file
+	 * @param length Length of the page in bytes
+	 * @return The encoded page
+	 * @throws IOException If the file cannot be read
+	 */
+	synchronized byte[] read(long offset, int length) throws IOException {
+		if (closed) {
+			throw new IOException("The results have been closed");
+		}
+		byte[] data = new byte[length];
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, offset + buffer.position()) < 0) {
+				throw new IOException("Spilled page at " + offset + " is cut short");
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Deletes the file. Lists using it can no longer read their spilled pages.
+	 */
+	synchronized void close() {
+		closed = true;
+		if (channel == null) return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if (!file.delete()) {
+			System.out.println("Could not delete " + file);
+		}
+		channel = null;
+	}
+}
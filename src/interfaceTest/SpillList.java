@@ -0,0 +1,350 @@
+/**
+ * @file SpillList.java
+ * A list of results that keeps to the memory budget of a SpillFile. Items
+ * are grouped in pages of PAGE_SIZE; when the budget is exceeded the oldest
+ * full pages are encoded column by column and written to the spill file,
+ * and only their position is kept. A spilled page is read back the next
+ * time one of its items is asked for, and the last few pages read are kept
+ * so scrolling through the table or exporting in order reads each page once.
+ *
+ * Items can only be added at the end and only the last one can be removed,
+ * which is how the parser builds its results. The page being filled is
+ * never spilled, so items can still be changed right after they are added.
+ */
+
+package interfaceTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class SpillList<E> extends AbstractList<E> {
+	/**Items in a page*/
+	static final int PAGE_SIZE = 1024;
+	/**Number of spilled pages kept after they are read back*/
+	private static final int CACHED_PAGES = 8;
+
+	/**Rows in the layout of LogParser.errorData, stored as an int column and four text columns*/
+	static final Codec<Object[]> ROWS = new Codec<Object[]>() {
+		@Override
+		public void write(List<Object[]> page, DataOutput out) throws IOException {
+			for (Object[] row : page) {
+				out.writeInt((row[0] instanceof Number) ? ((Number) row[0]).intValue() : Integer.MIN_VALUE);
+			}
+			for (int column = 1; column < 5; column++) {
+				for (Object[] row : page) {
+					writeString(out, (column < row.length && row[column] != null) ? row[column].toString() : null);
+				}
+			}
+		}
+
+		@Override
+		public List<Object[]> read(DataInput in, int count) throws IOException {
+			List<Object[]> page = new ArrayList<Object[]>(count);
+			for (int i = 0; i < count; i++) {
+				int number = in.readInt();
+				Object[] row = new Object[5];
+				row[0] = (number == Integer.MIN_VALUE) ? null : number;
+				page.add(row);
+			}
+			for (int column = 1; column < 5; column++) {
+				for (Object[] row : page) {
+					row[column] = readString(in);
+				}
+			}
+			return page;
+		}
+
+		@Override
+		public long sizeOf(Object[] row) {
+			long size = 16 + 8L * row.length;
+			for (Object value : row) {
+				if (value instanceof String) size += stringSize((String) value);
+				else if (value != null) size += 16;
+			}
+			return size;
+		}
+	};
+
+	/**Single lines, such as UserView.errorLinesArrayList*/
+	static final Codec<String> LINES = new Codec<String>() {
+		@Override
+		public void write(List<String> page, DataOutput out) throws IOException {
+			for (String line : page) {
+				writeString(out, line);
+			}
+		}
+
+		@Override
+		public List<String> read(DataInput in, int count) throws IOException {
+			List<String> page = new ArrayList<String>(count);
+			for (int i = 0; i < count; i++) {
+				page.add(readString(in));
+			}
+			return page;
+		}
+
+		@Override
+		public long sizeOf(String line) {
+			return stringSize(line);
+		}
+	};
+
+	/**Groups of lines, such as the lines before or after each entry*/
+	static final Codec<ArrayList<String>> LINE_LISTS = new Codec<ArrayList<String>>() {
+		@Override
+		public void write(List<ArrayList<String>> page, DataOutput out) throws IOException {
+			for (ArrayList<String> lines : page) {
+				out.writeInt((lines == null) ? -1 : lines.size());
+			}
+			for (ArrayList<String> lines : page) {
+				if (lines == null) continue;
+				for (String line : lines) {
+					writeString(out, line);
+				}
+			}
+		}
+
+		@Override
+		public List<ArrayList<String>> read(DataInput in, int count) throws IOException {
+			int[] sizes = new int[count];
+			for (int i = 0; i < count; i++) {
+				sizes[i] = in.readInt();
+			}
+			List<ArrayList<String>> page = new ArrayList<ArrayList<String>>(count);
+			for (int size : sizes) {
+				if (size < 0) {
+					page.add(null);
+					continue;
+				}
+				ArrayList<String> lines = new ArrayList<String>(size);
+				for (int i = 0; i < size; i++) {
+					lines.add(readString(in));
+				}
+				page.add(lines);
+			}
+			return page;
+		}
+
+		@Override
+		public long sizeOf(ArrayList<String> lines) {
+			if (lines == null) return 8;
+			long size = 40 + 8L * lines.size();
+			for (String line : lines) {
+				size += stringSize(line);
+			}
+			return size;
+		}
+	};
+
+	private final SpillFile spill;
+	private final Codec<E> codec;
+	private final ArrayList<Page<E>> pages = new ArrayList<Page<E>>();
+	/**Index of the oldest page that has not been spilled*/
+	private int nextToSpill;
+	private int size;
+	/**Spilled pages read back recently, by page number*/
+	private final LinkedHashMap<Integer, List<E>> cache = new LinkedHashMap<Integer, List<E>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, List<E>> eldest) {
+			return size() > CACHED_PAGES;
+		}
+	};
+
+	/**
+	 * @param spill The spill file and memory budget shared by the results of a search
+	 * @param codec Writes and reads pages of items
+	 */
+	SpillList(SpillFile spill, Codec<E> codec) {
+		this.spill = spill;
+		this.codec = codec;
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized E get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int number = index / PAGE_SIZE;
+		Page<E> page = pages.get(number);
+		if (page.items != null) {
+			return page.items.get(index % PAGE_SIZE);
+		}
+		List<E> items = cache.get(number);
+		if (items == null) {
+			try {
+				byte[] data = spill.read(page.offset, page.length);
+				items = codec.read(new DataInputStream(new ByteArrayInputStream(data)), page.count);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			cache.put(number, items);
+		}
+		return items.get(index % PAGE_SIZE);
+	}
+
+	@Override
+	public synchronized boolean add(E item) {
+		Page<E> last = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+		if (last == null || last.count == PAGE_SIZE) {
+			last = new Page<E>();
+			pages.add(last);
+		}
+		long bytes = codec.sizeOf(item);
+		last.items.add(item);
+		last.count++;
+		last.bytes += bytes;
+		size++;
+		modCount++;
+		spill.charge(bytes);
+		while (spill.isOverBudget() && nextToSpill < pages.size() - 1) {
+			spillPage(pages.get(nextToSpill++));
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the last item, the only one that can be removed
+	 */
+	@Override
+	public synchronized E remove(int index) {
+		if (index != size - 1) {
+			throw new UnsupportedOperationException("Only the last result can be removed");
+		}
+		Page<E> last = pages.get(pages.size() - 1);
+		E item = last.items.remove(last.count - 1);
+		long bytes = codec.sizeOf(item);
+		last.count--;
+		last.bytes -= bytes;
+		spill.charge(-bytes);
+		size--;
+		modCount++;
+		if (last.count == 0) {
+			pages.remove(pages.size() - 1);
+			//The page before may have been spilled, it becomes the page being filled
+			if (!pages.isEmpty() && pages.get(pages.size() - 1).items == null) {
+				reload(pages.size() - 1);
+			}
+		}
+		return item;
+	}
+
+	/**
+	 * Reads a spilled page back into memory for good
+	 * @param number Number of the page
+	 */
+	private void reload(int number) {
+		Page<E> page = pages.get(number);
+		get(number * PAGE_SIZE);
+		page.items = new ArrayList<E>(cache.remove(number));
+		spill.charge(page.bytes);
+		nextToSpill = number;
+	}
+
+	@Override
+	public synchronized void clear() {
+		for (Page<E> page : pages) {
+			if (page.items != null) spill.charge(-page.bytes);
+		}
+		pages.clear();
+		cache.clear();
+		nextToSpill = 0;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Writes a full page to the spill file and lets go of its items
+	 * @param page The page to write
+	 */
+	private void spillPage(Page<E> page) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(page.bytes / 2 + 64, 1 << 24));
+		ParseEvents.ResultSpill event = new ParseEvents.ResultSpill();
+		event.begin();
+		try {
+			codec.write(page.items, new DataOutputStream(bytes));
+			page.length = bytes.size();
+			page.offset = spill.write(bytes.toByteArray(), page.length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		page.items = null;
+		spill.charge(-page.bytes);
+		event.rows = page.count;
+		event.bytes = page.length;
+		event.commit();
+	}
+
+	/**
+	 * Writes text as its UTF-8 length and bytes, with -1 for null
+	 */
+	static void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return Rough number of bytes a String takes on the heap
+	 */
+	static long stringSize(String value) {
+		return (value == null) ? 0 : 40 + 2L * value.length();
+	}
+
+	/**
+	 * Writes and reads pages of items for the spill file
+	 */
+	interface Codec<E> {
+		void write(List<E> page, DataOutput out) throws IOException;
+
+		List<E> read(DataInput in, int count) throws IOException;
+
+		/**
+		 * @return Rough number of bytes the item takes on the heap
+		 */
+		long sizeOf(E item);
+	}
+
+	/**
+	 * A page of items, either held in memory or written to the spill file
+	 */
+	private static final class Page<E> {
+		/**The items, null once the page is spilled*/
+		ArrayList<E> items = new ArrayList<E>();
+		int count;
+		/**Estimated bytes of the items in memory*/
+		long bytes;
+		long offset;
+		int length;
+	}
+}
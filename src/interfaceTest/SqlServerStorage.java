@@ -0,0 +1,356 @@
+/**
+ * @file SqlServerStorage.java
+ * LogStorage backed by the logerrors, Groups and Usernames_Passwords tables
+ * on SQL Server. Connections are borrowed from one shared ConnectionPool and
+ * the prepared statements are reused.
+ */
+
+package interfaceTest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import interfaceTest.ConnectionPool.PooledConnection;
+
+class SqlServerStorage implements LogStorage {
+	private static final String SELECT_LOG_ERRORS = "select Keyword, Log_Error_Description, "
+			+ "Suggested_Solution, Folder, Hyperlink from logerrors";
+	private static final String SELECT_VERSION = "select (select count(*) from logerrors), "
+			+ "(select checksum_agg(checksum(Keyword, Log_Error_Description, Suggested_Solution, Folder, Hyperlink)) from logerrors), "
+			+ "(select count(*) from Groups), "
+			+ "(select checksum_agg(checksum(GroupName, GroupKeywords)) from Groups)";
+	private static final String SELECT_GROUPS = "select GroupName, GroupKeywords from Groups";
+	private static final String SELECT_LOGINS = "select Username, Password from Usernames_Passwords";
+	private static final String INSERT_GROUP = "insert into Groups values (?, ?)";
+	private static final String UPDATE_GROUP = "update Groups set GroupKeywords = ? where GroupName = ?";
+	private static final String DELETE_GROUP = "delete from Groups where GroupKeywords = ?";
+	private static final String DELETE_LOG_ERROR = "delete from logerrors where Keyword = ?";
+	private static final String UPDATE_LOG_ERROR = "update logerrors set Log_Error_Description = ?, "
+			+ "Suggested_Solution = ?, Folder = ? where Keyword = ?";
+	private static final String INSERT_LOG_ERROR = "insert into logerrors (Keyword, Log_Error_Description, "
+			+ "Suggested_Solution, Folder, Hyperlink) values (?, ?, ?, ?, ?)";
+	private static final String UPDATE_HYPERLINK = "update logerrors set Hyperlink = ? where Keyword = ?";
+
+	private static final String CREATE_CHANGES = "if object_id('DictionaryChanges') is null "
+			+ "create table DictionaryChanges (Revision bigint identity(1,1) primary key, "
+			+ "TableName varchar(32) not null, RowKey nvarchar(450) null)";
+	private static final String SELECT_REVISION = "select isnull(max(Revision), 0) from DictionaryChanges";
+	private static final String SELECT_CHANGES = "select c.Revision, c.TableName, c.RowKey, l.Keyword, "
+			+ "l.Log_Error_Description, l.Suggested_Solution, l.Folder, l.Hyperlink from DictionaryChanges c "
+			+ "left join logerrors l on c.TableName = 'logerrors' and l.Keyword = c.RowKey "
+			+ "where c.Revision > ? order by c.Revision";
+	private static final String INSERT_CHANGE = "insert into DictionaryChanges (TableName, RowKey) values (?, ?)";
+
+	private final ConnectionPool pool;
+	/**False if the changelog table could not be created, e.g. for lack of permission*/
+	private boolean changelogChecked, changelogAvailable;
+
+	/**
+	 * @param pool The pool connections are borrowed from
+	 */
+	SqlServerStorage(ConnectionPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public void close() {
+		pool.close();
+	}
+
+	@Override
+	public List<String[]> loadLogErrors() throws SQLException {
+		List<String[]> rows = new ArrayList<String[]>();
+		try (PooledConnection conn = pool.borrow()) {
+			try (ResultSet rs = conn.prepare(SELECT_LOG_ERRORS).executeQuery()) {
+				while (rs.next()) {
+					String[] row = new String[5];
+					row[KEYWORD] = rs.getString("Keyword");
+					row[DESCRIPTION] = rs.getString("Log_Error_Description");
+					row[SOLUTION] = rs.getString("Suggested_Solution");
+					row[FOLDER] = rs.getString("Folder");
+					row[HYPERLINK] = rs.getString("Hyperlink");
+					rows.add(row);
+				}
+			} catch (SQLException e) {
+				conn.markBroken();
+				throw e;
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * The version is made from the row counts and CHECKSUM_AGG of both tables
+	 */
+	@Override
+	public String loadDictionaryVersion() throws SQLException {
+		try (PooledConnection conn = pool.borrow()) {
+			try (ResultSet rs = conn.prepare(SELECT_VERSION).executeQuery()) {
+				rs.next();
+				return rs.getLong(1) + ":" + rs.getLong(2) + ";" + rs.getLong(3) + ":" + rs.getLong(4);
+			} catch (SQLException e) {
+				if (!conn.isValid()) throw e;
+				//The tables hold types that CHECKSUM does not accept, so always reload
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public long loadRevision() throws SQLException {
+		try (PooledConnection conn = pool.borrow()) {
+			if (!hasChangelog(conn)) return -1;
+			try (ResultSet rs = conn.prepare(SELECT_REVISION).executeQuery()) {
+				rs.next();
+				return rs.getLong(1);
+			} catch (SQLException e) {
+				conn.markBroken();
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public List<DictionaryChange> loadChangesSince(long revision) throws SQLException {
+		List<DictionaryChange> changes = new ArrayList<DictionaryChange>();
+		try (PooledConnection conn = pool.borrow()) {
+			if (!hasChangelog(conn)) return changes;
+			PreparedStatement stmt = conn.prepare(SELECT_CHANGES);
+			stmt.setLong(1, revision);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					String[] row = null;
+					if (rs.getString("Keyword") != null) {
+						row = new String[5];
+						row[KEYWORD] = rs.getString("Keyword");
+						row[DESCRIPTION] = rs.getString("Log_Error_Description");
+						row[SOLUTION] = rs.getString("Suggested_Solution");
+						row[FOLDER] = rs.getString("Folder");
+						row[HYPERLINK] = rs.getString("Hyperlink");
+					}
+					changes.add(new DictionaryChange(rs.getLong("Revision"), rs.getString("TableName"),
+							rs.getString("RowKey"), row));
+				}
+			} catch (SQLException e) {
+				conn.markBroken();
+				throw e;
+			}
+		}
+		return changes;
+	}
+
+	@Override
+	public HashMap<String, String> loadGroups() throws SQLException {
+		return loadPairs(SELECT_GROUPS);
+	}
+
+	@Override
+	public HashMap<String, String> loadLogins() throws SQLException {
+		return loadPairs(SELECT_LOGINS);
+	}
+
+	@Override
+	public void insertGroup(String name, String keywords) throws SQLException {
+		updateGroups(name, INSERT_GROUP, name, keywords);
+	}
+
+	@Override
+	public void updateGroup(String name, String keywords) throws SQLException {
+		updateGroups(name, UPDATE_GROUP, keywords, name);
+	}
+
+	@Override
+	public void deleteGroup(String keywords) throws SQLException {
+		updateGroups(null, DELETE_GROUP, keywords);
+	}
+
+	@Override
+	public void updateHyperlinks(List<String[]> hyperlinks) throws SQLException {
+		try (PooledConnection conn = pool.borrow()) {
+			inTransaction(conn, () -> {
+				PreparedStatement stmt = conn.prepare(UPDATE_HYPERLINK);
+				for (String[] link : hyperlinks) {
+					stmt.setString(1, link[1]);
+					stmt.setString(2, link[0]);
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+				List<String> keywords = new ArrayList<String>();
+				for (String[] link : hyperlinks) {
+					keywords.add(link[0]);
+				}
+				logChanges(conn, DictionaryChange.LOG_ERRORS, keywords);
+			});
+		}
+	}
+
+	@Override
+	public void saveLogErrors(List<String> deleted, List<String[]> updated, List<String[]> inserted) throws SQLException {
+		try (PooledConnection conn = pool.borrow()) {
+			inTransaction(conn, () -> {
+				if (!deleted.isEmpty()) {
+					PreparedStatement stmt = conn.prepare(DELETE_LOG_ERROR);
+					for (String keyword : deleted) {
+						stmt.setString(1, keyword);
+						stmt.addBatch();
+					}
+					stmt.executeBatch();
+				}
+				if (!updated.isEmpty()) {
+					PreparedStatement stmt = conn.prepare(UPDATE_LOG_ERROR);
+					for (String[] row : updated) {
+						stmt.setString(1, row[DESCRIPTION]);
+						stmt.setString(2, row[SOLUTION]);
+						stmt.setString(3, row[FOLDER]);
+						stmt.setString(4, row[KEYWORD]);
+						stmt.addBatch();
+					}
+					stmt.executeBatch();
+				}
+				if (!inserted.isEmpty()) {
+					PreparedStatement stmt = conn.prepare(INSERT_LOG_ERROR);
+					for (String[] row : inserted) {
+						stmt.setString(1, row[KEYWORD]);
+						stmt.setString(2, row[DESCRIPTION]);
+						stmt.setString(3, row[SOLUTION]);
+						stmt.setString(4, row[FOLDER]);
+						stmt.setString(5, row[HYPERLINK]);
+						stmt.addBatch();
+					}
+					stmt.executeBatch();
+				}
+				List<String> keywords = new ArrayList<String>(deleted);
+				for (String[] row : updated) {
+					keywords.add(row[KEYWORD]);
+				}
+				for (String[] row : inserted) {
+					keywords.add(row[KEYWORD]);
+				}
+				logChanges(conn, DictionaryChange.LOG_ERRORS, keywords);
+			});
+		}
+	}
+
+	/**
+	 * Work done on a connection inside a transaction
+	 */
+	private interface Transaction {
+		void run() throws SQLException;
+	}
+
+	/**
+	 * Runs the work with auto-commit turned off and commits it, or rolls it
+	 * back if any statement fails
+	 * @param conn The connection to run the work on
+	 * @param work The statements to run
+	 * @throws SQLException If a statement fails
+	 */
+	private void inTransaction(PooledConnection conn, Transaction work) throws SQLException {
+		Connection connection = conn.getConnection();
+		//Creating the changelog table must not be part of the transaction
+		hasChangelog(conn);
+		try {
+			connection.setAutoCommit(false);
+			work.run();
+			connection.commit();
+		} catch (SQLException e) {
+			try {
+				connection.rollback();
+			} catch (SQLException rollbackFailed) {
+				conn.markBroken();
+			}
+			throw e;
+		} finally {
+			try {
+				connection.setAutoCommit(true);
+			} catch (SQLException e) {
+				conn.markBroken();
+			}
+		}
+	}
+
+	/**
+	 * Runs a query that returns two string columns
+	 * @param sql The query to run
+	 * @return Maps the first column to the second
+	 * @throws SQLException If the query fails
+	 */
+	private HashMap<String, String> loadPairs(String sql) throws SQLException {
+		HashMap<String, String> map = new HashMap<String, String>();
+		try (PooledConnection conn = pool.borrow()) {
+			try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+				while (rs.next()) {
+					map.put(rs.getString(1), rs.getString(2));
+				}
+			} catch (SQLException e) {
+				conn.markBroken();
+				throw e;
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Runs a parameterized insert, update or delete on Groups and records it
+	 * in the changelog, in one transaction
+	 * @param name The group that changed, null if not known
+	 * @param sql The statement, with ? for each parameter
+	 * @param params Values for the parameters, in order
+	 * @throws SQLException If the statement fails
+	 */
+	private void updateGroups(String name, String sql, String... params) throws SQLException {
+		try (PooledConnection conn = pool.borrow()) {
+			inTransaction(conn, () -> {
+				PreparedStatement stmt = conn.prepare(sql);
+				for (int i = 0; i < params.length; i++) {
+					stmt.setString(i + 1, params[i]);
+				}
+				stmt.executeUpdate();
+				logChanges(conn, DictionaryChange.GROUPS, Collections.singletonList(name));
+			});
+		}
+	}
+
+	/**
+	 * Adds rows to the changelog, as part of the transaction that made the changes
+	 * @param conn The connection running the transaction
+	 * @param table DictionaryChange.LOG_ERRORS or GROUPS
+	 * @param keys The keywords or group names that changed
+	 * @throws SQLException If the changelog could not be written
+	 */
+	private void logChanges(PooledConnection conn, String table, List<String> keys) throws SQLException {
+		if (keys.isEmpty() || !hasChangelog(conn)) return;
+		PreparedStatement stmt = conn.prepare(INSERT_CHANGE);
+		for (String key : keys) {
+			stmt.setString(1, table);
+			stmt.setString(2, key);
+			stmt.addBatch();
+		}
+		stmt.executeBatch();
+	}
+
+	/**
+	 * Creates the changelog table the first time it is needed, if it does not exist yet
+	 * @param conn The connection to use
+	 * @return False if the table could not be created, in which case no changelog is kept
+	 */
+	private synchronized boolean hasChangelog(PooledConnection conn) {
+		if (!changelogChecked) {
+			try (Statement stmt = conn.getConnection().createStatement()) {
+				stmt.execute(CREATE_CHANGES);
+				changelogAvailable = true;
+			} catch (SQLException e) {
+				System.out.println("Dictionary changes will not be shared with other clients: " + e.getMessage());
+			}
+			changelogChecked = true;
+		}
+		return changelogAvailable;
+	}
+}
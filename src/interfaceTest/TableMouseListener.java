@@ -46,7 +46,9 @@ public class TableMouseListener extends MouseAdapter {
      */
     @Override
     public void mousePressed(MouseEvent event) {
-        // selects the row at which point the mouse is clicked
+        // selects the row at which point the mouse is clicked, in whichever
+        // results table was clicked when several are shown in tabs
+        table = (JTable) event.getSource();
         Point point = event.getPoint();
         currentRow = table.rowAtPoint(point);
         currentColumn = table.columnAtPoint(point);
@@ -0,0 +1,193 @@
+/**
+ * @file TermMatcher.java
+ * Finds which of a fixed set of terms occur anywhere in a line, in a single
+ * pass over its characters (an Aho-Corasick automaton). The logic statements
+ * test their words with String.contains, so running several of them would
+ * otherwise search every line once per word; with the matcher each line is
+ * read once no matter how many words the statements use. Transitions for
+ * ASCII characters are kept in a table, other characters fall back to a map.
+ */
+
+package interfaceTest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TermMatcher {
+	/**Number of characters with a transition table entry*/
+	private static final int ASCII = 128;
+
+	/**The terms, by term id*/
+	private final List<String> terms = new ArrayList<String>();
+	/**ASCII transitions of each state, already following the failure links*/
+	private int[][] next;
+	/**Transitions for other characters, keyed by state and character*/
+	private HashMap<Long, Integer> otherNext;
+	/**Failure link of each state*/
+	private int[] fail;
+	/**Terms that end at each state, including those reached by failure links*/
+	private BitSet[] output;
+	/**True once the automaton has been built*/
+	private boolean built;
+
+	/**
+	 * Adds a term to look for, if it is not there already
+	 * @param term The text to find
+	 * @return The id of the term, used in the BitSet given by match
+	 */
+	int addTerm(String term) {
+		if (built) {
+			throw new IllegalStateException("Terms cannot be added after matching started");
+		}
+		int id = terms.indexOf(term);
+		if (id >= 0) return id;
+		terms.add(term);
+		return terms.size() - 1;
+	}
+
+	/**
+	 * @param id Id of a term
+	 * @return The term
+	 */
+	String getTerm(int id) {
+		return terms.get(id);
+	}
+
+	int size() {
+		return terms.size();
+	}
+
+	/**
+	 * Finds the terms that occur in a line
+	 * @param line The line to search
+	 * @param found Cleared, then set to the ids of the terms found in the line
+	 */
+	void match(CharSequence line, BitSet found) {
+		if (!built) build();
+		found.clear();
+		int state = 0;
+		for (int i = 0, length = line.length(); i < length; i++) {
+			char c = line.charAt(i);
+			state = step(state, c);
+			if (output[state] != null) {
+				found.or(output[state]);
+			}
+		}
+	}
+
+	/**
+	 * Moves the automaton on by one character
+	 */
+	private int step(int state, char c) {
+		if (c < ASCII) {
+			return next[state][c];
+		}
+		while (true) {
+			Integer target = otherNext.get(key(state, c));
+			if (target != null) return target;
+			if (state == 0) return 0;
+			state = fail[state];
+		}
+	}
+
+	/**
+	 * Builds the trie of the terms, then the failure links breadth first
+	 */
+	private void build() {
+		List<int[]> table = new ArrayList<int[]>();
+		otherNext = new HashMap<Long, Integer>();
+		table.add(newRow());
+		List<BitSet> ends = new ArrayList<BitSet>();
+		ends.add(null);
+		for (int id = 0; id < terms.size(); id++) {
+			String term = terms.get(id);
+			int state = 0;
+			for (int i = 0; i < term.length(); i++) {
+				char c = term.charAt(i);
+				int target = (c < ASCII) ? table.get(state)[c] : otherNext.getOrDefault(key(state, c), -1);
+				if (target < 0) {
+					target = table.size();
+					table.add(newRow());
+					ends.add(null);
+					if (c < ASCII) {
+						table.get(state)[c] = target;
+					}
+					else {
+						otherNext.put(key(state, c), target);
+					}
+				}
+				state = target;
+			}
+			if (ends.get(state) == null) {
+				ends.set(state, new BitSet());
+			}
+			ends.get(state).set(id);
+		}
+
+		int states = table.size();
+		next = table.toArray(new int[states][]);
+		output = ends.toArray(new BitSet[states]);
+		fail = new int[states];
+		//Children of each state reached by non-ASCII characters, for the breadth first walk
+		HashMap<Integer, List<long[]>> otherChildren = new HashMap<Integer, List<long[]>>();
+		for (Map.Entry<Long, Integer> entry : otherNext.entrySet()) {
+			int from = (int) (entry.getKey() >>> 16);
+			otherChildren.computeIfAbsent(from, s -> new ArrayList<long[]>())
+				.add(new long[] {entry.getKey() & 0xFFFF, entry.getValue()});
+		}
+
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		for (int c = 0; c < ASCII; c++) {
+			int child = next[0][c];
+			if (child < 0) {
+				next[0][c] = 0;
+			}
+			else {
+				fail[child] = 0;
+				queue.add(child);
+			}
+		}
+		for (long[] child : otherChildren.getOrDefault(0, new ArrayList<long[]>())) {
+			fail[(int) child[1]] = 0;
+			queue.add((int) child[1]);
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			if (output[fail[state]] != null) {
+				if (output[state] == null) output[state] = new BitSet();
+				output[state].or(output[fail[state]]);
+			}
+			for (int c = 0; c < ASCII; c++) {
+				int child = next[state][c];
+				if (child < 0) {
+					next[state][c] = next[fail[state]][c];
+				}
+				else {
+					fail[child] = next[fail[state]][c];
+					queue.add(child);
+				}
+			}
+			for (long[] child : otherChildren.getOrDefault(state, new ArrayList<long[]>())) {
+				int target = (int) child[1];
+				fail[target] = step(fail[state], (char) child[0]);
+				queue.add(target);
+			}
+		}
+		built = true;
+	}
+
+	private static int[] newRow() {
+		int[] row = new int[ASCII];
+		Arrays.fill(row, -1);
+		return row;
+	}
+
+	private static long key(int state, char c) {
+		return ((long) state << 16) | c;
+	}
+}
@@ -0,0 +1,233 @@
+/**
+ * @file TimelineChart.java
+ * Draws the number of entries over time as bars, from the level of the
+ * TimelinePyramid whose buckets fit the width of the chart. The mouse wheel
+ * zooms in and out around the pointer, down to seconds, and dragging moves
+ * along the log. Clicking a bar tells the listener which bucket it was.
+ */
+package interfaceTest;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+import javax.swing.JPanel;
+
+@SuppressWarnings("serial")
+public class TimelineChart extends JPanel {
+	/**
+	 * Told which bucket was clicked
+	 */
+	interface BucketListener {
+		void bucketClicked(long startMillis, long endMillis);
+	}
+
+	private static final int LEFT = 60;
+	private static final int RIGHT = 10;
+	private static final int TOP = 20;
+	private static final int BOTTOM = 30;
+	/**Narrowest span the chart zooms in to*/
+	private static final long MIN_SPAN = 10 * 1000L;
+	private static final Color BAR_COLOR = new Color(70, 110, 180);
+	/**Property changed to describe() whenever a different part of the log is drawn*/
+	static final String VIEW_PROPERTY = "timelineView";
+
+	private final TimelinePyramid pyramid;
+	private final BucketListener listener;
+	/**Keyword whose entries are shown, -1 for all*/
+	private int keywordId = -1;
+	//The part of the log that is shown
+	private long viewStart;
+	private long viewEnd;
+	private final long dataStart;
+	private final long dataEnd;
+	//What was drawn last, to find the bucket under the mouse
+	private int level;
+	private long bucketsStart;
+	private int[] counts = new int[0];
+	/**Where a drag started, -1 when not dragging*/
+	private int dragX = -1;
+	private boolean dragged;
+	/**What describe said after the last paint, to tell listeners when the view changes*/
+	private String lastDescription;
+
+	/**
+	 * @param pyramid The counts to draw
+	 * @param listener Told which bucket was clicked
+	 */
+	TimelineChart(TimelinePyramid pyramid, BucketListener listener) {
+		this.pyramid = pyramid;
+		this.listener = listener;
+		int day = TimelinePyramid.BUCKET_MILLIS.length - 1;
+		dataStart = pyramid.bucketStart(day, pyramid.getFirstMillis());
+		dataEnd = pyramid.bucketStart(day, pyramid.getLastMillis()) + TimelinePyramid.BUCKET_MILLIS[day];
+		viewStart = dataStart;
+		viewEnd = dataEnd;
+		setPreferredSize(new Dimension(800, 300));
+		setBackground(Color.WHITE);
+		setToolTipText("");
+		MouseAdapter mouse = new MouseAdapter() {
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				zoom(e.getX(), Math.pow(1.5, e.getPreciseWheelRotation()));
+			}
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				dragX = e.getX();
+				dragged = false;
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				if (dragX < 0) return;
+				pan(dragX - e.getX());
+				dragX = e.getX();
+				dragged = true;
+			}
+
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				dragX = -1;
+			}
+
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (dragged) return;
+				int bucket = bucketAt(e.getX());
+				if (bucket >= 0 && counts[bucket] > 0) {
+					long start = bucketsStart + bucket * TimelinePyramid.BUCKET_MILLIS[level];
+					listener.bucketClicked(start, start + TimelinePyramid.BUCKET_MILLIS[level]);
+				}
+			}
+		};
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
+		addMouseWheelListener(mouse);
+	}
+
+	/**
+	 * Shows the entries of one keyword
+	 * @param id Keyword id, -1 for all keywords
+	 */
+	void setKeyword(int id) {
+		keywordId = id;
+		repaint();
+	}
+
+	/**
+	 * Shows the whole log again
+	 */
+	void zoomOut() {
+		viewStart = dataStart;
+		viewEnd = dataEnd;
+		repaint();
+	}
+
+	/**
+	 * @return A description of what is shown, e.g. for a label under the chart
+	 */
+	String describe() {
+		return TimelinePyramid.LEVEL_NAMES[level] + " buckets from " + LogClock.format(viewStart) + " to "
+				+ LogClock.format(viewEnd) + ". Scroll to zoom, drag to move, click a bar to see its entries.";
+	}
+
+	private void zoom(int x, double factor) {
+		long span = viewEnd - viewStart;
+		long newSpan = Math.max(MIN_SPAN, Math.min(dataEnd - dataStart, Math.round(span * factor)));
+		long pointer = timeAt(x);
+		long start = pointer - Math.round((double) (pointer - viewStart) / span * newSpan);
+		setView(start, newSpan);
+	}
+
+	private void pan(int pixels) {
+		long span = viewEnd - viewStart;
+		setView(viewStart + Math.round((double) pixels / plotWidth() * span), span);
+	}
+
+	private void setView(long start, long span) {
+		start = Math.max(dataStart, Math.min(dataEnd - span, start));
+		viewStart = start;
+		viewEnd = start + span;
+		repaint();
+	}
+
+	private int plotWidth() {
+		return Math.max(1, getWidth() - LEFT - RIGHT);
+	}
+
+	private long timeAt(int x) {
+		return viewStart + Math.round((double) (x - LEFT) / plotWidth() * (viewEnd - viewStart));
+	}
+
+	private int xOf(long millis) {
+		return LEFT + (int) Math.round((double) (millis - viewStart) / (viewEnd - viewStart) * plotWidth());
+	}
+
+	/**
+	 * @return Index into counts of the bucket drawn at x, -1 if there is none
+	 */
+	private int bucketAt(int x) {
+		if (x < LEFT || x > LEFT + plotWidth()) return -1;
+		long bucket = Math.floorDiv(timeAt(x) - bucketsStart, TimelinePyramid.BUCKET_MILLIS[level]);
+		return (bucket >= 0 && bucket < counts.length) ? (int) bucket : -1;
+	}
+
+	@Override
+	public String getToolTipText(MouseEvent e) {
+		int bucket = bucketAt(e.getX());
+		if (bucket < 0) return null;
+		long start = bucketsStart + bucket * TimelinePyramid.BUCKET_MILLIS[level];
+		return LogClock.format(start) + ": " + counts[bucket] + " entries";
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		int width = plotWidth();
+		int height = Math.max(1, getHeight() - TOP - BOTTOM);
+		//Bars at least 2 pixels wide, so only the level that fits is read
+		level = TimelinePyramid.levelFor(viewEnd - viewStart, Math.max(1, width / 2));
+		long bucketMillis = TimelinePyramid.BUCKET_MILLIS[level];
+		bucketsStart = pyramid.bucketStart(level, viewStart);
+		int buckets = (int) Math.min(Integer.MAX_VALUE - 1, (viewEnd - bucketsStart + bucketMillis - 1) / bucketMillis);
+		counts = pyramid.counts(level, keywordId, bucketsStart, buckets);
+		int max = 1;
+		for (int count : counts) {
+			max = Math.max(max, count);
+		}
+
+		g.setColor(BAR_COLOR);
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) continue;
+			long start = bucketsStart + i * bucketMillis;
+			int x1 = Math.max(LEFT, xOf(start));
+			int x2 = Math.min(LEFT + width, xOf(start + bucketMillis));
+			int barHeight = Math.max(1, (int) ((long) counts[i] * height / max));
+			g.fillRect(x1, TOP + height - barHeight, Math.max(1, x2 - x1 - 1), barHeight);
+		}
+
+		g.setColor(Color.DARK_GRAY);
+		g.drawLine(LEFT, TOP + height, LEFT + width, TOP + height);
+		g.drawLine(LEFT, TOP, LEFT, TOP + height);
+		FontMetrics metrics = g.getFontMetrics();
+		String top = Integer.toString(max);
+		g.drawString(top, LEFT - 5 - metrics.stringWidth(top), TOP + metrics.getAscent());
+		g.drawString("0", LEFT - 5 - metrics.stringWidth("0"), TOP + height);
+		int labelY = TOP + height + metrics.getAscent() + 4;
+		g.drawString(LogClock.format(viewStart), LEFT, labelY);
+		String end = LogClock.format(viewEnd);
+		g.drawString(end, LEFT + width - metrics.stringWidth(end), labelY);
+		String levelName = "Per " + TimelinePyramid.LEVEL_NAMES[level].toLowerCase();
+		g.drawString(levelName, LEFT + width - metrics.stringWidth(levelName), TOP - 5);
+		String description = describe();
+		if (!description.equals(lastDescription)) {
+			firePropertyChange(VIEW_PROPERTY, lastDescription, description);
+			lastDescription = description;
+		}
+	}
+}
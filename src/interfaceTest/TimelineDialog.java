@@ -0,0 +1,97 @@
+/**
+ * @file TimelineDialog.java
+ * Brings up a Java Dialog with the timeline of the last parse: the number
+ * of entries over time, for all keywords or one, from whole days down to
+ * seconds. Clicking a bar selects its entries in the results table.
+ */
+package interfaceTest;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.border.EmptyBorder;
+
+@SuppressWarnings("serial")
+public class TimelineDialog extends JDialog {
+	private static final String ALL_KEYWORDS = "All keywords";
+
+	/** Main content panel */
+	private final JPanel pnlMain = new JPanel();
+	private JComboBox<String> cbKeyword;
+	private JLabel lblStatus;
+
+	/**
+	 * Constructor
+	 * @param pyramid The counts collected by the last parse
+	 * @param view The UserView whose results table the bars select in
+	 */
+	public TimelineDialog(TimelinePyramid pyramid, UserView view) {
+		prepareGUI(pyramid, view);
+		Utility.addEscapeListener(this);
+	}
+
+	/**
+	 * This function prepares and displays the TimelineDialog GUI.
+	 * @param pyramid The counts collected by the last parse
+	 * @param view The UserView whose results table the bars select in
+	 */
+	private void prepareGUI(TimelinePyramid pyramid, UserView view) {
+		setTitle("Timeline");
+		setPreferredSize(new Dimension(900, 420));
+		getContentPane().add(pnlMain, BorderLayout.CENTER);
+		pnlMain.setBorder(new EmptyBorder(5,5,5,5));
+		pnlMain.setLayout(new BorderLayout());
+
+		//The ids of the timeline are those of the index the search was started with
+		KeywordIndex keywordIndex = view.logParser.getKeywordIndex();
+		List<String> keywords = new ArrayList<String>();
+		for (int id = 0; id < keywordIndex.size(); id++) {
+			if (pyramid.hasEntries(id)) keywords.add(keywordIndex.keywordOf(id));
+		}
+		keywords.sort(null);
+		keywords.add(0, ALL_KEYWORDS);
+		cbKeyword = new JComboBox<String>(keywords.toArray(new String[0]));
+
+		lblStatus = new JLabel(" ");
+		lblStatus.setBorder(new EmptyBorder(5,5,0,5));
+		TimelineChart chart = new TimelineChart(pyramid, (start, end) -> {
+			String keyword = selectedKeyword();
+			int rows = view.showRowsBetween(LogClock.format(start), LogClock.format(end), keyword);
+			lblStatus.setText(rows + " entries selected from " + LogClock.format(start) + " to " + LogClock.format(end));
+		});
+		chart.addPropertyChangeListener(TimelineChart.VIEW_PROPERTY, e -> lblStatus.setText((String) e.getNewValue()));
+		cbKeyword.addActionListener(e -> {
+			String keyword = selectedKeyword();
+			chart.setKeyword((keyword == null) ? -1 : keywordIndex.idOf(keyword));
+		});
+
+		JPanel pnlTop = new JPanel();
+		pnlTop.add(new JLabel("Show:"));
+		pnlTop.add(cbKeyword);
+		JButton btnZoomOut = new JButton("Whole Log");
+		btnZoomOut.addActionListener(e -> chart.zoomOut());
+		pnlTop.add(btnZoomOut);
+		pnlMain.add(pnlTop, BorderLayout.NORTH);
+		pnlMain.add(chart, BorderLayout.CENTER);
+		pnlMain.add(lblStatus, BorderLayout.SOUTH);
+
+		pack();
+		setLocationRelativeTo(null);
+		setVisible(true);
+	}
+
+	/**
+	 * @return The keyword chosen, null for all keywords
+	 */
+	private String selectedKeyword() {
+		String keyword = (String) cbKeyword.getSelectedItem();
+		return ALL_KEYWORDS.equals(keyword) ? null : keyword;
+	}
+}
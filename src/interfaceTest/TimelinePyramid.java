@@ -0,0 +1,152 @@
+/**
+ * @file TimelinePyramid.java
+ * Counts the entries of a parse per second, minute, hour and day, for every
+ * keyword and for all of them together, so the timeline can show any part
+ * of a log of many days at once: it reads the one level whose buckets fit
+ * the width of the chart, never more than a few thousand counts. Each
+ * level of each keyword is an int array split into pages of PAGE_SIZE
+ * buckets, and a page is only made when the keyword has an entry in it, so
+ * a keyword that fires once costs a page per level, not a day of seconds.
+ * Buckets are counted from the start of the day of the first entry (UTC, as
+ * Utility.toEpochMillis reads the timestamps); entries dated before it are not counted.
+ */
+
+package interfaceTest;
+
+import java.util.Arrays;
+
+class TimelinePyramid {
+	/**Length of a bucket of each level in milliseconds, finest first*/
+	static final long[] BUCKET_MILLIS = {1000L, 60 * 1000L, 60 * 60 * 1000L, 24 * 60 * 60 * 1000L};
+	static final String[] LEVEL_NAMES = {"Second", "Minute", "Hour", "Day"};
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	/**Start of the day of the first entry, Utility.NO_TIME before it*/
+	private long origin = Utility.NO_TIME;
+	private long firstMillis = Long.MAX_VALUE;
+	private long lastMillis = Long.MIN_VALUE;
+	private long count;
+	private long skipped;
+	/**Pages of counts by level, then keyword id + 1 (0 for all keywords), then page*/
+	private int[][][][] pages = new int[BUCKET_MILLIS.length][16][][];
+
+	/**
+	 * Counts an entry
+	 * @param id Id of the keyword of the entry
+	 * @param timeStamp Timestamp of the entry, entries without one are not counted
+	 */
+	void record(int id, String timeStamp) {
+		long millis = Utility.toEpochMillis(timeStamp);
+		if (millis == Utility.NO_TIME || id < 0) return;
+		if (origin == Utility.NO_TIME) origin = millis - Math.floorMod(millis, BUCKET_MILLIS[BUCKET_MILLIS.length - 1]);
+		if (millis < origin) {
+			skipped++;
+			return;
+		}
+		if (id + 1 >= pages[0].length) {
+			for (int level = 0; level < pages.length; level++) {
+				pages[level] = Arrays.copyOf(pages[level], Math.max(id + 2, pages[level].length * 2));
+			}
+		}
+		for (int level = 0; level < pages.length; level++) {
+			long bucket = (millis - origin) / BUCKET_MILLIS[level];
+			if (bucket > Integer.MAX_VALUE) break;
+			add(level, 0, (int) bucket);
+			add(level, id + 1, (int) bucket);
+		}
+		firstMillis = Math.min(firstMillis, millis);
+		lastMillis = Math.max(lastMillis, millis);
+		count++;
+	}
+
+	private void add(int level, int keyword, int bucket) {
+		int[][] keywordPages = pages[level][keyword];
+		int page = bucket >>> PAGE_BITS;
+		if (keywordPages == null || page >= keywordPages.length) {
+			keywordPages = Arrays.copyOf((keywordPages == null) ? new int[0][] : keywordPages,
+					Math.max(page + 1, (keywordPages == null) ? 1 : keywordPages.length * 2));
+			pages[level][keyword] = keywordPages;
+		}
+		if (keywordPages[page] == null) keywordPages[page] = new int[PAGE_SIZE];
+		keywordPages[page][bucket & (PAGE_SIZE - 1)]++;
+	}
+
+	/**
+	 * @param spanMillis Length of time to show
+	 * @param maxBuckets Most buckets that fit
+	 * @return The finest level with at most maxBuckets buckets over the span
+	 */
+	static int levelFor(long spanMillis, int maxBuckets) {
+		for (int level = 0; level < BUCKET_MILLIS.length - 1; level++) {
+			if (spanMillis / BUCKET_MILLIS[level] <= maxBuckets) return level;
+		}
+		return BUCKET_MILLIS.length - 1;
+	}
+
+	/**
+	 * Reads the counts of one level
+	 * @param level Index into BUCKET_MILLIS
+	 * @param id Keyword id, -1 for all keywords
+	 * @param fromMillis Start of the first bucket wanted, rounded down to a bucket
+	 * @param buckets Number of buckets wanted
+	 * @return The counts, 0 for buckets outside the log
+	 */
+	int[] counts(int level, int id, long fromMillis, int buckets) {
+		int[] result = new int[buckets];
+		if (origin == Utility.NO_TIME || id + 1 >= pages[level].length || pages[level][id + 1] == null) return result;
+		int[][] keywordPages = pages[level][id + 1];
+		long first = Math.floorDiv(fromMillis - origin, BUCKET_MILLIS[level]);
+		for (int i = 0; i < buckets; i++) {
+			long bucket = first + i;
+			if (bucket < 0) continue;
+			long page = bucket >>> PAGE_BITS;
+			if (page >= keywordPages.length) break;
+			if (keywordPages[(int) page] != null) result[i] = keywordPages[(int) page][(int) (bucket & (PAGE_SIZE - 1))];
+		}
+		return result;
+	}
+
+	/**
+	 * @return Start of the bucket of a level that holds the time
+	 */
+	long bucketStart(int level, long millis) {
+		return origin + Math.floorDiv(millis - origin, BUCKET_MILLIS[level]) * BUCKET_MILLIS[level];
+	}
+
+	/**
+	 * @return Number of entries counted
+	 */
+	long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return Time of the earliest entry, only meaningful if getCount is not 0
+	 */
+	long getFirstMillis() {
+		return firstMillis;
+	}
+
+	/**
+	 * @return Time of the latest entry, only meaningful if getCount is not 0
+	 */
+	long getLastMillis() {
+		return lastMillis;
+	}
+
+	/**
+	 * @return Number of entries dated before the day of the first one, which were not counted
+	 */
+	long getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * @return True if the keyword has any entries
+	 */
+	boolean hasEntries(int id) {
+		int last = BUCKET_MILLIS.length - 1;
+		return id + 1 < pages[last].length && pages[last][id + 1] != null;
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * @file TrendDialog.java
+ * Brings up a Java Dialog that shows how often a keyword fired per day or
+ * hour across the parses kept in the TrendStore, for one logfile or all of
+ * them, e.g. to see whether an error is getting worse this month. The
+ * ranges end at the last day in the store, so a store filled from older
+ * logs still shows them.
+ */
+package interfaceTest;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+
+@SuppressWarnings("serial")
+public class TrendDialog extends JDialog {
+	private static final String[] HEADERS = {"Period", "Entries"};
+	private static final String ALL_SOURCES = "All logfiles";
+	private static final String[] RANGES = {"Last 7 days", "Last 30 days", "Last 90 days", "Last 365 days", "Everything"};
+	private static final int[] RANGE_DAYS = {7, 30, 90, 365, -1};
+	private static final String[] BUCKETS = {"Per day", "Per hour"};
+
+	/** Main content panel */
+	private final JPanel pnlMain = new JPanel();
+	private final TrendStore store;
+	private JComboBox<String> cbKeyword;
+	private JComboBox<String> cbSource;
+	private JComboBox<String> cbRange;
+	private JComboBox<String> cbBucket;
+	private JTable table;
+	private JLabel lblStatus;
+
+	/**
+	 * Constructor
+	 * @param store The counts of earlier parses
+	 */
+	public TrendDialog(TrendStore store) {
+		this.store = store;
+		prepareGUI();
+		Utility.addEscapeListener(this);
+	}
+
+	/**
+	 * This function prepares and displays the TrendDialog GUI.
+	 */
+	private void prepareGUI() {
+		setTitle("Trends");
+		setPreferredSize(new Dimension(700, 450));
+		getContentPane().add(pnlMain, BorderLayout.CENTER);
+		pnlMain.setBorder(new EmptyBorder(5,5,5,5));
+		pnlMain.setLayout(new BorderLayout());
+
+		cbKeyword = new JComboBox<String>(store.getKeywords().toArray(new String[0]));
+		cbKeyword.setEditable(true);
+		List<String> sources = store.getSources();
+		sources.add(0, ALL_SOURCES);
+		cbSource = new JComboBox<String>(sources.toArray(new String[0]));
+		cbSource.setPrototypeDisplayValue("A fairly long logfile name.log");
+		cbRange = new JComboBox<String>(RANGES);
+		cbRange.setSelectedIndex(1);
+		cbBucket = new JComboBox<String>(BUCKETS);
+		JButton btnShow = new JButton("Show");
+		btnShow.addActionListener(e -> showTrend());
+
+		JPanel pnlTop = new JPanel();
+		pnlTop.add(new JLabel("Keyword:"));
+		pnlTop.add(cbKeyword);
+		pnlTop.add(cbSource);
+		pnlTop.add(cbRange);
+		pnlTop.add(cbBucket);
+		pnlTop.add(btnShow);
+		pnlMain.add(pnlTop, BorderLayout.NORTH);
+
+		table = new JTable(new ResultTableModel(new ArrayList<Object[]>(), HEADERS));
+		table.setCellSelectionEnabled(true);
+		pnlMain.add(new JScrollPane(table), BorderLayout.CENTER);
+
+		lblStatus = new JLabel(store.getSegmentCount() + " parses kept. Pick a keyword and press Show.");
+		lblStatus.setBorder(new EmptyBorder(5,5,0,5));
+		pnlMain.add(lblStatus, BorderLayout.SOUTH);
+		if (cbKeyword.getItemCount() > 0) showTrend();
+
+		pack();
+		setLocationRelativeTo(null);
+		setVisible(true);
+	}
+
+	/**
+	 * Queries the store for the chosen keyword, logfile and range and shows the result
+	 */
+	private void showTrend() {
+		String keyword = (String) cbKeyword.getSelectedItem();
+		if (keyword == null || keyword.trim().isEmpty()) return;
+		keyword = keyword.trim();
+		String source = (String) cbSource.getSelectedItem();
+		if (ALL_SOURCES.equals(source)) source = null;
+		long last = store.getLastMillis();
+		if (last == Utility.NO_TIME) {
+			lblStatus.setText("No parses have been kept yet.");
+			return;
+		}
+		long to = Math.floorDiv(last, TrendStore.DAY_MILLIS) * TrendStore.DAY_MILLIS + TrendStore.DAY_MILLIS;
+		int days = RANGE_DAYS[cbRange.getSelectedIndex()];
+		long from = (days < 0) ? store.getFirstMillis() : to - days * TrendStore.DAY_MILLIS;
+		boolean hourly = cbBucket.getSelectedIndex() == 1;
+		long bucketMillis = hourly ? TrendStore.HOUR_MILLIS : TrendStore.DAY_MILLIS;
+
+		TrendStore.Trend trend;
+		try {
+			trend = store.query(keyword, source, from, to, bucketMillis);
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(this, "The trend store could not be read: " + e.getMessage());
+			return;
+		}
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int i = 0; i < trend.counts.length; i++) {
+			String start = LogClock.format(trend.fromMillis + i * trend.bucketMillis);
+			rows.add(new Object[] {hourly ? start.substring(0, 11) : start.substring(0, 8), trend.counts[i]});
+		}
+		table.setModel(new ResultTableModel(rows, HEADERS));
+		lblStatus.setText(trend.getTotal() + " entries of " + keyword + ", " + describeChange(trend.counts)
+				+ ". Read " + trend.segmentsRead + " of " + trend.segmentsTotal + " parses in "
+				+ String.format("%.1f", trend.nanos / 1e6) + " ms.");
+	}
+
+	/**
+	 * @return How the second half of the range compares to the first
+	 */
+	private static String describeChange(long[] counts) {
+		long before = 0;
+		long after = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (i < counts.length / 2) before += counts[i];
+			else if (i >= counts.length - counts.length / 2) after += counts[i];
+		}
+		if (before == 0) return (after == 0) ? "none in the range" : "none in the first half of the range";
+		return String.format("%+.0f%% in the second half of the range", 100.0 * (after - before) / before);
+	}
+}
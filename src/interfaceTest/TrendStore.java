@@ -0,0 +1,518 @@
+/**
+ * @file TrendStore.java
+ * Keeps the hourly counts of every keyword or group parse, so how often an
+ * error fires can be followed across days and months of logs. Each parse
+ * adds one segment file to the trends folder of the data directory (setting
+ * trend.dir): the name of the logfile it was read from, the first and last
+ * hour with entries, and the keywords with their numbers of rows, in a small
+ * header, followed by two columns. The rows are sorted by keyword and
+ * then by hour; the hour column holds each hour as the number of hours since
+ * the one before it (since the first hour of the segment at the start of a
+ * keyword) and the count column the number of entries in it, both as
+ * variable length numbers and each compressed on its own. The header tells
+ * where the rows of each keyword start in both columns.
+ *
+ * The headers are read once and kept, so a query only opens the segments
+ * whose hours overlap the range asked for and that have the keyword, and
+ * only decodes the rows of that keyword. When the same logfile is parsed
+ * again, each hour of a keyword is counted from the newest segment of that
+ * file that has the keyword and spans the hour, so a log that is parsed
+ * more than once, again after it grew, or again with other keywords or
+ * Time critical bounds, is counted once. Earlier segments whose keywords
+ * and hours a new one covers entirely are deleted.
+ */
+
+package interfaceTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+class TrendStore {
+	/**"LRTRND" followed by the format number of the files*/
+	private static final long MAGIC = 0x4C5254524E440001L;
+	private static final String SUFFIX = ".seg";
+	/**Level of the TimelinePyramid the segments are taken from*/
+	private static final int LEVEL = 2;
+	static final long HOUR_MILLIS = TimelinePyramid.BUCKET_MILLIS[LEVEL];
+	static final long DAY_MILLIS = TimelinePyramid.BUCKET_MILLIS[LEVEL + 1];
+
+	private static TrendStore instance;
+
+	private final File directory;
+	/**Headers of the segments read so far, by file name*/
+	private final Map<String, Segment> segments = new HashMap<String, Segment>();
+
+	/**
+	 * What a segment file says about itself before its columns
+	 */
+	private static class Segment {
+		File file;
+		long created;
+		String source;
+		/**First and last hour with entries*/
+		long minMillis;
+		long maxMillis;
+		/**Where the columns start in the file, and their lengths before and after compression*/
+		long columnsAt;
+		int hoursLength;
+		int hoursPacked;
+		int countsLength;
+		int countsPacked;
+		/**Keywords, with where their rows start in the columns*/
+		Map<String, int[]> keywords = new HashMap<String, int[]>();
+
+		boolean overlaps(long fromMillis, long toMillis) {
+			return minMillis < toMillis && maxMillis + HOUR_MILLIS > fromMillis;
+		}
+
+		boolean spans(long millis) {
+			return minMillis <= millis && millis <= maxMillis;
+		}
+
+		/**
+		 * @return True if this segment was read from the same logfile after the other
+		 */
+		boolean isNewerThan(Segment other) {
+			return this != other && source.equals(other.source)
+					&& (created > other.created || created == other.created && file.getName().compareTo(other.file.getName()) > 0);
+		}
+
+		/**
+		 * @return True if this segment was read from the same logfile after the other, over all of its hours
+		 */
+		boolean covers(Segment other) {
+			return isNewerThan(other) && minMillis <= other.minMillis && maxMillis >= other.maxMillis;
+		}
+	}
+
+	/**
+	 * The result of a query
+	 */
+	static class Trend {
+		/**Start of the first bucket and the length of each*/
+		final long fromMillis;
+		final long bucketMillis;
+		final long[] counts;
+		int segmentsRead;
+		int segmentsTotal;
+		long nanos;
+
+		Trend(long fromMillis, long bucketMillis, int buckets) {
+			this.fromMillis = fromMillis;
+			this.bucketMillis = bucketMillis;
+			counts = new long[buckets];
+		}
+
+		long getTotal() {
+			long total = 0;
+			for (long count : counts) {
+				total += count;
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * @param directory Folder the segment files are kept in, made when the first one is added
+	 */
+	TrendStore(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return The store in the folder of the trend.dir setting, trends in the data directory by default
+	 */
+	static synchronized TrendStore getDefault() {
+		if (instance == null) {
+			instance = new TrendStore(new File(AppConfig.getString("trend.dir",
+					new File(AppConfig.getDataDirectory(), "trends").getPath())));
+		}
+		return instance;
+	}
+
+	/**
+	 * Adds the hourly counts of a parse as a new segment. Earlier segments of
+	 * the same logfile whose keywords and hours the new one covers are deleted.
+	 * @param source Path of the logfile that was parsed
+	 * @param timeline The counts collected by the parse
+	 * @param keywordIndex The dictionary keywords the ids of the timeline refer to
+	 * @return Number of rows written, 0 if the parse had no entries with timestamps
+	 */
+	synchronized int append(String source, TimelinePyramid timeline, KeywordIndex keywordIndex) throws IOException {
+		if (timeline.getCount() == 0) return 0;
+		long first = timeline.bucketStart(LEVEL, timeline.getFirstMillis());
+		long last = timeline.bucketStart(LEVEL, timeline.getLastMillis());
+		int hours = (int) ((last - first) / HOUR_MILLIS) + 1;
+		ByteArrayOutputStream hourColumn = new ByteArrayOutputStream();
+		ByteArrayOutputStream countColumn = new ByteArrayOutputStream();
+		List<String> names = new ArrayList<String>();
+		List<int[]> entries = new ArrayList<int[]>();
+		int rows = 0;
+		for (int id = 0; id < keywordIndex.size(); id++) {
+			if (!timeline.hasEntries(id)) continue;
+			int[] counts = timeline.counts(LEVEL, id, first, hours);
+			int[] entry = {hourColumn.size(), countColumn.size(), 0};
+			int previous = 0;
+			for (int hour = 0; hour < hours; hour++) {
+				if (counts[hour] == 0) continue;
+				writeVarLong(hourColumn, hour - previous);
+				writeVarLong(countColumn, counts[hour]);
+				previous = hour;
+				entry[2]++;
+			}
+			if (entry[2] == 0) continue;
+			names.add(keywordIndex.keywordOf(id));
+			entries.add(entry);
+			rows += entry[2];
+		}
+		if (rows == 0) return 0;
+
+		Segment segment = new Segment();
+		segment.created = System.currentTimeMillis();
+		segment.source = new File(source).getAbsolutePath();
+		segment.minMillis = first;
+		segment.maxMillis = first + (hours - 1) * HOUR_MILLIS;
+		byte[] hoursPacked = deflate(hourColumn.toByteArray());
+		byte[] countsPacked = deflate(countColumn.toByteArray());
+		segment.hoursLength = hourColumn.size();
+		segment.hoursPacked = hoursPacked.length;
+		segment.countsLength = countColumn.size();
+		segment.countsPacked = countsPacked.length;
+		for (int i = 0; i < names.size(); i++) {
+			segment.keywords.put(names.get(i), entries.get(i));
+		}
+
+		ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(headerBytes);
+		header.writeLong(segment.created);
+		writeString(header, segment.source);
+		header.writeLong(segment.minMillis);
+		header.writeLong(segment.maxMillis);
+		header.writeInt(segment.hoursLength);
+		header.writeInt(segment.hoursPacked);
+		header.writeInt(segment.countsLength);
+		header.writeInt(segment.countsPacked);
+		header.writeInt(names.size());
+		for (int i = 0; i < names.size(); i++) {
+			int[] entry = entries.get(i);
+			writeString(header, names.get(i));
+			header.writeInt(entry[0]);
+			header.writeInt(entry[1]);
+			header.writeInt(entry[2]);
+		}
+		header.flush();
+		segment.columnsAt = 12 + headerBytes.size();
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not make " + directory);
+		}
+		refresh();
+		File file = new File(directory, "trend-" + segment.created + SUFFIX);
+		for (int i = 1; file.exists(); i++) {
+			file = new File(directory, "trend-" + segment.created + "-" + i + SUFFIX);
+		}
+		segment.file = file;
+		//Written to a temporary file first, so a crash cannot leave a partial segment
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+			out.writeLong(MAGIC);
+			out.writeInt(headerBytes.size());
+			headerBytes.writeTo(out);
+			out.write(hoursPacked);
+			out.write(countsPacked);
+		} catch (IOException e) {
+			temp.delete();
+			throw e;
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		segments.put(file.getName(), segment);
+		for (Iterator<Segment> it = segments.values().iterator(); it.hasNext();) {
+			Segment old = it.next();
+			if (segment.covers(old) && segment.keywords.keySet().containsAll(old.keywords.keySet())
+					&& old.file.delete()) {
+				it.remove();
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Adds up the entries of a keyword over a range of time
+	 * @param keyword The keyword
+	 * @param source Path of the logfile to count, null for all of them
+	 * @param fromMillis Start of the range, rounded down to a bucket
+	 * @param toMillis End of the range, not included
+	 * @param bucketMillis Length of a bucket, a whole number of hours
+	 * @return The entries per bucket and how many segments were read
+	 */
+	synchronized Trend query(String keyword, String source, long fromMillis, long toMillis, long bucketMillis) throws IOException {
+		long start = System.nanoTime();
+		refresh();
+		fromMillis = Math.floorDiv(fromMillis, bucketMillis) * bucketMillis;
+		int buckets = (int) Math.max(0, (toMillis - fromMillis + bucketMillis - 1) / bucketMillis);
+		Trend trend = new Trend(fromMillis, bucketMillis, buckets);
+		trend.segmentsTotal = segments.size();
+		List<Segment> candidates = new ArrayList<Segment>();
+		for (Segment segment : segments.values()) {
+			if (!segment.keywords.containsKey(keyword) || !segment.overlaps(fromMillis, toMillis)) continue;
+			if (source != null && !segment.source.equals(source)) continue;
+			candidates.add(segment);
+		}
+		for (Segment segment : candidates) {
+			List<Segment> newer = getNewer(segment, candidates);
+			if (isReplaced(segment, newer)) continue;
+			int[] rows = segment.keywords.get(keyword);
+			byte[][] columns = readColumns(segment);
+			int[] hourAt = {rows[0]};
+			int[] countAt = {rows[1]};
+			long hour = segment.minMillis;
+			for (int row = 0; row < rows[2]; row++) {
+				hour += readVarLong(columns[0], hourAt) * HOUR_MILLIS;
+				long count = readVarLong(columns[1], countAt);
+				if (hour < fromMillis || hour >= toMillis || isRecounted(hour, newer)) continue;
+				trend.counts[(int) ((hour - fromMillis) / bucketMillis)] += count;
+			}
+			trend.segmentsRead++;
+		}
+		trend.nanos = System.nanoTime() - start;
+		return trend;
+	}
+
+	/**
+	 * @param others Segments that have the keyword too
+	 * @return Those of the others that were read from the same logfile after the segment
+	 */
+	private static List<Segment> getNewer(Segment segment, List<Segment> others) {
+		List<Segment> newer = new ArrayList<Segment>();
+		for (Segment other : others) {
+			if (other.isNewerThan(segment)) newer.add(other);
+		}
+		return newer;
+	}
+
+	/**
+	 * @param newer Later segments of the same logfile that have the keyword too
+	 * @return True if one of them counted the keyword over all hours of the segment again
+	 */
+	private static boolean isReplaced(Segment segment, List<Segment> newer) {
+		for (Segment other : newer) {
+			if (other.covers(segment)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param newer Later segments of the same logfile that have the keyword too
+	 * @return True if one of them counted the keyword in this hour again
+	 */
+	private static boolean isRecounted(long hour, List<Segment> newer) {
+		for (Segment other : newer) {
+			if (other.spans(hour)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The keywords with entries in any segment, sorted
+	 */
+	synchronized List<String> getKeywords() {
+		refresh();
+		TreeSet<String> keywords = new TreeSet<String>();
+		for (Segment segment : segments.values()) {
+			keywords.addAll(segment.keywords.keySet());
+		}
+		return new ArrayList<String>(keywords);
+	}
+
+	/**
+	 * @return The logfiles the segments were read from, sorted
+	 */
+	synchronized List<String> getSources() {
+		refresh();
+		TreeSet<String> sources = new TreeSet<String>();
+		for (Segment segment : segments.values()) {
+			sources.add(segment.source);
+		}
+		return new ArrayList<String>(sources);
+	}
+
+	/**
+	 * @return Start of the last hour with entries in any segment, Utility.NO_TIME if there are none
+	 */
+	synchronized long getLastMillis() {
+		refresh();
+		long last = Utility.NO_TIME;
+		for (Segment segment : segments.values()) {
+			last = Math.max(last, segment.maxMillis);
+		}
+		return last;
+	}
+
+	/**
+	 * @return Start of the first hour with entries in any segment, Utility.NO_TIME if there are none
+	 */
+	synchronized long getFirstMillis() {
+		refresh();
+		long first = Utility.NO_TIME;
+		for (Segment segment : segments.values()) {
+			if (first == Utility.NO_TIME || segment.minMillis < first) first = segment.minMillis;
+		}
+		return first;
+	}
+
+	/**
+	 * @return Number of segments in the store
+	 */
+	synchronized int getSegmentCount() {
+		refresh();
+		return segments.size();
+	}
+
+	/**
+	 * Reads the headers of segments added since the last call, e.g. by
+	 * another copy of the program, and forgets those that were deleted
+	 */
+	private void refresh() {
+		String[] names = directory.list((dir, name) -> name.endsWith(SUFFIX));
+		if (names == null) {
+			segments.clear();
+			return;
+		}
+		segments.keySet().retainAll(Arrays.asList(names));
+		for (String name : names) {
+			if (segments.containsKey(name)) continue;
+			File file = new File(directory, name);
+			try {
+				segments.put(name, readHeader(file));
+			} catch (IOException e) {
+				System.out.println("Ignoring unreadable trend segment " + file + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private static Segment readHeader(File file) throws IOException {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			if (in.readLong() != MAGIC) throw new IOException("Not a trend segment");
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes));
+			Segment segment = new Segment();
+			segment.file = file;
+			segment.columnsAt = 12 + bytes.length;
+			segment.created = header.readLong();
+			segment.source = readString(header);
+			segment.minMillis = header.readLong();
+			segment.maxMillis = header.readLong();
+			segment.hoursLength = header.readInt();
+			segment.hoursPacked = header.readInt();
+			segment.countsLength = header.readInt();
+			segment.countsPacked = header.readInt();
+			int keywordCount = header.readInt();
+			for (int i = 0; i < keywordCount; i++) {
+				segment.keywords.put(readString(header), new int[] {header.readInt(), header.readInt(), header.readInt()});
+			}
+			return segment;
+		}
+	}
+
+	/**
+	 * @return The hour and count columns of a segment, decompressed
+	 */
+	private static byte[][] readColumns(Segment segment) throws IOException {
+		byte[] packed = new byte[segment.hoursPacked + segment.countsPacked];
+		try (RandomAccessFile in = new RandomAccessFile(segment.file, "r")) {
+			in.seek(segment.columnsAt);
+			in.readFully(packed);
+		}
+		return new byte[][] {inflate(packed, 0, segment.hoursPacked, segment.hoursLength),
+				inflate(packed, segment.hoursPacked, segment.countsPacked, segment.countsLength)};
+	}
+
+	private static byte[] deflate(byte[] bytes) {
+		Deflater deflater = new Deflater();
+		deflater.setInput(bytes);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished()) {
+			out.write(buffer, 0, deflater.deflate(buffer));
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	private static byte[] inflate(byte[] bytes, int offset, int length, int inflatedLength) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(bytes, offset, length);
+			byte[] result = new byte[inflatedLength];
+			int read = 0;
+			while (read < inflatedLength && !inflater.finished()) {
+				int n = inflater.inflate(result, read, inflatedLength - read);
+				if (n == 0 && inflater.needsInput()) break;
+				read += n;
+			}
+			if (read != inflatedLength) throw new IOException("Trend segment column is cut short");
+			return result;
+		} catch (DataFormatException e) {
+			throw new IOException("Trend segment column is damaged", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Writes a number that is not negative in 7 bit groups, lowest first
+	 */
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	/**
+	 * @param at Position to read from, moved past the number
+	 */
+	private static long readVarLong(byte[] bytes, int[] at) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = bytes[at[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
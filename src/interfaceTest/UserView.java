@@ -19,7 +19,7 @@
 
 package interfaceTest;
 
-import java.sql.*;
+import java.sql.SQLException;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -35,13 +35,21 @@ import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.AbstractAction;
 import javax.swing.Box;
@@ -49,6 +57,7 @@ import javax.swing.BoxLayout;
 import javax.swing.DefaultListModel;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -63,15 +72,18 @@ import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.border.Border;
 import javax.swing.border.CompoundBorder;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 
 import interfaceTest.CheckBoxList.CheckBoxListItem;
@@ -81,6 +93,14 @@ import interfaceTest.CheckBoxList.CheckBoxListRenderer;
 @SuppressWarnings("serial")
 
 public class UserView extends JFrame{
+	/**Storage the dictionary and groups are read from*/
+	private LogStorage database;
+	/**The keywords, solutions, hyperlinks and groups the views are built from*/
+	private volatile DictionarySnapshot dictionary;
+	/**Guards replacing dictionary, which the poller thread and the group dialogs both do*/
+	private final Object dictionaryLock = new Object();
+	/**Thread that checks the storage for dictionary changes made by other clients*/
+	private ScheduledExecutorService dictionaryPoller;
 	/**Holds the content of the table from the database about group contents and names*/
 	protected HashMap<String, String> GroupInfo = new HashMap<String, String>();
 	/**Headers for the JTable in the interface*/
@@ -94,6 +114,8 @@ public class UserView extends JFrame{
 	private Thread t;
 	/**Holds path of the user given logfile*/
 	protected String logFile;
+	/**Encoding chosen for the logfile, or LogCharset.AUTO to use the settings or detect it*/
+	protected String logCharset = LogCharset.AUTO;
 	/** Maps the keywords to a URL pertaining to the solution */ 
 	protected static HashMap<String, String> urlMap = new HashMap<String, String>();
 	/**Maps keywords to their solutions where the keyword is the key, and the solution is the value*/
@@ -108,8 +130,16 @@ public class UserView extends JFrame{
 	protected HashSet<String> keyWords = new HashSet<String>();
 	/**Contains the original keywords to compare against user selected keywords*/
 	protected HashSet<String> originalKeyWords;
-	/**A HashSet used to prevent duplicates when listing out the individual keywords in the groups */
-	protected HashSet<String> groupKeywordsHashSet;
+	/**Gives each keyword a dense int id, used by the parser and for the group and selection bitsets*/
+	protected KeywordIndex keywordIndex = new KeywordIndex();
+	/**Number of searches reading the logfile; counted up on the event dispatch thread before their thread starts*/
+	private final AtomicInteger runningSearches = new AtomicInteger();
+	/**Ids of the keywords the parser searches for, filled by updateKeyWords*/
+	protected BitSet selectedKeywordIds = new BitSet();
+	/**Maps each group name to the ids of its keywords*/
+	private HashMap<String, BitSet> groupKeywordIds = new HashMap<String, BitSet>();
+	/**Ids of the keywords of every checked group*/
+	private BitSet checkedGroupKeywordIds = new BitSet();
 	/**Used to compare against user selected keywords*/
 	private boolean hasCopiedOriginalKeyWords;
 	/**The size of the logfile*/
@@ -120,10 +150,16 @@ public class UserView extends JFrame{
 	protected JTable errorTable;
 	/**Textfield for the selected filepath*/
 	private JTextField tfFilePath;
+	/**Lets the user choose the encoding of the logfile*/
+	private JComboBox<String> cbCharset;
 	/**User clicks after selecting directory for log file*/
 	protected JButton btnSubmit;
 	/**Scrollpane for errorTable*/
 	protected JScrollPane errorScrollPane;
+	/**Panel holding the results, either errorScrollPane or resultTabs*/
+	private JPanel pnlResults;
+	/**One tab of results per query when several queries are run at once*/
+	private JTabbedPane resultTabs;
 	/**AdminView that is initialized if isAdmin is true*/
 	private AdminView admin;
 	/**LogParser object used for file parsing*/
@@ -168,10 +204,10 @@ public class UserView extends JFrame{
 	//For the CheckBoxTree view
 	/** Checkbox tree for the tree view */
 	protected CBTree cbTree;
-	/** Root node of the Checkbox tree */
-	protected DefaultMutableTreeNode rootNode;
-	/** Model for the checkbox tree*/
-	protected DefaultTreeModel treeModel;
+	/** Model for the checkbox tree, which also holds which keywords are checked*/
+	protected KeywordTreeModel keywordTreeModel;
+	/** Field the user types into to filter the checkbox tree */
+	private JTextField tfTreeFilter;
 	/** JScrollPane holding the contents of the checkbox view */
 	protected JScrollPane treeScrollPane;
 	/** Popup menu to be displayed when the user right-clicks on the JTable */
@@ -179,10 +215,26 @@ public class UserView extends JFrame{
 	/** JPanel holding the JScrollPane for the checkbox view */
 	private JPanel pnlTreeView;
 	/** Contains a list of lists holding the lines before an error message */
-	protected ArrayList<ArrayList<String>> linesBeforeArrayList = new ArrayList<ArrayList<String>>();
+	protected List<ArrayList<String>> linesBeforeArrayList = new ArrayList<ArrayList<String>>();
 	/** Maps an error number to the list of lines after an error message */
-	protected HashMap<Integer, ArrayList<String>> linesAfterHashMap = new HashMap<Integer, ArrayList<String>>();
-	protected ArrayList<String> errorLinesArrayList = new ArrayList<String>();
+	protected Map<Integer, ArrayList<String>> linesAfterHashMap = new HashMap<Integer, ArrayList<String>>();
+	protected List<String> errorLinesArrayList = new ArrayList<String>();
+	/** Spill file of the results on screen, deleted when they are replaced */
+	private SpillFile resultSpill;
+	/** Index of the last keyword or group search, used to answer narrower searches without reading the file */
+	protected MatchIndex matchIndex;
+	/** Durations of the Time critical arrows found by the last parse, null if there was none */
+	protected ArrowLatency arrowLatency;
+	/** DEADLOCK blocks found by the last parse and the U-codes in them, null if there was none */
+	protected DeadlockGraph deadlockGraph;
+	/** Bursts of keywords found by the last keyword or group parse, null if there was none */
+	protected KeywordAnomalies keywordAnomalies;
+	/** Approximate summary of the last keyword or group parse, null if there was none */
+	protected ScanSketches scanSketches;
+	/** Keywords that fired close together in the last keyword or group parse, null if there was none */
+	protected KeywordCooccurrence cooccurrence;
+	/** Entries over time of the last keyword or group parse, null if there was none */
+	protected TimelinePyramid timeline;
 	/** JMenuItem displaying a dialog showing the lines before and after an error */
 	protected JMenuItem menuItemLines;
 	/** JMenuItem opening a hyperlink to the solution online */
@@ -211,17 +263,219 @@ public class UserView extends JFrame{
 		
 		initPreferenceEditorValues();
 		
-		String driver = "net.sourceforge.jtds.jdbc.Driver";
-		Class.forName(driver);
-		Connection conn = DriverManager.getConnection("jdbc:jtds:sqlserver://vwaswp02:1433/coeus", "coeus", "C0eus");
-		Statement stmt = conn.createStatement();
+		database = LogStorage.getInstance();
+		//Start from the saved snapshot if there is one, so the database is not needed to open the window
+		dictionary = DictionarySnapshot.load();
+		boolean fromSnapshot = (dictionary != null);
+		if (!fromSnapshot){
+			dictionary = DictionarySnapshot.fromDatabase(database);
+			dictionary.save();
+		}
 
-		fillKeywords(stmt);
-		createErrorDictionary(stmt);
+		fillKeywords();
+		createErrorDictionary();
 		
-		loadGroupInfo(stmt);
-		stmt.close();
+		GroupInfo.putAll(dictionary.getGroups());
 		prepareGUI(menu, isAdmin);
+		startDictionaryPoller(fromSnapshot);
+	}
+	
+	/**
+	 * Starts the background thread that checks the storage for changes made by
+	 * other clients, every dictionary.pollSeconds seconds (30 by default, 0 to turn off)
+	 * @param checkNow True to check right away, e.g. when starting from a saved snapshot
+	 */
+	private void startDictionaryPoller(boolean checkNow){
+		dictionaryPoller = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "Dictionary poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (checkNow){
+			dictionaryPoller.execute(this::pollDictionary);
+		}
+		long seconds = AppConfig.getLong("dictionary.pollSeconds", 30);
+		if (seconds > 0){
+			dictionaryPoller.scheduleWithFixedDelay(this::pollDictionary, seconds, seconds, TimeUnit.SECONDS);
+		}
+	}
+	
+	/**
+	 * Checks in the background whether the dictionary in the database has changed,
+	 * e.g. after the administrator saved changes to it, and if so updates the views
+	 */
+	void refreshDictionary(){
+		dictionaryPoller.execute(this::pollDictionary);
+	}
+	
+	/**
+	 * Runs on the poller thread. If the storage keeps a changelog, only the
+	 * entries that changed since the current revision are fetched and applied
+	 * in place. Otherwise the whole dictionary is fetched when its version
+	 * differs from the one the snapshot was taken from. If the database cannot
+	 * be reached, the snapshot keeps being used.
+	 */
+	private void pollDictionary(){
+		try {
+			DictionarySnapshot current = dictionary;
+			long revision = database.loadRevision();
+			if (revision >= 0 && current.getRevision() >= 0){
+				if (revision <= current.getRevision()) return;
+				List<DictionaryChange> changes = database.loadChangesSince(current.getRevision());
+				boolean groupsChanged = false;
+				for (DictionaryChange change : changes){
+					groupsChanged |= change.isGroupChange();
+				}
+				DictionarySnapshot latest = current.withChanges(changes, groupsChanged ? database.loadGroups() : null);
+				if (!replaceDictionary(current, latest)) return;
+				boolean applyGroups = groupsChanged;
+				SwingUtilities.invokeLater(() -> applyChanges(changes, applyGroups));
+			}
+			else {
+				String version = database.loadDictionaryVersion();
+				if (version != null && version.equals(current.getVersion())) return;
+				DictionarySnapshot latest = DictionarySnapshot.fromDatabase(database);
+				if (!replaceDictionary(current, latest)) return;
+				SwingUtilities.invokeLater(this::applyDictionary);
+			}
+		} catch (SQLException | RuntimeException e) {
+			System.out.println("Could not refresh the dictionary, using the saved snapshot: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Makes a newly fetched dictionary current and saves it, unless the
+	 * dictionary was changed in the meantime, in which case the next poll
+	 * fetches the changes again
+	 * @param expected The dictionary the changes were fetched against
+	 * @param latest The new dictionary
+	 * @return True if the dictionary was replaced
+	 */
+	private boolean replaceDictionary(DictionarySnapshot expected, DictionarySnapshot latest){
+		synchronized (dictionaryLock){
+			if (dictionary != expected) return false;
+			dictionary = latest;
+		}
+		latest.save();
+		return true;
+	}
+	
+	/**
+	 * Updates the keyword maps, the checkbox tree and the groups in place with
+	 * entries that changed. Waits until no search is running, since the
+	 * parser reads the keyword maps. Checkbox selections are kept.
+	 * @param changes The changes, in order
+	 * @param groupsChanged True if the groups have to be shown again
+	 */
+	private void applyChanges(List<DictionaryChange> changes, boolean groupsChanged){
+		if (isSearching()){
+			Timer retry = new Timer(2000, e -> applyChanges(changes, groupsChanged));
+			retry.setRepeats(false);
+			retry.start();
+			return;
+		}
+		boolean entriesChanged = false;
+		for (DictionaryChange change : changes){
+			if (!change.isGroupChange()){
+				applyEntry(change.getKey(), change.getRow());
+				entriesChanged = true;
+			}
+		}
+		if (entriesChanged){
+			updateTreeView();
+		}
+		if (groupsChanged){
+			GroupInfo.clear();
+			GroupInfo.putAll(dictionary.getGroups());
+			createGroupView();
+		}
+	}
+	
+	/**
+	 * Updates the maps and the checkbox tree for one entry
+	 * @param keyword The keyword of the entry
+	 * @param row The entry as it is now, null if it was deleted
+	 */
+	private void applyEntry(String keyword, String[] row){
+		boolean existed = folderMap.containsKey(keyword);
+		String oldFolder = folderMap.get(keyword);
+		if (row == null){
+			if (!existed) return;
+			keyWords.remove(keyword);
+			keywordIndex.remove(keyword);
+			folderMap.remove(keyword);
+			urlMap.remove(keyword);
+			solutions.remove(keyword);
+			comboBoxKeyWords.remove(keyword);
+			removeFromFolder(keyword, oldFolder);
+			return;
+		}
+		String folder = row[LogStorage.FOLDER];
+		keyWords.add(keyword);
+		folderMap.put(keyword, folder);
+		urlMap.put(keyword, row[LogStorage.HYPERLINK]);
+		solutions.put(keyword, row[LogStorage.SOLUTION]);
+		keywordIndex.setSolution(keywordIndex.intern(keyword), row[LogStorage.SOLUTION]);
+		if (!existed){
+			int index = Collections.binarySearch(comboBoxKeyWords, keyword);
+			comboBoxKeyWords.add((index < 0) ? -index - 1 : index, keyword);
+			originalKeyWords.add(keyword);
+			addToFolder(keyword, folder);
+		}
+		else if (!Objects.equals(oldFolder, folder)){
+			removeFromFolder(keyword, oldFolder);
+			addToFolder(keyword, folder);
+		}
+	}
+	
+	/**
+	 * Adds a keyword to its folder in treeMap, keeping it sorted
+	 * @param keyword The keyword to add
+	 * @param folder The folder of the keyword
+	 */
+	private void addToFolder(String keyword, String folder){
+		folderSet.add(folder);
+		ArrayList<String> keywords = treeMap.computeIfAbsent(folder, f -> new ArrayList<String>());
+		int index = Collections.binarySearch(keywords, keyword);
+		if (index >= 0) return;
+		index = -index - 1;
+		keywords.add(index, keyword);
+	}
+	
+	/**
+	 * Removes a keyword from its folder in treeMap,
+	 * and removes the folder if it is left empty
+	 * @param keyword The keyword to remove
+	 * @param folder The folder of the keyword
+	 */
+	private void removeFromFolder(String keyword, String folder){
+		ArrayList<String> keywords = treeMap.get(folder);
+		if (keywords != null){
+			keywords.remove(keyword);
+			if (keywords.isEmpty()){
+				treeMap.remove(folder);
+				folderSet.remove(folder);
+			}
+		}
+	}
+	
+	/**
+	 * Rebuilds the keyword maps, the checkbox tree and the group views from the current dictionary.
+	 * Waits until no search is running, since the parser reads the keyword maps.
+	 */
+	private void applyDictionary(){
+		if (isSearching()){
+			Timer retry = new Timer(2000, e -> applyDictionary());
+			retry.setRepeats(false);
+			retry.start();
+			return;
+		}
+		fillKeywords();
+		createErrorDictionary();
+		GroupInfo.clear();
+		GroupInfo.putAll(dictionary.getGroups());
+		updateTreeView();
+		createGroupView();
 	}
 	
 	/**
@@ -229,33 +483,27 @@ public class UserView extends JFrame{
 	 * and also fills the folder map to see which keywords are associated
 	 * with which folder, as well as fills the folderSet with all the
 	 * unique folder names.
-	 * @param stmt SQL statement to be executed within the function
-	 * @throws SQLException if there is an error connecting 
 	 */
-	protected void fillKeywords(Statement stmt) throws SQLException{
+	protected void fillKeywords(){
 		keyWords.clear();
 		folderMap.clear();
 		folderSet.clear();
 		treeMap.clear();
+		keywordIndex = new KeywordIndex();
 		
-		String query = "select Keyword, Folder, Hyperlink from logerrors";
-		ResultSet rs = stmt.executeQuery(query);
-		while(rs.next()){
-			keyWords.add(rs.getString("Keyword"));
-			folderMap.put(rs.getString("Keyword"), rs.getString("Folder"));
-			urlMap.put(rs.getString("Keyword"), rs.getString("Hyperlink"));
-			folderSet.add(rs.getString("Folder"));
-		}
-		//Fills the treeMap
-		for (String folderName : folderSet){
-			ArrayList<String> tempList = new ArrayList<String>();
-			for (Map.Entry<String, String> entry : folderMap.entrySet()){
-				if (entry.getValue().equals(folderName)){
-					tempList.add(entry.getKey());
-				}
-			}	
+		for (String[] row : dictionary.getLogErrors()){
+			keyWords.add(row[LogStorage.KEYWORD]);
+			keywordIndex.intern(row[LogStorage.KEYWORD]);
+			folderMap.put(row[LogStorage.KEYWORD], row[LogStorage.FOLDER]);
+			urlMap.put(row[LogStorage.KEYWORD], row[LogStorage.HYPERLINK]);
+			folderSet.add(row[LogStorage.FOLDER]);
+		}
+		//Fills the treeMap in one pass over the keywords
+		for (Map.Entry<String, String> entry : folderMap.entrySet()){
+			treeMap.computeIfAbsent(entry.getValue(), folder -> new ArrayList<String>()).add(entry.getKey());
+		}
+		for (ArrayList<String> tempList : treeMap.values()){
 			Collections.sort(tempList);
-			treeMap.put(folderName, tempList);
 		}
 		
 		comboBoxKeyWords.clear();
@@ -277,14 +525,16 @@ public class UserView extends JFrame{
 	 */
 	private void findLogErrors(String path) throws IOException{
 		logFile = path;
+		logCharset = (String) cbCharset.getSelectedItem();
 		File file = new File(path);
 		if (!file.exists()){
 			JOptionPane.showMessageDialog(null, "The file cannot be found");
 			return;
 		}
+		showSingleResults();
 		try {
 			if (tabbedPane.getSelectedIndex() == 0){
-				if (Utility.noCheckBoxSelected(cbTree)) {
+				if (Utility.noCheckBoxSelected(keywordTreeModel)) {
 					return;
 				}
 			}
@@ -298,21 +548,27 @@ public class UserView extends JFrame{
 					return;
 				}
 			}
+			if (tabbedPane.getSelectedIndex() != 1 && matchIndex != null && refilter(file)){
+				return;
+			}
 			dialog = new ProgressDialog(file, this);
 			dialog.setVisible(true);
 			logParser = new LogParser(this, tabbedPane.getSelectedIndex());
 			} catch (Exception e) {
 				e.printStackTrace();
 			};	
+			btnSubmit.setEnabled(false);
+			runningSearches.incrementAndGet();
 			t = new Thread(new Runnable(){
 				public void run() {
 					try {
 						fileSize = file.length();
 						fileSizeDivHundred = fileSize/100;
-						btnSubmit.setEnabled(false);
 						logParser.parseErrors(file, dialog);
 						} catch (IOException e) {
 							e.printStackTrace();
+							} finally {
+								runningSearches.decrementAndGet();
 							}
 						}			
 					}
@@ -321,47 +577,355 @@ public class UserView extends JFrame{
 	}
 	
 	/**
-	 * Helper function called before LogParse. Fills the keyWords set with 
-	 * the set of keywords that the parser uses to base its searches off of.
+	 * @return True while a search or comparison is reading a logfile with the current keyword index
+	 */
+	boolean isSearching(){
+		return runningSearches.get() > 0;
+	}
+	
+	/**
+	 * Answers the search from the index of the last one if it is narrower,
+	 * e.g. some keywords were unchecked or the Time critical bounds tightened
+	 * @param file The logfile
+	 * @return True if the results were shown, false if the file has to be read
+	 */
+	private boolean refilter(File file){
+		ParseEvents.Refilter event = new ParseEvents.Refilter();
+		event.begin();
+		updateKeyWords(tabbedPane.getSelectedIndex());
+		MatchIndex.Filtered filtered = matchIndex.filter(file, this);
+		if (filtered == null){
+			return false;
+		}
+		linesBeforeArrayList = filtered.linesBefore;
+		errorLinesArrayList = filtered.errorLines;
+		linesAfterHashMap = filtered.linesAfter;
+		logParser.errorData = filtered.rows;
+		//The statistics were taken over the rows of the wider search
+		clearAnalyses();
+		logParser.clearAnalyses();
+		errorTable = logParser.createResultTable(filtered.rows);
+		errorScrollPane.setViewportView(errorTable);
+		menuItemLines.setEnabled(true);
+		menuItemUrl.setEnabled(true);
+		menuItemCopy.setEnabled(true);
+		event.indexedRows = matchIndex.getRowCount();
+		event.keptRows = filtered.rows.size();
+		event.changedRows = filtered.getChangedCount();
+		event.commit();
+		dialog = new ProgressDialog(file, this);
+		dialog.setVisible(true);
+		dialog.doneParse(filtered.rows.size());
+		return true;
+	}
+	
+	/**
+	 * Forgets the statistics of the last search, so the progress dialog does not offer them
+	 */
+	private void clearAnalyses(){
+		arrowLatency = null;
+		deadlockGraph = null;
+		keywordAnomalies = null;
+		scanSketches = null;
+		cooccurrence = null;
+		timeline = null;
+	}
+	
+	/**
+	 * Compares the logfile to an earlier one the user picks. Both files are read
+	 * at once and reduced to error signatures of the keywords checked on the open
+	 * tab, or of every keyword when the logic statement tab is open.
+	 * @param path The path of the later logfile
+	 */
+	private void compareLogs(String path){
+		File file = new File(path);
+		if (!file.exists()){
+			JOptionPane.showMessageDialog(null, "The file cannot be found");
+			return;
+		}
+		int tab = tabbedPane.getSelectedIndex();
+		if (tab == 0 && Utility.noCheckBoxSelected(keywordTreeModel)){
+			return;
+		}
+		if (tab == 2 && Utility.noCheckBoxSelected(listOfGroups)){
+			return;
+		}
+		BitSet keywordIds = new BitSet(keywordIndex.size());
+		if (tab == 1){
+			keywordIds.set(0, keywordIndex.size());
+		}
+		else {
+			updateKeyWords(tab);
+			keywordIds.or(selectedKeywordIds);
+		}
+		JFileChooser chooser = new JFileChooser(file.getParentFile());
+		chooser.setDialogTitle("Compare " + file.getName() + " To An Earlier Log");
+		if (chooser.showOpenDialog(getRootPane()) != JFileChooser.APPROVE_OPTION){
+			return;
+		}
+		File before = chooser.getSelectedFile();
+		logCharset = (String) cbCharset.getSelectedItem();
+		LogComparison comparison = new LogComparison(keywordIndex, keywordIds, logCharset);
+		dialog = new ProgressDialog(file, this);
+		dialog.setVisible(true);
+		btnSubmit.setEnabled(false);
+		runningSearches.incrementAndGet();
+		SwingWorker<LogComparison.Result, Integer> worker = new SwingWorker<LogComparison.Result, Integer>() {
+			@Override
+			protected LogComparison.Result doInBackground() throws Exception {
+				return comparison.compare(before, file, percent -> publish(percent));
+			}
+			
+			@Override
+			protected void process(List<Integer> chunks) {
+				dialog.updateProgress(chunks.get(chunks.size() - 1));
+			}
+			
+			@Override
+			protected void done() {
+				runningSearches.decrementAndGet();
+				dialog.setVisible(false);
+				btnSubmit.setEnabled(true);
+				try {
+					new ComparisonDialog(get(), before, file);
+				} catch (InterruptedException | ExecutionException e) {
+					e.printStackTrace();
+					JOptionPane.showMessageDialog(null, "Could not compare the logs: " + e.getCause());
+				}
+			}
+		};
+		worker.execute();
+	}
+	
+	/**
+	 * Runs every query that is set up at once: the keywords checked in the tree,
+	 * each checked group and the logic statement, if one is filled in. The file
+	 * is read once and each query's results are shown in their own tab.
+	 * @param path The path of the log file to be parsed through
+	 */
+	private void findLogErrorsForAll(String path){
+		File file = new File(path);
+		if (!file.exists()){
+			JOptionPane.showMessageDialog(null, "The file cannot be found");
+			return;
+		}
+		showSingleResults();
+		List<SearchQuery> queries = collectQueries();
+		if (queries == null) return;
+		if (queries.isEmpty()){
+			JOptionPane.showMessageDialog(null, "Please check keywords or groups, or enter a logical statement");
+			return;
+		}
+		logFile = path;
+		logCharset = (String) cbCharset.getSelectedItem();
+		linesBeforeArrayList = new ArrayList<ArrayList<String>>();
+		errorLinesArrayList = new ArrayList<String>();
+		linesAfterHashMap = new HashMap<Integer, ArrayList<String>>();
+		clearAnalyses();
+		dialog = new ProgressDialog(file, this);
+		dialog.setVisible(true);
+		logParser = new LogParser(this, LogParser.MULTI_QUERY);
+		MultiQueryScanner scanner = new MultiQueryScanner(logParser, this, queries);
+		fileSize = file.length();
+		fileSizeDivHundred = Math.max(fileSize/100, 1);
+		btnSubmit.setEnabled(false);
+		runningSearches.incrementAndGet();
+		t = new Thread(() -> {
+			try {
+				int found = scanner.scan(file);
+				SwingUtilities.invokeLater(() -> {
+					dialog.doneParse(found);
+					showResultTabs(queries);
+				});
+			} catch (IOException e) {
+				e.printStackTrace();
+				SwingUtilities.invokeLater(() -> {
+					JOptionPane.showMessageDialog(null, "Could not read " + file.getName() + ": " + e.getMessage());
+					dialog.setVisible(false);
+					btnSubmit.setEnabled(true);
+				});
+			} finally {
+				runningSearches.decrementAndGet();
+			}
+		});
+		t.start();
+	}
+	
+	/**
+	 * Builds a query for the tree selection, each checked group and the logic statement
+	 * @return The queries, or null if the logic statement is not valid
+	 */
+	private List<SearchQuery> collectQueries(){
+		List<SearchQuery> queries = new ArrayList<SearchQuery>();
+		BitSet treeSelection = keywordTreeModel.getSelectedIds();
+		if (!treeSelection.isEmpty()){
+			queries.add(SearchQuery.forKeywords("Checked keywords", treeSelection));
+		}
+		if (listOfGroups != null){
+			for (CheckBoxListItem item : listOfGroups){
+				if (item.isSelected()){
+					queries.add(SearchQuery.forKeywords("Group " + item, groupKeywordIds.get(item.toString())));
+				}
+			}
+		}
+		if (cbKey1.getSelectedIndex() != -1 || cbKey2.getSelectedIndex() != -1 || cbLogic1.getSelectedIndex() != -1){
+			if (!saveAndOrNot()) return null;
+			StringBuilder name = new StringBuilder(cbKey1.getSelectedItem().toString());
+			name.append(" ").append(cbLogic1.getSelectedItem()).append(" ").append(cbKey2.getSelectedItem());
+			if (cbLogic2.getSelectedIndex() != -1 && cbKey3.getSelectedIndex() != -1){
+				name.append(" ").append(cbLogic2.getSelectedItem()).append(" ").append(cbKey3.getSelectedItem());
+			}
+			queries.add(SearchQuery.forLogic(name.toString(), keyWordArrayList, operandArrayList, notArrayList));
+		}
+		return queries;
+	}
+	
+	/**
+	 * Shows the results of each query in its own tab in place of the single results table
+	 * @param queries The queries that were run, holding their results
+	 */
+	private void showResultTabs(List<SearchQuery> queries){
+		resultTabs = new JTabbedPane(JTabbedPane.TOP);
+		resultTabs.setPreferredSize(errorScrollPane.getPreferredSize());
+		List<JTable> tables = new ArrayList<JTable>();
+		for (SearchQuery query : queries){
+			JTable table = logParser.createResultTable(query.rows);
+			tables.add(table);
+			JScrollPane scrollPane = new JScrollPane(table, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+			resultTabs.addTab(query.getName() + " (" + query.rows.size() + ")", scrollPane);
+		}
+		resultTabs.addChangeListener(e -> {
+			int index = resultTabs.getSelectedIndex();
+			if (index >= 0) selectResults(queries.get(index), tables.get(index));
+		});
+		selectResults(queries.get(0), tables.get(0));
+		useResults(logParser.getSpill());
+		pnlResults.remove(errorScrollPane);
+		pnlResults.add(resultTabs);
+		pnlResults.revalidate();
+		pnlResults.repaint();
+		menuItemLines.setEnabled(true);
+		menuItemUrl.setEnabled(true);
+		menuItemCopy.setEnabled(true);
+	}
+	
+	/**
+	 * Points the popup menu, the LineDialog and the exports at the results of one query
+	 * @param query The query whose tab was selected
+	 * @param table The table showing its results
+	 */
+	private void selectResults(SearchQuery query, JTable table){
+		errorTable = table;
+		linesBeforeArrayList = query.linesBefore;
+		errorLinesArrayList = query.errorLines;
+		linesAfterHashMap = query.linesAfter;
+		logParser.errorData = query.rows;
+	}
+	
+	/**
+	 * Called once new results are on screen, to delete the spill file of
+	 * the results they replaced
+	 * @param spill Spill file of the new results
+	 */
+	void useResults(SpillFile spill){
+		if (resultSpill != null && resultSpill != spill){
+			resultSpill.close();
+		}
+		resultSpill = spill;
+		if (matchIndex != null && matchIndex.getSpill() != spill){
+			matchIndex = null;
+		}
+	}
+	
+	/**
+	 * Selects and scrolls to the results with a timestamp in a range, such as
+	 * a bucket clicked on the timeline. The results are in the order of the
+	 * logfile, so the range is found by binary search on the timestamps.
+	 * @param from First timestamp of the range
+	 * @param to Timestamp just after the range
+	 * @param keyword Only results of this keyword are selected, null for all
+	 * @return Number of results selected
+	 */
+	int showRowsBetween(String from, String to, String keyword){
+		if (errorTable == null) return 0;
+		int first = firstRowAtOrAfter(from);
+		int end = firstRowAtOrAfter(to);
+		errorTable.clearSelection();
+		int selected = 0;
+		for (int row = first; row < end; row++){
+			if (keyword == null || keyword.equals(errorTable.getModel().getValueAt(row, 2))){
+				int viewRow = errorTable.convertRowIndexToView(row);
+				errorTable.addRowSelectionInterval(viewRow, viewRow);
+				if (selected++ == 0){
+					errorTable.scrollRectToVisible(errorTable.getCellRect(viewRow, 0, true));
+				}
+			}
+		}
+		if (selected > 0){
+			errorTable.setColumnSelectionInterval(0, errorTable.getColumnCount() - 1);
+		}
+		return selected;
+	}
+
+	/**
+	 * @return Index in the table model of the first result whose timestamp is not before the given one
+	 */
+	private int firstRowAtOrAfter(String timeStamp){
+		TableModel model = errorTable.getModel();
+		int low = 0;
+		int high = model.getRowCount();
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			Object value = model.getValueAt(middle, 1);
+			if (value == null || value.toString().compareTo(timeStamp) < 0) low = middle + 1;
+			else high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Puts the single results table back in place of the tabs of a previous multi-query run
+	 */
+	private void showSingleResults(){
+		if (resultTabs == null) return;
+		pnlResults.remove(resultTabs);
+		resultTabs = null;
+		pnlResults.add(errorScrollPane);
+		pnlResults.revalidate();
+		pnlResults.repaint();
+		errorTable = (JTable) errorScrollPane.getViewport().getView();
+		linesBeforeArrayList = new ArrayList<ArrayList<String>>();
+		errorLinesArrayList = new ArrayList<String>();
+		linesAfterHashMap = new HashMap<Integer, ArrayList<String>>();
+	}
+	
+	/**
+	 * Helper function called before LogParse. Fills selectedKeywordIds with 
+	 * the ids of the keywords that the parser uses to base its searches off of.
+	 * keyWords keeps every keyword of the dictionary.
 	 * Function is only called when the user is selecting from the CheckBoxTree
 	 * or from the group view
 	 * @param selectedTab	The current tab in the treeview
 	 */
 	void updateKeyWords(int selectedTab){
-		keyWords.clear();
+		BitSet selected = new BitSet(keywordIndex.size());
 		if (selectedTab == 0){
-			Enumeration<?> g = ((DefaultMutableTreeNode) cbTree.getModel().getRoot()).preorderEnumeration();
-			while (g.hasMoreElements()){
-				DefaultMutableTreeNode node = (DefaultMutableTreeNode) g.nextElement();
-				Object obj = node.getUserObject();  
-				if (obj instanceof TreeNodeCheckBox){
-					TreeNodeCheckBox cb = (TreeNodeCheckBox) obj;
-					if (cb.isSelected()){
-						keyWords.add(cb.getText());
-					}
-					
-				}
-			}
+			selected.or(keywordTreeModel.getSelectedIds());
 		}
 		else if (selectedTab == 2){
-			if (groupKeywordsListModel.isEmpty()) return;
-			for (int i=0; i<groupKeywordsListModel.size(); i++){
-				keyWords.add(groupKeywordsListModel.getElementAt(i));
-			}
+			selected.or(checkedGroupKeywordIds);
 		}
+		selectedKeywordIds = selected;
 	}
 		
 	/**
 	 * Maps the keywords to the solution messages in a HashMap
-	 * @param stmt	SQL Statement
-	 * @throws SQLException	SQL error
 	 */
-	protected void createErrorDictionary(Statement stmt) throws SQLException{
-		String query = "select Keyword, Suggested_Solution from logerrors";
-		ResultSet rs = stmt.executeQuery(query);
-		while(rs.next())
-		{
-			solutions.put(rs.getString("Keyword"), rs.getString("Suggested_Solution"));
+	protected void createErrorDictionary(){
+		solutions.clear();
+		for (String[] row : dictionary.getLogErrors()){
+			solutions.put(row[LogStorage.KEYWORD], row[LogStorage.SOLUTION]);
+			keywordIndex.setSolution(keywordIndex.intern(row[LogStorage.KEYWORD]), row[LogStorage.SOLUTION]);
 		}
 	}
 	
@@ -427,6 +991,13 @@ public class UserView extends JFrame{
 		pnlBottom.add(tfFilePath);
 		tfFilePath.setColumns(10);
 		
+		pnlBottom.add(Box.createRigidArea(new Dimension(10,0)));
+		
+		cbCharset = new JComboBox<String>(LogCharset.CHOICES);
+		cbCharset.setToolTipText("Encoding of the logfile, Auto detects it from the start of the file");
+		cbCharset.setMaximumSize(new Dimension(110, 30));
+		pnlBottom.add(cbCharset);
+		
 		Component horizontalStrut_1 = Box.createHorizontalStrut(20);
 		pnlBottom.add(horizontalStrut_1);
 		
@@ -466,6 +1037,57 @@ public class UserView extends JFrame{
 		
 		pnlBottom.add(Box.createRigidArea(new Dimension(10,0)));
 		
+		JButton btnRunAll = new JButton("Run All");
+		btnRunAll.setToolTipText("Run the checked keywords, each checked group and the logical statement in one pass");
+		btnRunAll.setPreferredSize(new Dimension(90, 30));
+		btnRunAll.addActionListener(e -> {
+			if (!btnSubmit.isEnabled()) return;
+			if (tfFilePath.getText().equals(""))
+				JOptionPane.showMessageDialog(null, "Please enter a path");
+			else
+				findLogErrorsForAll(tfFilePath.getText());
+		});
+		pnlBottom.add(btnRunAll);
+		
+		pnlBottom.add(Box.createRigidArea(new Dimension(10,0)));
+		
+		JButton btnCompare = new JButton("Compare");
+		btnCompare.setToolTipText("Compare this logfile to an earlier one: which errors are new, gone or more frequent");
+		btnCompare.setPreferredSize(new Dimension(90, 30));
+		btnCompare.addActionListener(e -> {
+			if (!btnSubmit.isEnabled()) return;
+			if (tfFilePath.getText().equals(""))
+				JOptionPane.showMessageDialog(null, "Please enter a path");
+			else
+				compareLogs(tfFilePath.getText());
+		});
+		pnlBottom.add(btnCompare);
+
+		pnlBottom.add(Box.createRigidArea(new Dimension(10,0)));
+
+		JButton btnFollow = new JButton("Follow");
+		btnFollow.setToolTipText("Watch the logfile as it is written and alert when a rule such as DEADLOCK > 5 in 60s is met");
+		btnFollow.setPreferredSize(new Dimension(90, 30));
+		btnFollow.addActionListener(e -> {
+			if (tfFilePath.getText().equals(""))
+				JOptionPane.showMessageDialog(null, "Please enter a path");
+			else if (!new File(tfFilePath.getText()).exists())
+				JOptionPane.showMessageDialog(null, "The file cannot be found");
+			else
+				new FollowDialog(new File(tfFilePath.getText()), (String) cbCharset.getSelectedItem());
+		});
+		pnlBottom.add(btnFollow);
+
+		pnlBottom.add(Box.createRigidArea(new Dimension(10,0)));
+
+		JButton btnTrends = new JButton("Trends");
+		btnTrends.setToolTipText("How often a keyword fired per day across the logfiles parsed before");
+		btnTrends.setPreferredSize(new Dimension(90, 30));
+		btnTrends.addActionListener(e -> new TrendDialog(TrendStore.getDefault()));
+		pnlBottom.add(btnTrends);
+
+		pnlBottom.add(Box.createRigidArea(new Dimension(10,0)));
+		
 		JButton btnBack = new JButton("Back");
 		btnBack.setPreferredSize(new Dimension(80, 30));
 		btnBack.addActionListener(e ->{
@@ -517,21 +1139,22 @@ public class UserView extends JFrame{
 		
 		
 		JButton btnToggleAll = new JButton("Toggle All");
+		//Flips every keyword shown under the filter without creating the nodes of collapsed folders
 		btnToggleAll.addActionListener(e -> {
-			cbTree.expandAll(new TreePath(cbTree.getModel().getRoot()));
-			Enumeration<?> g = ((DefaultMutableTreeNode) cbTree.getModel().getRoot()).preorderEnumeration();
-			while (g.hasMoreElements()){
-				DefaultMutableTreeNode node = (DefaultMutableTreeNode) g.nextElement();
-				Object obj = node.getUserObject();  
-				if (obj instanceof TreeNodeCheckBox){
-					TreeNodeCheckBox cb = (TreeNodeCheckBox) obj;
-					cb.setSelected(!cb.isSelected());
-				}
-			}
+			cbTree.cancelEditing();
+			keywordTreeModel.toggleShown();
     		pnlTreeView.repaint();
 		});
 		btnToggleAll.setAlignmentX( Component.CENTER_ALIGNMENT);
 		
+		JPanel pnlTreeFilter = new JPanel();
+		pnlTreeFilter.setLayout(new BoxLayout(pnlTreeFilter, BoxLayout.X_AXIS));
+		pnlTreeFilter.add(new JLabel("Filter: "));
+		pnlTreeFilter.add(tfTreeFilter);
+		pnlTreeFilter.setMaximumSize(new Dimension(Integer.MAX_VALUE, tfTreeFilter.getPreferredSize().height));
+		pnlTreeView.add(pnlTreeFilter);
+		pnlTreeView.add(Box.createRigidArea(new Dimension(0, 5)));
+		
 		treeScrollPane = new JScrollPane(cbTree);
 		pnlTreeView.add(treeScrollPane);
 		pnlTreeView.add(Box.createRigidArea(new Dimension(0, 5)));
@@ -644,20 +1267,18 @@ public class UserView extends JFrame{
 		                  .getElementAt(index);
 		            item.setSelected(!item.isSelected());
 		            list.repaint(list.getCellBounds(index, index));
-		            groupKeywordsHashSet.clear();
-		            groupKeywordsListModel.clear();
+		            //The keyword sets of the groups were built once in createGroupView, so this is an OR per group
+		            BitSet checked = new BitSet(keywordIndex.size());
 		            for (int i=0; i<groupNameListModel.size(); i++){
 	            		CheckBoxListItem cbItem = (CheckBoxListItem) list.getModel()
 	            				.getElementAt(i);
 	            		if (cbItem.isSelected()){
-	            			String keywordString = GroupInfo.get(cbItem.toString());
-				            String keywordStringArray[] = keywordString.split(" ");
-				            for (String key : keywordStringArray){
-				            	groupKeywordsHashSet.add(key);
-				            }
+	            			checked.or(groupKeywordIds.get(cbItem.toString()));
 	            		}
 	            	}
-		            for (String key : groupKeywordsHashSet){
+		            checkedGroupKeywordIds = checked;
+		            groupKeywordsListModel.clear();
+		            for (String key : keywordIndex.toKeywords(checked)){
 		            	groupKeywordsListModel.addElement(key);
 		            }
 		         }
@@ -732,17 +1353,17 @@ public class UserView extends JFrame{
 		errorScrollPane.setPreferredSize(new Dimension(700, 280));
 		errorScrollPane.setBorder(new CompoundBorder(new EmptyBorder(5,5,5,5), new LineBorder(Color.GRAY)));
 		
-		JPanel pnlRight = new JPanel();
-		pnlRight.setLayout(new BoxLayout(pnlRight, BoxLayout.Y_AXIS));
+		pnlResults = new JPanel();
+		pnlResults.setLayout(new BoxLayout(pnlResults, BoxLayout.Y_AXIS));
 		
 		JLabel lblTable = new JLabel("Error Table");
 		lblTable.setFont(lblTable.getFont().deriveFont(15.0f));
 		lblTable.setAlignmentX(CENTER_ALIGNMENT);
 		
-		pnlRight.add(lblTable);
-		pnlRight.add(errorScrollPane);
+		pnlResults.add(lblTable);
+		pnlResults.add(errorScrollPane);
 		
-		pnlTop.add(pnlRight);
+		pnlTop.add(pnlResults);
 		
 		setVisible(true);
 	}
@@ -761,33 +1382,21 @@ public class UserView extends JFrame{
 	            if ( SwingUtilities.isRightMouseButton(e)){
 	            	try {
 		                TreePath path = cbTree.getPathForLocation ( e.getX (), e.getY () );
-		                DefaultMutableTreeNode node = (DefaultMutableTreeNode)path.getLastPathComponent();
-	                    Object obj = node.getUserObject();
-	                    if (obj instanceof String){
+	                    Object obj = path.getLastPathComponent();
+	                    if (obj instanceof KeywordTreeModel.FolderNode){
+	                    	KeywordTreeModel.FolderNode folder = (KeywordTreeModel.FolderNode) obj;
 	                    	Rectangle pathBounds = cbTree.getUI ().getPathBounds (cbTree, path);
 	                    	if ( pathBounds != null && pathBounds.contains (e.getX (), e.getY())){
 	    	                    JPopupMenu menu = new JPopupMenu();
 	    	                    JMenuItem menuItemSelectAll = new JMenuItem("Select All");
 	    	                    menuItemSelectAll.addActionListener(actionEvent -> {
-	    	                    	for (int i=0; i<node.getChildCount(); i++){
-	    	                    		DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
-	    	                    		Object childObject = child.getUserObject();
-	    	                    		if (childObject instanceof TreeNodeCheckBox){
-	    	                    			((TreeNodeCheckBox) childObject).setSelected(true);
-	    	                    		}
-	    	                    	}
+	    	                    	keywordTreeModel.setFolderSelected(folder, true);
 	    	                    	pnlTreeView.repaint();
 	    	                    	cbTree.expandPath(path);
 	    	                    });
 	    	                    JMenuItem menuItemDeselectAll = new JMenuItem("Deslect All");
 	    	                    menuItemDeselectAll.addActionListener(actionEvent -> {
-	    	                    	for (int i=0; i<node.getChildCount(); i++){
-	    	                    		DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
-	    	                    		Object childObject = child.getUserObject();
-	    	                    		if (childObject instanceof TreeNodeCheckBox){
-	    	                    			((TreeNodeCheckBox) childObject).setSelected(false);
-	    	                    		}
-	    	                    	}
+	    	                    	keywordTreeModel.setFolderSelected(folder, false);
 	    	                    	pnlTreeView.repaint();
 	    	                    	cbTree.expandPath(path);
 	    	                    });
@@ -806,28 +1415,74 @@ public class UserView extends JFrame{
 	            
 	        }
 		});
+		keywordTreeModel = new KeywordTreeModel();
+		cbTree.setModel(keywordTreeModel);
+		cbTree.setRootVisible(false);
+		cbTree.setShowsRootHandles(true);
+		
+		tfTreeFilter = new JTextField();
+		tfTreeFilter.setToolTipText("Type the start of a keyword to filter the tree");
+		tfTreeFilter.getDocument().addDocumentListener(new DocumentListener(){
+			public void insertUpdate(DocumentEvent e){
+				filterTreeView();
+			}
+			public void removeUpdate(DocumentEvent e){
+				filterTreeView();
+			}
+			public void changedUpdate(DocumentEvent e){
+				filterTreeView();
+			}
+		});
 		updateTreeView();
 	}
 	
 	/**
 	 * Used as a helper function for the createTreeView() function
 	 * and also updates the checkbox tree dynamically as the 
-	 * administrator makes changes to the database. 
+	 * administrator makes changes to the database. Checked keywords
+	 * and expanded folders stay as they were.
 	 */
 	protected void updateTreeView(){
-		rootNode = new DefaultMutableTreeNode("Root");
-		treeModel = new DefaultTreeModel(rootNode);
-		cbTree.setModel(treeModel);
-		for (Map.Entry<String, ArrayList<String>> entry : treeMap.entrySet()){
-			DefaultMutableTreeNode node = new DefaultMutableTreeNode(entry.getKey());
-			rootNode.add(node);
-			for (int j = 0; j < entry.getValue().size(); j++){
-				node.add(new DefaultMutableTreeNode(new TreeNodeCheckBox(entry.getValue().get(j), false)));
+		List<TreePath> expanded = getExpandedFolders();
+		cbTree.cancelEditing();
+		keywordTreeModel.setKeywords(treeMap, keywordIndex);
+		for (TreePath path : expanded){
+			cbTree.expandPath(path);
+		}
+	}
+	
+	/**
+	 * Applies the text of the filter field to the checkbox tree. When few
+	 * keywords match, their folders are expanded so the matches can be seen.
+	 */
+	private void filterTreeView(){
+		List<TreePath> expanded = getExpandedFolders();
+		cbTree.cancelEditing();
+		keywordTreeModel.setFilter(tfTreeFilter.getText());
+		if (!tfTreeFilter.getText().trim().isEmpty() && keywordTreeModel.getShownCount() <= 200){
+			expanded.clear();
+			for (KeywordTreeModel.FolderNode folder : keywordTreeModel.getFolders()){
+				expanded.add(new TreePath(new Object[] {keywordTreeModel.getRoot(), folder}));
 			}
 		}
-		cbTree.expandRow(0);
-		cbTree.setRootVisible(false);
-		treeModel.reload();
+		for (TreePath path : expanded){
+			cbTree.expandPath(path);
+		}
+	}
+	
+	/**
+	 * @return Paths of the folders that are expanded in the checkbox tree
+	 */
+	private List<TreePath> getExpandedFolders(){
+		List<TreePath> expanded = new ArrayList<TreePath>();
+		Enumeration<TreePath> paths = cbTree.getExpandedDescendants(new TreePath(keywordTreeModel.getRoot()));
+		while (paths != null && paths.hasMoreElements()){
+			TreePath path = paths.nextElement();
+			if (path.getPathCount() > 1){
+				expanded.add(path);
+			}
+		}
+		return expanded;
 	}
 	
 	/**
@@ -835,7 +1490,12 @@ public class UserView extends JFrame{
 	 * @return Returns true for succesful creation of group view, false for empty group list
 	 */
 	protected boolean createGroupView(){
-		groupKeywordsHashSet = new HashSet<String>();
+		//Group keywords missing from the dictionary are added to the index, which a running search may be reading
+		if (isSearching()){
+			keywordIndex = keywordIndex.copy();
+		}
+		groupKeywordIds = new HashMap<String, BitSet>();
+		checkedGroupKeywordIds = new BitSet();
 		groupKeywordsListModel.clear();
 		groupNameListModel.clear();
 		if (GroupInfo.isEmpty()){
@@ -846,6 +1506,7 @@ public class UserView extends JFrame{
 		for (Map.Entry<String, String> entry : GroupInfo.entrySet()){
 			String txt = "(" + entry.getKey() + ")" + " " + entry.getValue();
 	    	listOfGroups[index] = new CheckBoxListItem(entry.getKey());
+	    	groupKeywordIds.put(entry.getKey(), keywordIndex.toBitSet(entry.getValue()));
 	    	groupNameListModel.addElement(listOfGroups[index]);
 	    	++index;
 		}
@@ -909,18 +1570,17 @@ public class UserView extends JFrame{
 	}
 	
 	/**
-	 * Loads the group info into a HashMap
-	 * @param stmt SQL statement
+	 * Loads the group info from the database into a HashMap, and updates the snapshot
 	 * @throws SQLException SQL Exception
 	 */
-	protected void loadGroupInfo(Statement stmt) throws SQLException{
-		GroupInfo.clear();
-		String query = "select GroupName, GroupKeywords from Groups";
-		ResultSet rs = stmt.executeQuery(query);
-		while(rs.next())
-		{
-			GroupInfo.put(rs.getString("GroupName"), rs.getString("GroupKeywords"));
+	protected void loadGroupInfo() throws SQLException{
+		HashMap<String, String> groups = database.loadGroups();
+		synchronized (dictionaryLock){
+			dictionary = dictionary.withGroups(groups);
 		}
+		dictionary.save();
+		GroupInfo.clear();
+		GroupInfo.putAll(dictionary.getGroups());
 	}
 	
 	/**
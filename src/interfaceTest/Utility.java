@@ -10,13 +10,11 @@ package interfaceTest;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
-import java.util.Enumeration;
 
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
-import javax.swing.tree.DefaultMutableTreeNode;
 
 import interfaceTest.CheckBoxList.CheckBoxListItem;
 
@@ -45,25 +43,16 @@ public final class Utility {
 	}
 	
 	/**
-	 * Helper function to determine whether elements within a CheckBoxList are selected or not
-	 * @param tree CheckBox Tree to be evaluated
+	 * Helper function to determine whether elements within the checkbox tree are selected or not
+	 * @param model Model of the CheckBox Tree to be evaluated
 	 * @return Returns true if no checkbox was selected, false if at least one was selected.
 	 */
-	public static boolean noCheckBoxSelected(CBTree tree){
-		if (tree == null){
+	public static boolean noCheckBoxSelected(KeywordTreeModel model){
+		if (model == null){
 			return true;
 		}
-		Enumeration<?> e = ((DefaultMutableTreeNode) tree.getModel().getRoot()).preorderEnumeration();
-		while (e.hasMoreElements()){
-			DefaultMutableTreeNode node = (DefaultMutableTreeNode) e.nextElement();
-			Object obj = node.getUserObject();  
-			if (obj instanceof TreeNodeCheckBox){
-				TreeNodeCheckBox cb = (TreeNodeCheckBox) obj;
-				if (cb.isSelected()){
-					return false;
-				}
-				
-			}
+		if (model.hasSelection()){
+			return false;
 		}
 		JOptionPane.showMessageDialog(null, "No checkbox selected");
 		return true;
@@ -88,6 +77,57 @@ public final class Utility {
 		return newWord.toString();
 	}
 	
+	/**
+	 * Converts a logfile timestamp of the form yyyyMMdd/HHmmss.SSS into 
+	 * milliseconds since the epoch without creating any objects. The time is
+	 * taken as written in the log, no time zone conversion is done. 
+	 * @param timeStamp The 19 character timestamp from a log line
+	 * @return The epoch milliseconds, or NO_TIME if the timestamp is malformed
+	 */
+	public static long toEpochMillis(CharSequence timeStamp) {
+		if (timeStamp == null || timeStamp.length() != 19 
+				|| timeStamp.charAt(8) != '/' || timeStamp.charAt(15) != '.')
+			return NO_TIME;
+		int year = digits(timeStamp, 0, 4);
+		int month = digits(timeStamp, 4, 2);
+		int day = digits(timeStamp, 6, 2);
+		int hour = digits(timeStamp, 9, 2);
+		int minute = digits(timeStamp, 11, 2);
+		int second = digits(timeStamp, 13, 2);
+		int millis = digits(timeStamp, 16, 3);
+		if ((year | month | day | hour | minute | second | millis) < 0 
+				|| month < 1 || month > 12 || day < 1 || day > 31)
+			return NO_TIME;
+		//Days from the civil calendar date, valid for any Gregorian year
+		int y = (month <= 2) ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		long epochDay = (long) era * 146097 + dayOfEra - 719468;
+		return ((epochDay * 24 + hour) * 60 + minute) * 60000L + second * 1000L + millis;
+	}
+	
+	/**Returned by toEpochMillis when a timestamp cannot be read*/
+	public static final long NO_TIME = Long.MIN_VALUE;
+	
+	/**
+	 * Reads a run of decimal digits as an int
+	 * @param s The characters to read from
+	 * @param start Index of the first digit
+	 * @param count Number of digits to read
+	 * @return The value of the digits, or -1 if any of them is not a digit
+	 */
+	private static int digits(CharSequence s, int start, int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			int d = s.charAt(i) - '0';
+			if (d < 0 || d > 9) return -1;
+			value = value * 10 + d;
+		}
+		return value;
+	}
+	
 	/**
 	 * Utility function that adds an Escape Key listener to a JDialog
 	 * @param dialog JDialog to attach listener to